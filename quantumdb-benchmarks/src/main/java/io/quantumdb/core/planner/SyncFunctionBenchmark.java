@@ -0,0 +1,197 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.IDENTITY;
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.bigint;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.varchar;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.schema.operations.SchemaOperations;
+import io.quantumdb.core.utils.QueryBuilder;
+import io.quantumdb.core.utils.RandomHasher;
+import io.quantumdb.core.versioning.Changelog;
+import io.quantumdb.core.versioning.RefLog;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of a single-row UPDATE on a table which is being synchronized to a ghost table, for the
+ * different forms of sync functions. The "retry_loop" form is the UPDATE / INSERT loop with an exception block which
+ * was used before sync functions switched to upserts. When the record is "missing" from the ghost table (it has not
+ * been copied yet), this form has to enter the exception block, which starts a subtransaction.
+ *
+ * This benchmark requires a running PostgreSQL server. The connection is configured through the "jdbc.url",
+ * "jdbc.user" and "jdbc.pass" system properties, or the PG_USER and PG_PASSWORD environment variables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SyncFunctionBenchmark {
+
+	private static final int RECORDS = 10_000;
+
+	@Param({ "retry_loop", "upsert", "statement" })
+	private String form;
+
+	@Param({ "present", "missing" })
+	private String targetRecord;
+
+	private String jdbcUrl;
+	private String jdbcUser;
+	private String jdbcPass;
+	private String catalogName;
+
+	private Connection connection;
+	private PreparedStatement update;
+	private PreparedStatement delete;
+
+	@Setup
+	public void setUp() throws SQLException {
+		this.jdbcUrl = getProperty("jdbc.url", null, "jdbc:postgresql://localhost:5432");
+		this.jdbcUser = getProperty("jdbc.user", "PG_USER", "postgres");
+		this.jdbcPass = getProperty("jdbc.pass", "PG_PASSWORD", "postgres");
+		this.catalogName = "db_" + RandomHasher.generateHash();
+
+		try (Connection conn = DriverManager.getConnection(jdbcUrl + "/" + jdbcUser, jdbcUser, jdbcPass);
+				Statement statement = conn.createStatement()) {
+			statement.execute("CREATE DATABASE " + catalogName + ";");
+		}
+
+		this.connection = DriverManager.getConnection(jdbcUrl + "/" + catalogName, jdbcUser, jdbcPass);
+		execute("CREATE TABLE users (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL);");
+		execute("CREATE TABLE users_ghost (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL);");
+		execute("INSERT INTO users SELECT id, 'user-' || id FROM generate_series(1, " + RECORDS + ") AS id;");
+		execute("INSERT INTO users_ghost SELECT * FROM users;");
+
+		if (form.equals("retry_loop")) {
+			execute(createRetryLoopFunction().toString());
+			execute("CREATE TRIGGER sync_users AFTER INSERT OR UPDATE OR DELETE ON users FOR EACH ROW "
+					+ "WHEN (pg_trigger_depth() = 0) EXECUTE PROCEDURE sync_users();");
+		}
+		else {
+			SyncFunction syncFunction = createSyncFunction();
+			syncFunction.setStatementLevel(form.equals("statement"));
+			execute(syncFunction.createFunctionStatement().toString());
+			execute(syncFunction.createTriggerStatement().toString());
+		}
+
+		this.update = connection.prepareStatement("UPDATE users SET name = ? WHERE id = ?;");
+		this.delete = connection.prepareStatement("DELETE FROM users_ghost WHERE id = ?;");
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		connection.close();
+		try (Connection conn = DriverManager.getConnection(jdbcUrl + "/" + jdbcUser, jdbcUser, jdbcPass);
+				Statement statement = conn.createStatement()) {
+			statement.execute("DROP DATABASE " + catalogName + ";");
+		}
+	}
+
+	@Benchmark
+	public int updateRecord() throws SQLException {
+		long id = ThreadLocalRandom.current().nextLong(1, RECORDS + 1);
+		if (targetRecord.equals("missing")) {
+			delete.setLong(1, id);
+			delete.executeUpdate();
+		}
+
+		update.setString(1, "user-" + System.nanoTime());
+		update.setLong(2, id);
+		return update.executeUpdate();
+	}
+
+	private SyncFunction createSyncFunction() {
+		Catalog catalog = new Catalog(catalogName);
+		catalog.addTable(new Table("users")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("name", varchar(255), NOT_NULL)));
+		catalog.addTable(new Table("users_ghost")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("name", varchar(255), NOT_NULL)));
+
+		Changelog changelog = new Changelog();
+		changelog.addChangeSet("benchmark", "QuantumDB", SchemaOperations.addColumn("users", "email", varchar(255)));
+
+		RefLog refLog = new RefLog();
+		ColumnRef usersId = new ColumnRef("id");
+		ColumnRef usersName = new ColumnRef("name");
+		TableRef source = refLog.addTable("users", "users", changelog.getRoot(), Lists.newArrayList(usersId, usersName));
+		TableRef target = refLog.addTable("users", "users_ghost", changelog.getLastAdded(), Lists.newArrayList(
+				new ColumnRef("id", Sets.newHashSet(usersId)),
+				new ColumnRef("name", Sets.newHashSet(usersName))));
+
+		SyncFunction syncFunction = new SyncFunction(refLog, source, target, refLog.getColumnMapping(source, target),
+				catalog, new NullRecords(), "sync_users", "sync_users");
+
+		syncFunction.setColumnsToMigrate(Sets.newHashSet("id", "name"));
+		return syncFunction;
+	}
+
+	private static QueryBuilder createRetryLoopFunction() {
+		return new QueryBuilder()
+				.append("CREATE OR REPLACE FUNCTION sync_users()")
+				.append("RETURNS TRIGGER AS $$")
+				.append("BEGIN")
+				.append("  IF TG_OP = 'INSERT' THEN")
+				.append("    INSERT INTO users_ghost (\"id\", \"name\") VALUES (NEW.\"id\", NEW.\"name\");")
+				.append("  ELSIF TG_OP = 'UPDATE' THEN")
+				.append("    LOOP")
+				.append("      UPDATE users_ghost SET \"id\" = NEW.\"id\", \"name\" = NEW.\"name\"")
+				.append("        WHERE \"id\" = OLD.\"id\";")
+				.append("      IF found THEN EXIT; END IF;")
+				.append("      BEGIN")
+				.append("        INSERT INTO users_ghost (\"id\", \"name\") VALUES (NEW.\"id\", NEW.\"name\");")
+				.append("      EXIT;")
+				.append("      EXCEPTION WHEN unique_violation THEN END;")
+				.append("    END LOOP;")
+				.append("  ELSIF TG_OP = 'DELETE' THEN")
+				.append("    DELETE FROM users_ghost WHERE \"id\" = OLD.\"id\";")
+				.append("  END IF;")
+				.append("  RETURN NEW;")
+				.append("END;")
+				.append("$$ LANGUAGE 'plpgsql';");
+	}
+
+	private void execute(String query) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute(query);
+		}
+	}
+
+	private static String getProperty(String key, String environmentKey, String defaultValue) {
+		String value = System.getProperty(key);
+		if (value == null && environmentKey != null) {
+			value = System.getenv(environmentKey);
+		}
+		return value != null ? value : defaultValue;
+	}
+
+}
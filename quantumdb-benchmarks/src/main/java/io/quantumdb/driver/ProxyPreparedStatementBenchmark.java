@@ -0,0 +1,84 @@
+package io.quantumdb.driver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import io.quantumdb.query.rewriter.QueryCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares preparing statements and binding parameters through the QuantumDB driver with doing so directly on the
+ * underlying connection. The underlying JDBC objects are stubs, so the difference is the overhead of the proxy layer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyPreparedStatementBenchmark {
+
+	private static final String QUERY = QueryCorpus.SHORT.getQueries().get(3);
+
+	private Connection connection;
+	private ProxyConnection proxyConnection;
+	private PreparedStatement statement;
+	private PreparedStatement proxyStatement;
+
+	@Setup
+	public void setUp() throws SQLException {
+		ImmutableMap<String, String> tableMapping = ImmutableMap.copyOf(QueryCorpus.createTableMapping(10));
+		RewriteCache rewriteCache = new RewriteCache(RewriteCache.DEFAULT_MAXIMUM_SIZE,
+				RewriteCache.DEFAULT_MAXIMUM_WEIGHT);
+
+		Transformer transformer = new Transformer(new PostgresqlQueryRewriter(), tableMapping, rewriteCache);
+
+		this.connection = Stubs.connection();
+		this.proxyConnection = new ProxyConnection(connection, transformer);
+		this.statement = connection.prepareStatement(QUERY);
+		this.proxyStatement = proxyConnection.prepareStatement(QUERY);
+	}
+
+	@Benchmark
+	public void bindDirectly() throws SQLException {
+		bind(statement);
+	}
+
+	@Benchmark
+	public void bindThroughProxy() throws SQLException {
+		bind(proxyStatement);
+	}
+
+	@Benchmark
+	public void prepareDirectly(Blackhole blackhole) throws SQLException {
+		blackhole.consume(connection.prepareStatement(QUERY));
+	}
+
+	@Benchmark
+	public void prepareThroughProxy(Blackhole blackhole) throws SQLException {
+		blackhole.consume(proxyConnection.prepareStatement(QUERY));
+	}
+
+	private void bind(PreparedStatement statement) throws SQLException {
+		statement.setString(1, "Michael");
+		statement.setString(2, "michael@quantumdb.io");
+		statement.setLong(3, 1L);
+		statement.executeUpdate();
+		statement.clearParameters();
+	}
+
+}
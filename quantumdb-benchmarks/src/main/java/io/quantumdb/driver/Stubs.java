@@ -0,0 +1,53 @@
+package io.quantumdb.driver;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Creates JDBC objects which do nothing, so that benchmarks only measure the overhead of the QuantumDB driver itself.
+ */
+class Stubs {
+
+	static Connection connection() {
+		PreparedStatement statement = preparedStatement();
+		return stub(Connection.class, (proxy, method, args) -> {
+			if (PreparedStatement.class.isAssignableFrom(method.getReturnType())) {
+				return statement;
+			}
+			return defaultValue(method.getReturnType());
+		});
+	}
+
+	static PreparedStatement preparedStatement() {
+		ResultSet resultSet = stub(ResultSet.class, (proxy, method, args) -> defaultValue(method.getReturnType()));
+		return stub(PreparedStatement.class, (proxy, method, args) -> {
+			if (ResultSet.class.equals(method.getReturnType())) {
+				return resultSet;
+			}
+			return defaultValue(method.getReturnType());
+		});
+	}
+
+	private static <T> T stub(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		else if (type == int.class) {
+			return 0;
+		}
+		else if (type == long.class) {
+			return 0L;
+		}
+		else if (type.isPrimitive() && type != void.class) {
+			throw new UnsupportedOperationException("No default value for: " + type);
+		}
+		return null;
+	}
+
+}
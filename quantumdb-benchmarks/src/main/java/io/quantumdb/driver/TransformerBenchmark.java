@@ -0,0 +1,69 @@
+package io.quantumdb.driver;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import io.quantumdb.query.rewriter.QueryCorpus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of setting up a Transformer for a new connection, which happens every time a connection is opened
+ * through the QuantumDB driver, and the cost of rewriting a query which has been rewritten before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformerBenchmark {
+
+	private static final String URL = "jdbc:postgresql://localhost/benchmark";
+	private static final String VERSION = "abcdef1234";
+	private static final String QUERY = QueryCorpus.LONG.getQueries().get(0);
+
+	@Param({ "10", "500" })
+	private int tables;
+
+	private ImmutableMap<String, String> tableMapping;
+	private RewriteCache rewriteCache;
+	private Transformer transformer;
+
+	@Setup
+	public void setUp() {
+		this.tableMapping = ImmutableMap.copyOf(QueryCorpus.createTableMapping(tables));
+		this.rewriteCache = new RewriteCache(RewriteCache.DEFAULT_MAXIMUM_SIZE, RewriteCache.DEFAULT_MAXIMUM_WEIGHT);
+		this.transformer = construct();
+	}
+
+	@Benchmark
+	public Transformer construct() {
+		return new Transformer(new PostgresqlQueryRewriter(), tableMapping, rewriteCache);
+	}
+
+	@Benchmark
+	public Transformer constructWithSharedCache() {
+		RewriteCache cache = RewriteCache.forVersion(URL, VERSION, tableMapping,
+				RewriteCache.DEFAULT_MAXIMUM_SIZE, RewriteCache.DEFAULT_MAXIMUM_WEIGHT);
+
+		return new Transformer(new PostgresqlQueryRewriter(), tableMapping, cache);
+	}
+
+	@Benchmark
+	public String rewriteCached() throws SQLException {
+		return transformer.rewriteQuery(QUERY);
+	}
+
+}
@@ -0,0 +1,62 @@
+package io.quantumdb.query.rewriter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of rewriting a query, over short and long queries, and over small and large table mappings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PostgresqlQueryRewriterBenchmark {
+
+	@Param({ "SHORT", "LONG" })
+	private QueryCorpus corpus;
+
+	@Param({ "10", "500" })
+	private int tables;
+
+	private List<String> queries;
+	private Map<String, String> tableMapping;
+	private PostgresqlQueryRewriter rewriter;
+
+	@Setup
+	public void setUp() {
+		this.queries = corpus.getQueries();
+		this.tableMapping = QueryCorpus.createTableMapping(tables);
+		this.rewriter = new PostgresqlQueryRewriter();
+		rewriter.setTableMapping(tableMapping);
+	}
+
+	@Benchmark
+	public void rewrite(Blackhole blackhole) throws SQLException {
+		for (String query : queries) {
+			blackhole.consume(rewriter.rewrite(query));
+		}
+	}
+
+	@Benchmark
+	public void setTableMapping() {
+		rewriter.setTableMapping(tableMapping);
+	}
+
+}
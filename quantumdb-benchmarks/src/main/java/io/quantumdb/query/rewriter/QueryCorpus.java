@@ -0,0 +1,86 @@
+package io.quantumdb.query.rewriter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of queries resembling what an ORM typically sends to the database, together with table mappings of varying
+ * sizes to rewrite them against.
+ */
+public enum QueryCorpus {
+
+	SHORT(Arrays.asList(
+			"SELECT id, name, email FROM users WHERE id = ?",
+			"SELECT * FROM accounts WHERE owner_id = ? ORDER BY created DESC LIMIT 10",
+			"INSERT INTO transactions (account_id, amount, created) VALUES (?, ?, NOW())",
+			"UPDATE users SET name = ?, email = ? WHERE id = ?",
+			"DELETE FROM sessions WHERE expires < NOW()",
+			"SELECT COUNT(*) FROM orders WHERE customer_id = ? AND status = 'open'")),
+
+	LONG(Arrays.asList(
+			"SELECT u.id, u.name, u.email, a.id, a.balance, t.id, t.amount, t.created "
+					+ "FROM users u "
+					+ "JOIN accounts a ON a.owner_id = u.id "
+					+ "JOIN transactions t ON t.account_id = a.id "
+					+ "LEFT JOIN sessions s ON s.user_id = u.id AND s.expires > NOW() "
+					+ "WHERE u.id IN (SELECT customer_id FROM orders WHERE status = 'open' AND total > 100) "
+					+ "AND t.created > NOW() - INTERVAL '30 days' "
+					+ "AND u.name NOT LIKE 'deleted from users%' "
+					+ "ORDER BY t.created DESC, t.id DESC LIMIT 100;",
+			"SELECT o.id, o.status, o.total, l.quantity, p.name, p.price, c.name, w.location "
+					+ "FROM orders o\n"
+					+ "\tJOIN order_lines l ON l.order_id = o.id\n"
+					+ "\tJOIN products p ON p.id = l.product_id\n"
+					+ "\tJOIN categories c ON c.id = p.category_id\n"
+					+ "\tLEFT JOIN warehouses w ON w.id = p.warehouse_id\n"
+					+ "WHERE o.customer_id = ? AND o.created BETWEEN ? AND ?\n"
+					+ "\tAND p.id IN (SELECT product_id FROM order_lines GROUP BY product_id HAVING SUM(quantity) > 10)\n"
+					+ "ORDER BY o.created DESC;",
+			"INSERT INTO transactions (account_id, amount, description, created) "
+					+ "SELECT a.id, SUM(l.quantity * p.price), 'Settlement of orders from last week', NOW() "
+					+ "FROM accounts a "
+					+ "JOIN orders o ON o.customer_id = a.owner_id "
+					+ "JOIN order_lines l ON l.order_id = o.id "
+					+ "JOIN products p ON p.id = l.product_id "
+					+ "WHERE o.status = 'closed' AND o.settled IS NULL "
+					+ "GROUP BY a.id;",
+			"UPDATE products SET price = price * 1.05, updated = NOW() "
+					+ "WHERE category_id IN (SELECT id FROM categories WHERE name IN ('books', 'music', 'movies')) "
+					+ "AND warehouse_id IN (SELECT id FROM warehouses WHERE location = 'Amsterdam') "
+					+ "AND id NOT IN (SELECT product_id FROM order_lines JOIN orders ON orders.id = order_lines.order_id "
+					+ "WHERE orders.status = 'open');"));
+
+	private static final List<String> TABLE_NAMES = Arrays.asList("users", "accounts", "transactions", "sessions",
+			"orders", "order_lines", "products", "categories", "warehouses", "customers");
+
+	/**
+	 * Creates a table mapping which maps every table used in the corpus to a ghost table, padded with unrelated
+	 * tables up to the specified size.
+	 *
+	 * @param size The number of tables in the table mapping.
+	 * @return The table mapping.
+	 */
+	public static Map<String, String> createTableMapping(int size) {
+		Map<String, String> mapping = new LinkedHashMap<>();
+		for (String tableName : TABLE_NAMES) {
+			mapping.put(tableName, "table_" + Integer.toHexString(tableName.hashCode()));
+		}
+		for (int i = mapping.size(); i < size; i++) {
+			mapping.put("unrelated_" + i, "table_" + Integer.toHexString(i));
+		}
+		return mapping;
+	}
+
+	private final List<String> queries;
+
+	QueryCorpus(List<String> queries) {
+		this.queries = queries;
+	}
+
+	public List<String> getQueries() {
+		return queries;
+	}
+
+}
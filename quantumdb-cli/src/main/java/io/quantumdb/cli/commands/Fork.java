@@ -2,6 +2,7 @@ package io.quantumdb.cli.commands;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 
 import com.google.common.collect.Lists;
 import io.quantumdb.cli.utils.CliException;
@@ -10,6 +11,9 @@ import io.quantumdb.cli.utils.CliWriter.Context;
 import io.quantumdb.core.backends.Backend;
 import io.quantumdb.core.backends.Config;
 import io.quantumdb.core.backends.DatabaseMigrator.MigrationException;
+import io.quantumdb.core.backends.planner.PlanReport;
+import io.quantumdb.core.backends.planner.PlanReport.GhostTable;
+import io.quantumdb.core.backends.planner.PlanReport.SyncTrigger;
 import io.quantumdb.core.migration.Migrator;
 import io.quantumdb.core.versioning.Changelog;
 import io.quantumdb.core.versioning.State;
@@ -21,13 +25,15 @@ public class Fork extends Command {
 
 	@Override
 	public Identifier getIdentifier() {
-		return new Identifier("fork", "Forks an existing database schema, and applies a set of operations to the fork.");
+		return new Identifier("fork", "Forks an existing database schema, and applies a set of operations to the fork. "
+				+ "Use --dry-run to only report what the fork would do.");
 	}
 
 	public void perform(CliWriter writer, List<String> arguments) {
 		try {
 			Config config = Config.load();
 			Backend backend = config.getBackend();
+			boolean dryRun = getArgument(arguments, "dry-run", Boolean.class, () -> false);
 			writer.write("Scanning database...");
 
 			State state = loadState(backend);
@@ -36,6 +42,14 @@ public class Fork extends Command {
 			Version from = getOriginVersion(arguments, state, changelog);
 			Version to = changelog.getVersion(arguments.remove(0));
 
+			if (dryRun) {
+				writer.write("Planning fork from: " + from.getId() + " to: " + to.getId() + " (dry run)...");
+				List<PlanReport> reports = new Migrator(backend).plan(from.getId(), to.getId());
+				reports.forEach(report -> writeReport(writer, report));
+				writer.write("Dry run completed, the database was not changed.", Context.SUCCESS);
+				return;
+			}
+
 			writer.write("Forking database from: " + from.getId() + " to: " + to.getId() + "...");
 
 			Migrator migrator = new Migrator(backend);
@@ -50,6 +64,48 @@ public class Fork extends Command {
 		}
 	}
 
+	private void writeReport(CliWriter writer, PlanReport report) {
+		writer.write("Migration plan from: " + report.getFrom().getId() + " to: " + report.getTo().getId(),
+				Context.SUCCESS);
+
+		writer.indent(1);
+		for (String line : report.getPlan().toString().split("\n")) {
+			writer.write(line);
+		}
+		writer.indent(-1);
+
+		writer.write("Ghost tables:");
+		writer.indent(1);
+		for (GhostTable table : report.getGhostTables()) {
+			writer.write(table.getTableName() + " (" + table.getRefId() + "): " + table.getRecords() + " records, "
+					+ formatBytes(table.getBytes()) + ", copy: " + formatDuration(table.getCopyCost())
+					+ ", indexes: " + formatDuration(table.getIndexBuildCost()));
+		}
+		writer.indent(-1);
+
+		writer.write("Sync triggers:");
+		writer.indent(1);
+		for (SyncTrigger trigger : report.getSyncTriggers()) {
+			writer.write("Writes to " + trigger.getTableName() + " (" + trigger.getRefId() + ") are mirrored into: "
+					+ trigger.getTargetRefIds() + " (" + trigger.getWriteAmplification() + "x write amplification)");
+		}
+		writer.indent(-1);
+
+		writer.write("Estimated copy duration: " + formatDuration(report.getEstimatedCopyDuration())
+				+ " (parallel), " + formatDuration(report.getEstimatedSequentialCopyDuration()) + " (sequential)");
+		writer.write("Estimated index build duration: " + formatDuration(report.getEstimatedIndexBuildDuration()));
+		writer.write("Estimated extra disk space: " + formatBytes(report.getExtraBytes()));
+		writer.newLine();
+	}
+
+	private static String formatDuration(long millis) {
+		return String.format(Locale.ROOT, "%.1fs", millis / 1000.0);
+	}
+
+	private static String formatBytes(long bytes) {
+		return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+	}
+
 	private Version getOriginVersion(List<String> arguments, State state, Changelog changelog) {
 		String versionId = getArgument(arguments, "from", String.class, () -> {
 			List<Version> versions = Lists.newArrayList(state.getRefLog().getVersions());
@@ -21,6 +21,29 @@ public class Config {
 	private static final String CATALOG = "catalog";
 	private static final String PASSWORD = "password";
 	private static final String DRIVER = "driver";
+	private static final String BATCH_TARGET_LATENCY = "batchTargetLatency";
+	private static final String BATCH_MIN_SIZE = "batchMinSize";
+	private static final String BATCH_MAX_SIZE = "batchMaxSize";
+	private static final String BATCH_MAX_PAUSE = "batchMaxPause";
+	private static final String COPY_WORKERS = "copyWorkers";
+	private static final String COPY_PROTOCOL = "copyProtocol";
+	private static final String INDEX_WORKERS = "indexWorkers";
+	private static final String STEP_WORKERS = "stepWorkers";
+	private static final String DEFER_FOREIGN_KEY_VALIDATION = "deferForeignKeyValidation";
+	private static final String FOREIGN_KEY_WORKERS = "foreignKeyWorkers";
+	private static final String STATE_CACHE = "stateCache";
+	private static final String STATE_CACHE_DIR = "stateCacheDir";
+
+	private static final long DEFAULT_BATCH_TARGET_LATENCY = 250;
+	private static final long DEFAULT_BATCH_MIN_SIZE = 100;
+	private static final long DEFAULT_BATCH_MAX_SIZE = 50_000;
+	private static final long DEFAULT_BATCH_MAX_PAUSE = 5_000;
+	private static final long DEFAULT_COPY_WORKERS = 1;
+	private static final long DEFAULT_INDEX_WORKERS = 1;
+	private static final long DEFAULT_STEP_WORKERS = 1;
+	private static final long DEFAULT_FOREIGN_KEY_WORKERS = 1;
+	private static final String DEFAULT_STATE_CACHE_DIR = new File(System.getProperty("user.home"), ".quantumdb/cache")
+			.getPath();
 
 	private static final String FILE = ".quantumdb";
 
@@ -88,6 +111,156 @@ public class Config {
 		return this;
 	}
 
+	/**
+	 * @return The time in milliseconds which copying a single batch of records into a ghost table should take.
+	 */
+	public long getBatchTargetLatency() {
+		return getLong(BATCH_TARGET_LATENCY, DEFAULT_BATCH_TARGET_LATENCY);
+	}
+
+	public Config setBatchTargetLatency(long batchTargetLatency) {
+		properties.setProperty(BATCH_TARGET_LATENCY, Long.toString(batchTargetLatency));
+		return this;
+	}
+
+	/**
+	 * @return The minimum number of records to copy into a ghost table in a single batch.
+	 */
+	public long getBatchMinSize() {
+		return getLong(BATCH_MIN_SIZE, DEFAULT_BATCH_MIN_SIZE);
+	}
+
+	public Config setBatchMinSize(long batchMinSize) {
+		properties.setProperty(BATCH_MIN_SIZE, Long.toString(batchMinSize));
+		return this;
+	}
+
+	/**
+	 * @return The maximum number of records to copy into a ghost table in a single batch.
+	 */
+	public long getBatchMaxSize() {
+		return getLong(BATCH_MAX_SIZE, DEFAULT_BATCH_MAX_SIZE);
+	}
+
+	public Config setBatchMaxSize(long batchMaxSize) {
+		properties.setProperty(BATCH_MAX_SIZE, Long.toString(batchMaxSize));
+		return this;
+	}
+
+	/**
+	 * @return The maximum time in milliseconds to pause between two batches when the database is under pressure.
+	 */
+	public long getBatchMaxPause() {
+		return getLong(BATCH_MAX_PAUSE, DEFAULT_BATCH_MAX_PAUSE);
+	}
+
+	public Config setBatchMaxPause(long batchMaxPause) {
+		properties.setProperty(BATCH_MAX_PAUSE, Long.toString(batchMaxPause));
+		return this;
+	}
+
+	/**
+	 * @return The number of connections to use to copy the records of a single table into its ghost table.
+	 */
+	public int getCopyWorkers() {
+		return (int) Math.max(1, getLong(COPY_WORKERS, DEFAULT_COPY_WORKERS));
+	}
+
+	public Config setCopyWorkers(int copyWorkers) {
+		properties.setProperty(COPY_WORKERS, Integer.toString(copyWorkers));
+		return this;
+	}
+
+	/**
+	 * @return True if records should be streamed into ghost tables using the COPY protocol, instead of being copied
+	 * by a migrator function inside the database.
+	 */
+	public boolean isCopyProtocolEnabled() {
+		String value = properties.getProperty(COPY_PROTOCOL);
+		return value != null && Boolean.parseBoolean(value.trim());
+	}
+
+	public Config setCopyProtocolEnabled(boolean copyProtocolEnabled) {
+		properties.setProperty(COPY_PROTOCOL, Boolean.toString(copyProtocolEnabled));
+		return this;
+	}
+
+	/**
+	 * @return The number of connections to use to build the indexes of ghost tables.
+	 */
+	public int getIndexWorkers() {
+		return (int) Math.max(1, getLong(INDEX_WORKERS, DEFAULT_INDEX_WORKERS));
+	}
+
+	public Config setIndexWorkers(int indexWorkers) {
+		properties.setProperty(INDEX_WORKERS, Integer.toString(indexWorkers));
+		return this;
+	}
+
+	/**
+	 * @return The number of independent migration steps (like copying records into unrelated ghost tables) to
+	 * execute at the same time.
+	 */
+	public int getStepWorkers() {
+		return (int) Math.max(1, getLong(STEP_WORKERS, DEFAULT_STEP_WORKERS));
+	}
+
+	public Config setStepWorkers(int stepWorkers) {
+		properties.setProperty(STEP_WORKERS, Integer.toString(stepWorkers));
+		return this;
+	}
+
+	/**
+	 * @return True if the foreign keys of ghost tables should be added as NOT VALID, and be validated in a separate
+	 * step once their records have been copied, instead of being validated when the ghost tables are created.
+	 */
+	public boolean isForeignKeyValidationDeferred() {
+		String value = properties.getProperty(DEFER_FOREIGN_KEY_VALIDATION);
+		return value != null && Boolean.parseBoolean(value.trim());
+	}
+
+	public Config setForeignKeyValidationDeferred(boolean foreignKeyValidationDeferred) {
+		properties.setProperty(DEFER_FOREIGN_KEY_VALIDATION, Boolean.toString(foreignKeyValidationDeferred));
+		return this;
+	}
+
+	/**
+	 * @return The number of connections to use to validate deferred foreign keys of ghost tables.
+	 */
+	public int getForeignKeyWorkers() {
+		return (int) Math.max(1, getLong(FOREIGN_KEY_WORKERS, DEFAULT_FOREIGN_KEY_WORKERS));
+	}
+
+	public Config setForeignKeyWorkers(int foreignKeyWorkers) {
+		properties.setProperty(FOREIGN_KEY_WORKERS, Integer.toString(foreignKeyWorkers));
+		return this;
+	}
+
+	/**
+	 * @return True if a snapshot of the loaded state should be kept on disk, and reused while the database is unchanged.
+	 */
+	public boolean isStateCacheEnabled() {
+		String value = properties.getProperty(STATE_CACHE);
+		return value == null || value.trim().isEmpty() || Boolean.parseBoolean(value.trim());
+	}
+
+	public Config setStateCacheEnabled(boolean stateCacheEnabled) {
+		properties.setProperty(STATE_CACHE, Boolean.toString(stateCacheEnabled));
+		return this;
+	}
+
+	/**
+	 * @return The directory in which snapshots of the loaded state are stored.
+	 */
+	public File getStateCacheDirectory() {
+		return new File(properties.getProperty(STATE_CACHE_DIR, DEFAULT_STATE_CACHE_DIR));
+	}
+
+	public Config setStateCacheDirectory(File stateCacheDirectory) {
+		properties.setProperty(STATE_CACHE_DIR, stateCacheDirectory.getPath());
+		return this;
+	}
+
 	public void persist() throws IOException {
 		try (FileWriter fileWriter = new FileWriter(FILE)) {
 			properties.store(fileWriter, null);
@@ -113,4 +286,18 @@ public class Config {
 		throw new IllegalArgumentException("No backend support for JDBC URL: " + jdbcUrl);
 	}
 
+	private long getLong(String key, long defaultValue) {
+		String value = properties.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+
+		try {
+			return Long.parseLong(value.trim());
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The value of '" + key + "' is not a number: " + value, e);
+		}
+	}
+
 }
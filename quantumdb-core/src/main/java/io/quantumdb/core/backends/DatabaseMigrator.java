@@ -1,5 +1,6 @@
 package io.quantumdb.core.backends;
 
+import io.quantumdb.core.backends.planner.PlanReport;
 import io.quantumdb.core.migration.Migrator.Stage;
 import io.quantumdb.core.versioning.State;
 import io.quantumdb.core.versioning.Version;
@@ -30,6 +31,18 @@ public interface DatabaseMigrator {
 	 */
 	void applySchemaChanges(State state, Version from, Version to) throws MigrationException;
 
+	/**
+	 * Plans the schema changes needed to go from one Version to another, without changing the database. The
+	 * specified State is modified as if the changes were applied, and should therefore not be persisted.
+	 *
+	 * @param state The state of the database.
+	 * @param from The current version of the database schema.
+	 * @param to The next version of the database schema.
+	 * @return A report describing the planned steps, and their estimated cost.
+	 * @throws MigrationException In case something prevented the planning of the migration.
+	 */
+	PlanReport planSchemaChanges(State state, Version from, Version to) throws MigrationException;
+
 	void applyDataChanges(State state, Stage stage) throws MigrationException;
 
 	/**
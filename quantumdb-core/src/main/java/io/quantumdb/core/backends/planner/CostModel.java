@@ -0,0 +1,92 @@
+package io.quantumdb.core.backends.planner;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.core.schema.definitions.Table;
+
+/**
+ * Estimates how long the steps of a Plan take, based on the statistics of the tables whose records are copied into
+ * each ghost table. The estimates (in milliseconds) are rough, and are only meant to compare steps with each other.
+ */
+public class CostModel {
+
+	private static final TableStatistics EMPTY = new TableStatistics(0, 0, 0);
+
+	// Milliseconds to read or write a single page of 8 KB.
+	private static final double PAGE_COST = 0.05;
+
+	// Milliseconds to transform and insert a single record into a ghost table.
+	private static final double COPY_TUPLE_COST = 0.01;
+
+	// Milliseconds to look up a single record in the index of a referred table.
+	private static final double LOOKUP_TUPLE_COST = 0.002;
+
+	// Milliseconds per record, per comparison, to sort the records of a table when building an index.
+	private static final double SORT_TUPLE_COST = 0.0002;
+
+	public static CostModel empty() {
+		return new CostModel(ImmutableMap.of());
+	}
+
+	private final ImmutableMap<String, TableStatistics> statistics;
+
+	/**
+	 * @param statistics The statistics of the records which are to be copied, keyed by the name of the ghost table.
+	 */
+	public CostModel(Map<String, TableStatistics> statistics) {
+		this.statistics = ImmutableMap.copyOf(statistics);
+	}
+
+	public TableStatistics getStatistics(Table table) {
+		TableStatistics tableStatistics = statistics.get(table.getName());
+		return tableStatistics != null ? tableStatistics : EMPTY;
+	}
+
+	public long estimate(Step step) {
+		Operation operation = step.getOperation();
+		long cost = 0;
+		for (Table table : operation.getTables()) {
+			switch (operation.getType()) {
+				case COPY:
+					cost += estimateCopy(table);
+					break;
+				case VALIDATE_FOREIGN_KEYS:
+					cost += estimateForeignKeyValidation(table);
+					break;
+				default:
+					break;
+			}
+		}
+		return cost;
+	}
+
+	/**
+	 * @return The estimated time to read all records of the source table, and write them into the ghost table.
+	 */
+	public long estimateCopy(Table table) {
+		TableStatistics tableStatistics = getStatistics(table);
+		return Math.round(2 * tableStatistics.getPages() * PAGE_COST + tableStatistics.getTuples() * COPY_TUPLE_COST);
+	}
+
+	/**
+	 * @return The estimated time to build all indexes of the ghost table.
+	 */
+	public long estimateIndexBuild(Table table) {
+		TableStatistics tableStatistics = getStatistics(table);
+		long tuples = tableStatistics.getTuples();
+		double comparisons = tuples > 1 ? Math.log(tuples) / Math.log(2) : 0;
+		double perIndex = tableStatistics.getPages() * PAGE_COST + tuples * comparisons * SORT_TUPLE_COST;
+		return Math.round(table.getIndexes().size() * perIndex);
+	}
+
+	/**
+	 * @return The estimated time to validate all foreign keys of the ghost table.
+	 */
+	public long estimateForeignKeyValidation(Table table) {
+		TableStatistics tableStatistics = getStatistics(table);
+		double perForeignKey = tableStatistics.getPages() * PAGE_COST + tableStatistics.getTuples() * LOOKUP_TUPLE_COST;
+		return Math.round(table.getForeignKeys().size() * perForeignKey);
+	}
+
+}
@@ -15,7 +15,7 @@ import org.apache.commons.lang.builder.HashCodeBuilder;
 public class Operation {
 
 	public enum Type {
-		ADD_NULL, DROP_NULL, COPY
+		ADD_NULL, DROP_NULL, COPY, VALIDATE_FOREIGN_KEYS
 	}
 
 	private final Set<Table> tables;
@@ -3,15 +3,21 @@ package io.quantumdb.core.backends.planner;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.Comparator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.quantumdb.core.backends.planner.Operation.Type;
 import io.quantumdb.core.schema.definitions.Table;
@@ -26,10 +32,12 @@ public class Plan {
 
 		private final MigrationState state;
 		private final List<Step> steps;
+		private CostModel costModel;
 
 		private Builder(MigrationState state) {
 			this.state = state;
 			this.steps = Lists.newArrayList();
+			this.costModel = CostModel.empty();
 		}
 
 		public ImmutableList<Step> getSteps() {
@@ -82,6 +90,19 @@ public class Plan {
 			return step;
 		}
 
+		/**
+		 * Adds a step which validates the foreign keys of the specified tables, after all other steps have been
+		 * executed.
+		 */
+		public Step validateForeignKeys(Set<Table> tables) {
+			Set<Step> lastSteps = Sets.newLinkedHashSet(steps);
+			steps.forEach(step -> lastSteps.removeAll(step.getDependencies()));
+
+			Step step = Step.validateForeignKeys(tables, lastSteps.toArray(new Step[lastSteps.size()]));
+			steps.add(step);
+			return step;
+		}
+
 		public Optional<Step> findFirstCopy(Table table) {
 			return steps.stream()
 					.filter(step -> {
@@ -91,8 +112,44 @@ public class Plan {
 					.findFirst();
 		}
 
+		/**
+		 * Estimates the cost of every step using the specified CostModel, and orders the steps such that of all
+		 * steps which can be executed at the same time, the ones on the longest remaining (critical) path come first.
+		 * Steps with equal priority keep their original order.
+		 */
+		public void prioritize(CostModel costModel) {
+			this.costModel = costModel;
+			steps.forEach(step -> step.setEstimatedCost(costModel.estimate(step)));
+
+			Map<Step, Long> criticalPaths = getCriticalPaths(steps);
+			Set<Step> ordered = Sets.newIdentityHashSet();
+			List<Step> remaining = Lists.newArrayList(steps);
+
+			steps.clear();
+			while (!remaining.isEmpty()) {
+				Optional<Step> next = remaining.stream()
+						.filter(step -> step.getDependencies().stream().allMatch(ordered::contains))
+						.max(Comparator.comparing(criticalPaths::get));
+
+				if (!next.isPresent()) {
+					// Some steps depend on steps outside of this plan, leave those as they are.
+					steps.addAll(remaining);
+					break;
+				}
+
+				Step step = next.get();
+				remaining.remove(step);
+				ordered.add(step);
+				steps.add(step);
+			}
+		}
+
 		public Plan build(RefLog refLog, Set<Table> ghostTables, Set<View> views) {
-			return new Plan(Lists.newArrayList(steps), refLog, ghostTables, views);
+			Map<String, Long> indexBuildCosts = ghostTables.stream()
+					.filter(table -> costModel.estimateIndexBuild(table) > 0)
+					.collect(Collectors.toMap(Table::getName, costModel::estimateIndexBuild));
+
+			return new Plan(Lists.newArrayList(steps), refLog, ghostTables, views, indexBuildCosts);
 		}
 
 	}
@@ -105,12 +162,20 @@ public class Plan {
 	private final RefLog refLog;
 	private final ImmutableSet<Table> ghostTables;
 	private final ImmutableSet<View> views;
+	private final ImmutableMap<String, Long> indexBuildCosts;
 
 	public Plan(List<Step> steps, RefLog refLog, Set<Table> ghostTables, Set<View> views) {
+		this(steps, refLog, ghostTables, views, ImmutableMap.of());
+	}
+
+	public Plan(List<Step> steps, RefLog refLog, Set<Table> ghostTables, Set<View> views,
+			Map<String, Long> indexBuildCosts) {
+
 		this.steps = ImmutableList.copyOf(steps);
 		this.refLog = refLog;
 		this.ghostTables = ImmutableSet.copyOf(ghostTables);
 		this.views = ImmutableSet.copyOf(views);
+		this.indexBuildCosts = ImmutableMap.copyOf(indexBuildCosts);
 	}
 
 	public ImmutableList<Step> getSteps() {
@@ -128,9 +193,18 @@ public class Plan {
 				.allMatch(Step::isExecuted);
 	}
 
+	/**
+	 * @return For each step, the estimated time it takes to execute the step and all steps which depend on it.
+	 */
+	public Map<Step, Long> getCriticalPaths() {
+		return getCriticalPaths(steps);
+	}
+
 	@Override
 	public String toString() {
 		List<Step> toPrint = Lists.newArrayList(steps);
+		boolean estimated = toPrint.stream().anyMatch(step -> step.getEstimatedCost() > 0);
+		Map<Step, Long> criticalPaths = getCriticalPaths(toPrint);
 
 		StringBuilder builder = new StringBuilder();
 		for (int i = 0; i < toPrint.size(); i++) {
@@ -148,9 +222,60 @@ public class Plan {
 						.collect(Collectors.toList()));
 			}
 
+			if (estimated) {
+				builder.append(" (estimated: " + formatDuration(step.getEstimatedCost()));
+				builder.append(", critical path: " + formatDuration(criticalPaths.get(step)) + ")");
+			}
+
+			builder.append("\n");
+		}
+
+		if (estimated) {
+			long criticalPath = criticalPaths.values().stream().mapToLong(Long::longValue).max().orElse(0);
+			long total = toPrint.stream().mapToLong(Step::getEstimatedCost).sum();
+			builder.append("Estimated duration: " + formatDuration(criticalPath) + " (critical path), "
+					+ formatDuration(total) + " (all steps)\n");
+		}
+
+		if (!indexBuildCosts.isEmpty()) {
+			builder.append("Estimated index builds: ");
+			builder.append(indexBuildCosts.entrySet().stream()
+					.sorted(Comparator.comparing(Entry::getKey))
+					.map(entry -> entry.getKey() + ": " + formatDuration(entry.getValue()))
+					.collect(Collectors.joining(", ")));
 			builder.append("\n");
 		}
 		return builder.toString();
 	}
 
+	private static Map<Step, Long> getCriticalPaths(List<Step> steps) {
+		Map<Step, List<Step>> dependees = Maps.newIdentityHashMap();
+		for (Step step : steps) {
+			for (Step dependency : step.getDependencies()) {
+				dependees.computeIfAbsent(dependency, key -> Lists.newArrayList()).add(step);
+			}
+		}
+
+		Map<Step, Long> criticalPaths = Maps.newIdentityHashMap();
+		steps.forEach(step -> getCriticalPath(step, dependees, criticalPaths));
+		return criticalPaths;
+	}
+
+	private static long getCriticalPath(Step step, Map<Step, List<Step>> dependees, Map<Step, Long> criticalPaths) {
+		Long criticalPath = criticalPaths.get(step);
+		if (criticalPath == null) {
+			long longestDependee = 0;
+			for (Step dependee : dependees.getOrDefault(step, ImmutableList.of())) {
+				longestDependee = Math.max(longestDependee, getCriticalPath(dependee, dependees, criticalPaths));
+			}
+			criticalPath = step.getEstimatedCost() + longestDependee;
+			criticalPaths.put(step, criticalPath);
+		}
+		return criticalPath;
+	}
+
+	private static String formatDuration(long millis) {
+		return String.format(Locale.ROOT, "%.1fs", millis / 1000.0);
+	}
+
 }
@@ -0,0 +1,168 @@
+package io.quantumdb.core.backends.planner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.quantumdb.core.backends.DatabaseMigrator.MigrationException;
+import io.quantumdb.core.schema.definitions.Table;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Executes the steps of a Plan on a bounded pool of worker threads. Every step whose dependencies have been executed
+ * is started as soon as a worker is available, so independent steps (like copying records into unrelated ghost
+ * tables) run at the same time. Steps which operate on the same table are never executed at the same time. When a
+ * step fails, no further steps are started, the running steps are interrupted and cancelled, and the failure is
+ * reported once they have stopped.
+ */
+@Slf4j
+public class PlanExecutor {
+
+	@FunctionalInterface
+	public interface StepHandler {
+		void execute(Step step) throws MigrationException, InterruptedException;
+
+		/**
+		 * Cancels the work of steps which are still being executed, after another step failed. Since the threads
+		 * executing these steps may be blocked on the database, interrupting them is not always enough.
+		 */
+		default void cancel() {
+			// Interrupting the running steps suffices.
+		}
+	}
+
+	private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+
+	private final Plan plan;
+	private final int workers;
+
+	public PlanExecutor(Plan plan, int workers) {
+		checkArgument(workers > 0, "You must specify at least one worker!");
+		this.plan = plan;
+		this.workers = workers;
+	}
+
+	/**
+	 * Executes all steps of the Plan which have not been executed yet, and returns when all of them have been
+	 * executed. Steps are marked as executed once the specified handler returns.
+	 *
+	 * @param handler The handler which executes a single step. It may be called from several threads at once.
+	 * @throws MigrationException In case a step failed, or the remaining steps can not be executed.
+	 * @throws InterruptedException In case the thread was interrupted while waiting for steps to complete.
+	 */
+	public void execute(StepHandler handler) throws MigrationException, InterruptedException {
+		List<Step> pending = Lists.newArrayList();
+		for (Step step : plan.getSteps()) {
+			if (!step.isExecuted()) {
+				pending.add(step);
+			}
+		}
+
+		int total = pending.size();
+		if (total == 0) {
+			return;
+		}
+
+		log.info("Executing {} steps using {} workers", total, Math.min(workers, total));
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(workers, total));
+		CompletionService<Step> completionService = new ExecutorCompletionService<>(executor);
+		Map<Future<Step>, Step> running = Maps.newHashMap();
+		boolean succeeded = false;
+		try {
+			int completed = 0;
+			while (completed < total) {
+				for (Step step : Lists.newArrayList(pending)) {
+					if (running.size() >= workers) {
+						break;
+					}
+					if (step.canBeExecuted() && !conflictsWithRunningSteps(step, running.values())) {
+						pending.remove(step);
+						int position = total - pending.size();
+						log.info("Starting step {}/{}: {}", position, total, step);
+						running.put(completionService.submit(() -> execute(handler, step)), step);
+					}
+				}
+
+				if (running.isEmpty()) {
+					throw new MigrationException("Unable to execute remaining steps, as their dependencies are not "
+							+ "part of the plan: " + pending);
+				}
+
+				Future<Step> future = completionService.take();
+				Step step = running.remove(future);
+				try {
+					future.get();
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					log.error("Step: {} failed, cancelling {} running steps", step, running.size());
+					if (cause instanceof MigrationException) {
+						throw (MigrationException) cause;
+					}
+					throw new MigrationException("Could not execute step: " + step, cause);
+				}
+
+				step.markAsExecuted();
+				completed++;
+				log.info("Completed {}/{} steps", completed, total);
+			}
+			succeeded = true;
+		}
+		finally {
+			executor.shutdownNow();
+			if (!succeeded) {
+				cancel(handler, executor, running.size());
+			}
+		}
+	}
+
+	private void cancel(StepHandler handler, ExecutorService executor, int runningSteps) {
+		try {
+			handler.cancel();
+		}
+		catch (RuntimeException e) {
+			log.warn("Could not cancel running steps", e);
+		}
+
+		try {
+			if (!executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				log.warn("{} running steps did not stop within {} seconds", runningSteps, TERMINATION_TIMEOUT_SECONDS);
+			}
+		}
+		catch (InterruptedException e) {
+			log.warn("Interrupted while waiting for {} running steps to stop", runningSteps);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Step execute(StepHandler handler, Step step) throws MigrationException, InterruptedException {
+		long start = System.currentTimeMillis();
+		handler.execute(step);
+		log.info("Executed step: {} in {} ms", step, System.currentTimeMillis() - start);
+		return step;
+	}
+
+	private boolean conflictsWithRunningSteps(Step step, Iterable<Step> runningSteps) {
+		Set<Table> tables = step.getOperation().getTables();
+		for (Step runningStep : runningSteps) {
+			if (!Collections.disjoint(tables, runningStep.getOperation().getTables())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
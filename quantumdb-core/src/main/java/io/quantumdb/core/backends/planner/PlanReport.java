@@ -0,0 +1,161 @@
+package io.quantumdb.core.backends.planner;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.planner.Operation.Type;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+import io.quantumdb.core.versioning.Version;
+import lombok.Data;
+
+/**
+ * Describes what executing a Plan would do to the database: which ghost tables are created, how many records are
+ * copied into them, how much time and disk space this is expected to take, and how many additional writes the sync
+ * triggers cause while the source tables are being mirrored into the ghost tables.
+ */
+@Data
+public class PlanReport {
+
+	@Data
+	public static class GhostTable {
+		private final String tableName;
+		private final String refId;
+		private final Set<String> sourceRefIds;
+		private final long records;
+		private final long bytes;
+		private final long copyCost;
+		private final long indexBuildCost;
+	}
+
+	@Data
+	public static class SyncTrigger {
+		private final String tableName;
+		private final String refId;
+		private final Set<String> targetRefIds;
+
+		/**
+		 * @return The number of records written for every record written to the source table.
+		 */
+		public int getWriteAmplification() {
+			return 1 + targetRefIds.size();
+		}
+	}
+
+	/**
+	 * Creates a PlanReport for a Plan created to migrate from one Version to another.
+	 *
+	 * @param plan The Plan to report on.
+	 * @param from The Version the Plan migrates from.
+	 * @param to The Version the Plan migrates to.
+	 * @param statistics The statistics of the existing tables, keyed by their ref ID.
+	 * @return The PlanReport describing the specified Plan.
+	 */
+	public static PlanReport create(Plan plan, Version from, Version to, Map<String, TableStatistics> statistics) {
+		Set<String> ghostRefIds = plan.getGhostTables().stream()
+				.map(Table::getName)
+				.collect(Collectors.toSet());
+
+		Multimap<TableRef, TableRef> sourcesByGhost = LinkedHashMultimap.create();
+		Multimap<TableRef, TableRef> ghostsBySource = LinkedHashMultimap.create();
+		plan.getRefLog().getTableMapping(from, to).entries().stream()
+				.filter(entry -> ghostRefIds.contains(entry.getValue().getRefId()))
+				.forEach(entry -> {
+					sourcesByGhost.put(entry.getValue(), entry.getKey());
+					ghostsBySource.put(entry.getKey(), entry.getValue());
+				});
+
+		List<GhostTable> ghostTables = Lists.newArrayList();
+		for (TableRef ghost : sourcesByGhost.keySet()) {
+			TableStatistics total = new TableStatistics(0, 0, 0);
+			Set<String> sourceRefIds = Sets.newLinkedHashSet();
+			for (TableRef source : sourcesByGhost.get(ghost)) {
+				sourceRefIds.add(source.getRefId());
+				TableStatistics sourceStatistics = statistics.get(source.getRefId());
+				if (sourceStatistics != null) {
+					total = total.add(sourceStatistics);
+				}
+			}
+
+			long copyCost = plan.getSteps().stream()
+					.filter(step -> step.getOperation().getType() == Type.COPY)
+					.filter(step -> step.getOperation().getTables().stream()
+							.anyMatch(table -> table.getName().equals(ghost.getRefId())))
+					.mapToLong(Step::getEstimatedCost)
+					.sum();
+
+			long indexBuildCost = plan.getIndexBuildCosts().getOrDefault(ghost.getRefId(), 0L);
+			ghostTables.add(new GhostTable(ghost.getName(), ghost.getRefId(), sourceRefIds, total.getTuples(),
+					total.getBytes(), copyCost, indexBuildCost));
+		}
+
+		List<SyncTrigger> syncTriggers = ghostsBySource.keySet().stream()
+				.map(source -> new SyncTrigger(source.getName(), source.getRefId(), ghostsBySource.get(source).stream()
+						.map(TableRef::getRefId)
+						.collect(Collectors.toCollection(Sets::newLinkedHashSet))))
+				.collect(Collectors.toList());
+
+		return new PlanReport(from, to, plan, ghostTables, syncTriggers);
+	}
+
+	private final Version from;
+	private final Version to;
+	private final Plan plan;
+	private final ImmutableList<GhostTable> ghostTables;
+	private final ImmutableList<SyncTrigger> syncTriggers;
+
+	public PlanReport(Version from, Version to, Plan plan, List<GhostTable> ghostTables,
+			List<SyncTrigger> syncTriggers) {
+
+		this.from = from;
+		this.to = to;
+		this.plan = plan;
+		this.ghostTables = ImmutableList.copyOf(ghostTables);
+		this.syncTriggers = ImmutableList.copyOf(syncTriggers);
+	}
+
+	/**
+	 * @return The estimated time to copy all records, when all independent steps are executed at the same time.
+	 */
+	public long getEstimatedCopyDuration() {
+		return plan.getCriticalPaths().values().stream()
+				.mapToLong(Long::longValue)
+				.max()
+				.orElse(0);
+	}
+
+	/**
+	 * @return The estimated time to copy all records, when all steps are executed one after the other.
+	 */
+	public long getEstimatedSequentialCopyDuration() {
+		return plan.getSteps().stream()
+				.mapToLong(Step::getEstimatedCost)
+				.sum();
+	}
+
+	/**
+	 * @return The estimated time to build the indexes of all ghost tables, one table after the other.
+	 */
+	public long getEstimatedIndexBuildDuration() {
+		return ghostTables.stream()
+				.mapToLong(GhostTable::getIndexBuildCost)
+				.sum();
+	}
+
+	/**
+	 * @return The estimated additional disk space needed for the ghost tables (including their indexes).
+	 */
+	public long getExtraBytes() {
+		return ghostTables.stream()
+				.mapToLong(GhostTable::getBytes)
+				.sum();
+	}
+
+}
@@ -23,6 +23,7 @@ public class PlanValidator {
 		verifyThatAllColumnsAreMigrated(plan);
 		verifyThatIdentityColumnsAreMigratedFirst(plan);
 		verifyThatNotNullableForeignKeysAreSatisfiedBeforeInitialCopy(plan);
+		verifyThatForeignKeysAreValidatedLast(plan);
 	}
 
 	private static void verifyThatAddNullStepsDoNotDependOnOtherSteps(Plan plan) {
@@ -69,8 +70,13 @@ public class PlanValidator {
 			return;
 		}
 
-		List<Step> stepsWithNoDependees = Lists.newArrayList(plan.getSteps());
-		plan.getSteps().forEach(step -> step.getDependencies().forEach(stepsWithNoDependees::remove));
+		List<Step> stepsWithNoDependees = plan.getSteps().stream()
+				.filter(step -> step.getOperation().getType() != Type.VALIDATE_FOREIGN_KEYS)
+				.collect(Collectors.toList());
+
+		plan.getSteps().stream()
+				.filter(step -> step.getOperation().getType() != Type.VALIDATE_FOREIGN_KEYS)
+				.forEach(step -> step.getDependencies().forEach(stepsWithNoDependees::remove));
 
 		checkState(stepsWithNoDependees.size() == 1, "There can only be one last step");
 
@@ -191,4 +197,19 @@ public class PlanValidator {
 			}
 		}
 	}
+
+	private static void verifyThatForeignKeysAreValidatedLast(Plan plan) {
+		for (Step step : plan.getSteps()) {
+			if (step.getOperation().getType() != Type.VALIDATE_FOREIGN_KEYS) {
+				continue;
+			}
+
+			Set<Step> dependencies = step.getTransitiveDependencies();
+			plan.getSteps().stream()
+					.filter(other -> other.getOperation().getType() != Type.VALIDATE_FOREIGN_KEYS)
+					.forEach(other -> checkState(dependencies.contains(other),
+							"Step: " + step + " does not depend on step: " + other));
+		}
+	}
+
 }
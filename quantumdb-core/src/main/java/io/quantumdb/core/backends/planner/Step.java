@@ -13,6 +13,7 @@ import io.quantumdb.core.backends.planner.Operation.Type;
 import io.quantumdb.core.schema.definitions.Table;
 import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
@@ -37,12 +38,22 @@ public class Step {
 		return step;
 	}
 
+	public static Step validateForeignKeys(Set<Table> tables, Step... dependentOn) {
+		Step step = new Step(new Operation(tables, Type.VALIDATE_FOREIGN_KEYS));
+		Arrays.stream(dependentOn).forEach(step::makeDependentOn);
+		return step;
+	}
+
 	@Getter(AccessLevel.PUBLIC)
 	private final Operation operation;
 
 	private final AtomicBoolean executed;
 	private final Set<Step> dependsOn;
 
+	@Getter(AccessLevel.PUBLIC)
+	@Setter
+	private long estimatedCost;
+
 	Step(Operation operation) {
 		this.operation = operation;
 		this.executed = new AtomicBoolean(false);
@@ -0,0 +1,20 @@
+package io.quantumdb.core.backends.planner;
+
+import lombok.Data;
+
+/**
+ * The (estimated) number of records, disk pages, and bytes on disk (including indexes) of a table, as reported by
+ * the database.
+ */
+@Data
+public class TableStatistics {
+
+	private final long tuples;
+	private final long pages;
+	private final long bytes;
+
+	public TableStatistics add(TableStatistics other) {
+		return new TableStatistics(tuples + other.tuples, pages + other.pages, bytes + other.bytes);
+	}
+
+}
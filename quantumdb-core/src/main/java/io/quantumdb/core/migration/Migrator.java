@@ -8,9 +8,11 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import io.quantumdb.core.backends.Backend;
 import io.quantumdb.core.backends.DatabaseMigrator;
 import io.quantumdb.core.backends.DatabaseMigrator.MigrationException;
+import io.quantumdb.core.backends.planner.PlanReport;
 import io.quantumdb.core.schema.operations.Operation.Type;
 import io.quantumdb.core.versioning.Changelog;
 import io.quantumdb.core.versioning.State;
@@ -65,6 +67,61 @@ public class Migrator {
 		log.info("Forking from version: {} to version: {}", sourceVersionId, targetVersionId);
 
 		State state = loadState();
+		DatabaseMigrator migrator = backend.getMigrator();
+		List<Stage> stages = determineStages(state, sourceVersionId, targetVersionId);
+
+		Version intermediate = null;
+		for (Stage stage : stages) {
+			if (stage.getType() == Type.DDL) {
+				log.info("Creating new state: {}", stage.getLast());
+				migrator.applySchemaChanges(state, stage.getParent(), stage.getLast());
+				if (intermediate != null) {
+					log.info("Dropping intermediate state: {}", intermediate.getId());
+					migrator.drop(state, intermediate);
+				}
+				intermediate = stage.getLast();
+			}
+			else  if (stage.getType() == Type.DML) {
+				log.info("Executing data changes: {}", stage.getVersions());
+				migrator.applyDataChanges(state, stage);
+			}
+		}
+	}
+
+	/**
+	 * Plans the fork from one version to another without changing the database, and reports what the fork would do.
+	 *
+	 * @param sourceVersionId The version to fork from.
+	 * @param targetVersionId The version to fork to.
+	 * @return A PlanReport for every stage of schema changes, or an empty List if there is nothing to fork.
+	 * @throws MigrationException In case the fork could not be planned.
+	 */
+	public List<PlanReport> plan(String sourceVersionId, String targetVersionId) throws MigrationException {
+		log.info("Planning fork from version: {} to version: {}", sourceVersionId, targetVersionId);
+
+		State state = loadState();
+		DatabaseMigrator migrator = backend.getMigrator();
+		List<Stage> stages = determineStages(state, sourceVersionId, targetVersionId);
+
+		List<PlanReport> reports = Lists.newArrayList();
+		for (Stage stage : stages) {
+			if (stage.getType() == Type.DDL) {
+				log.info("Planning new state: {}", stage.getLast());
+				reports.add(migrator.planSchemaChanges(state, stage.getParent(), stage.getLast()));
+			}
+			else if (stage.getType() == Type.DML) {
+				log.info("Skipping data changes: {}", stage.getVersions());
+				stage.getVersions().forEach(state.getRefLog()::fork);
+			}
+		}
+		return reports;
+	}
+
+	/**
+	 * @return The stages to execute to fork from the source version to the target version, or an empty List if the
+	 * database cannot or need not be forked.
+	 */
+	private List<Stage> determineStages(State state, String sourceVersionId, String targetVersionId) {
 		Changelog changelog = state.getChangelog();
 		Version from = changelog.getVersion(sourceVersionId);
 		Version to = changelog.getVersion(targetVersionId);
@@ -79,33 +136,15 @@ public class Migrator {
 
 		if (!origins.contains(sourceVersionId)) {
 			log.warn("Not forking database, since we're not currently at version: {}", sourceVersionId);
-			return;
+			return ImmutableList.of();
 		}
 
 		if (origins.contains(targetVersionId)) {
 			log.warn("Not forking database, since we're already at version: {}", targetVersionId);
-			return;
+			return ImmutableList.of();
 		}
 
-		DatabaseMigrator migrator = backend.getMigrator();
-		List<Stage> stages = VersionTraverser.verifyPathAndState(state, from, to);
-
-		Version intermediate = null;
-		for (Stage stage : stages) {
-			if (stage.getType() == Type.DDL) {
-				log.info("Creating new state: {}", stage.getLast());
-				migrator.applySchemaChanges(state, stage.getParent(), stage.getLast());
-				if (intermediate != null) {
-					log.info("Dropping intermediate state: {}", intermediate.getId());
-					migrator.drop(state, intermediate);
-				}
-				intermediate = stage.getLast();
-			}
-			else  if (stage.getType() == Type.DML) {
-				log.info("Executing data changes: {}", stage.getVersions());
-				migrator.applyDataChanges(state, stage);
-			}
-		}
+		return VersionTraverser.verifyPathAndState(state, from, to);
 	}
 
 	public void drop(String versionId) throws MigrationException {
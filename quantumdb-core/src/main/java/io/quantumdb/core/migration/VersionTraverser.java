@@ -27,45 +27,72 @@ public class VersionTraverser {
 		BACKWARDS, FORWARDS;
 	}
 
-	public static Direction getDirection(Version from, Version to) {
-		checkArgument(from != null, "You must specify a 'from' version!");
-		checkArgument(to != null, "You must specify a 'to' version!");
+	/**
+	 * Determines the generation of versions, which is their distance to the root version. Since the parent of a
+	 * Version never changes, generations are memoized for the lifetime of this object.
+	 */
+	public static class Generations {
+
+		private final Map<Version, Integer> generations = Maps.newHashMap();
+
+		public Direction getDirection(Version from, Version to) {
+			checkArgument(from != null, "You must specify a 'from' version!");
+			checkArgument(to != null, "You must specify a 'to' version!");
 
-		int fromGeneration = getGeneration(from);
-		int toGeneration = getGeneration(to);
+			int fromGeneration = getGeneration(from);
+			int toGeneration = getGeneration(to);
 
-		if (fromGeneration > toGeneration) {
-			return Direction.BACKWARDS;
+			if (fromGeneration > toGeneration) {
+				return Direction.BACKWARDS;
+			}
+			else if (toGeneration > fromGeneration) {
+				return Direction.FORWARDS;
+			}
+			throw new IllegalArgumentException("These are different versions but in the same generation: " + from + ", " + to);
 		}
-		else if (toGeneration > fromGeneration) {
-			return Direction.FORWARDS;
+
+		public Version getFirst(Set<Version> versions) {
+			checkArgument(versions != null, "You must specify a set of 'versions'!");
+
+			Version first = null;
+			int lowestGeneration = Integer.MAX_VALUE;
+			for (Version version : versions) {
+				int generation = getGeneration(version);
+				if (generation < lowestGeneration) {
+					lowestGeneration = generation;
+					first = version;
+				}
+			}
+			return first;
 		}
-		throw new IllegalArgumentException("These are different versions but in the same generation: " + from + ", " + to);
-	}
 
-	public static Version getFirst(Set<Version> versions) {
-		checkArgument(versions != null, "You must specify a set of 'versions'!");
-
-		Version first = null;
-		int lowestGeneration = Integer.MAX_VALUE;
-		for (Version version : versions) {
-			int generation = getGeneration(version);
-			if (generation < lowestGeneration) {
-				lowestGeneration = generation;
-				first = version;
+		public int getGeneration(Version version) {
+			Integer generation = generations.get(version);
+			if (generation != null) {
+				return generation;
+			}
+
+			List<Version> path = Lists.newArrayList();
+			Version pointer = version;
+			while (pointer != null && !generations.containsKey(pointer)) {
+				path.add(pointer);
+				pointer = pointer.getParent();
+			}
+
+			int current = pointer == null ? -1 : generations.get(pointer);
+			for (Version step : Lists.reverse(path)) {
+				generations.put(step, ++current);
 			}
+			return current;
 		}
-		return first;
 	}
 
-	private static int getGeneration(Version version) {
-		int generation = 0;
-		Version pointer = version;
-		while (pointer.getParent() != null) {
-			pointer = pointer.getParent();
-			generation++;
-		}
-		return generation;
+	public static Direction getDirection(Version from, Version to) {
+		return new Generations().getDirection(from, to);
+	}
+
+	public static Version getFirst(Set<Version> versions) {
+		return new Generations().getFirst(versions);
 	}
 
 	public static Optional<List<Version>> findPath(Version from, Version to) {
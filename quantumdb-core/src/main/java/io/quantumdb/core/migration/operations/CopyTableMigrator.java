@@ -20,7 +20,7 @@ class CopyTableMigrator implements SchemaOperationMigrator<CopyTable> {
 
 	@Override
 	public void migrate(Catalog catalog, RefLog refLog, Version version, CopyTable operation) {
-		String refId = RandomHasher.generateRefId(refLog);
+		String refId = RandomHasher.generateRefId(refLog, version, operation.getTargetTableName());
 		String sourceTableName = operation.getSourceTableName();
 		String targetTableName = operation.getTargetTableName();
 
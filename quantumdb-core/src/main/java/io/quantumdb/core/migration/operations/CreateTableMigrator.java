@@ -17,7 +17,7 @@ class CreateTableMigrator implements SchemaOperationMigrator<CreateTable> {
 
 	@Override
 	public void migrate(Catalog catalog, RefLog refLog, Version version, CreateTable operation) {
-		String refId = RandomHasher.generateRefId(refLog);
+		String refId = RandomHasher.generateRefId(refLog, version, operation.getTableName());
 		String tableName = operation.getTableName();
 
 		refLog.fork(version);
@@ -35,7 +35,7 @@ class TransitiveTableMirrorer {
 				continue;
 			}
 
-			String newRefId = RandomHasher.generateRefId(refLog);
+			String newRefId = RandomHasher.generateRefId(refLog, version, tableRef.getName());
 			Table table = catalog.getTable(tableRef.getRefId());
 			tableRef.ghost(newRefId, version);
 			catalog.addTable(table.copy().rename(newRefId));
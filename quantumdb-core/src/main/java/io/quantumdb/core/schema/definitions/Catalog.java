@@ -105,7 +105,7 @@ public class Catalog implements Copyable<Catalog> {
 	public View removeView(String viewName) {
 		View view = getView(viewName);
 
-		tables.remove(view);
+		views.remove(view);
 		view.setParent(null);
 
 		return view;
@@ -8,6 +8,7 @@ import java.util.stream.Collectors;
 
 import io.quantumdb.core.versioning.RefLog;
 import io.quantumdb.core.versioning.RefLog.TableRef;
+import io.quantumdb.core.versioning.Version;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
@@ -36,6 +37,7 @@ public class RandomHasher {
 		Set<String> refIds = refLog.getTableRefs().stream()
 				.map(TableRef::getRefId)
 				.collect(Collectors.toSet());
+		refIds.addAll(refLog.getReservedRefIds());
 
 		String hash = "table_" + generateHash();
 		while (refIds.contains(hash)) {
@@ -45,4 +47,15 @@ public class RandomHasher {
 		return hash;
 	}
 
+	/**
+	 * @return The table ID which is reserved in the RefLog for the table with the specified name in the specified
+	 * version, or a new random table ID if there's no such reservation.
+	 */
+	public static String generateRefId(RefLog refLog, Version version, String tableName) {
+		checkArgument(refLog != null, "You must specify a 'refLog'.");
+
+		return refLog.takeReservedRefId(version, tableName)
+				.orElseGet(() -> generateRefId(refLog));
+	}
+
 }
@@ -67,7 +67,10 @@ public class QuantumTables {
 
 			// Creates the "active_versions" table which describes which versions are active at this time.
 			"CREATE TABLE quantumdb.active_versions (version_id VARCHAR(10), PRIMARY KEY (version_id));",
-			"ALTER TABLE quantumdb.active_versions ADD CONSTRAINT active_versions_version_id FOREIGN KEY (version_id) REFERENCES quantumdb.changelog (version_id) ON DELETE CASCADE;"
+			"ALTER TABLE quantumdb.active_versions ADD CONSTRAINT active_versions_version_id FOREIGN KEY (version_id) REFERENCES quantumdb.changelog (version_id) ON DELETE CASCADE;",
+
+			// Creates the "copy_checkpoints" table which tracks how far records have been copied into ghost tables, so that an interrupted copy can be resumed.
+			"CREATE TABLE quantumdb.copy_checkpoints (target_ref_id VARCHAR(255) NOT NULL, range_id INT NOT NULL, source_ref_id VARCHAR(255) NOT NULL, column_names TEXT NOT NULL, start_identity TEXT, end_identity TEXT NOT NULL, last_identity TEXT, records_copied BIGINT NOT NULL DEFAULT 0, updated TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(), PRIMARY KEY (target_ref_id, range_id));"
 	);
 
 	public static int prepare(Connection connection) throws SQLException {
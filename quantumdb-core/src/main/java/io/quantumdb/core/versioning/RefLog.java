@@ -4,13 +4,18 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.isNullOrEmpty;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -19,27 +24,34 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
-import io.quantumdb.core.migration.VersionTraverser;
+import com.google.common.collect.Table;
 import io.quantumdb.core.migration.VersionTraverser.Direction;
+import io.quantumdb.core.migration.VersionTraverser.Generations;
 import io.quantumdb.core.schema.definitions.Catalog;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
 @Slf4j
-@ToString
-@EqualsAndHashCode
+@ToString(of = { "refMapping", "activeVersions" })
+@EqualsAndHashCode(of = { "refMapping", "activeVersions" })
 public class RefLog {
 
 	@Data
 	@ToString(of = { "refId", "name", "versions" })
 	public static abstract class DataRef {
 
+		@Setter(AccessLevel.NONE)
 		private String name;
+
+		@Setter(AccessLevel.NONE)
 		private String refId;
+
 		private final Set<Version> versions;
 		private final RefLog refLog;
 
@@ -51,20 +63,22 @@ public class RefLog {
 		}
 
 		public DataRef rename(String newName) {
+			String oldName = this.name;
 			this.name = newName;
+			getRefLog().reindex(this, oldName);
 			return this;
 		}
 
 		protected DataRef markAsPresent(Version version) {
 			getVersions().add(version);
-			getRefLog().refMapping.put(version, this);
+			getRefLog().register(version, this);
 			log.debug("Marked TableRef: {} ({}) as present in version: {}", getName(), getRefId(), version.getId());
 			return this;
 		}
 
 		protected DataRef markAsAbsent(Version version) {
 			getVersions().remove(version);
-			getRefLog().refMapping.remove(version, this);
+			getRefLog().unregister(version, this);
 			log.debug("Marked TableRef: {} ({}) as absent in version: {}", getName(), getRefId(), version.getId());
 			return this;
 		}
@@ -184,12 +198,14 @@ public class RefLog {
 		public TableRef addColumn(ColumnRef column) {
 			columns.put(column.getName(), column);
 			column.setTable(this);
+			getRefLog().invalidate();
 			return this;
 		}
 
 		public ColumnRef dropColumn(String name) {
 			ColumnRef removed = columns.remove(name);
 			removed.drop();
+			getRefLog().invalidate();
 			return removed;
 		}
 
@@ -353,9 +369,10 @@ public class RefLog {
 		}
 
 		public Direction getDirection() {
-			Version origin = VersionTraverser.getFirst(source.getVersions());
-			Version destination = VersionTraverser.getFirst(target.getVersions());
-			return VersionTraverser.getDirection(origin, destination);
+			Generations generations = source.getRefLog().generations;
+			Version origin = generations.getFirst(source.getVersions());
+			Version destination = generations.getFirst(target.getVersions());
+			return generations.getDirection(origin, destination);
 		}
 
 		public ImmutableMap<ColumnRef, ColumnRef> getColumnMapping() {
@@ -425,12 +442,23 @@ public class RefLog {
 	private final Multimap<Version, DataRef> refMapping;
 	private final Set<Version> activeVersions;
 
+	private final Multimap<String, DataRef> refsById;
+	private final Table<Version, String, TableRef> tablesByName;
+	private final Map<TableRef, Map<Version, Set<TableRef>>> descendants;
+	private final Generations generations;
+	private final Table<Version, String, String> reservedRefIds;
+
 	/**
 	 * Creates a new RefLog object.
 	 */
 	public RefLog() {
 		this.refMapping = LinkedHashMultimap.create();
 		this.activeVersions = Sets.newLinkedHashSet();
+		this.refsById = ArrayListMultimap.create();
+		this.tablesByName = HashBasedTable.create();
+		this.descendants = Maps.newIdentityHashMap();
+		this.generations = new Generations();
+		this.reservedRefIds = HashBasedTable.create();
 	}
 
 	/**
@@ -482,7 +510,7 @@ public class RefLog {
 	 * @return a Collection of TableRef objects currently registered with this RefLog object.
 	 */
 	public Collection<TableRef> getTableRefs() {
-		return ImmutableSet.copyOf(refMapping.values().stream()
+		return ImmutableSet.copyOf(refsById.values().stream()
 				.filter(ref -> ref instanceof TableRef)
 				.map(ref -> (TableRef) ref)
 				.collect(Collectors.toSet()));
@@ -513,13 +541,12 @@ public class RefLog {
 		checkArgument(version != null, "You must specify a version!");
 		checkArgument(!isNullOrEmpty(tableName), "You must specify a table name!");
 
-		return refMapping.get(version).stream()
-				.filter(ref -> ref instanceof TableRef)
-				.map(ref -> (TableRef) ref)
-				.filter(table -> table.getName().equals(tableName))
-				.findFirst()
-				.orElseThrow(() -> new IllegalArgumentException("Version: " + version.getId()
-						+ " does not contain a TableRef with tableName: " + tableName));
+		TableRef tableRef = tablesByName.get(version, tableName);
+		if (tableRef == null) {
+			throw new IllegalArgumentException("Version: " + version.getId()
+					+ " does not contain a TableRef with tableName: " + tableName);
+		}
+		return tableRef;
 	}
 
 	/**
@@ -533,10 +560,9 @@ public class RefLog {
 	public TableRef getTableRefById(String refId) {
 		checkArgument(!isNullOrEmpty(refId), "You must specify a table ID!");
 
-		return refMapping.values().stream()
+		return refsById.get(refId).stream()
 				.filter(ref -> ref instanceof TableRef)
 				.map(ref -> (TableRef) ref)
-				.filter(table -> table.getRefId().equals(refId))
 				.findFirst()
 				.orElseThrow(() -> new IllegalArgumentException("No table with id: " + refId));
 	}
@@ -578,8 +604,7 @@ public class RefLog {
 		checkArgument(!isNullOrEmpty(tableName), "You must specify a table name!");
 
 		TableRef tableRef = getTableRef(version, tableName);
-		tableRef.getVersions().remove(version);
-		refMapping.remove(version, tableRef);
+		tableRef.markAsAbsent(version);
 
 		if (tableRef.getVersions().isEmpty()) {
 			tableRef.drop();
@@ -596,12 +621,7 @@ public class RefLog {
 	public void dropTable(TableRef tableRef) {
 		checkArgument(tableRef != null, "You must specify a TableRef!");
 
-		List<Version> versions = refMapping.entries().stream()
-				.filter(entry -> entry.getValue().equals(tableRef))
-				.map(Entry::getKey)
-				.collect(Collectors.toList());
-
-		versions.forEach(version -> refMapping.remove(version, tableRef));
+		Lists.newArrayList(tableRef.getVersions()).forEach(version -> unregister(version, tableRef));
 		tableRef.drop();
 	}
 
@@ -633,11 +653,10 @@ public class RefLog {
 		checkArgument(version != null, "You must specify a 'version'!");
 		checkArgument(columns != null, "You must specify a collection of 'columns'!");
 
-		long matches = refMapping.get(version).stream()
-				.filter(table -> table.getName().equals(name))
-				.count();
+		boolean matches = tablesByName.contains(version, name) || refMapping.get(version).stream()
+				.anyMatch(ref -> ref instanceof ViewRef && ref.getName().equals(name));
 
-		if (matches > 0) {
+		if (matches) {
 			throw new IllegalStateException("A TableRef for tableName: " + name
 					+ " is already present for version: " + version.getId());
 		}
@@ -700,10 +719,9 @@ public class RefLog {
 	public ViewRef getViewRefById(String refId) {
 		checkArgument(!isNullOrEmpty(refId), "You must specify a view ID!");
 
-		return refMapping.values().stream()
+		return refsById.get(refId).stream()
 				.filter(ref -> ref instanceof ViewRef)
 				.map(ref -> (ViewRef) ref)
-				.filter(view -> view.getRefId().equals(refId))
 				.findFirst()
 				.orElseThrow(() -> new IllegalArgumentException("No view with id: " + refId));
 	}/**
@@ -741,8 +759,7 @@ public class RefLog {
 		checkArgument(!isNullOrEmpty(viewName), "You must specify a view name!");
 
 		ViewRef viewRef = getViewRef(version, viewName);
-		viewRef.getVersions().remove(version);
-		refMapping.remove(version, viewRef);
+		viewRef.markAsAbsent(version);
 
 		if (viewRef.getVersions().isEmpty()) {
 			viewRef.drop();
@@ -759,12 +776,7 @@ public class RefLog {
 	public void dropView(ViewRef viewRef) {
 		checkArgument(viewRef != null, "You must specify a ViewRef!");
 
-		List<Version> versions = refMapping.entries().stream()
-				.filter(entry -> entry.getValue().equals(viewRef))
-				.map(Entry::getKey)
-				.collect(Collectors.toList());
-
-		versions.forEach(version -> refMapping.remove(version, viewRef));
+		Lists.newArrayList(viewRef.getVersions()).forEach(version -> unregister(version, viewRef));
 		viewRef.drop();
 	}
 
@@ -793,6 +805,95 @@ public class RefLog {
 		return new ViewRef(this, name, refId, version);
 	}
 
+	/**
+	 * Discards the TableRefs and ViewRefs which were planned for the specified versions, for instance because a fork to
+	 * these versions was interrupted before it completed. Refs which are only present in these versions are dropped
+	 * along with their syncs, and other refs are no longer marked as present in these versions. Unlike when dropping
+	 * a TableRef, the columns of dropped TableRefs are not succeeded by other columns, so they're unlinked entirely.
+	 *
+	 * @param versions The versions to discard, none of which may be active.
+	 * @return The dropped TableRefs.
+	 */
+	public Set<TableRef> discard(Collection<Version> versions) {
+		checkArgument(versions != null, "You must specify a collection of 'versions'!");
+		checkArgument(versions.stream().noneMatch(activeVersions::contains), "You cannot discard an active version!");
+
+		Set<DataRef> refs = versions.stream()
+				.flatMap(version -> refMapping.get(version).stream())
+				.collect(Collectors.toCollection(Sets::newLinkedHashSet));
+
+		Set<TableRef> dropped = Sets.newLinkedHashSet();
+		for (DataRef ref : refs) {
+			versions.stream()
+					.filter(ref.getVersions()::contains)
+					.forEach(ref::markAsAbsent);
+
+			if (ref.getVersions().isEmpty() && ref instanceof TableRef) {
+				dropped.add((TableRef) ref);
+			}
+		}
+
+		for (TableRef tableRef : dropped) {
+			Lists.newArrayList(tableRef.getInboundSyncs()).forEach(SyncRef::drop);
+			Lists.newArrayList(tableRef.getOutboundSyncs()).forEach(SyncRef::drop);
+
+			for (ColumnRef column : tableRef.getColumns().values()) {
+				column.basedOn.forEach(other -> unlink(other.basisFor, column));
+				column.basisFor.forEach(other -> unlink(other.basedOn, column));
+			}
+		}
+
+		invalidate();
+		return dropped;
+	}
+
+	/**
+	 * Removes a ColumnRef from a set of ColumnRefs. Their hash codes change once they're added to a table or renamed,
+	 * so the set is rebuilt instead of looking the ColumnRef up.
+	 */
+	private static void unlink(Set<ColumnRef> columns, ColumnRef column) {
+		List<ColumnRef> remaining = columns.stream()
+				.filter(other -> other != column)
+				.collect(Collectors.toList());
+
+		columns.clear();
+		columns.addAll(remaining);
+	}
+
+	/**
+	 * Reserves a table ID for the table with the specified name which is created or ghosted in the specified version,
+	 * so that planning an interrupted fork again reuses the ghost tables which were already created for it.
+	 *
+	 * @param version The version in which the table is created or ghosted.
+	 * @param tableName The name of the table in that version.
+	 * @param refId The table ID to reserve.
+	 */
+	public void reserveRefId(Version version, String tableName, String refId) {
+		checkArgument(version != null, "You must specify a version!");
+		checkArgument(!isNullOrEmpty(tableName), "You must specify a table name!");
+		checkArgument(!isNullOrEmpty(refId), "You must specify a table ID!");
+
+		reservedRefIds.put(version, tableName, refId);
+	}
+
+	/**
+	 * Releases the table ID which was reserved for the table with the specified name in the specified version.
+	 *
+	 * @param version The version in which the table is created or ghosted.
+	 * @param tableName The name of the table in that version.
+	 * @return The reserved table ID, or an empty Optional if no table ID was reserved.
+	 */
+	public Optional<String> takeReservedRefId(Version version, String tableName) {
+		return Optional.ofNullable(reservedRefIds.remove(version, tableName));
+	}
+
+	/**
+	 * @return The table IDs which are reserved, but not taken yet.
+	 */
+	public ImmutableSet<String> getReservedRefIds() {
+		return ImmutableSet.copyOf(reservedRefIds.values());
+	}
+
 	/**
 	 * Defines that there's a trigger and function which manage the synchronization between two different refMapping
 	 * in one particular direction.
@@ -811,6 +912,7 @@ public class RefLog {
 			throw new IllegalArgumentException("A SyncRef with name: " + name + " is already present!");
 		}
 
+		invalidate();
 		return new SyncRef(name, functionName, columns);
 	}
 
@@ -829,26 +931,48 @@ public class RefLog {
 	 */
 	public Multimap<TableRef, TableRef> getTableMapping(Version from, Version to, boolean filterUnchanged) {
 		Multimap<TableRef, TableRef> mapping = HashMultimap.create();
-		getTableRefs(from).forEach(tableRef -> {
-			Set<TableRef> targets = Sets.newHashSet();
-			List<TableRef> toCheck = Lists.newLinkedList();
-			toCheck.add(tableRef);
-
-			while (!toCheck.isEmpty()) {
-				TableRef pointer = toCheck.remove(0);
-				if (pointer.getVersions().contains(to)) {
-					if (!filterUnchanged || !pointer.getRefId().equals(tableRef.getRefId())) {
-						targets.add(pointer);
-					}
-				}
-				else {
-					toCheck.addAll(pointer.getBasisFor());
-				}
+		getTableRefs(from).forEach(tableRef -> getDescendants(tableRef, to).stream()
+				.filter(target -> !filterUnchanged || !target.getRefId().equals(tableRef.getRefId()))
+				.forEach(target -> mapping.put(tableRef, target)));
+		return mapping;
+	}
+
+	/**
+	 * Follows the evolution of the specified TableRef until it reaches the TableRefs which are present in the
+	 * specified version. The result is memoized until the structure of the RefLog changes.
+	 *
+	 * @param tableRef The TableRef to start from.
+	 * @param version The version in which the descendants should be present.
+	 * @return The TableRefs in the specified version which (eventually) evolved from the specified TableRef.
+	 */
+	private Set<TableRef> getDescendants(TableRef tableRef, Version version) {
+		Map<Version, Set<TableRef>> cached = descendants.computeIfAbsent(tableRef, key -> Maps.newHashMap());
+		Set<TableRef> targets = cached.get(version);
+		if (targets != null) {
+			return targets;
+		}
+
+		targets = Sets.newHashSet();
+		Set<TableRef> visited = Sets.newIdentityHashSet();
+		Deque<TableRef> toCheck = new ArrayDeque<>();
+		toCheck.add(tableRef);
+
+		while (!toCheck.isEmpty()) {
+			TableRef pointer = toCheck.poll();
+			if (!visited.add(pointer)) {
+				continue;
 			}
 
-			mapping.putAll(tableRef, targets);
-		});
-		return mapping;
+			if (pointer.getVersions().contains(version)) {
+				targets.add(pointer);
+			}
+			else {
+				toCheck.addAll(pointer.getBasisFor());
+			}
+		}
+
+		cached.put(version, targets);
+		return targets;
 	}
 
 	/**
@@ -906,13 +1030,65 @@ public class RefLog {
 	private boolean isForwards(TableRef from, TableRef to) {
 		boolean forwards = false;
 		if (!from.equals(to)) {
-			Version origin = VersionTraverser.getFirst(from.getVersions());
-			Version target = VersionTraverser.getFirst(to.getVersions());
-			forwards = VersionTraverser.getDirection(origin, target) == Direction.FORWARDS;
+			Version origin = generations.getFirst(from.getVersions());
+			Version target = generations.getFirst(to.getVersions());
+			forwards = generations.getDirection(origin, target) == Direction.FORWARDS;
 		}
 		return forwards;
 	}
 
+	private void register(Version version, DataRef ref) {
+		refMapping.put(version, ref);
+		if (!refsById.containsEntry(ref.getRefId(), ref)) {
+			refsById.put(ref.getRefId(), ref);
+		}
+		if (ref instanceof TableRef && !tablesByName.contains(version, ref.getName())) {
+			tablesByName.put(version, ref.getName(), (TableRef) ref);
+		}
+		invalidate();
+	}
+
+	private void unregister(Version version, DataRef ref) {
+		refMapping.remove(version, ref);
+		if (ref.getVersions().stream().noneMatch(other -> refMapping.containsEntry(other, ref))) {
+			refsById.remove(ref.getRefId(), ref);
+		}
+		if (tablesByName.get(version, ref.getName()) == ref) {
+			tablesByName.remove(version, ref.getName());
+			findTableRef(version, ref.getName()).ifPresent(other -> tablesByName.put(version, ref.getName(), other));
+		}
+		invalidate();
+	}
+
+	private void reindex(DataRef ref, String oldName) {
+		if (ref instanceof TableRef) {
+			for (Version version : ref.getVersions()) {
+				if (tablesByName.get(version, oldName) == ref) {
+					tablesByName.remove(version, oldName);
+					findTableRef(version, oldName).ifPresent(other -> tablesByName.put(version, oldName, other));
+				}
+				if (!tablesByName.contains(version, ref.getName())) {
+					tablesByName.put(version, ref.getName(), (TableRef) ref);
+				}
+			}
+		}
+		invalidate();
+	}
+
+	private Optional<TableRef> findTableRef(Version version, String tableName) {
+		return refMapping.get(version).stream()
+				.filter(ref -> ref instanceof TableRef && ref.getName().equals(tableName))
+				.map(ref -> (TableRef) ref)
+				.findFirst();
+	}
+
+	/**
+	 * Discards the memoized evolution of TableRefs, after TableRefs, their columns, or syncs have changed.
+	 */
+	private void invalidate() {
+		descendants.clear();
+	}
+
 	public void setVersionState(Version version, boolean active) {
 		if (active) {
 			activeVersions.add(version);
@@ -0,0 +1,123 @@
+package io.quantumdb.core.backends.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.IDENTITY;
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static io.quantumdb.core.schema.definitions.TestTypes.bigint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.Table;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CostModelTest {
+
+	private static final Map<String, TableStatistics> STATISTICS = ImmutableMap.of(
+			"users", new TableStatistics(1_000, 10, 81_920),
+			"posts", new TableStatistics(2_000, 20, 163_840),
+			"events", new TableStatistics(50_000_000, 1_000_000, 8_192_000_000L));
+
+	private Table users;
+	private Table posts;
+	private Table events;
+	private Plan.Builder builder;
+
+	@Before
+	public void setUp() {
+		users = table("users");
+		posts = table("posts");
+		events = table("events")
+				.addIndex(new Index("events_id_idx", Lists.newArrayList("id"), true));
+
+		Catalog catalog = new Catalog("public")
+				.addTable(users)
+				.addTable(posts)
+				.addTable(events);
+
+		builder = Plan.builder(new MigrationState(catalog));
+	}
+
+	@Test
+	public void testThatLargerTablesAreMoreExpensiveToCopy() {
+		CostModel costModel = new CostModel(STATISTICS);
+
+		assertTrue(costModel.estimateCopy(posts) > costModel.estimateCopy(users));
+		assertTrue(costModel.estimateCopy(events) > costModel.estimateCopy(posts));
+		assertTrue(costModel.estimateIndexBuild(events) > 0);
+		assertEquals(0, costModel.estimateIndexBuild(users));
+		assertEquals(0, CostModel.empty().estimateCopy(events));
+	}
+
+	@Test
+	public void testThatStepsOnTheCriticalPathComeFirst() {
+		Step copyUsers = builder.copy(users, Sets.newHashSet("id"));
+		Step copyPosts = builder.copy(posts, Sets.newHashSet("id"));
+		copyPosts.makeDependentOn(copyUsers);
+		Step copyEvents = builder.copy(events, Sets.newHashSet("id"));
+
+		builder.prioritize(new CostModel(STATISTICS));
+
+		assertEquals(Lists.newArrayList(copyEvents, copyUsers, copyPosts), builder.getSteps());
+		assertEquals(new CostModel(STATISTICS).estimateCopy(events), copyEvents.getEstimatedCost());
+	}
+
+	@Test
+	public void testThatDependenciesAreRespectedWhenPrioritizing() {
+		Step copyEvents = builder.copy(events, Sets.newHashSet("id"));
+		Step copyUsers = builder.copy(users, Sets.newHashSet("id"));
+		copyUsers.makeDependentOn(copyEvents);
+		Step copyPosts = builder.copy(posts, Sets.newHashSet("id"));
+
+		builder.prioritize(new CostModel(STATISTICS));
+
+		List<Step> steps = builder.getSteps();
+		assertTrue(steps.indexOf(copyEvents) < steps.indexOf(copyUsers));
+		assertEquals(copyEvents, steps.get(0));
+		assertEquals(copyPosts, steps.get(1));
+	}
+
+	@Test
+	public void testThatOrderIsUnchangedWithoutStatistics() {
+		Step copyUsers = builder.copy(users, Sets.newHashSet("id"));
+		Step copyPosts = builder.copy(posts, Sets.newHashSet("id"));
+		Step copyEvents = builder.copy(events, Sets.newHashSet("id"));
+
+		builder.prioritize(CostModel.empty());
+
+		assertEquals(Lists.newArrayList(copyUsers, copyPosts, copyEvents), builder.getSteps());
+		assertFalse(builder.build(null, Sets.newHashSet(users, posts, events), Sets.newHashSet())
+				.toString().contains("estimated"));
+	}
+
+	@Test
+	public void testThatEstimatesArePrinted() {
+		Step copyUsers = builder.copy(users, Sets.newHashSet("id"));
+		builder.copy(posts, Sets.newHashSet("id")).makeDependentOn(copyUsers);
+
+		builder.prioritize(new CostModel(STATISTICS));
+		Plan plan = builder.build(null, Sets.newHashSet(users, posts, events), Sets.newHashSet());
+
+		String printed = plan.toString();
+		assertTrue(printed.contains("critical path"));
+		assertTrue(printed.contains("Estimated duration"));
+		assertTrue(printed.contains("Estimated index builds: events"));
+		assertEquals(copyUsers.getEstimatedCost() + plan.getSteps().get(1).getEstimatedCost(),
+				(long) plan.getCriticalPaths().get(copyUsers));
+	}
+
+	private static Table table(String name) {
+		return new Table(name)
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL));
+	}
+
+}
@@ -0,0 +1,169 @@
+package io.quantumdb.core.backends.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.IDENTITY;
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static io.quantumdb.core.schema.definitions.TestTypes.bigint;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.DatabaseMigrator.MigrationException;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Table;
+import org.junit.Test;
+
+public class PlanExecutorTest {
+
+	@Test
+	public void testThatStepsAreExecutedAfterTheirDependencies() throws Exception {
+		Step first = copy("users");
+		Step second = copy("posts", first);
+		Step third = copy("comments", first);
+		Step last = Step.dropNull(Sets.newHashSet(table("users")), second, third);
+		Plan plan = plan(last, third, second, first);
+
+		List<Step> executed = Collections.synchronizedList(Lists.newArrayList());
+		new PlanExecutor(plan, 4).execute(step -> {
+			assertTrue(step.getDependencies().stream().allMatch(executed::contains));
+			executed.add(step);
+		});
+
+		assertEquals(4, executed.size());
+		assertEquals(first, executed.get(0));
+		assertEquals(last, executed.get(3));
+		assertTrue(plan.isExecuted());
+	}
+
+	@Test(timeout = 10_000)
+	public void testThatIndependentStepsAreExecutedConcurrently() throws Exception {
+		Plan plan = plan(copy("users"), copy("posts"), copy("comments"));
+
+		// Each step waits for the others to start, which only succeeds if all three run at the same time.
+		CyclicBarrier barrier = new CyclicBarrier(3);
+		new PlanExecutor(plan, 3).execute(step -> {
+			try {
+				barrier.await(5, TimeUnit.SECONDS);
+			}
+			catch (Exception e) {
+				throw new MigrationException(e);
+			}
+		});
+
+		assertTrue(plan.isExecuted());
+	}
+
+	@Test
+	public void testThatStepsOnTheSameTableAreNotExecutedConcurrently() throws Exception {
+		Plan plan = plan(copy("users", "id"), copy("users", "name"), copy("users", "email"));
+
+		AtomicInteger running = new AtomicInteger();
+		new PlanExecutor(plan, 3).execute(step -> {
+			assertEquals(1, running.incrementAndGet());
+			Thread.sleep(50);
+			running.decrementAndGet();
+		});
+
+		assertTrue(plan.isExecuted());
+	}
+
+	@Test
+	public void testThatFailingStepPreventsDependentSteps() throws Exception {
+		Step first = copy("users");
+		Step second = copy("posts", first);
+		Plan plan = plan(first, second);
+
+		try {
+			new PlanExecutor(plan, 2).execute(step -> {
+				throw new MigrationException("Failed to execute: " + step);
+			});
+			fail("Expected a MigrationException to be thrown");
+		}
+		catch (MigrationException e) {
+			assertFalse(first.isExecuted());
+			assertFalse(second.isExecuted());
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void testThatFailureIsReportedOnceRunningStepsAreCancelled() throws Exception {
+		Step failing = copy("users");
+		Step blocked = copy("posts");
+		Plan plan = plan(failing, blocked);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch cancelled = new CountDownLatch(1);
+		AtomicBoolean stopped = new AtomicBoolean();
+
+		try {
+			new PlanExecutor(plan, 2).execute(new PlanExecutor.StepHandler() {
+				@Override
+				public void execute(Step step) throws MigrationException, InterruptedException {
+					if (step == failing) {
+						started.await();
+						throw new MigrationException("Failed to execute: " + step);
+					}
+
+					// Like a thread blocked on the database, this step ignores interrupts until it is cancelled.
+					started.countDown();
+					while (cancelled.getCount() > 0) {
+						try {
+							cancelled.await();
+						}
+						catch (InterruptedException e) {
+							// Keep waiting.
+						}
+					}
+					stopped.set(true);
+				}
+
+				@Override
+				public void cancel() {
+					cancelled.countDown();
+				}
+			});
+			fail("Expected a MigrationException to be thrown");
+		}
+		catch (MigrationException e) {
+			assertTrue(stopped.get());
+			assertFalse(blocked.isExecuted());
+		}
+	}
+
+	@Test(expected = MigrationException.class)
+	public void testThatUnsatisfiableDependenciesAreReported() throws Exception {
+		Step outsideOfPlan = copy("users");
+		Plan plan = plan(copy("posts", outsideOfPlan));
+
+		new PlanExecutor(plan, 2).execute(step -> {});
+	}
+
+	private static Plan plan(Step... steps) {
+		return new Plan(Lists.newArrayList(steps), null, Sets.newHashSet(), Sets.newHashSet());
+	}
+
+	private static Step copy(String tableName, Step... dependentOn) {
+		return copy(tableName, "id", dependentOn);
+	}
+
+	private static Step copy(String tableName, String column, Step... dependentOn) {
+		return Step.copy(table(tableName), Sets.newLinkedHashSet(Lists.newArrayList(column)), dependentOn);
+	}
+
+	private static Table table(String tableName) {
+		return new Table(tableName)
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL));
+	}
+
+}
@@ -12,6 +12,7 @@ import java.util.Optional;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import io.quantumdb.core.migration.VersionTraverser.Direction;
+import io.quantumdb.core.migration.VersionTraverser.Generations;
 import io.quantumdb.core.versioning.Version;
 import org.junit.Before;
 import org.junit.Test;
@@ -87,6 +88,15 @@ public class VersionTraverserTest {
 		getFirst(null);
 	}
 
+	@Test
+	public void testGenerationsAreReusedAcrossLookups() {
+		Generations generations = new Generations();
+		assertEquals(2, generations.getGeneration(v3));
+		assertEquals(3, generations.getGeneration(v4));
+		assertEquals(Direction.BACKWARDS, generations.getDirection(v4, v1));
+		assertEquals(v2, generations.getFirst(Sets.newHashSet(v4, v2, v3)));
+	}
+
 	@Test
 	public void testFindPath() {
 		List<Version> path = findPath(v1, v4).get();
@@ -289,4 +289,78 @@ public class RefLogTest {
 		assertEquals(newRef, syncRef.getTarget());
 	}
 
+	@Test
+	public void testDiscardingInterruptedFork() {
+		Version nextVersion = new Version(generateHash(), version);
+		refLog.fork(nextVersion);
+		TableRef oldRef = refLog.getTableRef(version, "users");
+		TableRef newRef = refLog.replaceTable(nextVersion, "users", "users", generateHash());
+
+		Map<ColumnRef, ColumnRef> columnMapping = oldRef.getColumns().entrySet().stream()
+				.collect(Collectors.toMap(Entry::getValue, entry -> newRef.getColumns().get(entry.getKey())));
+		refLog.addSync(generateHash(), generateHash(), columnMapping);
+
+		assertEquals(ImmutableSet.of(newRef), refLog.discard(Lists.newArrayList(nextVersion)));
+
+		assertEquals(ImmutableSet.of(oldRef), refLog.getTableRefs());
+		assertEquals(Sets.newHashSet(version), oldRef.getVersions());
+		assertTrue(refLog.getTableRefs(nextVersion).isEmpty());
+		assertTrue(oldRef.getOutboundSyncs().isEmpty());
+		assertTrue(oldRef.getColumns().get("id").getBasisFor().isEmpty());
+
+		// The fork can be planned again.
+		refLog.fork(nextVersion);
+		assertEquals(oldRef, refLog.getTableRef(nextVersion, "users"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDiscardingActiveVersionThrowsException() {
+		refLog.discard(Lists.newArrayList(version));
+	}
+
+	@Test
+	public void testLookingUpTableRefsAfterReplacingAndRenamingTable() {
+		String refId = generateHash();
+		Version nextVersion = new Version(generateHash(), version);
+		refLog.fork(nextVersion);
+		TableRef oldRef = refLog.getTableRef(version, "users");
+		TableRef newRef = refLog.replaceTable(nextVersion, "users", "users", refId);
+
+		assertEquals(oldRef, refLog.getTableRefById("users"));
+		assertEquals(newRef, refLog.getTableRefById(refId));
+		assertEquals(newRef, refLog.getTableRef(nextVersion, "users"));
+
+		newRef.rename("customers");
+		assertEquals(newRef, refLog.getTableRef(nextVersion, "customers"));
+		assertEquals(oldRef, refLog.getTableRef(version, "users"));
+		assertEquals(ImmutableSet.of(newRef), ImmutableSet.copyOf(refLog.getTableRefs(nextVersion)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLookingUpRenamedTableByOldNameThrowsException() {
+		refLog.getTableRef(version, "users").rename("customers");
+		refLog.getTableRef(version, "users");
+	}
+
+	@Test
+	public void testTableMappingAcrossManyGenerations() {
+		Version pointer = version;
+		TableRef last = null;
+		for (int i = 0; i < 250; i++) {
+			pointer = new Version(generateHash(), pointer);
+			refLog.fork(pointer);
+			last = refLog.replaceTable(pointer, "users", "users", generateHash());
+		}
+
+		TableRef users = refLog.getTableRef(version, "users");
+		assertEquals(ImmutableSet.of(last), ImmutableSet.copyOf(refLog.getTableMapping(version, pointer).get(users)));
+
+		TableRef replacement = refLog.replaceTable(pointer, "users", "users", generateHash());
+		assertEquals(ImmutableSet.of(replacement),
+				ImmutableSet.copyOf(refLog.getTableMapping(version, pointer).get(users)));
+
+		refLog.dropTable(pointer, "users");
+		assertTrue(refLog.getTableMapping(version, pointer).isEmpty());
+	}
+
 }
@@ -1,6 +1,7 @@
 package io.quantumdb.core.utils;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 
@@ -42,4 +43,15 @@ public class RandomHasherTest {
 		assertNotEquals("users", refId);
 	}
 
+	@Test
+	public void testGeneratingReservedRefId() {
+		RefLog refLog = new RefLog();
+		Version version = new Version(RandomHasher.generateHash(), null);
+		refLog.reserveRefId(version, "users", "table_1234567890");
+
+		assertNotEquals("table_1234567890", RandomHasher.generateRefId(refLog, version, "orders"));
+		assertEquals("table_1234567890", RandomHasher.generateRefId(refLog, version, "users"));
+		assertNotEquals("table_1234567890", RandomHasher.generateRefId(refLog, version, "users"));
+	}
+
 }
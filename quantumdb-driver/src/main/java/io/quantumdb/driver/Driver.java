@@ -8,11 +8,17 @@ import java.sql.SQLFeatureNotSupportedException;
 import java.util.Properties;
 import java.util.logging.Logger;
 
+import com.google.common.collect.ImmutableMap;
 import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
 import io.quantumdb.query.rewriter.QueryRewriter;
 
 public class Driver implements java.sql.Driver {
 
+	private static final String REWRITE_CACHE_SIZE = "rewriteCacheSize";
+	private static final String REWRITE_CACHE_WEIGHT = "rewriteCacheWeight";
+	private static final String MAPPING_REFRESH_INTERVAL = "mappingRefreshInterval";
+	private static final String PREPARED_STATEMENT_CACHE_SIZE = "preparedStatementCacheSize";
+
 	static {
 		try {
 			java.sql.DriverManager.registerDriver(new Driver());
@@ -35,6 +41,7 @@ public class Driver implements java.sql.Driver {
 			return null;
 		}
 		url = url.substring(0, 4) + ":" + url.substring(15, url.length());
+		long start = System.nanoTime();
 
 		try {
 			Class.forName("org.postgresql.Driver");
@@ -55,12 +62,37 @@ public class Driver implements java.sql.Driver {
 			info.setProperty("ApplicationName", applicationName);
 		}
 
-		this.delegate = DriverManager.getDriver(url);
+		java.sql.Driver delegate = DriverManager.getDriver(url);
+		this.delegate = delegate;
+
 		Connection connection = delegate.connect(url, info);
-		QueryRewriter queryRewriter = new PostgresqlQueryRewriter();
-		this.transformer = new Transformer(connection, queryRewriter, version);
+		int rewriteCacheSize = parseInt(info, REWRITE_CACHE_SIZE, RewriteCache.DEFAULT_MAXIMUM_SIZE);
+		long rewriteCacheWeight = parseLong(info, REWRITE_CACHE_WEIGHT, RewriteCache.DEFAULT_MAXIMUM_WEIGHT);
+		long refreshInterval = parseLong(info, MAPPING_REFRESH_INTERVAL, 0);
+		int statementCacheSize = parseInt(info, PREPARED_STATEMENT_CACHE_SIZE, StatementCache.DEFAULT_MAXIMUM_SIZE);
+
+		ImmutableMap<String, String> tableMapping = TableMappings.get(connection, url, version);
+		DriverMetrics.Recorder metrics = DriverMetrics.getInstance().forVersion(version);
+
+		if (refreshInterval > 0 && version != null && !version.isEmpty()) {
+			String delegateUrl = url;
+			Properties delegateInfo = new Properties();
+			delegateInfo.putAll(info);
+
+			this.transformer = new Transformer(MappingRefresher.watch(url, version, refreshInterval, tableMapping,
+					() -> delegate.connect(delegateUrl, delegateInfo),
+					mapping -> createSnapshot(delegateUrl, version, mapping, rewriteCacheSize, rewriteCacheWeight)),
+					metrics);
+		}
+		else {
+			QueryRewriter queryRewriter = new PostgresqlQueryRewriter();
+			RewriteCache rewriteCache = RewriteCache.forVersion(url, version, tableMapping, rewriteCacheSize,
+					rewriteCacheWeight);
+			this.transformer = new Transformer(queryRewriter, tableMapping, rewriteCache, metrics);
+		}
 
-		return new ProxyConnection(connection, transformer);
+		metrics.recordConnect(System.nanoTime() - start);
+		return new ProxyConnection(connection, transformer, new StatementCache(statementCacheSize, metrics));
 	}
 
 	@Override
@@ -97,6 +129,44 @@ public class Driver implements java.sql.Driver {
 		return transformer.getRefId(tableName);
 	}
 
+	private static Transformer.Snapshot createSnapshot(String url, String version,
+			ImmutableMap<String, String> tableMapping, int rewriteCacheSize, long rewriteCacheWeight) {
+
+		QueryRewriter queryRewriter = new PostgresqlQueryRewriter();
+		queryRewriter.setTableMapping(tableMapping);
+		RewriteCache rewriteCache = RewriteCache.forVersion(url, version, tableMapping, rewriteCacheSize,
+				rewriteCacheWeight);
+		return new Transformer.Snapshot(tableMapping, queryRewriter, rewriteCache);
+	}
+
+	private int parseInt(Properties info, String key, int defaultValue) throws SQLException {
+		String value = info.getProperty(key);
+		if (value == null || value.isEmpty()) {
+			return defaultValue;
+		}
+
+		try {
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException e) {
+			throw new SQLException("Invalid value for property '" + key + "': " + value, e);
+		}
+	}
+
+	private long parseLong(Properties info, String key, long defaultValue) throws SQLException {
+		String value = info.getProperty(key);
+		if (value == null || value.isEmpty()) {
+			return defaultValue;
+		}
+
+		try {
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException e) {
+			throw new SQLException("Invalid value for property '" + key + "': " + value, e);
+		}
+	}
+
 	private String parseVersion(String url) {
 		String[] lookups = new String[] { "?version=", "&version=" };
 
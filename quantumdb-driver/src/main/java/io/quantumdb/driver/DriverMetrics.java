@@ -0,0 +1,280 @@
+package io.quantumdb.driver;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The built-in MetricsRegistry of the driver, which keeps counters and latency histograms per version of the database
+ * schema, and is registered in the platform MBeanServer as "io.quantumdb.driver:type=DriverMetrics". Measurements are
+ * also forwarded to every MetricsRegistry which is discovered using the ServiceLoader.
+ */
+@Slf4j
+public class DriverMetrics implements MetricsRegistry, DriverMetricsMXBean {
+
+	public static final String OBJECT_NAME = "io.quantumdb.driver:type=DriverMetrics";
+
+	/**
+	 * Records the measurements of the connections of a single version. The counters and histograms are resolved when
+	 * the Recorder is created, so recording a measurement doesn't involve any lookups.
+	 */
+	static class Recorder {
+
+		private final String version;
+		private final LatencyHistogram rewriteTime;
+		private final LatencyHistogram connectTime;
+		private final LongAdder rewriteCacheHits;
+		private final LongAdder rewriteCacheMisses;
+		private final LongAdder statementCacheHits;
+		private final LongAdder statementCacheMisses;
+		private final LongAdder statements;
+		private final List<MetricsRegistry> registries;
+
+		private Recorder(DriverMetrics metrics, String version, List<MetricsRegistry> registries) {
+			this.version = version;
+			this.rewriteTime = metrics.histogram(REWRITE_TIME, version);
+			this.connectTime = metrics.histogram(CONNECT_TIME, version);
+			this.rewriteCacheHits = metrics.counter(REWRITE_CACHE_HITS, version);
+			this.rewriteCacheMisses = metrics.counter(REWRITE_CACHE_MISSES, version);
+			this.statementCacheHits = metrics.counter(STATEMENT_CACHE_HITS, version);
+			this.statementCacheMisses = metrics.counter(STATEMENT_CACHE_MISSES, version);
+			this.statements = metrics.counter(STATEMENTS, version);
+			this.registries = registries;
+		}
+
+		void recordRewrite(long nanos, boolean cacheHit) {
+			rewriteTime.record(nanos);
+			(cacheHit ? rewriteCacheHits : rewriteCacheMisses).increment();
+			if (!registries.isEmpty()) {
+				forward(REWRITE_TIME, nanos);
+				forward(cacheHit ? REWRITE_CACHE_HITS : REWRITE_CACHE_MISSES);
+			}
+		}
+
+		void recordStatementCacheLookup(boolean cacheHit) {
+			(cacheHit ? statementCacheHits : statementCacheMisses).increment();
+			if (!registries.isEmpty()) {
+				forward(cacheHit ? STATEMENT_CACHE_HITS : STATEMENT_CACHE_MISSES);
+			}
+		}
+
+		void recordStatement() {
+			statements.increment();
+			if (!registries.isEmpty()) {
+				forward(STATEMENTS);
+			}
+		}
+
+		void recordConnect(long nanos) {
+			connectTime.record(nanos);
+			if (!registries.isEmpty()) {
+				forward(CONNECT_TIME, nanos);
+			}
+		}
+
+		private void forward(String name) {
+			for (MetricsRegistry registry : registries) {
+				try {
+					registry.increment(name, version);
+				}
+				catch (RuntimeException e) {
+					log.debug("MetricsRegistry: " + registry + " failed to increment: " + name, e);
+				}
+			}
+		}
+
+		private void forward(String name, long nanos) {
+			for (MetricsRegistry registry : registries) {
+				try {
+					registry.recordNanos(name, version, nanos);
+				}
+				catch (RuntimeException e) {
+					log.debug("MetricsRegistry: " + registry + " failed to record: " + name, e);
+				}
+			}
+		}
+	}
+
+	@Data
+	private static class Key {
+		private final String name;
+		private final String version;
+	}
+
+	private static final DriverMetrics INSTANCE = new DriverMetrics(loadRegistries());
+
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		}
+		catch (JMException | SecurityException e) {
+			log.warn("Could not register the driver metrics in JMX as: " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * @return The process-wide DriverMetrics.
+	 */
+	public static DriverMetrics getInstance() {
+		return INSTANCE;
+	}
+
+	private static List<MetricsRegistry> loadRegistries() {
+		ImmutableList.Builder<MetricsRegistry> registries = ImmutableList.builder();
+		try {
+			for (MetricsRegistry registry : ServiceLoader.load(MetricsRegistry.class, Driver.class.getClassLoader())) {
+				registries.add(registry);
+			}
+		}
+		catch (ServiceConfigurationError e) {
+			log.warn("Could not load MetricsRegistry implementations, only the built-in registry is used.", e);
+		}
+		return registries.build();
+	}
+
+	private final List<MetricsRegistry> registries;
+	private final ConcurrentMap<Key, LongAdder> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Key, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+	DriverMetrics(List<MetricsRegistry> registries) {
+		this.registries = registries;
+	}
+
+	/**
+	 * @return The Recorder for the connections of the specified version (may be NULL).
+	 */
+	Recorder forVersion(String version) {
+		return recorders.computeIfAbsent(Strings.nullToEmpty(version), key -> new Recorder(this, key, registries));
+	}
+
+	/**
+	 * @return The current value of the specified counter, or 0 if it doesn't exist.
+	 */
+	public long getCount(String name, String version) {
+		LongAdder counter = counters.get(new Key(name, Strings.nullToEmpty(version)));
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/**
+	 * @return The specified histogram, or NULL if it doesn't exist.
+	 */
+	public LatencyHistogram getHistogram(String name, String version) {
+		return histograms.get(new Key(name, Strings.nullToEmpty(version)));
+	}
+
+	@Override
+	public void increment(String name, String version) {
+		counter(name, Strings.nullToEmpty(version)).increment();
+	}
+
+	@Override
+	public void recordNanos(String name, String version, long nanos) {
+		histogram(name, Strings.nullToEmpty(version)).record(nanos);
+	}
+
+	@Override
+	public Map<String, Long> getStatementsPerVersion() {
+		return counters.entrySet().stream()
+				.filter(entry -> entry.getKey().getName().equals(STATEMENTS))
+				.collect(Collectors.toMap(entry -> entry.getKey().getVersion(), entry -> entry.getValue().sum(),
+						Long::sum, TreeMap::new));
+	}
+
+	@Override
+	public long getRewriteCacheHits() {
+		return sum(REWRITE_CACHE_HITS);
+	}
+
+	@Override
+	public long getRewriteCacheMisses() {
+		return sum(REWRITE_CACHE_MISSES);
+	}
+
+	@Override
+	public double getRewriteCacheHitRate() {
+		long hits = getRewriteCacheHits();
+		long requests = hits + getRewriteCacheMisses();
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public long getStatementCacheHits() {
+		return sum(STATEMENT_CACHE_HITS);
+	}
+
+	@Override
+	public long getStatementCacheMisses() {
+		return sum(STATEMENT_CACHE_MISSES);
+	}
+
+	@Override
+	public double getStatementCacheHitRate() {
+		long hits = getStatementCacheHits();
+		long requests = hits + getStatementCacheMisses();
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+
+	@Override
+	public LatencyHistogram.Snapshot getRewriteTime() {
+		return LatencyHistogram.snapshot(histograms(REWRITE_TIME));
+	}
+
+	@Override
+	public Map<String, LatencyHistogram.Snapshot> getRewriteTimePerVersion() {
+		return histograms.entrySet().stream()
+				.filter(entry -> entry.getKey().getName().equals(REWRITE_TIME))
+				.collect(Collectors.toMap(entry -> entry.getKey().getVersion(), entry -> entry.getValue().getSnapshot(),
+						(left, right) -> left, TreeMap::new));
+	}
+
+	@Override
+	public LatencyHistogram.Snapshot getConnectTime() {
+		return LatencyHistogram.snapshot(histograms(CONNECT_TIME));
+	}
+
+	@Override
+	public void reset() {
+		// The counters and histograms are reset in place, since Recorders hold on to them.
+		counters.values().forEach(LongAdder::reset);
+		histograms.values().forEach(LatencyHistogram::reset);
+	}
+
+	LongAdder counter(String name, String version) {
+		return counters.computeIfAbsent(new Key(name, version), key -> new LongAdder());
+	}
+
+	LatencyHistogram histogram(String name, String version) {
+		return histograms.computeIfAbsent(new Key(name, version), key -> new LatencyHistogram());
+	}
+
+	private long sum(String name) {
+		return counters.entrySet().stream()
+				.filter(entry -> entry.getKey().getName().equals(name))
+				.mapToLong(entry -> entry.getValue().sum())
+				.sum();
+	}
+
+	private List<LatencyHistogram> histograms(String name) {
+		return histograms.entrySet().stream()
+				.filter(entry -> entry.getKey().getName().equals(name))
+				.map(Map.Entry::getValue)
+				.collect(Collectors.toList());
+	}
+
+}
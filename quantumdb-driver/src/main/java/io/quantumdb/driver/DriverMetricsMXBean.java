@@ -0,0 +1,54 @@
+package io.quantumdb.driver;
+
+import java.util.Map;
+
+/**
+ * The management interface through which the built-in DriverMetrics are exposed in JMX.
+ */
+public interface DriverMetricsMXBean {
+
+	/**
+	 * @return The number of executed statements, keyed by the version they were executed on.
+	 */
+	Map<String, Long> getStatementsPerVersion();
+
+	long getRewriteCacheHits();
+
+	long getRewriteCacheMisses();
+
+	/**
+	 * @return The fraction of queries which were found in the rewrite cache, or 0 if no queries were rewritten yet.
+	 */
+	double getRewriteCacheHitRate();
+
+	long getStatementCacheHits();
+
+	long getStatementCacheMisses();
+
+	/**
+	 * @return The fraction of prepared statements which were taken from the prepared statement cache, or 0 if no
+	 * statements were prepared through a connection with an enabled cache yet.
+	 */
+	double getStatementCacheHitRate();
+
+	/**
+	 * @return The distribution of the time spent rewriting queries, across all versions.
+	 */
+	LatencyHistogram.Snapshot getRewriteTime();
+
+	/**
+	 * @return The distribution of the time spent rewriting queries, keyed by version.
+	 */
+	Map<String, LatencyHistogram.Snapshot> getRewriteTimePerVersion();
+
+	/**
+	 * @return The distribution of the time spent opening connections, across all versions.
+	 */
+	LatencyHistogram.Snapshot getConnectTime();
+
+	/**
+	 * Resets all counters and histograms.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,186 @@
+package io.quantumdb.driver;
+
+import java.beans.ConstructorProperties;
+import java.util.Collections;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds. Values are grouped into a bucket per power of two, which is in
+ * turn split into a fixed number of linear sub-buckets. This bounds the relative error of the reported percentiles to
+ * 1 / SUB_BUCKETS (12.5%), regardless of the magnitude of the values, while recording a value only increments two
+ * uncontended counters.
+ */
+public class LatencyHistogram {
+
+	@Getter
+	@ToString
+	public static class Snapshot {
+		private final long count;
+		private final double meanMicros;
+		private final double p50Micros;
+		private final double p90Micros;
+		private final double p99Micros;
+		private final double p999Micros;
+		private final double maxMicros;
+
+		@ConstructorProperties({ "count", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "p999Micros",
+				"maxMicros" })
+		public Snapshot(long count, double meanMicros, double p50Micros, double p90Micros, double p99Micros,
+				double p999Micros, double maxMicros) {
+
+			this.count = count;
+			this.meanMicros = meanMicros;
+			this.p50Micros = p50Micros;
+			this.p90Micros = p90Micros;
+			this.p99Micros = p99Micros;
+			this.p999Micros = p999Micros;
+			this.maxMicros = maxMicros;
+		}
+	}
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	/**
+	 * Creates a Snapshot of the combined values of the specified histograms.
+	 */
+	static Snapshot snapshot(Iterable<LatencyHistogram> histograms) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		long sum = 0;
+		long max = 0;
+		for (LatencyHistogram histogram : histograms) {
+			for (int i = 0; i < BUCKETS; i++) {
+				long bucketCount = histogram.counts[i].sum();
+				counts[i] += bucketCount;
+				count += bucketCount;
+			}
+			sum += histogram.sum.sum();
+			max = Math.max(max, histogram.max.get());
+		}
+
+		if (count == 0) {
+			return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+		}
+
+		return new Snapshot(count, micros((double) sum / count),
+				micros(percentile(counts, count, max, 0.50)),
+				micros(percentile(counts, count, max, 0.90)),
+				micros(percentile(counts, count, max, 0.99)),
+				micros(percentile(counts, count, max, 0.999)),
+				micros(max));
+	}
+
+	private final LongAdder[] counts;
+	private final LongAdder sum;
+	private final LongAccumulator max;
+
+	public LatencyHistogram() {
+		this.counts = new LongAdder[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = new LongAdder();
+		}
+		this.sum = new LongAdder();
+		this.max = new LongAccumulator(Math::max, 0);
+	}
+
+	/**
+	 * Records a single latency.
+	 *
+	 * @param nanos The latency in nanoseconds. Negative values are recorded as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts[indexOf(value)].increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * @return The number of recorded latencies.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : counts) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * @param quantile The quantile to determine, between 0 and 1 (for instance 0.99 for the 99th percentile).
+	 * @return The (upper bound of the bucket of the) latency in nanoseconds at the specified quantile, or 0 if no
+	 * latencies have been recorded.
+	 */
+	public long getValueAtQuantile(double quantile) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts[i].sum();
+			count += snapshot[i];
+		}
+		return count == 0 ? 0 : percentile(snapshot, count, max.get(), quantile);
+	}
+
+	/**
+	 * @return The highest recorded latency in nanoseconds.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	public Snapshot getSnapshot() {
+		return snapshot(Collections.singleton(this));
+	}
+
+	void reset() {
+		for (LongAdder bucket : counts) {
+			bucket.reset();
+		}
+		sum.reset();
+		max.reset();
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBoundOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucketWidth = 1L << (magnitude - SUB_BUCKET_BITS);
+		long lowerBound = (1L << magnitude) + (index % SUB_BUCKETS) * subBucketWidth;
+		return lowerBound + subBucketWidth - 1;
+	}
+
+	private static long percentile(long[] counts, long count, long max, double quantile) {
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), max);
+			}
+		}
+		return max;
+	}
+
+	private static double micros(double nanos) {
+		return nanos / 1_000.0;
+	}
+
+}
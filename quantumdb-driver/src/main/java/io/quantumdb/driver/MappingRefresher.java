@@ -0,0 +1,146 @@
+package io.quantumdb.driver;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.driver.Transformer.Snapshot;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the table mapping of already open connections up to date. For every version of every database which is
+ * watched, a single Snapshot reference is shared by all connections operating on that version. A background thread
+ * periodically reloads the mapping of each watched version, and when it has changed (for instance because a version
+ * was activated after the connections were opened), installs a new Snapshot with a single atomic reference swap.
+ * Connections never take a lock to read the current Snapshot.
+ */
+@Slf4j
+class MappingRefresher {
+
+	@FunctionalInterface
+	interface ConnectionFactory {
+		Connection connect() throws SQLException;
+	}
+
+	@FunctionalInterface
+	interface SnapshotFactory {
+		Snapshot create(ImmutableMap<String, String> tableMapping);
+	}
+
+	@Data
+	private static class Key {
+		private final String url;
+		private final String version;
+	}
+
+	private static final ConcurrentMap<Key, MappingRefresher> REFRESHERS = new ConcurrentHashMap<>();
+
+	private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "quantumdb-mapping-refresher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Returns the shared Snapshot reference of the specified version, and starts polling the database for changes to
+	 * its table mapping if this version is not watched yet. Note that the interval and factories are only used by the
+	 * first caller for each version.
+	 *
+	 * @param url The JDBC URL of the database.
+	 * @param version The version of the database schema.
+	 * @param interval The time in milliseconds between two polls.
+	 * @param tableMapping The table mapping to start with.
+	 * @param connections Opens the connection used to poll the database.
+	 * @param snapshots Creates a Snapshot for a newly loaded table mapping.
+	 * @return The Snapshot reference which always holds the latest table mapping of the specified version.
+	 */
+	static AtomicReference<Snapshot> watch(String url, String version, long interval,
+			ImmutableMap<String, String> tableMapping, ConnectionFactory connections, SnapshotFactory snapshots) {
+
+		MappingRefresher refresher = REFRESHERS.computeIfAbsent(new Key(url, version), key -> {
+			MappingRefresher created = new MappingRefresher(key, connections, snapshots, tableMapping);
+			created.future = SCHEDULER.scheduleWithFixedDelay(created::poll, interval, interval,
+					TimeUnit.MILLISECONDS);
+			return created;
+		});
+		return refresher.snapshot;
+	}
+
+	/**
+	 * Stops watching the specified version. Connections which are already open keep using the last installed mapping.
+	 *
+	 * @param url The JDBC URL of the database.
+	 * @param version The version of the database schema.
+	 */
+	static void unwatch(String url, String version) {
+		MappingRefresher refresher = REFRESHERS.remove(new Key(url, version));
+		if (refresher != null) {
+			refresher.future.cancel(false);
+			SCHEDULER.execute(refresher::closeQuietly);
+		}
+	}
+
+	private final Key key;
+	private final ConnectionFactory connections;
+	private final SnapshotFactory snapshots;
+	private final AtomicReference<Snapshot> snapshot;
+
+	private volatile ScheduledFuture<?> future;
+
+	// Only accessed from the scheduler thread.
+	private Connection connection;
+
+	private MappingRefresher(Key key, ConnectionFactory connections, SnapshotFactory snapshots,
+			ImmutableMap<String, String> tableMapping) {
+
+		this.key = key;
+		this.connections = connections;
+		this.snapshots = snapshots;
+		this.snapshot = new AtomicReference<>(snapshots.create(tableMapping));
+	}
+
+	private void poll() {
+		try {
+			if (connection == null || connection.isClosed()) {
+				connection = connections.connect();
+			}
+
+			ImmutableMap<String, String> tableMapping = TableMappings.load(connection, key.getVersion());
+			if (!tableMapping.equals(snapshot.get().getTableMapping())) {
+				TableMappings.install(key.getUrl(), key.getVersion(), tableMapping);
+				snapshot.set(snapshots.create(tableMapping));
+				log.info("Installed new table mapping for version: {}", key.getVersion());
+			}
+		}
+		catch (SQLException | RuntimeException e) {
+			// Retry with a new connection on the next poll, instead of cancelling the schedule.
+			log.warn("Could not refresh table mapping of version: " + key.getVersion(), e);
+			closeQuietly();
+		}
+	}
+
+	private void closeQuietly() {
+		if (connection == null) {
+			return;
+		}
+
+		try {
+			connection.close();
+		}
+		catch (SQLException e) {
+			log.debug("Could not close connection used to refresh table mappings", e);
+		}
+		finally {
+			connection = null;
+		}
+	}
+
+}
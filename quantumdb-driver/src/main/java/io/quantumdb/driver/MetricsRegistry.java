@@ -0,0 +1,67 @@
+package io.quantumdb.driver;
+
+/**
+ * A service provider interface through which the driver reports its measurements to a metrics library of choice.
+ * Implementations are discovered using the ServiceLoader, by listing them in a
+ * "META-INF/services/io.quantumdb.driver.MetricsRegistry" file, and must have a public no-argument constructor.
+ * Measurements are reported on the threads which execute queries, so implementations must be thread-safe, and should
+ * not block. The built-in DriverMetrics registry is always present, and is exposed through JMX.
+ */
+public interface MetricsRegistry {
+
+	/**
+	 * The time in nanoseconds spent rewriting a query, including the lookup in the rewrite cache.
+	 */
+	String REWRITE_TIME = "quantumdb.rewrite.time";
+
+	/**
+	 * The number of queries which were found in the rewrite cache.
+	 */
+	String REWRITE_CACHE_HITS = "quantumdb.rewrite.cache.hits";
+
+	/**
+	 * The number of queries which had to be rewritten, as they were not found in the rewrite cache.
+	 */
+	String REWRITE_CACHE_MISSES = "quantumdb.rewrite.cache.misses";
+
+	/**
+	 * The number of prepared statements which reused an idle statement from the prepared statement cache.
+	 */
+	String STATEMENT_CACHE_HITS = "quantumdb.statement.cache.hits";
+
+	/**
+	 * The number of prepared statements which had to be prepared on the delegate connection, as no idle statement was
+	 * found in the prepared statement cache.
+	 */
+	String STATEMENT_CACHE_MISSES = "quantumdb.statement.cache.misses";
+
+	/**
+	 * The number of executed statements.
+	 */
+	String STATEMENTS = "quantumdb.statements";
+
+	/**
+	 * The time in nanoseconds spent opening a connection, including looking up the table mapping of its version.
+	 */
+	String CONNECT_TIME = "quantumdb.connect.time";
+
+	/**
+	 * Increments a counter.
+	 *
+	 * @param name The name of the counter.
+	 * @param version The version of the database schema the connection operates on, or an empty String if the
+	 * connection does not specify a version.
+	 */
+	void increment(String name, String version);
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param name The name of the timer.
+	 * @param version The version of the database schema the connection operates on, or an empty String if the
+	 * connection does not specify a version.
+	 * @param nanos The latency in nanoseconds.
+	 */
+	void recordNanos(String name, String version, long nanos);
+
+}
@@ -604,11 +604,13 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public ResultSet executeQuery() throws SQLException {
+		transformer.recordStatement();
 		return statement.executeQuery();
 	}
 
 	@Override
 	public int executeUpdate() throws SQLException {
+		transformer.recordStatement();
 		return statement.executeUpdate();
 	}
 
@@ -715,6 +717,7 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public boolean execute() throws SQLException {
+		transformer.recordStatement();
 		return statement.execute();
 	}
 
@@ -880,12 +883,14 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeQuery(transformedSql);
 	}
 
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql);
 	}
@@ -952,6 +957,7 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public boolean execute(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql);
 	}
@@ -1014,6 +1020,7 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public int[] executeBatch() throws SQLException {
+		transformer.recordStatement();
 		return statement.executeBatch();
 	}
 
@@ -1034,36 +1041,42 @@ public class ProxyCallableStatement implements CallableStatement {
 
 	@Override
 	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, autoGeneratedKeys);
 	}
 
 	@Override
 	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, columnIndexes);
 	}
 
 	@Override
 	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, columnNames);
 	}
 
 	@Override
 	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, autoGeneratedKeys);
 	}
 
 	@Override
 	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, columnIndexes);
 	}
 
 	@Override
 	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, columnNames);
 	}
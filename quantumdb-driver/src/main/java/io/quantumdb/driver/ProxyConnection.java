@@ -23,10 +23,20 @@ public class ProxyConnection implements Connection {
 
 	private final Connection connection;
 	private final Transformer transformer;
+	private final StatementCache statementCache;
 
 	ProxyConnection(Connection connection, Transformer transformer) {
+		this(connection, transformer, new StatementCache(StatementCache.DEFAULT_MAXIMUM_SIZE));
+	}
+
+	ProxyConnection(Connection connection, Transformer transformer, StatementCache statementCache) {
 		this.connection = connection;
 		this.transformer = transformer;
+		this.statementCache = statementCache;
+	}
+
+	StatementCache getStatementCache() {
+		return statementCache;
 	}
 
 	@Override
@@ -37,8 +47,16 @@ public class ProxyConnection implements Connection {
 	@Override
 	public PreparedStatement prepareStatement(String sql) throws SQLException {
 		String transformedSql = transformer.rewriteQuery(sql);
-		PreparedStatement statement = connection.prepareStatement(transformedSql);
-		return new ProxyPreparedStatement(this, statement, transformer);
+		if (!statementCache.isEnabled()) {
+			PreparedStatement statement = connection.prepareStatement(transformedSql);
+			return new ProxyPreparedStatement(this, statement, transformer);
+		}
+
+		StatementCache.Entry entry = statementCache.take(transformedSql);
+		if (entry == null) {
+			entry = new StatementCache.Entry(connection.prepareStatement(transformedSql));
+		}
+		return new ProxyPreparedStatement(this, entry, transformer, transformedSql);
 	}
 
 	@Override
@@ -76,6 +94,7 @@ public class ProxyConnection implements Connection {
 
 	@Override
 	public void close() throws SQLException {
+		statementCache.clear();
 		connection.close();
 	}
 
@@ -2,6 +2,7 @@ package io.quantumdb.driver;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.lang.reflect.Proxy;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Array;
@@ -25,23 +26,61 @@ import java.util.Calendar;
 
 public class ProxyPreparedStatement implements PreparedStatement {
 
+	// Stands in for the physical statement once it has been returned to the StatementCache.
+	private static final PreparedStatement CLOSED = (PreparedStatement) Proxy.newProxyInstance(
+			PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+					case "isClosed":
+						return true;
+					case "close":
+						return null;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					case "toString":
+						return "Closed PreparedStatement";
+					default:
+						throw new SQLException("This statement has been closed.");
+				}
+			});
+
 	private final ProxyConnection connection;
-	private final PreparedStatement statement;
 	private final Transformer transformer;
+	private final String cacheKey;
+	private final StatementCache.Entry entry;
+	private PreparedStatement statement;
 
 	ProxyPreparedStatement(ProxyConnection connection, PreparedStatement statement, Transformer transformer) {
+		this(connection, new StatementCache.Entry(statement), transformer, null);
+	}
+
+	/**
+	 * Creates a ProxyPreparedStatement which returns its physical statement to the StatementCache of the connection
+	 * when it's closed.
+	 *
+	 * @param cacheKey The rewritten SQL under which to return the statement, or NULL to close it instead.
+	 */
+	ProxyPreparedStatement(ProxyConnection connection, StatementCache.Entry entry, Transformer transformer,
+			String cacheKey) {
+
 		this.connection = connection;
-		this.statement = statement;
+		this.entry = entry;
+		this.statement = entry.getStatement();
 		this.transformer = transformer;
+		this.cacheKey = cacheKey;
 	}
 
 	@Override
 	public ResultSet executeQuery() throws SQLException {
+		transformer.recordStatement();
 		return statement.executeQuery();
 	}
 
 	@Override
 	public int executeUpdate() throws SQLException {
+		transformer.recordStatement();
 		return statement.executeUpdate();
 	}
 
@@ -148,6 +187,7 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
 	@Override
 	public boolean execute() throws SQLException {
+		transformer.recordStatement();
 		return statement.execute();
 	}
 
@@ -213,7 +253,13 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
 	@Override
 	public ParameterMetaData getParameterMetaData() throws SQLException {
-		return statement.getParameterMetaData();
+		if (statement == CLOSED) {
+			return statement.getParameterMetaData();
+		}
+		if (entry.getParameterMetaData() == null) {
+			entry.setParameterMetaData(statement.getParameterMetaData());
+		}
+		return entry.getParameterMetaData();
 	}
 
 	@Override
@@ -313,19 +359,29 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeQuery(transformedSql);
 	}
 
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql);
 	}
 
 	@Override
 	public void close() throws SQLException {
-		statement.close();
+		if (statement == CLOSED) {
+			return;
+		}
+
+		PreparedStatement physical = statement;
+		statement = CLOSED;
+		if (cacheKey == null || !connection.getStatementCache().offer(cacheKey, entry)) {
+			physical.close();
+		}
 	}
 
 	@Override
@@ -385,6 +441,7 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
 	@Override
 	public boolean execute(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql);
 	}
@@ -447,6 +504,7 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
 	@Override
 	public int[] executeBatch() throws SQLException {
+		transformer.recordStatement();
 		return statement.executeBatch();
 	}
 
@@ -467,36 +525,42 @@ public class ProxyPreparedStatement implements PreparedStatement {
 
 	@Override
 	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, autoGeneratedKeys);
 	}
 
 	@Override
 	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, columnIndexes);
 	}
 
 	@Override
 	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, columnNames);
 	}
 
 	@Override
 	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, autoGeneratedKeys);
 	}
 
 	@Override
 	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, columnIndexes);
 	}
 
 	@Override
 	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, columnNames);
 	}
@@ -20,12 +20,14 @@ public class ProxyStatement implements Statement {
 
 	@Override
 	public ResultSet executeQuery(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeQuery(transformedSql);
 	}
 
 	@Override
 	public int executeUpdate(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql);
 	}
@@ -92,6 +94,7 @@ public class ProxyStatement implements Statement {
 
 	@Override
 	public boolean execute(String sql) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql);
 	}
@@ -154,6 +157,7 @@ public class ProxyStatement implements Statement {
 
 	@Override
 	public int[] executeBatch() throws SQLException {
+		transformer.recordStatement();
 		return statement.executeBatch();
 	}
 
@@ -174,36 +178,42 @@ public class ProxyStatement implements Statement {
 
 	@Override
 	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, autoGeneratedKeys);
 	}
 
 	@Override
 	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, columnIndexes);
 	}
 
 	@Override
 	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.executeUpdate(transformedSql, columnNames);
 	}
 
 	@Override
 	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, autoGeneratedKeys);
 	}
 
 	@Override
 	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, columnIndexes);
 	}
 
 	@Override
 	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		transformer.recordStatement();
 		String transformedSql = transformer.rewriteQuery(sql);
 		return statement.execute(transformedSql, columnNames);
 	}
@@ -0,0 +1,189 @@
+package io.quantumdb.driver;
+
+import java.sql.SQLException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A bounded, concurrent cache of rewritten queries. One instance exists per version of each database, and is shared by
+ * all connections which operate on that version. The cache is bounded both by the number of entries, and by
+ * the total weight (the number of characters in the original and rewritten queries) of its entries. When either bound
+ * is exceeded, the oldest entries are evicted first.
+ */
+class RewriteCache {
+
+	interface Rewriter {
+		String rewrite(String query) throws SQLException;
+	}
+
+	static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+	static final long DEFAULT_MAXIMUM_WEIGHT = 16 * 1024 * 1024;
+
+	private static final ConcurrentMap<TableMappings.Key, RewriteCache> CACHES = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the RewriteCache for the specified version of the specified database, creating it if it doesn't exist
+	 * yet. Only caches of non-empty table mappings are shared: an empty mapping may belong to a version which has not
+	 * been activated yet, and its (identity) rewrites must not be reused by connections which are created after the
+	 * version has been activated. Note that the bounds are only applied when the cache is created.
+	 *
+	 * @param url The JDBC URL of the database.
+	 * @param version The version of the database schema (may be NULL).
+	 * @param tableMapping The table mapping of the specified version.
+	 * @param maximumSize The maximum number of queries to cache.
+	 * @param maximumWeight The maximum number of characters to cache.
+	 * @return The shared RewriteCache for the specified version, or a new RewriteCache if the mapping is empty.
+	 */
+	static RewriteCache forVersion(String url, String version, ImmutableMap<String, String> tableMapping,
+			int maximumSize, long maximumWeight) {
+
+		if (tableMapping.isEmpty()) {
+			return new RewriteCache(maximumSize, maximumWeight);
+		}
+		return CACHES.computeIfAbsent(new TableMappings.Key(url, Strings.nullToEmpty(version)),
+				key -> new RewriteCache(maximumSize, maximumWeight));
+	}
+
+	/**
+	 * Discards the shared RewriteCache of the specified version of the specified database.
+	 *
+	 * @param url The JDBC URL of the database.
+	 * @param version The version of the database schema (may be NULL).
+	 */
+	static void discard(String url, String version) {
+		CACHES.remove(new TableMappings.Key(url, Strings.nullToEmpty(version)));
+	}
+
+	private final int maximumSize;
+	private final long maximumWeight;
+
+	private final ConcurrentMap<String, String> entries;
+	private final Queue<String> insertionOrder;
+	private final AtomicLong weight;
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+
+	RewriteCache(int maximumSize, long maximumWeight) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("The 'maximumSize' may not be negative.");
+		}
+		if (maximumWeight < 0) {
+			throw new IllegalArgumentException("The 'maximumWeight' may not be negative.");
+		}
+
+		this.maximumSize = maximumSize;
+		this.maximumWeight = maximumWeight;
+		this.entries = new ConcurrentHashMap<>();
+		this.insertionOrder = new ConcurrentLinkedQueue<>();
+		this.weight = new AtomicLong();
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+	}
+
+	String get(String query, Rewriter rewriter) throws SQLException {
+		String rewritten = getIfPresent(query);
+		if (rewritten != null) {
+			return rewritten;
+		}
+		return put(query, rewriter);
+	}
+
+	/**
+	 * @return The cached rewritten query, or NULL if the query has not been cached (yet).
+	 */
+	String getIfPresent(String query) {
+		if (query == null) {
+			return null;
+		}
+
+		String rewritten = entries.get(query);
+		if (rewritten != null) {
+			hits.increment();
+		}
+		return rewritten;
+	}
+
+	/**
+	 * Rewrites the specified query, and caches the result if it fits within the bounds of the cache.
+	 */
+	String put(String query, Rewriter rewriter) throws SQLException {
+		if (query == null) {
+			return rewriter.rewrite(null);
+		}
+
+		misses.increment();
+		String rewritten = rewriter.rewrite(query);
+
+		long entryWeight = weigh(query, rewritten);
+		if (maximumSize == 0 || entryWeight > maximumWeight) {
+			return rewritten;
+		}
+
+		if (entries.putIfAbsent(query, rewritten) == null) {
+			insertionOrder.add(query);
+			weight.addAndGet(entryWeight);
+			evict();
+		}
+		return rewritten;
+	}
+
+	void clear() {
+		String query;
+		while ((query = insertionOrder.poll()) != null) {
+			String removed = entries.remove(query);
+			if (removed != null) {
+				weight.addAndGet(-weigh(query, removed));
+			}
+		}
+	}
+
+	long getHitCount() {
+		return hits.sum();
+	}
+
+	long getMissCount() {
+		return misses.sum();
+	}
+
+	long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	long weight() {
+		return weight.get();
+	}
+
+	private void evict() {
+		while (entries.size() > maximumSize || weight.get() > maximumWeight) {
+			String eldest = insertionOrder.poll();
+			if (eldest == null) {
+				return;
+			}
+
+			String removed = entries.remove(eldest);
+			if (removed != null) {
+				weight.addAndGet(-weigh(eldest, removed));
+				evictions.increment();
+			}
+		}
+	}
+
+	private static long weigh(String query, String rewritten) {
+		return query.length() + rewritten.length();
+	}
+
+}
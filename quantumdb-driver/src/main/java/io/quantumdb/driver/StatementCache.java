@@ -0,0 +1,151 @@
+package io.quantumdb.driver;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A bounded cache of idle physical PreparedStatements of a single connection, keyed by their rewritten SQL. Since the
+ * rewritten SQL refers to the tables of a specific version, this is equivalent to keying them by version and logical
+ * SQL. Closing a pooled PreparedStatement returns its physical statement to this cache instead of closing it, so that
+ * preparing the same query again reuses the statement, its parameter metadata, and (once the delegate driver has
+ * decided to use one) its server-side prepared statement and plan. When the cache is full, the least recently used
+ * statement is closed.
+ */
+class StatementCache {
+
+	static final int DEFAULT_MAXIMUM_SIZE = 0;
+
+	@Data
+	@AllArgsConstructor
+	static class Entry {
+		private final PreparedStatement statement;
+		private ParameterMetaData parameterMetaData;
+
+		Entry(PreparedStatement statement) {
+			this(statement, null);
+		}
+	}
+
+	private final int maximumSize;
+	private final LinkedHashMap<String, Entry> entries;
+
+	private final DriverMetrics.Recorder metrics;
+	private final LongAdder evictions;
+
+	StatementCache(int maximumSize) {
+		this(maximumSize, DriverMetrics.getInstance().forVersion(null));
+	}
+
+	StatementCache(int maximumSize, DriverMetrics.Recorder metrics) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("The 'maximumSize' may not be negative.");
+		}
+
+		this.maximumSize = maximumSize;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.metrics = metrics;
+		this.evictions = new LongAdder();
+	}
+
+	boolean isEnabled() {
+		return maximumSize > 0;
+	}
+
+	/**
+	 * Removes an idle statement for the specified SQL from the cache.
+	 *
+	 * @param sql The rewritten SQL of the statement.
+	 * @return The idle statement, or NULL if there is none.
+	 */
+	synchronized Entry take(String sql) {
+		Entry entry = entries.remove(sql);
+		metrics.recordStatementCacheLookup(entry != null);
+		return entry;
+	}
+
+	/**
+	 * Offers a statement which is no longer used to the cache. Its parameters, batch, and the settings which are local
+	 * to the statement are reset before it's stored.
+	 *
+	 * @param sql The rewritten SQL of the statement.
+	 * @param entry The statement to store.
+	 * @return True if the cache took ownership of the statement, false if the caller should close it.
+	 */
+	synchronized boolean offer(String sql, Entry entry) {
+		if (!isEnabled() || entries.containsKey(sql) || !reset(entry.getStatement())) {
+			return false;
+		}
+
+		entries.put(sql, entry);
+
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while (entries.size() > maximumSize && iterator.hasNext()) {
+			Entry eldest = iterator.next().getValue();
+			iterator.remove();
+			closeQuietly(eldest.getStatement());
+			evictions.increment();
+		}
+		return true;
+	}
+
+	/**
+	 * Closes all idle statements in the cache.
+	 */
+	synchronized void clear() {
+		entries.values().forEach(entry -> closeQuietly(entry.getStatement()));
+		entries.clear();
+	}
+
+	synchronized int size() {
+		return entries.size();
+	}
+
+	long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	private static boolean reset(PreparedStatement statement) {
+		try {
+			if (statement.isClosed() || statement.isCloseOnCompletion()) {
+				return false;
+			}
+
+			ResultSet resultSet = statement.getResultSet();
+			if (resultSet != null) {
+				resultSet.close();
+			}
+
+			statement.clearParameters();
+			statement.clearBatch();
+			statement.clearWarnings();
+			statement.setMaxRows(0);
+			statement.setMaxFieldSize(0);
+			statement.setQueryTimeout(0);
+			statement.setFetchSize(0);
+			statement.setFetchDirection(ResultSet.FETCH_FORWARD);
+			return true;
+		}
+		catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement statement) {
+		try {
+			statement.close();
+		}
+		catch (SQLException e) {
+			// The statement is no longer used, so there's nothing left to do.
+		}
+	}
+
+}
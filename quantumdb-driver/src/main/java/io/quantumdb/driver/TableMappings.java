@@ -0,0 +1,129 @@
+package io.quantumdb.driver;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Data;
+
+/**
+ * A process-wide registry of table mappings. Each version of each database is only loaded once, after which the
+ * resulting immutable mapping is shared by reference across all connections which operate on that version.
+ */
+class TableMappings {
+
+	@Data
+	static class Key {
+		private final String url;
+		private final String version;
+	}
+
+	private static final Cache<Key, ImmutableMap<String, String>> MAPPINGS = CacheBuilder.newBuilder().build();
+
+	/**
+	 * Returns the table mapping of the specified version. If this mapping has not been loaded before, it's loaded
+	 * using the specified connection. Concurrent callers requesting the same mapping will wait for this load to
+	 * complete, instead of loading it themselves.
+	 *
+	 * @param connection The connection to use when the mapping needs to be loaded.
+	 * @param url The JDBC URL of the database.
+	 * @param version The version of the database schema (may be NULL).
+	 * @return The immutable table mapping of the specified version.
+	 * @throws SQLException In case the mapping could not be loaded.
+	 */
+	static ImmutableMap<String, String> get(Connection connection, String url, String version) throws SQLException {
+		if (version == null || version.isEmpty()) {
+			return ImmutableMap.of();
+		}
+
+		Key key = new Key(url, version);
+		try {
+			ImmutableMap<String, String> mapping = MAPPINGS.get(key, () -> load(connection, version));
+			if (mapping.isEmpty()) {
+				// The version might not have been activated yet, so don't hold on to this mapping.
+				MAPPINGS.asMap().remove(key, mapping);
+			}
+			return mapping;
+		}
+		catch (ExecutionException | UncheckedExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException) cause;
+			}
+			throw new SQLException("Could not load table mapping for version: " + version, cause);
+		}
+	}
+
+	/**
+	 * Reloads the table mapping of the specified version, and atomically replaces the previously loaded mapping.
+	 * Connections which are created afterwards will use the new mapping.
+	 *
+	 * @param connection The connection to use to load the mapping.
+	 * @param url The JDBC URL of the database.
+	 * @param version The version of the database schema.
+	 * @return The newly loaded immutable table mapping.
+	 * @throws SQLException In case the mapping could not be loaded.
+	 */
+	static ImmutableMap<String, String> refresh(Connection connection, String url, String version)
+			throws SQLException {
+
+		ImmutableMap<String, String> mapping = load(connection, version);
+		install(url, version, mapping);
+		return mapping;
+	}
+
+	/**
+	 * Replaces the previously loaded table mapping of the specified version, and discards the rewrite cache of that
+	 * version. Connections which are created afterwards will use the specified mapping.
+	 *
+	 * @param url The JDBC URL of the database.
+	 * @param version The version of the database schema.
+	 * @param mapping The new immutable table mapping of the specified version.
+	 */
+	static void install(String url, String version, ImmutableMap<String, String> mapping) {
+		if (mapping.isEmpty()) {
+			// Just like when loading, don't hold on to mappings of versions which are not active.
+			MAPPINGS.invalidate(new Key(url, version));
+		}
+		else {
+			MAPPINGS.put(new Key(url, version), mapping);
+		}
+		RewriteCache.discard(url, version);
+	}
+
+	/**
+	 * Loads the table mapping of the specified version from the database, bypassing the registry.
+	 */
+	static ImmutableMap<String, String> load(Connection connection, String version) throws SQLException {
+		String query = new StringBuilder()
+				.append("SELECT ref_id, table_name ")
+				.append("FROM quantumdb.ref_versions ")
+				.append("WHERE version_id = ? ")
+				// The refs of a fork which hasn't completed yet are persisted before their version becomes active.
+				.append("AND version_id IN (SELECT version_id FROM quantumdb.active_versions);")
+				.toString();
+
+		Map<String, String> mapping = new LinkedHashMap<>();
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, version);
+
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					String refId = resultSet.getString("ref_id");
+					String tableName = resultSet.getString("table_name");
+					mapping.put(tableName, refId);
+				}
+			}
+		}
+		return ImmutableMap.copyOf(mapping);
+	}
+
+}
@@ -1,58 +1,86 @@
 package io.quantumdb.driver;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.google.common.collect.ImmutableMap;
 import io.quantumdb.query.rewriter.QueryRewriter;
+import lombok.Data;
 
 class Transformer {
 
-	private final QueryRewriter queryRewriter;
-	private final Map<String, String> tableMapping;
-
-	Transformer(Connection connection, QueryRewriter queryRewriter, String version) throws SQLException {
-		this.tableMapping = new HashMap<>();
-		this.queryRewriter = queryRewriter;
-
-		if (version != null && !version.isEmpty()) {
-			String query = new StringBuilder()
-					.append("SELECT ref_id, table_name ")
-					.append("FROM quantumdb.ref_versions ")
-					.append("WHERE version_id = ?;")
-					.toString();
-
-			try (PreparedStatement statement = connection.prepareStatement(query)) {
-				statement.setString(1, version);
-
-				try (ResultSet resultSet = statement.executeQuery()) {
-					while (resultSet.next()) {
-						String refId = resultSet.getString("ref_id");
-						String tableName = resultSet.getString("table_name");
-						tableMapping.put(tableName, refId);
-					}
-				}
-			}
-		}
+	/**
+	 * An immutable combination of a table mapping, and the QueryRewriter and RewriteCache which belong to it. A new
+	 * mapping is installed by replacing the entire Snapshot, so that queries are never rewritten with a mix of the old
+	 * and the new mapping.
+	 */
+	@Data
+	static class Snapshot {
+		private final ImmutableMap<String, String> tableMapping;
+		private final QueryRewriter queryRewriter;
+		private final RewriteCache rewriteCache;
+	}
+
+	private final AtomicReference<Snapshot> snapshot;
+	private final DriverMetrics.Recorder metrics;
+
+	Transformer(QueryRewriter queryRewriter, ImmutableMap<String, String> tableMapping, RewriteCache rewriteCache) {
+		this(queryRewriter, tableMapping, rewriteCache, DriverMetrics.getInstance().forVersion(null));
+	}
 
+	Transformer(QueryRewriter queryRewriter, ImmutableMap<String, String> tableMapping, RewriteCache rewriteCache,
+			DriverMetrics.Recorder metrics) {
+
+		this(new AtomicReference<>(new Snapshot(tableMapping, queryRewriter, rewriteCache)), metrics);
 		queryRewriter.setTableMapping(tableMapping);
 	}
 
-	Map<String, String> getTableMappings() {
-		Map<String, String> result = new HashMap<>(tableMapping.size());
-		result.putAll(tableMapping);
-		return result;
+	Transformer(AtomicReference<Snapshot> snapshot) {
+		this(snapshot, DriverMetrics.getInstance().forVersion(null));
+	}
+
+	/**
+	 * Creates a Transformer which always uses the current Snapshot of the specified reference, which may be shared
+	 * with other Transformers and replaced at any time.
+	 */
+	Transformer(AtomicReference<Snapshot> snapshot, DriverMetrics.Recorder metrics) {
+		this.snapshot = snapshot;
+		this.metrics = metrics;
+	}
+
+	ImmutableMap<String, String> getTableMappings() {
+		return snapshot.get().getTableMapping();
 	}
 
 	String getRefId(String tableName) {
-		return tableMapping.get(tableName);
+		return snapshot.get().getTableMapping().get(tableName);
 	}
 
 	String rewriteQuery(String query) throws SQLException {
-		return queryRewriter.rewrite(query);
+		long start = System.nanoTime();
+		Snapshot current = snapshot.get();
+		RewriteCache rewriteCache = current.getRewriteCache();
+
+		String rewritten = rewriteCache.getIfPresent(query);
+		if (rewritten != null) {
+			metrics.recordRewrite(System.nanoTime() - start, true);
+			return rewritten;
+		}
+
+		rewritten = rewriteCache.put(query, current.getQueryRewriter()::rewrite);
+		metrics.recordRewrite(System.nanoTime() - start, false);
+		return rewritten;
+	}
+
+	/**
+	 * Records that a statement is executed through a connection which uses this Transformer.
+	 */
+	void recordStatement() {
+		metrics.recordStatement();
+	}
+
+	RewriteCache getRewriteCache() {
+		return snapshot.get().getRewriteCache();
 	}
 
 }
@@ -0,0 +1,113 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import org.junit.Test;
+
+public class DriverMetricsTest {
+
+	private static final String VERSION = "abcdef";
+
+	@Test
+	public void testThatRewritesAreRecordedPerVersion() throws SQLException {
+		DriverMetrics metrics = new DriverMetrics(ImmutableList.of());
+		Transformer transformer = transformer(metrics.forVersion(VERSION));
+
+		transformer.rewriteQuery("SELECT * FROM users;");
+		transformer.rewriteQuery("SELECT * FROM users;");
+
+		assertEquals(1, metrics.getRewriteCacheHits());
+		assertEquals(1, metrics.getRewriteCacheMisses());
+		assertEquals(0.5, metrics.getRewriteCacheHitRate(), 0.0001);
+		assertEquals(2, metrics.getHistogram(MetricsRegistry.REWRITE_TIME, VERSION).getCount());
+		assertEquals(2, metrics.getRewriteTime().getCount());
+	}
+
+	@Test
+	public void testThatStatementsAreCountedPerVersion() throws SQLException {
+		DriverMetrics metrics = new DriverMetrics(ImmutableList.of());
+
+		Connection connection = mock(Connection.class);
+		Statement statement = mock(Statement.class);
+		when(connection.createStatement()).thenReturn(statement);
+		when(statement.execute(anyString())).thenReturn(true);
+
+		ProxyConnection proxyConnection = new ProxyConnection(connection, transformer(metrics.forVersion(VERSION)));
+		proxyConnection.createStatement().execute("SELECT * FROM users;");
+		proxyConnection.createStatement().executeUpdate("DELETE FROM users;");
+
+		assertEquals(ImmutableMap.of(VERSION, 2L), metrics.getStatementsPerVersion());
+
+		metrics.reset();
+		assertEquals(0, metrics.getCount(MetricsRegistry.STATEMENTS, VERSION));
+	}
+
+	@Test
+	public void testThatMeasurementsAreForwardedToRegistries() throws SQLException {
+		List<String> recorded = Lists.newArrayList();
+		MetricsRegistry failing = new MetricsRegistry() {
+			@Override
+			public void increment(String name, String version) {
+				throw new IllegalStateException("Registry is unavailable");
+			}
+
+			@Override
+			public void recordNanos(String name, String version, long nanos) {
+				throw new IllegalStateException("Registry is unavailable");
+			}
+		};
+		MetricsRegistry recording = new MetricsRegistry() {
+			@Override
+			public void increment(String name, String version) {
+				recorded.add(name + "@" + version);
+			}
+
+			@Override
+			public void recordNanos(String name, String version, long nanos) {
+				recorded.add(name + "@" + version);
+			}
+		};
+
+		DriverMetrics metrics = new DriverMetrics(ImmutableList.of(failing, recording));
+		transformer(metrics.forVersion(VERSION)).rewriteQuery("SELECT * FROM users;");
+
+		assertEquals(Lists.newArrayList(MetricsRegistry.REWRITE_TIME + "@" + VERSION,
+				MetricsRegistry.REWRITE_CACHE_MISSES + "@" + VERSION), recorded);
+	}
+
+	@Test
+	public void testThatBuiltInMetricsAreExposedInJmx() throws Exception {
+		DriverMetrics.getInstance().forVersion(VERSION).recordConnect(1_000_000);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(DriverMetrics.OBJECT_NAME);
+		assertTrue(server.isRegistered(name));
+
+		CompositeData connectTime = (CompositeData) server.getAttribute(name, "ConnectTime");
+		assertTrue((Long) connectTime.get("count") >= 1);
+	}
+
+	private static Transformer transformer(DriverMetrics.Recorder recorder) {
+		return new Transformer(new PostgresqlQueryRewriter(), ImmutableMap.of("users", "users_v2"),
+				new RewriteCache(10, 1_000), recorder);
+	}
+
+}
@@ -0,0 +1,56 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testThatEveryValueFallsWithinTheBoundsOfItsBucket() {
+		long[] values = { 0, 1, 7, 8, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue(value <= LatencyHistogram.upperBoundOf(index));
+			if (index > 0) {
+				assertTrue(value > LatencyHistogram.upperBoundOf(index - 1));
+			}
+		}
+	}
+
+	@Test
+	public void testThatPercentilesAreWithinRelativeError() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long micros = 1; micros <= 1_000; micros++) {
+			histogram.record(micros * 1_000);
+		}
+
+		assertEquals(1_000, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMax());
+		assertWithin(500_000, histogram.getValueAtQuantile(0.50));
+		assertWithin(990_000, histogram.getValueAtQuantile(0.99));
+
+		LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+		assertEquals(1_000, snapshot.getCount());
+		assertEquals(500.5, snapshot.getMeanMicros(), 0.001);
+		assertEquals(1_000, snapshot.getMaxMicros(), 0.001);
+	}
+
+	@Test
+	public void testThatEmptyHistogramReportsZeroes() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(5);
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getValueAtQuantile(0.99));
+		assertEquals(0, histogram.getSnapshot().getP99Micros(), 0.0);
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("Expected about " + expected + " but was " + actual,
+				actual >= expected && actual <= expected * 1.125);
+	}
+
+}
@@ -0,0 +1,103 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.driver.Transformer.Snapshot;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import io.quantumdb.query.rewriter.QueryRewriter;
+import org.junit.After;
+import org.junit.Test;
+
+public class MappingRefresherTest {
+
+	private static final String URL = "jdbc:postgresql://localhost/refresher";
+	private static final String VERSION = "0123456789";
+
+	@After
+	public void tearDown() {
+		MappingRefresher.unwatch(URL, VERSION);
+		RewriteCache.discard(URL, VERSION);
+	}
+
+	@Test(timeout = 10_000)
+	public void testThatOpenConnectionsPickUpActivatedVersion() throws Exception {
+		Connection connection = mockConnection("users", "users_v2");
+
+		AtomicReference<Snapshot> snapshot = MappingRefresher.watch(URL, VERSION, 10, ImmutableMap.of(),
+				() -> connection, MappingRefresherTest::createSnapshot);
+
+		Transformer transformer = new Transformer(snapshot);
+		assertEquals("SELECT * FROM users;", transformer.rewriteQuery("SELECT * FROM users;"));
+
+		awaitMapping(snapshot);
+		assertEquals("users_v2", transformer.getRefId("users"));
+		assertEquals("SELECT * FROM users_v2;", transformer.rewriteQuery("SELECT * FROM users;"));
+	}
+
+	@Test(timeout = 10_000)
+	public void testThatPollingContinuesAfterFailure() throws Exception {
+		Connection connection = mockConnection("users", "users_v2");
+		AtomicInteger attempts = new AtomicInteger();
+
+		AtomicReference<Snapshot> snapshot = MappingRefresher.watch(URL, VERSION, 10, ImmutableMap.of(), () -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new SQLException("Connection refused");
+			}
+			return connection;
+		}, MappingRefresherTest::createSnapshot);
+
+		awaitMapping(snapshot);
+		assertEquals(ImmutableMap.of("users", "users_v2"), snapshot.get().getTableMapping());
+	}
+
+	@Test
+	public void testThatConnectionsOfTheSameVersionShareSnapshot() {
+		AtomicReference<Snapshot> first = MappingRefresher.watch(URL, VERSION, 60_000, ImmutableMap.of(),
+				() -> null, MappingRefresherTest::createSnapshot);
+		AtomicReference<Snapshot> second = MappingRefresher.watch(URL, VERSION, 60_000, ImmutableMap.of(),
+				() -> null, MappingRefresherTest::createSnapshot);
+
+		assertSame(first, second);
+	}
+
+	private static void awaitMapping(AtomicReference<Snapshot> snapshot) throws InterruptedException {
+		while (snapshot.get().getTableMapping().isEmpty()) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static Snapshot createSnapshot(ImmutableMap<String, String> tableMapping) {
+		QueryRewriter queryRewriter = new PostgresqlQueryRewriter();
+		queryRewriter.setTableMapping(tableMapping);
+		return new Snapshot(tableMapping, queryRewriter, new RewriteCache(100, 10_000));
+	}
+
+	private static Connection mockConnection(String tableName, String refId) throws SQLException {
+		ResultSet resultSet = mock(ResultSet.class);
+		// Every poll reads a single record.
+		AtomicInteger reads = new AtomicInteger();
+		when(resultSet.next()).thenAnswer(invocation -> reads.incrementAndGet() % 2 == 1);
+		when(resultSet.getString("table_name")).thenReturn(tableName);
+		when(resultSet.getString("ref_id")).thenReturn(refId);
+
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(statement.executeQuery()).thenReturn(resultSet);
+
+		Connection connection = mock(Connection.class);
+		when(connection.prepareStatement(anyString())).thenReturn(statement);
+		return connection;
+	}
+
+}
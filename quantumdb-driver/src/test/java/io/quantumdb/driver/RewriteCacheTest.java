@@ -0,0 +1,98 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+public class RewriteCacheTest {
+
+	private static final String URL = "jdbc:postgresql://localhost/rewrites";
+	private static final String OTHER_URL = "jdbc:postgresql://localhost/other";
+	private static final ImmutableMap<String, String> MAPPING = ImmutableMap.of("users", "users_v2");
+
+	@Test
+	public void testThatRepeatedQueriesAreOnlyRewrittenOnce() throws SQLException {
+		AtomicInteger rewrites = new AtomicInteger();
+		RewriteCache cache = new RewriteCache(10, 1_000);
+
+		for (int i = 0; i < 3; i++) {
+			String result = cache.get("SELECT * FROM users", query -> {
+				rewrites.incrementAndGet();
+				return query.replace("users", "users_v2");
+			});
+			assertEquals("SELECT * FROM users_v2", result);
+		}
+
+		assertEquals(1, rewrites.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void testThatOldestEntriesAreEvictedWhenMaximumSizeIsExceeded() throws SQLException {
+		RewriteCache cache = new RewriteCache(2, 1_000);
+		cache.get("a", query -> query);
+		cache.get("b", query -> query);
+		cache.get("c", query -> query);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+
+		cache.get("a", query -> query);
+		assertEquals(4, cache.getMissCount());
+	}
+
+	@Test
+	public void testThatOldestEntriesAreEvictedWhenMaximumWeightIsExceeded() throws SQLException {
+		RewriteCache cache = new RewriteCache(10, 10);
+		cache.get("aaa", query -> query);
+		cache.get("bbb", query -> query);
+
+		assertEquals(1, cache.size());
+		assertEquals(6, cache.weight());
+	}
+
+	@Test
+	public void testThatQueriesHeavierThanMaximumWeightAreNotCached() throws SQLException {
+		RewriteCache cache = new RewriteCache(10, 4);
+		cache.get("aaa", query -> query);
+
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.weight());
+	}
+
+	@Test
+	public void testThatCachesAreSharedPerVersion() {
+		RewriteCache first = RewriteCache.forVersion(URL, "abcdef", MAPPING, 10, 100);
+		RewriteCache second = RewriteCache.forVersion(URL, "abcdef", MAPPING, 20, 200);
+		assertSame(first, second);
+		RewriteCache.discard(URL, "abcdef");
+	}
+
+	@Test
+	public void testThatCachesAreNotSharedAcrossDatabases() {
+		RewriteCache first = RewriteCache.forVersion(URL, "abcdef", MAPPING, 10, 100);
+		RewriteCache second = RewriteCache.forVersion(OTHER_URL, "abcdef", MAPPING, 10, 100);
+		assertNotSame(first, second);
+		RewriteCache.discard(URL, "abcdef");
+		RewriteCache.discard(OTHER_URL, "abcdef");
+	}
+
+	@Test
+	public void testThatCachesOfEmptyMappingsAreNotShared() throws SQLException {
+		RewriteCache inactive = RewriteCache.forVersion(URL, "abcdef", ImmutableMap.of(), 10, 100);
+		inactive.get("SELECT * FROM users", query -> query);
+
+		RewriteCache active = RewriteCache.forVersion(URL, "abcdef", MAPPING, 10, 100);
+		assertNotSame(inactive, active);
+		assertEquals(0, active.size());
+		RewriteCache.discard(URL, "abcdef");
+	}
+
+}
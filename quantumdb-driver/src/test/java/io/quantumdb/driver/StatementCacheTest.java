@@ -0,0 +1,135 @@
+package io.quantumdb.driver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.quantumdb.query.rewriter.PostgresqlQueryRewriter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StatementCacheTest {
+
+	private static final String QUERY = "SELECT * FROM users WHERE id = ?;";
+
+	private Connection connection;
+	private DriverMetrics metrics;
+	private ProxyConnection proxyConnection;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = mock(Connection.class);
+		when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mockStatement());
+
+		Transformer transformer = new Transformer(new PostgresqlQueryRewriter(),
+				ImmutableMap.of("users", "users_v2"), new RewriteCache(10, 1_000));
+
+		metrics = new DriverMetrics(ImmutableList.of());
+		proxyConnection = new ProxyConnection(connection, transformer,
+				new StatementCache(2, metrics.forVersion("abcdef")));
+	}
+
+	@Test
+	public void testThatClosedStatementsAreReused() throws SQLException {
+		PreparedStatement first = proxyConnection.prepareStatement(QUERY);
+		PreparedStatement physical = first.unwrap(PreparedStatement.class);
+		first.setLong(1, 1);
+		first.close();
+
+		PreparedStatement second = proxyConnection.prepareStatement(QUERY);
+		assertNotSame(first, second);
+		assertSame(physical, second.unwrap(PreparedStatement.class));
+
+		verify(connection, times(1)).prepareStatement("SELECT * FROM users_v2 WHERE id = ?;");
+		verify(physical).clearParameters();
+		verify(physical, never()).close();
+
+		assertEquals(1, metrics.getStatementCacheHits());
+		assertEquals(1, metrics.getStatementCacheMisses());
+		assertEquals(0.5, metrics.getStatementCacheHitRate(), 0.0001);
+		assertEquals(1, metrics.getCount(MetricsRegistry.STATEMENT_CACHE_HITS, "abcdef"));
+	}
+
+	@Test
+	public void testThatParameterMetaDataIsCached() throws SQLException {
+		PreparedStatement first = proxyConnection.prepareStatement(QUERY);
+		PreparedStatement physical = first.unwrap(PreparedStatement.class);
+		ParameterMetaData parameterMetaData = first.getParameterMetaData();
+		first.close();
+
+		PreparedStatement second = proxyConnection.prepareStatement(QUERY);
+		assertSame(parameterMetaData, second.getParameterMetaData());
+		verify(physical, times(1)).getParameterMetaData();
+	}
+
+	@Test(expected = SQLException.class)
+	public void testThatClosedStatementsCanNoLongerBeUsed() throws SQLException {
+		PreparedStatement statement = proxyConnection.prepareStatement(QUERY);
+		statement.close();
+
+		assertTrue(statement.isClosed());
+		statement.executeQuery();
+	}
+
+	@Test
+	public void testThatLeastRecentlyUsedStatementsAreEvicted() throws SQLException {
+		PreparedStatement first = proxyConnection.prepareStatement("SELECT 1;");
+		PreparedStatement eldest = first.unwrap(PreparedStatement.class);
+		first.close();
+		proxyConnection.prepareStatement("SELECT 2;").close();
+		proxyConnection.prepareStatement("SELECT 3;").close();
+
+		StatementCache statementCache = proxyConnection.getStatementCache();
+		assertEquals(2, statementCache.size());
+		assertEquals(1, statementCache.getEvictionCount());
+		verify(eldest).close();
+	}
+
+	@Test
+	public void testThatStatementsAreClosedWhenCacheIsDisabled() throws SQLException {
+		Transformer transformer = new Transformer(new PostgresqlQueryRewriter(), ImmutableMap.of(),
+				new RewriteCache(10, 1_000));
+		ProxyConnection uncached = new ProxyConnection(connection, transformer);
+
+		PreparedStatement statement = uncached.prepareStatement(QUERY);
+		PreparedStatement physical = statement.unwrap(PreparedStatement.class);
+		statement.close();
+
+		verify(physical).close();
+		assertFalse(uncached.getStatementCache().isEnabled());
+	}
+
+	@Test
+	public void testThatStatementsAreClosedWithTheirConnection() throws SQLException {
+		PreparedStatement statement = proxyConnection.prepareStatement(QUERY);
+		PreparedStatement physical = statement.unwrap(PreparedStatement.class);
+		statement.close();
+
+		proxyConnection.close();
+		verify(physical).close();
+		assertEquals(0, proxyConnection.getStatementCache().size());
+	}
+
+	private static PreparedStatement mockStatement() throws SQLException {
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(statement.unwrap(PreparedStatement.class)).thenReturn(statement);
+		when(statement.getParameterMetaData()).thenReturn(mock(ParameterMetaData.class));
+		return statement;
+	}
+
+}
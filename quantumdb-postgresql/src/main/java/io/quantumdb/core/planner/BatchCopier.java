@@ -0,0 +1,42 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Copies the records of a source table into a ghost table one batch at a time, in the order of their identities.
+ */
+interface BatchCopier extends AutoCloseable {
+
+	@FunctionalInterface
+	interface Factory {
+		BatchCopier open(Connection connection) throws SQLException;
+	}
+
+	@Data
+	class Batch {
+		private final String identity;
+		private final long records;
+	}
+
+	/**
+	 * Copies the next batch of records. Only records up to and including the upper bound are copied, where identities
+	 * are compared by the database, so batches follow the database's ordering of composite and textual identities.
+	 *
+	 * @param lastProcessedId The identity of the last copied record, or an empty Map to start at the first record.
+	 * @param upperBound The identity of the last record of the key range.
+	 * @param batchSize The maximum number of records to copy.
+	 * @return The identity (formatted as a record) of the last copied record, and the number of copied records. When
+	 * fewer records than the batch size were copied, there are no records left to copy in the key range.
+	 * @throws SQLException In case the records could not be copied.
+	 */
+	Batch copy(Map<String, Object> lastProcessedId, Map<String, Object> upperBound, long batchSize)
+			throws SQLException;
+
+	@Override
+	void close() throws SQLException;
+
+}
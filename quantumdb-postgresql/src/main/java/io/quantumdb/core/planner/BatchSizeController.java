@@ -0,0 +1,99 @@
+package io.quantumdb.core.planner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import io.quantumdb.core.backends.Config;
+
+/**
+ * Determines how many records to copy in the next batch, and how long to pause before doing so. The batch size grows
+ * or shrinks towards the size which is expected to take the target latency, based on a moving average of the observed
+ * time it takes to copy a single record. When the database shows signs of pressure, either through other sessions
+ * waiting on locks or a batch taking much longer than expected, the batch size is halved and the pause is doubled.
+ */
+class BatchSizeController {
+
+	private static final long INITIAL_BATCH_SIZE = 2_000;
+	private static final long INITIAL_BACK_OFF_PAUSE = 50;
+	private static final double SMOOTHING_FACTOR = 0.3;
+	private static final double MAXIMUM_GROWTH = 2.0;
+	private static final double MAXIMUM_SHRINKAGE = 0.5;
+	private static final double LATENCY_SPIKE_FACTOR = 2.0;
+
+	private final long targetLatency;
+	private final long minBatchSize;
+	private final long maxBatchSize;
+	private final long maxPause;
+
+	private long batchSize;
+	private long pause;
+	private double averageLatencyPerRecord;
+
+	BatchSizeController(Config config) {
+		this(config.getBatchTargetLatency(), config.getBatchMinSize(), config.getBatchMaxSize(),
+				config.getBatchMaxPause());
+	}
+
+	BatchSizeController(long targetLatency, long minBatchSize, long maxBatchSize, long maxPause) {
+		checkArgument(targetLatency > 0, "You must specify a 'targetLatency' greater than 0.");
+		checkArgument(minBatchSize > 0, "You must specify a 'minBatchSize' greater than 0.");
+		checkArgument(maxBatchSize >= minBatchSize, "The 'maxBatchSize' may not be smaller than the 'minBatchSize'.");
+		checkArgument(maxPause >= 0, "The 'maxPause' may not be negative.");
+
+		this.targetLatency = targetLatency;
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		this.maxPause = maxPause;
+		this.batchSize = clamp(INITIAL_BATCH_SIZE, minBatchSize, maxBatchSize);
+		this.averageLatencyPerRecord = -1;
+	}
+
+	/**
+	 * @return The number of records to copy in the next batch.
+	 */
+	long getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return The time in milliseconds to wait before copying the next batch.
+	 */
+	long getPause() {
+		return pause;
+	}
+
+	/**
+	 * Records the outcome of the last batch, and adjusts the batch size and pause accordingly.
+	 *
+	 * @param latency The time in milliseconds it took to copy and commit the last batch.
+	 * @param records The number of records which were actually copied in the last batch.
+	 * @param lockWaits The number of other sessions which are currently waiting to acquire a lock.
+	 */
+	void record(long latency, long records, long lockWaits) {
+		double latencyPerRecord = (double) Math.max(latency, 1) / Math.max(records, 1);
+		if (averageLatencyPerRecord < 0) {
+			averageLatencyPerRecord = latencyPerRecord;
+		}
+		else {
+			averageLatencyPerRecord = SMOOTHING_FACTOR * latencyPerRecord
+					+ (1 - SMOOTHING_FACTOR) * averageLatencyPerRecord;
+		}
+
+		if (lockWaits > 0 || latency > targetLatency * LATENCY_SPIKE_FACTOR) {
+			batchSize = clamp((long) (batchSize * MAXIMUM_SHRINKAGE), minBatchSize, maxBatchSize);
+			pause = clamp(Math.max(pause * 2, INITIAL_BACK_OFF_PAUSE), 0, maxPause);
+			return;
+		}
+
+		long desiredBatchSize = (long) (targetLatency / averageLatencyPerRecord);
+		desiredBatchSize = clamp(desiredBatchSize, (long) (batchSize * MAXIMUM_SHRINKAGE),
+				(long) (batchSize * MAXIMUM_GROWTH));
+
+		batchSize = clamp(desiredBatchSize, minBatchSize, maxBatchSize);
+		pause = pause / 2;
+	}
+
+	private static long clamp(long value, long lowerBound, long upperBound) {
+		return Math.max(lowerBound, Math.min(upperBound, value));
+	}
+
+}
@@ -10,12 +10,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -36,66 +37,68 @@ class CatalogLoader {
 
 	private static final Pattern SEQUENCE_EXPRESSION = Pattern.compile("nextval\\(\\'(\\w+_id_seq)\\'::regclass\\)", Pattern.CASE_INSENSITIVE);
 
+	/**
+	 * Loads the tables, columns, indexes and foreign keys of the "public" schema. Instead of querying the (slow)
+	 * information_schema views for every table separately, this reads pg_catalog in a fixed number of set-based
+	 * queries, and assembles the Catalog in memory.
+	 */
 	static Catalog load(Connection connection, String catalogName) throws SQLException {
 		Catalog catalog = new Catalog(catalogName);
-		loadTables(connection, catalog);
-		return catalog;
-	}
-
-	private static void loadTables(Connection connection, Catalog catalog) throws SQLException {
-		String query = new QueryBuilder()
-				.append("SELECT DISTINCT(table_name) AS table_name ")
-				.append("FROM information_schema.tables ")
-				.append("WHERE table_schema = ? AND table_type != 'VIEW'")
-				.append("ORDER BY table_name ASC")
-				.toString();
-
-		Set<String> tableNames = Sets.newHashSet();
-		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setString(1, "public");
-
-			ResultSet resultSet = statement.executeQuery();
-			while (resultSet.next()) {
-				String tableName = resultSet.getString("table_name");
-				tableNames.add(tableName);
-			}
-		}
-
-		for (String tableName : tableNames) {
-			Table table = createTable(connection, tableName);
+		for (Table table : loadTables(connection)) {
 			catalog.addTable(table);
 
 			table.getColumns().stream()
 					.map(Column::getSequence)
 					.filter(seq -> seq != null)
 					.forEach(catalog::addSequence);
-
-			addIndexes(connection, catalog, tableName);
 		}
 
-		for (String tableName : tableNames) {
-			addForeignKeys(connection, catalog, tableName);
-		}
+		addIndexes(connection, catalog);
+		addForeignKeys(connection, catalog);
+		return catalog;
 	}
 
-	private static Table createTable(Connection connection, String tableName) throws SQLException {
-		Table table = new Table(tableName);
-
+	private static Collection<Table> loadTables(Connection connection) throws SQLException {
+		// Determines the column types, lengths and nullability in the same way as information_schema.columns.
 		String query = new QueryBuilder()
-				.append("SELECT *")
-				.append("FROM information_schema.columns")
-				.append("WHERE table_schema = ? AND table_name = ?")
-				.append("ORDER BY ordinal_position ASC")
+				.append("SELECT")
+				.append("  c.relname AS table_name,")
+				.append("  a.attname AS column_name,")
+				.append("  pg_get_expr(ad.adbin, ad.adrelid) AS column_default,")
+				.append("  NOT (a.attnotnull OR (t.typtype = 'd' AND t.typnotnull)) AS is_nullable,")
+				.append("  CASE WHEN t.typtype = 'd' THEN")
+				.append("    CASE WHEN bt.typelem <> 0 AND bt.typlen = -1 THEN 'ARRAY'")
+				.append("      WHEN nbt.nspname = 'pg_catalog' THEN format_type(t.typbasetype, NULL)")
+				.append("      ELSE 'USER-DEFINED' END")
+				.append("  ELSE")
+				.append("    CASE WHEN t.typelem <> 0 AND t.typlen = -1 THEN 'ARRAY'")
+				.append("      WHEN nt.nspname = 'pg_catalog' THEN format_type(a.atttypid, NULL)")
+				.append("      ELSE 'USER-DEFINED' END")
+				.append("  END AS data_type,")
+				.append("  information_schema._pg_char_max_length(information_schema._pg_truetypid(a.*, t.*),")
+				.append("    information_schema._pg_truetypmod(a.*, t.*)) AS character_maximum_length,")
+				.append("  pk.indrelid IS NOT NULL AS has_primary_key,")
+				.append("  COALESCE(a.attnum = ANY(pk.indkey), FALSE) AS is_primary_key")
+				.append("FROM pg_attribute a")
+				.append("  JOIN pg_class c ON c.oid = a.attrelid")
+				.append("  JOIN pg_namespace n ON n.oid = c.relnamespace")
+				.append("  JOIN pg_type t ON t.oid = a.atttypid")
+				.append("  JOIN pg_namespace nt ON nt.oid = t.typnamespace")
+				.append("  LEFT JOIN (pg_type bt JOIN pg_namespace nbt ON nbt.oid = bt.typnamespace)")
+				.append("    ON t.typtype = 'd' AND t.typbasetype = bt.oid")
+				.append("  LEFT JOIN pg_attrdef ad ON ad.adrelid = a.attrelid AND ad.adnum = a.attnum")
+				.append("  LEFT JOIN pg_index pk ON pk.indrelid = c.oid AND pk.indisprimary")
+				.append("WHERE n.nspname = ? AND c.relkind IN ('r', 'p', 'f') AND a.attnum > 0 AND NOT a.attisdropped")
+				.append("ORDER BY c.relname ASC, a.attnum ASC;")
 				.toString();
 
-		List<Column> columns = Lists.newArrayList();
-		Set<String> primaryKeys = determinePrimaryKeys(connection, tableName);
+		Map<String, Table> tables = Maps.newLinkedHashMap();
 		try (PreparedStatement statement = connection.prepareStatement(query)) {
 			statement.setString(1, "public");
-			statement.setString(2, tableName);
 
 			ResultSet resultSet = statement.executeQuery();
 			while (resultSet.next()) {
+				String tableName = resultSet.getString("table_name");
 				String columnName = resultSet.getString("column_name");
 				String expression = resultSet.getString("column_default");
 				String type = resultSet.getString("data_type");
@@ -104,11 +107,14 @@ class CatalogLoader {
 					characterMaximum = resultSet.getInt("character_maximum_length");
 				}
 
+				Table table = tables.computeIfAbsent(tableName, Table::new);
+
 				Set<Column.Hint> hints = Sets.newHashSet();
-				if (!"yes".equalsIgnoreCase(resultSet.getString("is_nullable"))) {
+				if (!resultSet.getBoolean("is_nullable")) {
 					hints.add(Column.Hint.NOT_NULL);
 				}
-				if (primaryKeys.contains(columnName) || (primaryKeys.isEmpty() && columns.isEmpty())) {
+				if (resultSet.getBoolean("is_primary_key")
+						|| (!resultSet.getBoolean("has_primary_key") && table.getColumns().isEmpty())) {
 					hints.add(Column.Hint.IDENTITY);
 				}
 
@@ -130,44 +136,17 @@ class CatalogLoader {
 				else {
 					column = new Column(columnName, PostgresTypes.from(type, characterMaximum), sequence, hintArray);
 				}
-				columns.add(column);
+				table.addColumn(column);
 			}
 		}
 
-		return table.addColumns(columns);
+		return tables.values();
 	}
 
-	private static Set<String> determinePrimaryKeys(Connection connection, String tableName) throws SQLException {
-		String query = new QueryBuilder()
-				.append("SELECT ")
-				.append("  pg_attribute.attname AS name ")
-				.append("FROM pg_index, pg_class, pg_attribute, pg_namespace ")
-				.append("WHERE ")
-				.append("  nspname = 'public' AND ")
-				.append("  pg_class.oid = '" + tableName + "'::regclass AND ")
-				.append("  indrelid = pg_class.oid AND ")
-				.append("  pg_class.relnamespace = pg_namespace.oid AND ")
-				.append("  pg_attribute.attrelid = pg_class.oid AND ")
-				.append("  pg_attribute.attnum = any(pg_index.indkey) ")
-				.append("  AND indisprimary")
-				.toString();
-
-		Set<String> primaryKeyColumns = Sets.newLinkedHashSet();
-		try (Statement statement = connection.createStatement()) {
-
-			ResultSet resultSet = statement.executeQuery(query);
-			while (resultSet.next()) {
-				String name = resultSet.getString("name");
-				primaryKeyColumns.add(name);
-			}
-		}
-
-		return primaryKeyColumns;
-	}
-
-	private static void addForeignKeys(Connection connection, Catalog catalog, String tableName) throws SQLException {
+	private static void addForeignKeys(Connection connection, Catalog catalog) throws SQLException {
 		String query = new QueryBuilder()
 				.append("SELECT")
+				.append("  con.referencing_table,")
 				.append("	att2.attname AS referencing_column,")
 				.append("	cl.relname AS referred_table,")
 				.append("  att.attname AS referred_column,")
@@ -176,6 +155,7 @@ class CatalogLoader {
 				.append("  con.confdeltype AS confdeltype")
 				.append("FROM")
 				.append("  (SELECT")
+				.append("    cl.relname AS referencing_table,")
 				.append("    unnest(con1.conkey) AS parent,")
 				.append("    unnest(con1.confkey) AS child,")
 				.append("    con1.conname,")
@@ -188,19 +168,19 @@ class CatalogLoader {
 				.append("    JOIN pg_namespace ns ON cl.relnamespace = ns.oid")
 				.append("    JOIN pg_constraint con1 ON con1.conrelid = cl.oid")
 				.append("  WHERE")
-				.append("    ns.nspname = ? AND cl.relname = ? AND con1.contype = 'f'")
+				.append("    ns.nspname = ? AND con1.contype = 'f'")
 				.append("  ) con")
 				.append("  JOIN pg_attribute att ON att.attrelid = con.confrelid AND att.attnum = con.child")
 				.append("  JOIN pg_class cl ON cl.oid = con.confrelid")
 				.append("  JOIN pg_attribute att2 ON att2.attrelid = con.conrelid AND att2.attnum = con.parent")
-				.append("ORDER BY con.conname ASC, parent ASC;")
+				.append("ORDER BY con.referencing_table ASC, con.conname ASC, parent ASC;")
 				.toString();
 
 		try (PreparedStatement statement = connection.prepareStatement(query)) {
 			statement.setString(1, "public");
-			statement.setString(2, tableName);
 			ResultSet resultSet = statement.executeQuery();
 
+			String prevReferencingTable = null;
 			String prevConstraintName = null;
 			String prevReferredTable = null;
 			Action prevOnDelete = null;
@@ -208,6 +188,7 @@ class CatalogLoader {
 			Map<String, String> mapping = Maps.newLinkedHashMap();
 
 			while (resultSet.next()) {
+				String referencingTable = resultSet.getString("referencing_table");
 				String referencingColumn = resultSet.getString("referencing_column");
 				String referredTable = resultSet.getString("referred_table");
 				String referredColumn = resultSet.getString("referred_column");
@@ -216,19 +197,16 @@ class CatalogLoader {
 				Action onUpdate = valueOf(resultSet.getString("confupdtype"));
 				Action onDelete = valueOf(resultSet.getString("confdeltype"));
 
-				if (prevConstraintName != null && !constraintName.equals(prevConstraintName)) {
-					Table source = catalog.getTable(tableName);
-					Table target = catalog.getTable(prevReferredTable);
+				if (prevConstraintName != null && (!constraintName.equals(prevConstraintName)
+						|| !referencingTable.equals(prevReferencingTable))) {
 
-					source.addForeignKey(Lists.newArrayList(mapping.keySet()))
-							.named(prevConstraintName)
-							.onDelete(prevOnDelete)
-							.onUpdate(prevOnUpdate)
-							.referencing(target, Lists.newArrayList(mapping.values()));
+					addForeignKey(catalog, prevReferencingTable, prevConstraintName, prevReferredTable, prevOnDelete,
+							prevOnUpdate, mapping);
 
 					mapping.clear();
 				}
 
+				prevReferencingTable = referencingTable;
 				prevReferredTable = referredTable;
 				prevConstraintName = constraintName;
 				prevOnDelete = onDelete;
@@ -237,18 +215,25 @@ class CatalogLoader {
 			}
 
 			if (prevConstraintName != null) {
-				Table source = catalog.getTable(tableName);
-				Table target = catalog.getTable(prevReferredTable);
-
-				source.addForeignKey(Lists.newArrayList(mapping.keySet()))
-						.named(prevConstraintName)
-						.onDelete(prevOnDelete)
-						.onUpdate(prevOnUpdate)
-						.referencing(target, Lists.newArrayList(mapping.values()));
+				addForeignKey(catalog, prevReferencingTable, prevConstraintName, prevReferredTable, prevOnDelete,
+						prevOnUpdate, mapping);
 			}
 		}
 	}
 
+	private static void addForeignKey(Catalog catalog, String tableName, String constraintName, String referredTable,
+			Action onDelete, Action onUpdate, Map<String, String> mapping) {
+
+		Table source = catalog.getTable(tableName);
+		Table target = catalog.getTable(referredTable);
+
+		source.addForeignKey(Lists.newArrayList(mapping.keySet()))
+				.named(constraintName)
+				.onDelete(onDelete)
+				.onUpdate(onUpdate)
+				.referencing(target, Lists.newArrayList(mapping.values()));
+	}
+
 	private static Action valueOf(String input) {
 		switch (input) {
 			case "a": return NO_ACTION;
@@ -260,18 +245,17 @@ class CatalogLoader {
 		}
 	}
 
-	private static void addIndexes(Connection connection, Catalog catalog, String tableName) throws SQLException {
+	private static void addIndexes(Connection connection, Catalog catalog) throws SQLException {
 		String query = new QueryBuilder()
 				.append("SELECT pg_get_indexdef(i.indexrelid) AS index_definition")
 				.append("FROM pg_index i")
 				.append("LEFT JOIN pg_class c ON i.indrelid = c.oid")
 				.append("LEFT JOIN pg_namespace nsp ON c.relnamespace = nsp.oid")
-				.append("WHERE c.relname = ? AND nsp.nspname = ?;")
+				.append("WHERE nsp.nspname = ? AND c.relkind IN ('r', 'p', 'f');")
 				.toString();
 
 		try (PreparedStatement statement = connection.prepareStatement(query)) {
-			statement.setString(1, tableName);
-			statement.setString(2, "public");
+			statement.setString(1, "public");
 			ResultSet resultSet = statement.executeQuery();
 
 			while (resultSet.next()) {
@@ -297,7 +281,10 @@ class CatalogLoader {
 					parser.consume();
 				}
 
-				List<String> groups = parser.consumeGroup('(', ')', ',');
+				List<String> groups = parser.consumeGroup('(', ')', ',').stream()
+						.map(String::trim)
+						.collect(Collectors.toList());
+
 				// TODO: Add support for expressions. Now we only support column references.
 
 				Table table = catalog.getTable(indexTableName);
@@ -0,0 +1,161 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.core.utils.QueryBuilder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Tracks the progress of copying records from a source table into a ghost table in the "copy_checkpoints" table. For
+ * every key range being copied it records the identity of the last copied record, so that an interrupted copy can be
+ * resumed from the last completed batch instead of starting over.
+ *
+ * A fork which is started again after the process was stopped reuses the ghost tables it created before, so their
+ * copies are resumed as well (see InterruptedFork). The checkpoints of abandoned ghost tables, and those of dropped
+ * versions, are purged when a fork completes or a version is dropped.
+ */
+class CopyCheckpoints {
+
+	@Data
+	@AllArgsConstructor
+	static class Checkpoint {
+		private final int rangeId;
+		private final String startIdentity;
+		private String endIdentity;
+		private String lastIdentity;
+		private long recordsCopied;
+	}
+
+	/**
+	 * Deletes the checkpoints of all ghost tables which are not part of the persisted state, which were left behind by
+	 * forks which failed or were abandoned, or by versions which were dropped.
+	 *
+	 * @param connection The connection to use.
+	 * @return The number of deleted checkpoints.
+	 * @throws SQLException In case the checkpoints could not be deleted.
+	 */
+	static int purge(Connection connection) throws SQLException {
+		String query = new QueryBuilder()
+				.append("DELETE FROM quantumdb.copy_checkpoints")
+				.append("WHERE target_ref_id NOT IN (SELECT ref_id FROM quantumdb.refs);")
+				.toString();
+
+		try (Statement statement = connection.createStatement()) {
+			return statement.executeUpdate(query);
+		}
+	}
+
+	private final String sourceRefId;
+	private final String targetRefId;
+	private final String columnNames;
+
+	CopyCheckpoints(String sourceRefId, String targetRefId, String columnNames) {
+		this.sourceRefId = sourceRefId;
+		this.targetRefId = targetRefId;
+		this.columnNames = columnNames;
+	}
+
+	/**
+	 * Loads the checkpoints of an earlier attempt to copy the same columns from the source table into the ghost
+	 * table. Checkpoints which were created for a different set of columns are discarded.
+	 *
+	 * @param connection The connection to use.
+	 * @return The checkpoints ordered by range, or an empty list if no copy can be resumed.
+	 * @throws SQLException In case the checkpoints could not be loaded.
+	 */
+	List<Checkpoint> load(Connection connection) throws SQLException {
+		String query = new QueryBuilder()
+				.append("SELECT * FROM quantumdb.copy_checkpoints")
+				.append("WHERE target_ref_id = ?")
+				.append("ORDER BY range_id ASC;")
+				.toString();
+
+		List<Checkpoint> checkpoints = Lists.newArrayList();
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, targetRefId);
+
+			ResultSet resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				if (!sourceRefId.equals(resultSet.getString("source_ref_id"))
+						|| !columnNames.equals(resultSet.getString("column_names"))) {
+					clear(connection);
+					return Lists.newArrayList();
+				}
+
+				checkpoints.add(new Checkpoint(resultSet.getInt("range_id"),
+						resultSet.getString("start_identity"),
+						resultSet.getString("end_identity"),
+						resultSet.getString("last_identity"),
+						resultSet.getLong("records_copied")));
+			}
+		}
+		return checkpoints;
+	}
+
+	void create(Connection connection, List<Checkpoint> checkpoints) throws SQLException {
+		clear(connection);
+
+		String query = new QueryBuilder()
+				.append("INSERT INTO quantumdb.copy_checkpoints")
+				.append("(target_ref_id, range_id, source_ref_id, column_names, start_identity, end_identity)")
+				.append("VALUES (?, ?, ?, ?, ?, ?);")
+				.toString();
+
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			for (Checkpoint checkpoint : checkpoints) {
+				statement.setString(1, targetRefId);
+				statement.setInt(2, checkpoint.getRangeId());
+				statement.setString(3, sourceRefId);
+				statement.setString(4, columnNames);
+				statement.setString(5, checkpoint.getStartIdentity());
+				statement.setString(6, checkpoint.getEndIdentity());
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+	}
+
+	void update(Connection connection, Checkpoint checkpoint) throws SQLException {
+		String query = new QueryBuilder()
+				.append("UPDATE quantumdb.copy_checkpoints")
+				.append("SET end_identity = ?, last_identity = ?, records_copied = ?, updated = NOW()")
+				.append("WHERE target_ref_id = ? AND range_id = ?;")
+				.toString();
+
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, checkpoint.getEndIdentity());
+			statement.setString(2, checkpoint.getLastIdentity());
+			statement.setLong(3, checkpoint.getRecordsCopied());
+			statement.setString(4, targetRefId);
+			statement.setInt(5, checkpoint.getRangeId());
+			statement.executeUpdate();
+		}
+	}
+
+	void clear(Connection connection) throws SQLException {
+		clear(connection, targetRefId);
+	}
+
+	/**
+	 * Deletes the checkpoints of the specified ghost table, for instance because it's dropped to be created again.
+	 *
+	 * @param connection The connection to use.
+	 * @param targetRefId The table ID of the ghost table.
+	 * @throws SQLException In case the checkpoints could not be deleted.
+	 */
+	static void clear(Connection connection, String targetRefId) throws SQLException {
+		String query = "DELETE FROM quantumdb.copy_checkpoints WHERE target_ref_id = ?;";
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, targetRefId);
+			statement.executeUpdate();
+		}
+	}
+
+}
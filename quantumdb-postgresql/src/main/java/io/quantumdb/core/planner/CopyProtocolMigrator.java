@@ -0,0 +1,266 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import io.quantumdb.core.backends.Backend;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.utils.QueryBuilder;
+import io.quantumdb.core.utils.RandomHasher;
+import io.quantumdb.core.versioning.RefLog;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+
+/**
+ * Copies records into a ghost table using the COPY protocol instead of a migrator function. Every batch is streamed
+ * from the source table using "COPY (SELECT ...) TO STDOUT" in the binary format, and the buffers received from the
+ * database are passed on as-is to a "COPY ... FROM STDIN" on a second connection, without being parsed. The column
+ * mapping and the NULL record substitution are applied in the projection of the SELECT, and every value is cast to
+ * the type of its target column, so both sides of the stream share the same binary representation.
+ *
+ * Since the sync triggers may already have inserted some of the records into the ghost table, the records are
+ * streamed into a temporary staging table first, and then merged into the ghost table, skipping records which
+ * already exist.
+ */
+@Slf4j
+class CopyProtocolMigrator {
+
+	// ON CONFLICT DO NOTHING, which is needed to merge staged records, was added in PostgreSQL 9.5.
+	private static final int MINIMUM_VERSION = 905;
+
+	/**
+	 * Determines if the database supports copying records using the COPY protocol.
+	 *
+	 * @param connection The connection to the database.
+	 * @return True if records can be copied using the COPY protocol, false otherwise.
+	 * @throws SQLException In case the version of the database could not be determined.
+	 */
+	static boolean isSupported(Connection connection) throws SQLException {
+		int major = connection.getMetaData().getDatabaseMajorVersion();
+		int minor = connection.getMetaData().getDatabaseMinorVersion();
+		return major * 100 + minor >= MINIMUM_VERSION;
+	}
+
+	/**
+	 * Creates a CopyProtocolMigrator which inserts the specified columns of the source table into the target table.
+	 */
+	static CopyProtocolMigrator create(NullRecords nullRecords, RefLog refLog, Table source, Table target,
+			Set<String> columns) {
+
+		LinkedHashMap<String, String> values = SelectiveMigratorFunction.createValueMapping(nullRecords, refLog,
+				source, target, columns, "");
+
+		return new CopyProtocolMigrator(source, target, values);
+	}
+
+	private final Table source;
+	private final Table target;
+	private final List<String> columns;
+	private final String projection;
+	private final List<String> sourceIdentityColumns;
+	private final List<String> stagedIdentityColumns;
+
+	private CopyProtocolMigrator(Table source, Table target, LinkedHashMap<String, String> values) {
+
+		this.source = source;
+		this.target = target;
+		this.columns = values.keySet().stream()
+				.map(column -> "\"" + column + "\"")
+				.collect(Collectors.toList());
+
+		this.sourceIdentityColumns = source.getIdentityColumns().stream()
+				.map(column -> "\"" + column.getName() + "\"")
+				.collect(Collectors.toList());
+
+		this.stagedIdentityColumns = Lists.newArrayList();
+		for (int i = 0; i < sourceIdentityColumns.size(); i++) {
+			stagedIdentityColumns.add("q_identity_" + i);
+		}
+
+		List<String> projections = values.entrySet().stream()
+				.map(entry -> {
+					Column column = target.getColumn(entry.getKey());
+					return "(" + entry.getValue() + ")::" + column.getType() + " AS \"" + entry.getKey() + "\"";
+				})
+				.collect(Collectors.toList());
+
+		for (int i = 0; i < sourceIdentityColumns.size(); i++) {
+			projections.add(sourceIdentityColumns.get(i) + " AS " + stagedIdentityColumns.get(i));
+		}
+		this.projection = Joiner.on(", ").join(projections);
+	}
+
+	/**
+	 * Opens a BatchCopier which writes records through the specified connection, and reads them through a connection
+	 * of its own.
+	 */
+	BatchCopier open(Backend backend, Connection connection) throws SQLException {
+		Connection reader = backend.connect();
+		try {
+			return new Copier(reader, connection);
+		}
+		catch (SQLException | RuntimeException e) {
+			reader.close();
+			throw e;
+		}
+	}
+
+	private class Copier implements BatchCopier {
+
+		private final Connection reader;
+		private final Connection writer;
+		private final String stagingTable;
+
+		private Copier(Connection reader, Connection writer) throws SQLException {
+			this.reader = reader;
+			this.writer = writer;
+			this.stagingTable = "q_staging_" + RandomHasher.generateHash();
+
+			// The uncast identity of every source record is staged alongside it, so that the identity of the last
+			// copied record can be determined in the same order, and formatted the same way, as the source table.
+			List<String> stagedColumns = Lists.newArrayList();
+			columns.forEach(column -> stagedColumns.add("t." + column));
+			for (int i = 0; i < sourceIdentityColumns.size(); i++) {
+				stagedColumns.add("s." + sourceIdentityColumns.get(i) + " AS " + stagedIdentityColumns.get(i));
+			}
+
+			execute(writer, new QueryBuilder()
+					.append("CREATE TEMPORARY TABLE " + stagingTable + " AS")
+					.append("SELECT " + Joiner.on(", ").join(stagedColumns))
+					.append("FROM " + target.getName() + " t, " + source.getName() + " s")
+					.append("WITH NO DATA;")
+					.toString());
+		}
+
+		@Override
+		public Batch copy(Map<String, Object> lastProcessedId, Map<String, Object> upperBound, long batchSize)
+				throws SQLException {
+
+			execute(writer, "TRUNCATE " + stagingTable + ";");
+
+			long records = stream(lastProcessedId, upperBound, batchSize);
+			if (records == 0) {
+				return new Batch(null, 0);
+			}
+
+			execute(writer, new QueryBuilder()
+					.append("INSERT INTO " + target.getName() + " (" + Joiner.on(", ").join(columns) + ")")
+					.append("SELECT " + Joiner.on(", ").join(columns) + " FROM " + stagingTable)
+					.append("ON CONFLICT DO NOTHING;")
+					.toString());
+
+			String query = new QueryBuilder()
+					.append("SELECT ROW(" + Joiner.on(", ").join(stagedIdentityColumns) + ")::text")
+					.append("FROM " + stagingTable)
+					.append("ORDER BY " + Joiner.on(" DESC, ").join(stagedIdentityColumns) + " DESC")
+					.append("LIMIT 1;")
+					.toString();
+
+			try (Statement statement = writer.createStatement()) {
+				ResultSet resultSet = statement.executeQuery(query);
+				resultSet.next();
+				return new Batch(resultSet.getString(1), records);
+			}
+		}
+
+		/**
+		 * Streams the next batch of records from the source table into the staging table.
+		 *
+		 * @return The number of streamed records.
+		 */
+		private long stream(Map<String, Object> lastProcessedId, Map<String, Object> upperBound, long batchSize)
+				throws SQLException {
+
+			String identity = "ROW(" + Joiner.on(", ").join(sourceIdentityColumns) + ")";
+			QueryBuilder select = new QueryBuilder()
+					.append("SELECT " + projection)
+					.append("FROM " + source.getName());
+
+			if (!lastProcessedId.isEmpty()) {
+				select.append("WHERE " + identity + " > " + asRow(lastProcessedId))
+						.append("AND " + identity + " <= " + asRow(upperBound));
+			}
+			else {
+				select.append("WHERE " + identity + " <= " + asRow(upperBound));
+			}
+
+			// The identity columns are qualified, since the projected columns of the same name may have been cast.
+			String ordering = sourceIdentityColumns.stream()
+					.map(column -> source.getName() + "." + column + " ASC")
+					.collect(Collectors.joining(", "));
+
+			select.append("ORDER BY " + ordering)
+					.append("LIMIT " + batchSize);
+
+			String copyOutQuery = "COPY (" + select + ") TO STDOUT (FORMAT binary)";
+			String copyInQuery = "COPY " + stagingTable + " (" + Joiner.on(", ").join(columns) + ", "
+					+ Joiner.on(", ").join(stagedIdentityColumns) + ") "
+					+ "FROM STDIN (FORMAT binary)";
+
+			log.debug("Streaming: {} into: {}", copyOutQuery, copyInQuery);
+
+			CopyManager readApi = reader.unwrap(PGConnection.class).getCopyAPI();
+			CopyManager writeApi = writer.unwrap(PGConnection.class).getCopyAPI();
+
+			CopyOut copyOut = readApi.copyOut(copyOutQuery);
+			CopyIn copyIn = null;
+			try {
+				copyIn = writeApi.copyIn(copyInQuery);
+
+				byte[] buffer;
+				while ((buffer = copyOut.readFromCopy()) != null) {
+					copyIn.writeToCopy(buffer, 0, buffer.length);
+				}
+				return copyIn.endCopy();
+			}
+			finally {
+				if (copyOut.isActive()) {
+					copyOut.cancelCopy();
+				}
+				if (copyIn != null && copyIn.isActive()) {
+					copyIn.cancelCopy();
+				}
+			}
+		}
+
+		private String asRow(Map<String, Object> identity) {
+			return source.getIdentityColumns().stream()
+					.map(column -> TableDataMigrator.asExpression(identity.get(column.getName())))
+					.collect(Collectors.joining(", ", "ROW(", ")"));
+		}
+
+		@Override
+		public void close() throws SQLException {
+			try {
+				execute(writer, "DROP TABLE IF EXISTS " + stagingTable + ";");
+			}
+			catch (SQLException e) {
+				log.warn("Could not drop staging table: " + stagingTable, e);
+			}
+			finally {
+				reader.close();
+			}
+		}
+
+		private void execute(Connection connection, String query) throws SQLException {
+			try (Statement statement = connection.createStatement()) {
+				log.debug("Executing: " + query);
+				statement.execute(query);
+			}
+		}
+	}
+
+}
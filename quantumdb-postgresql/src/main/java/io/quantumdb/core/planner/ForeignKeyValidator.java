@@ -0,0 +1,150 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.utils.QueryBuilder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Validates the foreign keys of ghost tables after their records have been copied. The ghost tables are created with
+ * their foreign keys marked as NOT VALID, and any foreign keys which are missing are added as NOT VALID first, which
+ * only requires a brief lock, and is not blocked by existing records. They are then validated with one set-based scan
+ * per foreign key, several at a time, which does not block writes to the ghost tables.
+ */
+@Slf4j
+class ForeignKeyValidator {
+
+	@Data
+	private static class PendingForeignKey {
+		private final Table table;
+		private final ForeignKey foreignKey;
+	}
+
+	private static final String CONSTRAINT_STATE_QUERY = new QueryBuilder()
+			.append("SELECT k.convalidated FROM pg_constraint k")
+			.append("JOIN pg_class c ON c.oid = k.conrelid")
+			.append("JOIN pg_namespace n ON n.oid = c.relnamespace")
+			.append("WHERE n.nspname = current_schema() AND c.relname = ? AND k.conname = ?;")
+			.toString();
+
+	private final PostgresqlBackend backend;
+	private final Config config;
+
+	ForeignKeyValidator(PostgresqlBackend backend, Config config) {
+		this.backend = backend;
+		this.config = config;
+	}
+
+	/**
+	 * Adds and validates the foreign keys of the specified tables. Foreign keys which already exist are only
+	 * validated, and foreign keys which are already valid are skipped.
+	 *
+	 * @param tables The tables whose foreign keys to add and validate.
+	 * @throws SQLException In case a foreign key could not be added, or is violated by the records of a table.
+	 * @throws InterruptedException In case the thread was interrupted while waiting for the validations to complete.
+	 */
+	void validate(Collection<Table> tables) throws SQLException, InterruptedException {
+		LinkedBlockingQueue<PendingForeignKey> pending = new LinkedBlockingQueue<>();
+		try (Connection connection = backend.connect()) {
+			for (Table table : tables) {
+				for (ForeignKey foreignKey : table.getForeignKeys()) {
+					Boolean validated = isValidated(connection, table, foreignKey);
+					if (validated == null) {
+						log.info("Adding foreign key: {} as not valid", foreignKey.getForeignKeyName());
+						execute(connection, TableCreator.createForeignKeyQuery(table, foreignKey, true));
+					}
+					if (!Boolean.TRUE.equals(validated)) {
+						pending.add(new PendingForeignKey(table, foreignKey));
+					}
+				}
+			}
+		}
+
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		int workers = Math.min(config.getForeignKeyWorkers(), pending.size());
+		log.info("Validating {} foreign keys using {} connections", pending.size(), workers);
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<Void>> futures = Lists.newArrayList();
+			for (int i = 0; i < workers; i++) {
+				futures.add(executor.submit(() -> {
+					try (Connection connection = backend.connect()) {
+						connection.setAutoCommit(true);
+						PendingForeignKey next;
+						while ((next = pending.poll()) != null) {
+							String foreignKeyName = next.getForeignKey().getForeignKeyName();
+							log.info("Validating foreign key: {}", foreignKeyName);
+							execute(connection, new QueryBuilder()
+									.append("ALTER TABLE " + next.getTable().getName())
+									.append("VALIDATE CONSTRAINT " + foreignKeyName + ";"));
+						}
+					}
+					return null;
+				}));
+			}
+
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof SQLException) {
+						throw (SQLException) cause;
+					}
+					throw new SQLException("Could not validate foreign keys", cause);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return NULL if the foreign key does not exist yet, otherwise whether it has been validated.
+	 */
+	private Boolean isValidated(Connection connection, Table table, ForeignKey foreignKey) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(CONSTRAINT_STATE_QUERY)) {
+			statement.setString(1, table.getName());
+			statement.setString(2, foreignKey.getForeignKeyName());
+			ResultSet resultSet = statement.executeQuery();
+			if (resultSet.next()) {
+				return resultSet.getBoolean("convalidated");
+			}
+			return null;
+		}
+	}
+
+	private static void execute(Connection connection, QueryBuilder queryBuilder) throws SQLException {
+		String query = queryBuilder.toString();
+		try (Statement statement = connection.createStatement()) {
+			log.debug("Executing: " + query);
+			statement.execute(query);
+		}
+		catch (SQLException e) {
+			throw new SQLException(query, e);
+		}
+	}
+
+}
@@ -0,0 +1,204 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.utils.QueryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Builds the indexes of ghost tables using CREATE INDEX CONCURRENTLY, so that the sync triggers can keep writing
+ * to the ghost tables while their indexes are being built. The tables are divided over a pool of connections, but
+ * the indexes of a single table are built one after the other, as PostgreSQL only allows one concurrent index build
+ * per table at a time. While the indexes are being built, their progress is logged periodically.
+ */
+@Slf4j
+class IndexBuilder {
+
+	private static final long PROGRESS_INTERVAL = 5_000;
+
+	private static final String INDEX_STATE_QUERY = new QueryBuilder()
+			.append("SELECT i.indisvalid FROM pg_index i")
+			.append("JOIN pg_class c ON c.oid = i.indexrelid")
+			.append("JOIN pg_namespace n ON n.oid = c.relnamespace")
+			.append("WHERE n.nspname = current_schema() AND c.relname = ?;")
+			.toString();
+
+	private static final String PROGRESS_QUERY = new QueryBuilder()
+			.append("SELECT t.relname AS table_name, i.relname AS index_name, p.phase,")
+			.append("  p.blocks_done, p.blocks_total, p.tuples_done, p.tuples_total")
+			.append("FROM pg_stat_progress_create_index p")
+			.append("JOIN pg_class t ON t.oid = p.relid")
+			.append("LEFT JOIN pg_class i ON i.oid = p.index_relid")
+			.append("WHERE p.datid = (SELECT oid FROM pg_database WHERE datname = current_database());")
+			.toString();
+
+	private final PostgresqlBackend backend;
+	private final Config config;
+
+	IndexBuilder(PostgresqlBackend backend, Config config) {
+		this.backend = backend;
+		this.config = config;
+	}
+
+	/**
+	 * Builds all indexes of the specified tables, and returns when all of them have been built.
+	 *
+	 * @param tables The tables whose indexes to build.
+	 * @throws SQLException In case an index could not be built.
+	 * @throws InterruptedException In case the thread was interrupted while waiting for the indexes to be built.
+	 */
+	void createIndexes(Collection<Table> tables) throws SQLException, InterruptedException {
+		LinkedBlockingQueue<Table> pending = tables.stream()
+				.filter(table -> !table.getIndexes().isEmpty())
+				.collect(Collectors.toCollection(LinkedBlockingQueue::new));
+
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		Set<String> tableNames = pending.stream()
+				.map(Table::getName)
+				.collect(Collectors.toSet());
+
+		int workers = Math.min(config.getIndexWorkers(), pending.size());
+		log.info("Building indexes of {} tables using {} connections", pending.size(), workers);
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<Void>> futures = Lists.newArrayList();
+			for (int i = 0; i < workers; i++) {
+				futures.add(executor.submit(() -> {
+					try (Connection connection = backend.connect()) {
+						connection.setAutoCommit(true);
+						Table table;
+						while ((table = pending.poll()) != null) {
+							for (Index index : table.getIndexes()) {
+								try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.CREATE_INDEX,
+										table.getName())) {
+									createIndex(connection, index);
+								}
+							}
+						}
+					}
+					return null;
+				}));
+			}
+
+			awaitCompletion(futures, tableNames);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Builds the specified index, unless a valid index with the same name already exists. An invalid index with the
+	 * same name (left behind by an earlier, failed attempt) is dropped first.
+	 */
+	private void createIndex(Connection connection, Index index) throws SQLException {
+		Boolean valid = null;
+		try (PreparedStatement statement = connection.prepareStatement(INDEX_STATE_QUERY)) {
+			statement.setString(1, index.getIndexName());
+			ResultSet resultSet = statement.executeQuery();
+			if (resultSet.next()) {
+				valid = resultSet.getBoolean("indisvalid");
+			}
+		}
+
+		if (Boolean.TRUE.equals(valid)) {
+			log.info("Index: {} already exists, skipping...", index.getIndexName());
+			return;
+		}
+		else if (Boolean.FALSE.equals(valid)) {
+			log.info("Dropping invalid index: {}", index.getIndexName());
+			execute(connection, new QueryBuilder("DROP INDEX CONCURRENTLY " + index.getIndexName() + ";"));
+		}
+
+		log.info("Creating index key: {}", index.getIndexName());
+		execute(connection, TableCreator.createIndexQuery(index, true));
+	}
+
+	private void awaitCompletion(List<Future<Void>> futures, Set<String> tableNames)
+			throws SQLException, InterruptedException {
+
+		try (Connection connection = backend.connect()) {
+			boolean reportProgress = true;
+			for (Future<Void> future : futures) {
+				while (true) {
+					try {
+						future.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+						break;
+					}
+					catch (TimeoutException e) {
+						if (reportProgress) {
+							reportProgress = logProgress(connection, tableNames);
+						}
+					}
+					catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof SQLException) {
+							throw (SQLException) cause;
+						}
+						throw new SQLException("Could not build indexes", cause);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Logs the progress of the index builds on the specified tables.
+	 *
+	 * @return False if the progress of index builds can not be monitored (PostgreSQL 11 and older).
+	 */
+	private boolean logProgress(Connection connection, Set<String> tableNames) {
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(PROGRESS_QUERY);
+			while (resultSet.next()) {
+				String tableName = resultSet.getString("table_name");
+				if (tableNames.contains(tableName)) {
+					log.info("Building index: {} on table: {} - {} (blocks: {}/{}, tuples: {}/{})",
+							resultSet.getString("index_name"), tableName, resultSet.getString("phase"),
+							resultSet.getLong("blocks_done"), resultSet.getLong("blocks_total"),
+							resultSet.getLong("tuples_done"), resultSet.getLong("tuples_total"));
+				}
+			}
+			return true;
+		}
+		catch (SQLException e) {
+			log.debug("Could not monitor the progress of index builds", e);
+			return false;
+		}
+	}
+
+	private static void execute(Connection connection, QueryBuilder queryBuilder) throws SQLException {
+		String query = queryBuilder.toString();
+		try (Statement statement = connection.createStatement()) {
+			log.debug("Executing: " + query);
+			statement.execute(query);
+		}
+		catch (SQLException e) {
+			throw new SQLException(query, e);
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.planner.Operation.Type;
+import io.quantumdb.core.backends.planner.Plan;
+import io.quantumdb.core.migration.VersionTraverser;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.utils.QueryBuilder;
+import io.quantumdb.core.versioning.RefLog;
+import io.quantumdb.core.versioning.RefLog.SyncRef;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+import io.quantumdb.core.versioning.RefLog.ViewRef;
+import io.quantumdb.core.versioning.State;
+import io.quantumdb.core.versioning.Version;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A fork which was interrupted before it completed, for instance because the process was stopped. The state of a fork
+ * is persisted once its ghost tables have been created, and whenever a synchronizer has been installed. When the fork
+ * is started again, the refs which were planned for it are discarded, and the IDs of its ghost tables are reserved, so
+ * that planning the fork again yields the same ghost tables. These are then reused along with the records which were
+ * already copied into them and the checkpoints of those copies, and the synchronizers which kept them up to date in
+ * the meantime are taken over by the new plan.
+ */
+@Slf4j
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+class InterruptedFork {
+
+	/**
+	 * Discards the refs which were planned for an interrupted fork from one version to another, and reserves the IDs of
+	 * the ghost tables which were created for it. Only the specified State is changed, not the database.
+	 *
+	 * @param state The State to rewind.
+	 * @param from The version which is being forked from.
+	 * @param to The version which is being forked to.
+	 * @return The interrupted fork, which is empty if there was no such fork.
+	 */
+	static InterruptedFork rewind(State state, Version from, Version to) {
+		RefLog refLog = state.getRefLog();
+		Catalog catalog = state.getCatalog();
+
+		List<Version> path = VersionTraverser.findChildPath(from, to)
+				.orElseThrow(() -> new IllegalStateException("No path from " + from.getId() + " to " + to.getId()));
+		path.remove(from);
+
+		if (path.stream().anyMatch(refLog.getVersions()::contains)) {
+			return new InterruptedFork(ImmutableSet.of(), ImmutableList.of(), ImmutableSet.of());
+		}
+
+		List<TableRef> tableRefs = path.stream()
+				.flatMap(version -> refLog.getTableRefs(version).stream())
+				.filter(tableRef -> path.containsAll(tableRef.getVersions()))
+				.distinct()
+				.collect(Collectors.toList());
+
+		List<String> viewIds = path.stream()
+				.flatMap(version -> refLog.getViewRefs(version).stream())
+				.filter(viewRef -> path.containsAll(viewRef.getVersions()))
+				.map(ViewRef::getRefId)
+				.distinct()
+				.collect(Collectors.toList());
+
+		// Only the refs of ghost tables which were actually created can be reused.
+		Set<String> ghostTableIds = Sets.newLinkedHashSet();
+		for (TableRef tableRef : tableRefs) {
+			String refId = tableRef.getRefId();
+			if (catalog.containsTable(refId)) {
+				Version version = path.stream()
+						.filter(tableRef.getVersions()::contains)
+						.findFirst()
+						.get();
+
+				refLog.reserveRefId(version, tableRef.getName(), refId);
+				ghostTableIds.add(refId);
+			}
+		}
+
+		Set<SyncRef> synchronizers = tableRefs.stream()
+				.flatMap(tableRef -> Stream.concat(tableRef.getInboundSyncs().stream(),
+						tableRef.getOutboundSyncs().stream()))
+				.collect(Collectors.toCollection(Sets::newLinkedHashSet));
+
+		refLog.discard(path);
+
+		// The ghost tables are planned again, so they're removed from the Catalog which was loaded from the database.
+		List<Table> ghostTables = ghostTableIds.stream()
+				.map(catalog::getTable)
+				.collect(Collectors.toList());
+
+		ghostTables.forEach(table -> Lists.newArrayList(table.getForeignKeys()).forEach(ForeignKey::drop));
+		ghostTables.forEach(table -> catalog.removeTable(table.getName()));
+		viewIds.stream()
+				.filter(catalog::containsView)
+				.forEach(catalog::removeView);
+
+		if (!tableRefs.isEmpty() || !viewIds.isEmpty()) {
+			log.info("Found interrupted fork to version: {} with ghost tables: {}", to.getId(), ghostTableIds);
+		}
+
+		return new InterruptedFork(ImmutableSet.copyOf(ghostTableIds), ImmutableList.copyOf(viewIds),
+				ImmutableSet.copyOf(synchronizers));
+	}
+
+	private final ImmutableSet<String> ghostTableIds;
+	private final ImmutableList<String> viewIds;
+	private final ImmutableSet<SyncRef> synchronizers;
+
+	/**
+	 * Prepares the ghost tables of the interrupted fork to be reused by the specified plan for the same fork. If the plan
+	 * doesn't yield the same ghost tables, or inserts NULL records (whose identities are only known in memory), the
+	 * ghost tables are dropped instead, and the fork starts over.
+	 *
+	 * @param connection The connection to use.
+	 * @param plan The plan for the fork.
+	 * @return The names of the ghost tables which are reused, and must not be created again.
+	 * @throws SQLException In case the ghost tables could not be prepared.
+	 */
+	Set<String> resume(Connection connection, Plan plan) throws SQLException {
+		if (ghostTableIds.isEmpty() && viewIds.isEmpty() && synchronizers.isEmpty()) {
+			return ImmutableSet.of();
+		}
+
+		Set<String> plannedTableIds = plan.getGhostTables().stream()
+				.map(Table::getName)
+				.collect(Collectors.toSet());
+
+		boolean insertsNullRecords = plan.getSteps().stream()
+				.anyMatch(step -> step.getOperation().getType() == Type.ADD_NULL);
+
+		boolean resumable = !insertsNullRecords && plannedTableIds.containsAll(ghostTableIds);
+
+		connection.setAutoCommit(false);
+		for (SyncRef synchronizer : synchronizers) {
+			if (!resumable || !isTakenOver(synchronizer)) {
+				PostgresqlMigrator.dropSynchronizer(connection, synchronizer);
+			}
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			for (String viewId : viewIds) {
+				statement.execute("DROP VIEW IF EXISTS " + viewId + ";");
+			}
+		}
+
+		for (String ghostTableId : ghostTableIds) {
+			if (resumable) {
+				dropIndexes(connection, ghostTableId);
+			}
+			else {
+				log.info("Dropping ghost table: {} of interrupted fork, since it cannot be resumed", ghostTableId);
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("DROP TABLE " + ghostTableId + " CASCADE;");
+				}
+				CopyCheckpoints.clear(connection, ghostTableId);
+			}
+		}
+		connection.commit();
+
+		if (!resumable) {
+			return ImmutableSet.of();
+		}
+
+		log.info("Resuming interrupted fork with ghost tables: {}", ghostTableIds);
+		return ghostTableIds;
+	}
+
+	/**
+	 * @return The synchronizers of the interrupted fork which are taken over by the new plan. These are the forward
+	 * synchronizers, which kept the reused ghost tables up to date while the fork was interrupted.
+	 */
+	List<SyncRef> getSynchronizers() {
+		return synchronizers.stream()
+				.filter(this::isTakenOver)
+				.collect(Collectors.toList());
+	}
+
+	private boolean isTakenOver(SyncRef synchronizer) {
+		return !ghostTableIds.contains(synchronizer.getSource().getRefId())
+				&& ghostTableIds.contains(synchronizer.getTarget().getRefId());
+	}
+
+	/**
+	 * Drops the indexes which were built for the specified ghost table, since the new plan builds them again under
+	 * different names. Indexes which back constraints, like the primary key, are kept.
+	 */
+	private void dropIndexes(Connection connection, String ghostTableId) throws SQLException {
+		String query = new QueryBuilder()
+				.append("SELECT i.relname FROM pg_index x")
+				.append("JOIN pg_class i ON i.oid = x.indexrelid")
+				.append("WHERE x.indrelid = ?::regclass")
+				.append("AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = x.indexrelid);")
+				.toString();
+
+		List<String> indexNames = Lists.newArrayList();
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, ghostTableId);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					indexNames.add(resultSet.getString("relname"));
+				}
+			}
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			for (String indexName : indexNames) {
+				log.info("Dropping index: {} of ghost table: {} of interrupted fork", indexName, ghostTableId);
+				statement.execute("DROP INDEX " + indexName + ";");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+package io.quantumdb.core.planner;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import io.quantumdb.core.planner.MigrationEvents.Event;
+
+/**
+ * The Java Flight Recorder events of a migration. Not every JDK 8 ships the jdk.jfr API (Oracle JDK 8 and OpenJDK 8
+ * before 8u262 do not), so it's only accessed reflectively, and the event types are defined at runtime using the
+ * jdk.jfr.EventFactory.
+ */
+class JfrEvents {
+
+	private static final int PHASE_ROWS = 2;
+	private static final int COPY_BATCH_ROWS = 2;
+
+	/**
+	 * @return The JfrEvents, or NULL if JFR is not available in this JVM.
+	 * @throws ReflectiveOperationException In case this JVM does not ship the jdk.jfr API.
+	 */
+	static JfrEvents load() throws ReflectiveOperationException {
+		Method isAvailable = Class.forName("jdk.jfr.FlightRecorder").getMethod("isAvailable");
+		if (!(Boolean) isAvailable.invoke(null)) {
+			return null;
+		}
+		return new JfrEvents();
+	}
+
+	private final Object phaseFactory;
+	private final Object copyBatchFactory;
+
+	private final Method newEvent;
+	private final Method set;
+	private final Method begin;
+	private final Method commit;
+
+	private JfrEvents() throws ReflectiveOperationException {
+		this.phaseFactory = createFactory("io.quantumdb.MigrationPhase", "Migration Phase",
+				"A phase of migrating the database schema to a new version",
+				field(String.class, "phase", "Phase"),
+				field(String.class, "tables", "Tables"),
+				field(long.class, "rows", "Rows"));
+
+		this.copyBatchFactory = createFactory("io.quantumdb.CopyBatch", "Copy Batch",
+				"A batch of records copied from a table into its ghost table",
+				field(String.class, "sourceTable", "Source Table"),
+				field(String.class, "targetTable", "Target Table"),
+				field(long.class, "rows", "Rows"),
+				field(long.class, "batchSize", "Batch Size"));
+
+		Class<?> event = Class.forName("jdk.jfr.Event");
+		this.newEvent = Class.forName("jdk.jfr.EventFactory").getMethod("newEvent");
+		this.set = event.getMethod("set", int.class, Object.class);
+		this.begin = event.getMethod("begin");
+		this.commit = event.getMethod("commit");
+	}
+
+	Event phase(String phase, String tables) {
+		return start(phaseFactory, PHASE_ROWS, phase, tables, 0L);
+	}
+
+	Event copyBatch(String source, String target, long batchSize) {
+		return start(copyBatchFactory, COPY_BATCH_ROWS, source, target, 0L, batchSize);
+	}
+
+	private Event start(Object factory, int rowsField, Object... values) {
+		Object event = invoke(newEvent, factory);
+		for (int i = 0; i < values.length; i++) {
+			invoke(set, event, i, values[i]);
+		}
+		invoke(begin, event);
+
+		return new Event() {
+			@Override
+			public void setRows(long rows) {
+				invoke(set, event, rowsField, rows);
+			}
+
+			@Override
+			public void close() {
+				invoke(commit, event);
+			}
+		};
+	}
+
+	private static Object createFactory(String name, String label, String description, Object... fields)
+			throws ReflectiveOperationException {
+
+		List<Object> annotations = Lists.newArrayList(
+				annotation("jdk.jfr.Name", name),
+				annotation("jdk.jfr.Label", label),
+				annotation("jdk.jfr.Category", new String[] { "QuantumDB", "Migration" }),
+				annotation("jdk.jfr.Description", description));
+
+		Method create = Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class);
+		return create.invoke(null, annotations, Lists.newArrayList(fields));
+	}
+
+	private static Object field(Class<?> type, String name, String label) throws ReflectiveOperationException {
+		return Class.forName("jdk.jfr.ValueDescriptor")
+				.getConstructor(Class.class, String.class, List.class)
+				.newInstance(type, name, Lists.newArrayList(annotation("jdk.jfr.Label", label)));
+	}
+
+	private static Object annotation(String type, Object value) throws ReflectiveOperationException {
+		Class<? extends Annotation> annotationType = Class.forName(type).asSubclass(Annotation.class);
+		return Class.forName("jdk.jfr.AnnotationElement")
+				.getConstructor(Class.class, Object.class)
+				.newInstance(annotationType, value);
+	}
+
+	private static Object invoke(Method method, Object target, Object... arguments) {
+		try {
+			return method.invoke(target, arguments);
+		}
+		catch (InvocationTargetException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+		catch (IllegalAccessException e) {
+			throw Throwables.propagate(e);
+		}
+	}
+
+}
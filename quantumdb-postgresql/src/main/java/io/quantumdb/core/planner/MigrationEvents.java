@@ -0,0 +1,106 @@
+package io.quantumdb.core.planner;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+import io.quantumdb.core.schema.definitions.Table;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Emits Java Flight Recorder events for the phases of a migration, and for every batch of records copied into a ghost
+ * table, so that a slow migration can be analyzed after the fact with standard JDK tools (for instance by starting the
+ * JVM with -XX:StartFlightRecording, or using jcmd). When the JVM does not support JFR, no events are emitted.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+class MigrationEvents {
+
+	static final String CREATE_GHOST_TABLES = "CREATE_GHOST_TABLES";
+	static final String EXECUTE_STEPS = "EXECUTE_STEPS";
+	static final String CREATE_INDEXES = "CREATE_INDEXES";
+	static final String CREATE_INDEX = "CREATE_INDEX";
+	static final String INSTALL_SYNC_FUNCTION = "INSTALL_SYNC_FUNCTION";
+	static final String SYNCHRONIZE_BACKWARDS = "SYNCHRONIZE_BACKWARDS";
+	static final String CREATE_VIEWS = "CREATE_VIEWS";
+	static final String PERSIST_STATE = "PERSIST_STATE";
+
+	/**
+	 * An event which is in progress. Closing it records its duration, and commits it.
+	 */
+	interface Event extends AutoCloseable {
+
+		void setRows(long rows);
+
+		@Override
+		void close();
+
+	}
+
+	private static final Event DISABLED = new Event() {
+		@Override
+		public void setRows(long rows) {
+			// Nothing to record.
+		}
+
+		@Override
+		public void close() {
+			// Nothing to commit.
+		}
+	};
+
+	private static final JfrEvents JFR = load();
+
+	/**
+	 * Starts an event for a phase of a migration.
+	 *
+	 * @param phase The name of the phase (for instance CREATE_GHOST_TABLES, or the type of a plan step).
+	 * @param tables The tables the phase operates on.
+	 * @return The started Event.
+	 */
+	static Event phase(String phase, Collection<Table> tables) {
+		return phase(phase, tables.stream()
+				.map(Table::getName)
+				.sorted()
+				.collect(Collectors.joining(", ")));
+	}
+
+	/**
+	 * Starts an event for a phase of a migration.
+	 *
+	 * @param phase The name of the phase.
+	 * @param tables The names of the tables the phase operates on, separated by commas.
+	 * @return The started Event.
+	 */
+	static Event phase(String phase, String tables) {
+		return JFR != null ? JFR.phase(phase, tables) : DISABLED;
+	}
+
+	/**
+	 * Starts an event for copying a single batch of records into a ghost table.
+	 *
+	 * @param source The name of the table the records are copied from.
+	 * @param target The name of the ghost table the records are copied into.
+	 * @param batchSize The maximum number of records to copy.
+	 * @return The started Event.
+	 */
+	static Event copyBatch(String source, String target, long batchSize) {
+		return JFR != null ? JFR.copyBatch(source, target, batchSize) : DISABLED;
+	}
+
+	private static JfrEvents load() {
+		try {
+			JfrEvents events = JfrEvents.load();
+			if (events == null) {
+				log.debug("Java Flight Recorder is not available, no migration events will be emitted.");
+			}
+			return events;
+		}
+		catch (ReflectiveOperationException | LinkageError e) {
+			log.debug("Java Flight Recorder is not supported by this JVM, no migration events will be emitted.");
+			return null;
+		}
+	}
+
+}
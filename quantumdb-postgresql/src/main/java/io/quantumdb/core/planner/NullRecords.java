@@ -26,7 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class NullRecords {
 
-	private final Map<Table, Identity> identities = Maps.newHashMap();
+	private final Map<Table, Identity> identities = Maps.newConcurrentMap();
 
 	public Map<Table, Identity> insertNullObjects(Backend backend, Set<Table> tables) throws SQLException {
 		for (Table table : tables) {
@@ -5,10 +5,12 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
 
 import io.quantumdb.core.backends.Config;
 import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.utils.QueryBuilder;
 import io.quantumdb.core.versioning.Backend;
 import io.quantumdb.core.versioning.QuantumTables;
 import io.quantumdb.core.versioning.State;
@@ -19,15 +21,19 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 
+	private final Config config;
 	private final Backend backend;
+	private final StateCache stateCache;
 
 	private final String jdbcUrl;
 	private final String jdbcUser;
 	private final String jdbcPass;
 	private final String jdbcCatalog;
 	private final String driver;
+	private final String applicationName;
 
 	public PostgresqlBackend(Config config) {
+		this.config = config;
 		this.driver = config.getDriver();
 		this.backend = new Backend();
 
@@ -35,6 +41,23 @@ public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 		this.jdbcUser = config.getUser();
 		this.jdbcPass = config.getPassword();
 		this.jdbcCatalog = config.getCatalog();
+		this.applicationName = "quantumdb-" + UUID.randomUUID();
+
+		if (config.isStateCacheEnabled()) {
+			String key = jdbcUrl + "/" + jdbcCatalog + "?user=" + jdbcUser;
+			this.stateCache = new StateCache(config.getStateCacheDirectory(), key, backend);
+		}
+		else {
+			this.stateCache = null;
+		}
+	}
+
+	Config getConfig() {
+		return config;
+	}
+
+	StateCache getStateCache() {
+		return stateCache;
 	}
 
 	@Override
@@ -42,8 +65,22 @@ public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 		log.trace("Loading state from database...");
 		try (Connection connection = connect()) {
 			QuantumTables.prepare(connection);
+			if (stateCache == null) {
+				Catalog catalog = CatalogLoader.load(connection, jdbcCatalog);
+				return backend.load(connection, catalog);
+			}
+
+			String fingerprint = StateCache.fingerprint(connection);
+			State state = stateCache.load(fingerprint);
+			if (state != null) {
+				log.trace("Loaded state from snapshot: {}", stateCache.getFile());
+				return state;
+			}
+
 			Catalog catalog = CatalogLoader.load(connection, jdbcCatalog);
-			return backend.load(connection, catalog);
+			state = backend.load(connection, catalog);
+			stateCache.store(fingerprint, state);
+			return state;
 		}
 	}
 
@@ -56,6 +93,35 @@ public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 			backend.persist(connection, state);
 			connection.commit();
 		}
+
+		if (stateCache != null) {
+			stateCache.invalidate();
+		}
+	}
+
+	/**
+	 * Cancels the queries which are running on other connections of this backend, for instance the queries of the
+	 * steps of a migration which are still running after another step failed.
+	 *
+	 * @return The number of cancelled queries.
+	 * @throws SQLException In case the queries could not be cancelled.
+	 */
+	int cancelQueries() throws SQLException {
+		String query = new QueryBuilder()
+				.append("SELECT COALESCE(SUM(CASE WHEN cancelled THEN 1 ELSE 0 END), 0) AS cnt FROM (")
+				.append("  SELECT pg_cancel_backend(pid) AS cancelled FROM pg_stat_activity")
+				.append("  WHERE application_name = ? AND state = 'active' AND pid <> pg_backend_pid()")
+				.append(") backends;")
+				.toString();
+
+		try (Connection connection = connect(); PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, applicationName);
+			ResultSet resultSet = statement.executeQuery();
+			if (resultSet.next()) {
+				return resultSet.getInt("cnt");
+			}
+			throw new SQLException("Query produced 0 rows!");
+		}
 	}
 
 	@Override
@@ -87,9 +153,19 @@ public class PostgresqlBackend implements io.quantumdb.core.backends.Backend {
 	@SneakyThrows(ClassNotFoundException.class)
 	public Connection connect() throws SQLException {
 		Class.forName(driver);
-		Connection connection = DriverManager.getConnection(jdbcUrl + "/" + jdbcCatalog, jdbcUser, jdbcPass);
-		try (Statement statement = connection.createStatement()) {
-			statement.execute("SET SCHEMA 'public';");
+		Properties properties = new Properties();
+		properties.setProperty("user", jdbcUser);
+		properties.setProperty("password", jdbcPass);
+		properties.setProperty("ApplicationName", applicationName);
+
+		Connection connection = DriverManager.getConnection(jdbcUrl + "/" + jdbcCatalog, properties);
+
+		// The driver compares server versions as strings, and ignores the ApplicationName property from PostgreSQL
+		// 10 onwards. It's therefore also set along with the schema, in the same round trip.
+		String query = "SELECT set_config('search_path', 'public', false), set_config('application_name', ?, false);";
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setString(1, applicationName);
+			statement.execute();
 		}
 		return connection;
 	}
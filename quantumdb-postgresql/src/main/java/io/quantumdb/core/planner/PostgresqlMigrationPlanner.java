@@ -10,10 +10,13 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
+import io.quantumdb.core.backends.planner.CostModel;
 import io.quantumdb.core.backends.planner.Graph;
 import io.quantumdb.core.backends.planner.Graph.GraphResult;
 import io.quantumdb.core.backends.planner.MigrationPlanner;
@@ -25,6 +28,7 @@ import io.quantumdb.core.backends.planner.Plan;
 import io.quantumdb.core.backends.planner.Plan.Builder;
 import io.quantumdb.core.backends.planner.Step;
 import io.quantumdb.core.backends.planner.TableNode;
+import io.quantumdb.core.backends.planner.TableStatistics;
 import io.quantumdb.core.migration.VersionTraverser;
 import io.quantumdb.core.migration.operations.SchemaOperationsMigrator;
 import io.quantumdb.core.schema.definitions.Catalog;
@@ -48,6 +52,28 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 		ResetException() {}
 	}
 
+	private final boolean deferForeignKeyValidation;
+	private final Map<String, TableStatistics> statistics;
+
+	public PostgresqlMigrationPlanner() {
+		this(false);
+	}
+
+	public PostgresqlMigrationPlanner(boolean deferForeignKeyValidation) {
+		this(deferForeignKeyValidation, ImmutableMap.of());
+	}
+
+	/**
+	 * @param deferForeignKeyValidation True if the plan should end with a step which validates the foreign keys of
+	 * the ghost tables, as they're not added to the ghost tables until their records have been copied.
+	 * @param statistics The statistics of the existing tables, keyed by their ref ID, used to order the steps of
+	 * the plan by their estimated cost.
+	 */
+	public PostgresqlMigrationPlanner(boolean deferForeignKeyValidation, Map<String, TableStatistics> statistics) {
+		this.deferForeignKeyValidation = deferForeignKeyValidation;
+		this.statistics = ImmutableMap.copyOf(statistics);
+	}
+
 	public Plan createPlan(io.quantumdb.core.versioning.State state, Version from, Version to) {
 		log.debug("Creating migration plan for migration from version: {} to: {}", from, to);
 
@@ -100,7 +126,8 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 		log.debug("The following views will be created: " + newViewRefIds.stream()
 				.collect(Collectors.toMap(Function.identity(), (id) -> refLog.getViewRefById(id).getName())));
 
-		return new Planner(state, from, to, newTableRefIds, newViewRefIds, migrator.getRefLog()).createPlan();
+		return new Planner(state, from, to, newTableRefIds, newViewRefIds, migrator.getRefLog(),
+				deferForeignKeyValidation, statistics).createPlan();
 	}
 
 	private static class Planner {
@@ -111,6 +138,8 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 		private final Set<String> newTableRefIds;
 		private final Set<String> newViewRefIds;
 		private final RefLog refLog;
+		private final boolean deferForeignKeyValidation;
+		private final Map<String, TableStatistics> statistics;
 
 		private Set<String> refIdsWithNullRecords;
 		private Builder plan;
@@ -118,7 +147,7 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 		private Graph graph;
 
 		public Planner(State state, Version from, Version to, Set<String> newTableRefIds, Set<String> newViewRefIds,
-				RefLog refLog) {
+				RefLog refLog, boolean deferForeignKeyValidation, Map<String, TableStatistics> statistics) {
 
 			this.catalog = state.getCatalog();
 			this.from = from;
@@ -126,6 +155,8 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 			this.newTableRefIds = Sets.newHashSet(newTableRefIds);
 			this.newViewRefIds = Sets.newHashSet(newViewRefIds);
 			this.refLog = refLog;
+			this.deferForeignKeyValidation = deferForeignKeyValidation;
+			this.statistics = statistics;
 
 			this.refIdsWithNullRecords = Sets.newHashSet();
 			this.graph = Graph.fromCatalog(catalog, newTableRefIds, newViewRefIds);
@@ -162,6 +193,18 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 					.map(catalog::getTable)
 					.collect(Collectors.toSet());
 
+			if (deferForeignKeyValidation) {
+				Set<Table> tablesWithForeignKeys = ghostTables.stream()
+						.filter(table -> !table.getForeignKeys().isEmpty())
+						.collect(Collectors.toSet());
+
+				if (!tablesWithForeignKeys.isEmpty()) {
+					plan.validateForeignKeys(tablesWithForeignKeys);
+				}
+			}
+
+			plan.prioritize(createCostModel());
+
 			Set<View> newViews = newViewRefIds.stream()
 					.map(catalog::getView)
 					.collect(Collectors.toSet());
@@ -169,6 +212,22 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 			return plan.build(refLog, ghostTables, newViews);
 		}
 
+		/**
+		 * Creates a CostModel which estimates the cost of filling each ghost table using the statistics of the
+		 * table(s) whose records are copied into it.
+		 */
+		private CostModel createCostModel() {
+			Map<String, TableStatistics> ghostTableStatistics = Maps.newHashMap();
+			for (Entry<TableRef, TableRef> entry : refLog.getTableMapping(from, to).entries()) {
+				String ghostRefId = entry.getValue().getRefId();
+				TableStatistics sourceStatistics = statistics.get(entry.getKey().getRefId());
+				if (newTableRefIds.contains(ghostRefId) && sourceStatistics != null) {
+					ghostTableStatistics.merge(ghostRefId, sourceStatistics, TableStatistics::add);
+				}
+			}
+			return new CostModel(ghostTableStatistics);
+		}
+
 		private Set<String> listToDo() {
 			return Sets.difference(
 					Sets.difference(graph.getRefIds(), migrationState.getPartiallyMigratedTables()),
@@ -499,7 +558,7 @@ public class PostgresqlMigrationPlanner implements MigrationPlanner {
 				TableRef tableRef = refLog.getTableRefById(refId);
 				Table table = catalog.getTable(tableRef.getRefId());
 
-				String newRefId = RandomHasher.generateRefId(refLog);
+				String newRefId = RandomHasher.generateRefId(refLog, to, tableRef.getName());
 				TableRef ghostTableRef = tableRef.ghost(newRefId, to);
 
 				Table ghostTable = table.copy().rename(ghostTableRef.getRefId());
@@ -5,23 +5,31 @@ import static com.google.common.base.Preconditions.checkArgument;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import io.quantumdb.core.backends.DatabaseMigrator;
 import io.quantumdb.core.backends.planner.Operation;
 import io.quantumdb.core.backends.planner.Plan;
+import io.quantumdb.core.backends.planner.PlanExecutor;
+import io.quantumdb.core.backends.planner.PlanExecutor.StepHandler;
+import io.quantumdb.core.backends.planner.PlanReport;
 import io.quantumdb.core.backends.planner.PlanValidator;
 import io.quantumdb.core.backends.planner.Step;
+import io.quantumdb.core.backends.planner.TableStatistics;
 import io.quantumdb.core.backends.postgresql.migrator.ViewCreator;
 import io.quantumdb.core.migration.Migrator.Stage;
 import io.quantumdb.core.migration.VersionTraverser.Direction;
@@ -29,6 +37,7 @@ import io.quantumdb.core.schema.definitions.Catalog;
 import io.quantumdb.core.schema.definitions.Column;
 import io.quantumdb.core.schema.definitions.Sequence;
 import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.schema.definitions.View;
 import io.quantumdb.core.schema.operations.DataOperation;
 import io.quantumdb.core.schema.operations.Operation.Type;
 import io.quantumdb.core.utils.QueryBuilder;
@@ -52,6 +61,33 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		}
 	}
 
+	/**
+	 * Replaces the function and trigger of an installed sync function in a single transaction. Records written to the
+	 * source table while the trigger is being recreated are synchronized once the transaction commits, instead of
+	 * being lost in between dropping and creating the trigger.
+	 *
+	 * @param connection The connection to use.
+	 * @param syncFunction The sync function to replace.
+	 * @throws SQLException In case the sync function could not be replaced.
+	 */
+	static void replaceSyncFunction(Connection connection, SyncFunction syncFunction) throws SQLException {
+		boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			execute(connection, syncFunction.createFunctionStatement());
+			execute(connection, syncFunction.dropTriggerStatement());
+			execute(connection, syncFunction.createTriggerStatement());
+			connection.commit();
+		}
+		catch (SQLException e) {
+			connection.rollback();
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
 	private final PostgresqlBackend backend;
 
 	PostgresqlMigrator(PostgresqlBackend backend) {
@@ -62,14 +98,39 @@ class PostgresqlMigrator implements DatabaseMigrator {
 	public void applySchemaChanges(State state, Version from, Version to) throws MigrationException {
 		RefLog refLog = state.getRefLog();
 		Set<Version> preMigration = refLog.getVersions();
-		Plan plan = new PostgresqlMigrationPlanner().createPlan(state, from, to);
+		InterruptedFork interruptedFork = InterruptedFork.rewind(state, from, to);
+		Plan plan = createPlan(state, from, to, loadTableStatistics());
+		log.info("Migration plan:\n{}", plan);
 
-		PlanValidator.validate(plan);
 		Set<Version> postMigration = refLog.getVersions();
 		Set<Version> intermediateVersions = Sets.newHashSet(Sets.difference(postMigration, preMigration));
 		intermediateVersions.remove(to);
 
-		new InternalPlanner(backend, plan, state, from, to, intermediateVersions).migrate();
+		new InternalPlanner(backend, plan, state, from, to, intermediateVersions, interruptedFork).migrate();
+	}
+
+	@Override
+	public PlanReport planSchemaChanges(State state, Version from, Version to) throws MigrationException {
+		Map<String, TableStatistics> statistics = loadTableStatistics();
+		InterruptedFork.rewind(state, from, to);
+		Plan plan = createPlan(state, from, to, statistics);
+		return PlanReport.create(plan, from, to, statistics);
+	}
+
+	private Plan createPlan(State state, Version from, Version to, Map<String, TableStatistics> statistics) {
+		boolean deferForeignKeyValidation = backend.getConfig().isForeignKeyValidationDeferred();
+		Plan plan = new PostgresqlMigrationPlanner(deferForeignKeyValidation, statistics).createPlan(state, from, to);
+		PlanValidator.validate(plan);
+		return plan;
+	}
+
+	private Map<String, TableStatistics> loadTableStatistics() throws MigrationException {
+		try (Connection connection = backend.connect()) {
+			return TableStatisticsLoader.load(connection);
+		}
+		catch (SQLException e) {
+			throw new MigrationException("Could not load the statistics of the tables", e);
+		}
 	}
 
 	@Override
@@ -176,7 +237,9 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			connection.setAutoCommit(false);
 
 			dropSynchronizers(connection, state.getRefLog(), tablesToDrop);
+			boolean statementLevel = SyncFunction.supportsStatementLevelSync(connection);
 			for (SyncFunction syncFunction : newSyncFunctions.values()) {
+				syncFunction.setStatementLevel(statementLevel);
 				execute(connection, syncFunction.createFunctionStatement());
 				execute(connection, syncFunction.createTriggerStatement());
 			}
@@ -188,6 +251,24 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		catch (SQLException e) {
 			throw new MigrationException(e);
 		}
+
+		purgeCheckpoints(backend);
+	}
+
+	/**
+	 * Deletes the copy checkpoints of ghost tables which are no longer part of the persisted state. Failing to do so
+	 * doesn't affect the outcome of the migration, so it's only logged.
+	 */
+	private static void purgeCheckpoints(PostgresqlBackend backend) {
+		try (Connection connection = backend.connect()) {
+			int purged = CopyCheckpoints.purge(connection);
+			if (purged > 0) {
+				log.info("Purged {} copy checkpoints of abandoned or dropped ghost tables", purged);
+			}
+		}
+		catch (SQLException e) {
+			log.warn("Could not purge the copy checkpoints of abandoned or dropped ghost tables", e);
+		}
 	}
 
 	private void dropSynchronizers(Connection connection, RefLog refLog, List<TableRef> tablesToDrop)
@@ -210,15 +291,16 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		connection.commit();
 	}
 
-	private void dropSynchronizer(Connection connection, SyncRef sync) throws SQLException {
+	static void dropSynchronizer(Connection connection, SyncRef sync) throws SQLException {
 		String triggerName = sync.getName();
 		String functionName = sync.getFunctionName();
 		String sourceRefId = sync.getSource().getRefId();
 		String targetRefId = sync.getTarget().getRefId();
 
 		try (Statement statement = connection.createStatement()) {
-			statement.execute("DROP TRIGGER " + triggerName + " ON " + sourceRefId + ";");
-			statement.execute("DROP FUNCTION " + functionName + "();");
+			statement.execute("DROP TRIGGER IF EXISTS " + triggerName + " ON " + sourceRefId + ";");
+			// Also drops any other triggers which call this function, like those of statement-level synchronizers.
+			statement.execute("DROP FUNCTION IF EXISTS " + functionName + "() CASCADE;");
 			sync.drop();
 			log.info("Dropped synchronizer: {}/{} for: {} -> {}", triggerName, functionName, sourceRefId, targetRefId);
 		}
@@ -279,6 +361,9 @@ class PostgresqlMigrator implements DatabaseMigrator {
 
 	static class InternalPlanner {
 
+		private static final int COPY_ATTEMPTS = 3;
+		private static final long COPY_RETRY_DELAY = 5_000;
+
 		private final Plan plan;
 		private final Set<Version> intermediateVersions;
 		private final RefLog refLog;
@@ -288,12 +373,15 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		private final PostgresqlBackend backend;
 		private final Version from;
 		private final Version to;
+		private final InterruptedFork interruptedFork;
 
 		private final com.google.common.collect.Table<String, String, SyncFunction> syncFunctions;
+		private final Set<SyncFunction> resumedSyncFunctions;
 
+		private volatile boolean cancelled;
 
 		public InternalPlanner(PostgresqlBackend backend, Plan plan, State state, Version from, Version to,
-				Set<Version> intermediateVersions) {
+				Set<Version> intermediateVersions, InterruptedFork interruptedFork) {
 
 			this.backend = backend;
 			this.plan = plan;
@@ -303,24 +391,43 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			this.nullRecords = new NullRecords();
 			this.migratedColumns = HashMultimap.create();
 			this.syncFunctions = HashBasedTable.create();
+			this.resumedSyncFunctions = Sets.newIdentityHashSet();
 			this.from = from;
 			this.to = to;
+			this.interruptedFork = interruptedFork;
 		}
 
 		public void migrate() throws MigrationException {
-			createGhostTables();
-
-			Optional<Step> nextStep;
-			while ((nextStep = plan.nextStep()).isPresent()) {
-				try {
-					Step step = nextStep.get();
-					execute(step.getOperation());
-					step.markAsExecuted();
-				}
-				catch (InterruptedException e) {
-					Thread.currentThread().interrupt();
-					throw new MigrationException(e);
-				}
+			Set<String> resumedTables = resume();
+			createGhostTables(resumedTables);
+
+			// Persist the planned state, so the ghost tables are reused if the fork is interrupted.
+			persistState();
+
+			try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.EXECUTE_STEPS,
+					plan.getGhostTables())) {
+				PlanExecutor executor = new PlanExecutor(plan, backend.getConfig().getStepWorkers());
+				executor.execute(new StepHandler() {
+					@Override
+					public void execute(Step step) throws MigrationException, InterruptedException {
+						InternalPlanner.this.execute(step.getOperation());
+					}
+
+					@Override
+					public void cancel() {
+						cancelled = true;
+						try {
+							log.info("Cancelled {} running queries", backend.cancelQueries());
+						}
+						catch (SQLException e) {
+							log.warn("Could not cancel running queries", e);
+						}
+					}
+				});
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MigrationException(e);
 			}
 
 			createIndexes();
@@ -332,11 +439,17 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			createViews(to);
 
 			persistState();
+
+			purgeCheckpoints(backend);
 		}
 
 		private void persistState() throws MigrationException {
-			try {
-				backend.persistState(state);
+			try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.PERSIST_STATE,
+					plan.getGhostTables())) {
+				// Steps may be executed concurrently, and the RefLog is not thread-safe.
+				synchronized (refLog) {
+					backend.persistState(state);
+				}
 			}
 			catch (SQLException e) {
 				throw new MigrationException(e);
@@ -346,24 +459,34 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		private void execute(Operation operation) throws MigrationException, InterruptedException {
 
 			log.info("Executing operation: " + operation);
-			try {
-				Set<Table> tables = operation.getTables();
+			Set<Table> tables = operation.getTables();
+			try (MigrationEvents.Event event = MigrationEvents.phase(operation.getType().name(), tables)) {
 				switch (operation.getType()) {
 					case ADD_NULL:
 						nullRecords.insertNullObjects(backend, tables);
+						event.setRows(tables.size());
 						break;
 					case DROP_NULL:
 						nullRecords.deleteNullObjects(backend, tables);
+						event.setRows(tables.size());
 						break;
 					case COPY:
 						Table table = tables.iterator().next();
 						Set<String> columns = operation.getColumns();
-						Set<String> previouslyMigrated = Sets.newHashSet(this.migratedColumns.get(table));
+						Set<String> previouslyMigrated;
+						synchronized (migratedColumns) {
+							previouslyMigrated = Sets.newHashSet(migratedColumns.get(table));
+						}
 						Set<String> combined = Sets.union(previouslyMigrated, columns);
 
 						synchronizeForwards(table, Sets.newHashSet(combined));
-						copyData(table, previouslyMigrated, columns);
-						this.migratedColumns.putAll(table, columns);
+						event.setRows(copyData(table, previouslyMigrated, columns));
+						synchronized (migratedColumns) {
+							migratedColumns.putAll(table, columns);
+						}
+						break;
+					case VALIDATE_FOREIGN_KEYS:
+						new ForeignKeyValidator(backend, backend.getConfig()).validate(tables);
 						break;
 				}
 			}
@@ -373,7 +496,13 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		}
 
 		private void createViews(Version version) throws MigrationException {
-			try (Connection connection = backend.connect()) {
+			String views = plan.getViews().stream()
+					.map(View::getName)
+					.sorted()
+					.collect(Collectors.joining(", "));
+
+			try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.CREATE_VIEWS, views);
+					Connection connection = backend.connect()) {
 				ViewCreator creator = new ViewCreator();
 				creator.create(connection, plan.getViews(), refLog, version);
 			}
@@ -382,10 +511,71 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			}
 		}
 
-		private void createGhostTables() throws MigrationException {
+		/**
+		 * Prepares the ghost tables of an interrupted attempt of this fork to be reused, and takes over the
+		 * synchronizers which kept them up to date.
+		 *
+		 * @return The names of the ghost tables which are reused.
+		 */
+		private Set<String> resume() throws MigrationException {
 			try (Connection connection = backend.connect()) {
+				Set<String> resumedTables = interruptedFork.resume(connection, plan);
+				if (!resumedTables.isEmpty()) {
+					boolean statementLevel = SyncFunction.supportsStatementLevelSync(connection);
+					for (SyncRef synchronizer : interruptedFork.getSynchronizers()) {
+						takeOverSyncFunction(synchronizer, statementLevel);
+					}
+				}
+				return resumedTables;
+			}
+			catch (SQLException e) {
+				throw new MigrationException(e);
+			}
+		}
+
+		/**
+		 * Registers a sync function of an interrupted attempt of this fork, which is still installed. It's replaced
+		 * once the records of its ghost table are copied, and keeps synchronizing all columns from then on, since
+		 * some of them may have been copied before the fork was interrupted.
+		 */
+		private void takeOverSyncFunction(SyncRef synchronizer, boolean statementLevel) {
+			Catalog catalog = state.getCatalog();
+			TableRef source = refLog.getTableRefById(synchronizer.getSource().getRefId());
+			TableRef target = refLog.getTableRefById(synchronizer.getTarget().getRefId());
+			Map<ColumnRef, ColumnRef> mapping = refLog.getColumnMapping(source, target);
+
+			SyncFunction syncFunction = new SyncFunction(refLog, source, target, mapping, catalog, nullRecords,
+					synchronizer.getFunctionName(), synchronizer.getName());
+			syncFunction.setStatementLevel(statementLevel);
+			syncFunction.setColumnsToMigrate(mapping.values().stream()
+					.map(ColumnRef::getName)
+					.collect(Collectors.toSet()));
+
+			syncFunctions.put(source.getRefId(), target.getRefId(), syncFunction);
+			resumedSyncFunctions.add(syncFunction);
+			refLog.addSync(synchronizer.getName(), synchronizer.getFunctionName(), mapping);
+			log.info("Took over sync function: {} for table: {}", synchronizer.getFunctionName(), source.getRefId());
+		}
+
+		private void createGhostTables(Set<String> resumedTables) throws MigrationException {
+			Set<Table> ghostTables = plan.getGhostTables().stream()
+					.filter(table -> !resumedTables.contains(table.getName()))
+					.collect(Collectors.toSet());
+
+			try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.CREATE_GHOST_TABLES,
+					ghostTables);
+					Connection connection = backend.connect()) {
 				TableCreator creator = new TableCreator();
-				creator.create(connection, plan.getGhostTables());
+				if (backend.getConfig().isForeignKeyValidationDeferred()) {
+					// The sync functions skip changes made by referential actions (like ON DELETE CASCADE) on the
+					// source tables, so the ghost tables need foreign keys of their own to apply them. They're only
+					// validated once all records have been copied.
+					creator.createTables(connection, ghostTables);
+					creator.createForeignKeys(connection, ghostTables, true);
+				}
+				else {
+					creator.create(connection, ghostTables);
+				}
 			}
 			catch (SQLException e) {
 				throw new MigrationException(e);
@@ -393,9 +583,14 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		}
 
 		private void createIndexes() throws MigrationException {
-			try (Connection connection = backend.connect()) {
-				TableCreator creator = new TableCreator();
-				creator.createIndexes(connection, plan.getGhostTables());
+			try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.CREATE_INDEXES,
+					plan.getGhostTables())) {
+				IndexBuilder builder = new IndexBuilder(backend, backend.getConfig());
+				builder.createIndexes(plan.getGhostTables());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MigrationException(e);
 			}
 			catch (SQLException e) {
 				throw new MigrationException(e);
@@ -405,38 +600,100 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		private void synchronizeForwards(Table targetTable, Set<String> targetColumns) throws SQLException {
 			log.info("Creating forward sync function for table: {}...", targetTable.getName());
 			try (Connection connection = backend.connect()) {
-				Catalog catalog = state.getCatalog();
-				Multimap<TableRef, TableRef> tableMapping = state.getRefLog().getTableMapping(from, to);
-				for (Entry<TableRef, TableRef> entry : tableMapping.entries()) {
-					if (entry.getValue().getRefId().equals(targetTable.getName())) {
-						TableRef source = entry.getKey();
-						TableRef target = entry.getValue();
-						ensureSyncFunctionExists(connection, refLog, source, target, catalog, targetColumns);
+				// Steps may be executed concurrently, and the RefLog is not thread-safe.
+				synchronized (refLog) {
+					Catalog catalog = state.getCatalog();
+					Multimap<TableRef, TableRef> tableMapping = refLog.getTableMapping(from, to);
+					for (Entry<TableRef, TableRef> entry : tableMapping.entries()) {
+						if (entry.getValue().getRefId().equals(targetTable.getName())) {
+							TableRef source = entry.getKey();
+							TableRef target = entry.getValue();
+							ensureSyncFunctionExists(connection, refLog, source, target, catalog, targetColumns);
+						}
 					}
 				}
 			}
 		}
 
-		private void copyData(Table targetTable, Set<String> migratedColumns, Set<String> columnsToMigrate)
+		private long copyData(Table targetTable, Set<String> migratedColumns, Set<String> columnsToMigrate)
 				throws SQLException, InterruptedException {
 
+			long records = 0;
 			Catalog catalog = state.getCatalog();
-			Multimap<TableRef, TableRef> tableMapping = state.getRefLog().getTableMapping(from, to);
-			for (Entry<TableRef, TableRef> entry : tableMapping.entries()) {
+			List<Entry<TableRef, TableRef>> entries;
+			synchronized (refLog) {
+				entries = Lists.newArrayList(refLog.getTableMapping(from, to).entries());
+			}
+
+			for (Entry<TableRef, TableRef> entry : entries) {
 				if (entry.getValue().getRefId().equals(targetTable.getName())) {
 					Table source = catalog.getTable(entry.getKey().getRefId());
 					Table target = catalog.getTable(entry.getValue().getRefId());
-					TableDataMigrator tableDataMigrator = new TableDataMigrator(backend, refLog);
-					tableDataMigrator.migrateData(nullRecords, source, target, from, to, migratedColumns, columnsToMigrate);
+					TableDataMigrator tableDataMigrator = new TableDataMigrator(backend, refLog, backend.getConfig());
+					for (int attempt = 1; ; attempt++) {
+						try {
+							records += tableDataMigrator.migrateData(nullRecords, source, target, from, to,
+									migratedColumns, columnsToMigrate);
+							break;
+						}
+						catch (SQLException e) {
+							if (attempt >= COPY_ATTEMPTS || !isTransient(e)) {
+								throw e;
+							}
+							log.warn("Copying records into table: " + target.getName() + " failed, resuming from "
+									+ "last checkpoint in " + COPY_RETRY_DELAY + " ms...", e);
+							Thread.sleep(COPY_RETRY_DELAY);
+						}
+					}
 				}
 			}
+			return records;
+		}
+
+		/**
+		 * @return True if the specified exception (or one it was caused by) indicates a failure which may not occur
+		 * again when the copy is retried: a lost connection, a serialization failure or deadlock, or a query which was
+		 * cancelled by something other than this migration (like a statement timeout).
+		 */
+		private boolean isTransient(SQLException exception) {
+			Set<Throwable> visited = Sets.newIdentityHashSet();
+			Deque<Throwable> pending = new ArrayDeque<>();
+			pending.add(exception);
+
+			while (!pending.isEmpty()) {
+				Throwable throwable = pending.poll();
+				if (!visited.add(throwable)) {
+					continue;
+				}
+
+				if (throwable instanceof SQLException) {
+					SQLException sqlException = (SQLException) throwable;
+					String sqlState = Strings.nullToEmpty(sqlException.getSQLState());
+					if (sqlState.startsWith("08") || sqlState.equals("40001") || sqlState.equals("40P01")
+							|| (sqlState.equals("57014") && !cancelled)) {
+						return true;
+					}
+					if (sqlException.getNextException() != null) {
+						pending.add(sqlException.getNextException());
+					}
+				}
+				if (throwable.getCause() != null) {
+					pending.add(throwable.getCause());
+				}
+			}
+			return false;
 		}
 
 		private void synchronizeBackwards() throws MigrationException {
 			log.info("Creating backwards sync functions...");
-			try (Connection connection = backend.connect()) {
-				Catalog catalog = state.getCatalog();
-				Multimap<TableRef, TableRef> tableMapping = state.getRefLog().getTableMapping(from, to);
+			Catalog catalog = state.getCatalog();
+			Multimap<TableRef, TableRef> tableMapping = state.getRefLog().getTableMapping(from, to);
+			Set<Table> tables = tableMapping.values().stream()
+					.map(ghostTable -> catalog.getTable(ghostTable.getRefId()))
+					.collect(Collectors.toSet());
+
+			try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.SYNCHRONIZE_BACKWARDS, tables);
+					Connection connection = backend.connect()) {
 				for (Entry<TableRef, TableRef> entry : tableMapping.entries()) {
 					TableRef target = entry.getKey();
 					TableRef source = entry.getValue();
@@ -458,6 +715,18 @@ class PostgresqlMigrator implements DatabaseMigrator {
 		void ensureSyncFunctionExists(Connection connection, RefLog refLog, TableRef source,
 				TableRef target, Catalog catalog, Set<String> columns) throws SQLException {
 
+			String tables = Stream.of(source.getName(), target.getName())
+					.distinct()
+					.collect(Collectors.joining(", "));
+
+			try (MigrationEvents.Event event = MigrationEvents.phase(MigrationEvents.INSTALL_SYNC_FUNCTION, tables)) {
+				installSyncFunction(connection, refLog, source, target, catalog, columns);
+			}
+		}
+
+		private void installSyncFunction(Connection connection, RefLog refLog, TableRef source,
+				TableRef target, Catalog catalog, Set<String> columns) throws SQLException {
+
 			String sourceRefId = source.getRefId();
 			String targetRefId = target.getRefId();
 
@@ -465,6 +734,7 @@ class PostgresqlMigrator implements DatabaseMigrator {
 			if (syncFunction == null) {
 				Map<ColumnRef, ColumnRef> mapping = refLog.getColumnMapping(source, target);
 				syncFunction = new SyncFunction(refLog, source, target, mapping, catalog, nullRecords);
+				syncFunction.setStatementLevel(SyncFunction.supportsStatementLevelSync(connection));
 				syncFunction.setColumnsToMigrate(columns);
 				syncFunctions.put(sourceRefId, targetRefId, syncFunction);
 
@@ -476,12 +746,17 @@ class PostgresqlMigrator implements DatabaseMigrator {
 
 				Map<ColumnRef, ColumnRef> columnMapping = refLog.getColumnMapping(source, target);
 				refLog.addSync(syncFunction.getTriggerName(), syncFunction.getFunctionName(), columnMapping);
+
+				// Persist the sync function, so it's taken over or dropped if the fork is interrupted.
+				backend.persistState(state);
 			}
 			else {
-				syncFunction.setColumnsToMigrate(columns);
+				if (!resumedSyncFunctions.contains(syncFunction)) {
+					syncFunction.setColumnsToMigrate(columns);
+				}
 
 				log.info("Updating sync function: {} for table: {}", syncFunction.getFunctionName(), sourceRefId);
-				PostgresqlMigrator.execute(connection, syncFunction.createFunctionStatement());
+				replaceSyncFunction(connection, syncFunction);
 
 				TableRef sourceTable = refLog.getTableRefById(sourceRefId);
 				sourceTable.getOutboundSyncs().stream()
@@ -8,6 +8,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import io.quantumdb.core.planner.MigratorFunction.Stage;
 import io.quantumdb.core.schema.definitions.Column;
@@ -26,77 +27,88 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class SelectiveMigratorFunction {
 
+	// The identity of the last processed record, and the number of records processed in the batch.
+	private static final String OUTPUT_PARAMETERS = "OUT q_identity text, OUT q_records bigint";
+
 	static MigratorFunction createMigrator(NullRecords nullRecords, RefLog refLog, Table source, Table target,
-			Version from, Version to, long batchSize, Stage stage, Set<String> migratedColumns,
-			Set<String> columnsToBeMigrated) {
+			Version from, Version to, Stage stage, Set<String> migratedColumns, Set<String> columnsToBeMigrated) {
 
 		if (migratedColumns.isEmpty()) {
-			return createInsertMigrator(nullRecords, refLog, source, target, from, to, batchSize, stage, columnsToBeMigrated);
+			return createInsertMigrator(nullRecords, refLog, source, target, from, to, stage, columnsToBeMigrated);
 		}
 		else {
-			return createUpdateMigrator(refLog, source, target, from, to, batchSize, stage, columnsToBeMigrated);
+			return createUpdateMigrator(refLog, source, target, from, to, stage, columnsToBeMigrated);
 		}
 	}
 
-	private static MigratorFunction createUpdateMigrator(RefLog refLog, Table source, Table target, Version from,
-			Version to, long batchSize, Stage stage, Set<String> columnsToBeMigrated) {
+	/**
+	 * Determines for each column of the target table which is to be filled, the expression which produces its value
+	 * from a record of the source table. Columns of non-nullable foreign keys which are not copied (yet), refer to the
+	 * NULL record of the referred table instead.
+	 *
+	 * @param recordPrefix The prefix with which to refer to the columns of the source record (for instance "r.").
+	 * @return The expression of each target column, in the order in which they're to be filled.
+	 */
+	static LinkedHashMap<String, String> createValueMapping(NullRecords nullRecords, RefLog refLog, Table source,
+			Table target, Set<String> columns, String recordPrefix) {
 
-		List<Column> identityColumns = source.getIdentityColumns();
-		Map<String, String> functionParameterMapping = Maps.newHashMap();
-		for (int i = 0; i < identityColumns.size(); i++) {
-			functionParameterMapping.put(identityColumns.get(i).getName(), "q" + i);
+		TableRef sourceRef = refLog.getTableRefById(source.getName());
+		TableRef targetRef = refLog.getTableRefById(target.getName());
+		Map<ColumnRef, ColumnRef> columnMapping = refLog.getColumnMapping(sourceRef, targetRef);
+
+		LinkedHashMap<String, String> values = columnMapping.entrySet().stream()
+				.filter(entry -> columns.contains(entry.getKey().getName()))
+				.collect(Collectors.toMap(entry -> entry.getValue().getName(),
+						entry -> recordPrefix + "\"" + entry.getKey().getName() + "\"",
+						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
+						Maps::newLinkedHashMap));
+
+		for (ForeignKey foreignKey : target.getForeignKeys()) {
+			List<String> foreignKeyColumns = foreignKey.getReferencingColumns();
+
+			if (foreignKey.isNotNullable() && !values.keySet().containsAll(foreignKeyColumns)) {
+				Table referredTable = foreignKey.getReferredTable();
+				Identity identity = nullRecords.getIdentity(referredTable);
+				LinkedHashMap<String, String> columnMappings = foreignKey.getColumnMapping();
+				for (String columnName : foreignKeyColumns) {
+					String referencedColumn = columnMappings.get(columnName);
+					Column column = target.getColumn(columnName);
+
+					String value = column.getDefaultValue();
+					if (identity != null) {
+						value = identity.getValue(referencedColumn).toString();
+						if (column.getType().isRequireQuotes()) {
+							value = "'" + value + "'";
+						}
+					}
+
+					values.put(columnName, value);
+				}
+			}
 		}
+		return values;
+	}
+
+	private static MigratorFunction createUpdateMigrator(RefLog refLog, Table source, Table target, Version from,
+			Version to, Stage stage, Set<String> columnsToBeMigrated) {
 
+		List<Column> identityColumns = source.getIdentityColumns();
 		List<String> identityColumnNames = identityColumns.stream()
 				.map(column -> "\"" + column.getName() + "\"")
 				.collect(Collectors.toList());
 
-		List<String> functionParameters = identityColumns.stream()
-				.map(column -> functionParameterMapping.get(column.getName()) + " " + column.getType().toString())
-				.collect(Collectors.toList());
-
-		String functionName = "migrator_" + RandomHasher.generateHash();
+		String functionName = createFunctionName();
 
 		QueryBuilder createStatement = new QueryBuilder();
+		String batchSizeParameter = appendSignature(createStatement, functionName, stage, identityColumns);
 
-		switch (stage) {
-			case INITIAL:
-				createStatement.append("CREATE FUNCTION " + functionName + "()");
-				break;
-			case CONSECUTIVE:
-				createStatement.append(
-						"CREATE FUNCTION " + functionName + "(" + Joiner.on(", ").join(functionParameters) + ")");
-				break;
-		}
-
-		createStatement.append("  RETURNS text AS $$");
+		createStatement.append("  RETURNS record AS $$");
 		createStatement.append("  DECLARE r record;");
 		createStatement.append("  BEGIN");
+		createStatement.append("	q_records := 0;");
 		createStatement.append("	FOR r IN");
 		createStatement.append("	  SELECT * FROM " + source.getName());
-
-		if (stage != Stage.INITIAL) {
-			createStatement.append("		WHERE");
-			for (int i = 0; i < identityColumns.size(); i++) {
-				if (i > 0) {
-					createStatement.append("OR");
-				}
-
-				createStatement.append("(");
-
-				for (int j = 0; j < i; j++) {
-					String identityColumnName = identityColumns.get(j).getName();
-					String value = functionParameterMapping.get(identityColumnName);
-					createStatement.append(identityColumnName + " = " + value);
-					createStatement.append("AND");
-				}
-
-				String identityColumnName = identityColumns.get(i).getName();
-				String value = functionParameterMapping.get(identityColumnName);
-				createStatement.append(identityColumnName + " > " + value);
-				createStatement.append(")");
-			}
-		}
+		appendRangeCondition(createStatement, stage, identityColumnNames);
 
 		TableRef sourceRef = refLog.getTableRefById(source.getName());
 		TableRef targetRef = refLog.getTableRefById(target.getName());
@@ -135,158 +147,141 @@ public class SelectiveMigratorFunction {
 				.collect(Collectors.joining(" AND "));
 
 		createStatement.append("		ORDER BY " + Joiner.on(" ASC, ").join(identityColumnNames) + " ASC");
-		createStatement.append("		LIMIT " + batchSize);
+		createStatement.append("		LIMIT " + batchSizeParameter);
 		createStatement.append("	LOOP");
 		createStatement.append("	  BEGIN");
 		createStatement.append("		UPDATE " + target.getName());
 		createStatement.append("		  SET " + updates);
 		createStatement.append("		  WHERE  " + identityCondition + ";");
 		createStatement.append("	  EXCEPTION WHEN unique_violation THEN END;");
+		createStatement.append("	  q_records := q_records + 1;");
 		createStatement.append("	END LOOP;");
-		createStatement.append("  RETURN CONCAT('(', r." + Joiner.on(", ',', r.").join(identityColumnNames) + ", ')');");
+		createStatement.append("  q_identity := ROW(r." + Joiner.on(", r.").join(identityColumnNames) + ")::text;");
 		createStatement.append("END; $$ LANGUAGE 'plpgsql';");
 
-		QueryBuilder dropStatement = new QueryBuilder();
-		switch (stage) {
-			case INITIAL:
-				dropStatement.append("DROP FUNCTION " + functionName + "();");
-				break;
-			case CONSECUTIVE:
-				List<String> parameterTypes = identityColumns.stream()
-						.map(column -> column.getType().toString())
-						.collect(Collectors.toList());
-
-				dropStatement.append("DROP FUNCTION " + functionName + "(" + Joiner.on(",").join(parameterTypes) + ");");
-				break;
-		}
-
-		return new MigratorFunction(functionName, identityColumnNames, createStatement.toString(), dropStatement.toString());
+		String dropStatement = createDropStatement(functionName, stage, identityColumns);
+		return new MigratorFunction(functionName, identityColumnNames, createStatement.toString(), dropStatement);
 	}
 
 	private static MigratorFunction createInsertMigrator(NullRecords nullRecords, RefLog refLog, Table source,
-			Table target, Version from, Version to, long batchSize, Stage stage, Set<String> columns) {
+			Table target, Version from, Version to, Stage stage, Set<String> columns) {
 
 		List<Column> identityColumns = source.getIdentityColumns();
-		Map<String, String> functionParameterMapping = Maps.newHashMap();
-		for (int i = 0; i < identityColumns.size(); i++) {
-			functionParameterMapping.put(identityColumns.get(i).getName(), "q" + i);
-		}
-
 		List<String> identityColumnNames = identityColumns.stream()
 				.map(column -> "\"" + column.getName() + "\"")
 				.collect(Collectors.toList());
 
-		List<String> functionParameters = identityColumns.stream()
-				.map(column -> functionParameterMapping.get(column.getName()) + " " + column.getType().toString())
-				.collect(Collectors.toList());
-
-		TableRef sourceRef = refLog.getTableRefById(source.getName());
-		TableRef targetRef = refLog.getTableRefById(target.getName());
-		Map<ColumnRef, ColumnRef> columnMapping = refLog.getColumnMapping(sourceRef, targetRef);
-
-		Map<String, String> values = columnMapping.entrySet().stream()
-				.filter(entry -> columns.contains(entry.getKey().getName()))
-				.collect(Collectors.toMap(entry -> entry.getValue().getName(),
-						entry -> "r.\"" + entry.getKey().getName() + "\"",
-						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
-						Maps::newLinkedHashMap));
-
-		for (ForeignKey foreignKey : target.getForeignKeys()) {
-			List<String> foreignKeyColumns = foreignKey.getReferencingColumns();
-
-			if (foreignKey.isNotNullable() && !values.keySet().containsAll(foreignKeyColumns)) {
-				Table referredTable = foreignKey.getReferredTable();
-				Identity identity = nullRecords.getIdentity(referredTable);
-				LinkedHashMap<String, String> columnMappings = foreignKey.getColumnMapping();
-				for (String columnName : foreignKeyColumns) {
-					String referencedColumn = columnMappings.get(columnName);
-					Column column = target.getColumn(columnName);
-
-					String value = column.getDefaultValue();
-					if (identity != null) {
-						value = identity.getValue(referencedColumn).toString();
-						if (column.getType().isRequireQuotes()) {
-							value = "'" + value + "'";
-						}
-					}
-
-					values.put(columnName, value);
-				}
-			}
-		}
+		Map<String, String> values = createValueMapping(nullRecords, refLog, source, target, columns, "r.");
 
-		String functionName = "migrator_" + RandomHasher.generateHash();
+		String functionName = createFunctionName();
 
 		QueryBuilder createStatement = new QueryBuilder();
+		String batchSizeParameter = appendSignature(createStatement, functionName, stage, identityColumns);
 
-		switch (stage) {
-			case INITIAL:
-				createStatement.append("CREATE FUNCTION " + functionName + "()");
-				break;
-			case CONSECUTIVE:
-				createStatement.append(
-						"CREATE FUNCTION " + functionName + "(" + Joiner.on(", ").join(functionParameters) + ")");
-				break;
-		}
-
-		createStatement.append("  RETURNS text AS $$");
+		createStatement.append("  RETURNS record AS $$");
 		createStatement.append("  DECLARE r record;");
 		createStatement.append("  BEGIN");
+		createStatement.append("	q_records := 0;");
 		createStatement.append("	FOR r IN");
 		createStatement.append("	  SELECT * FROM " + source.getName());
-
-		if (stage != Stage.INITIAL) {
-			createStatement.append("		WHERE");
-			for (int i = 0; i < identityColumns.size(); i++) {
-				if (i > 0) {
-					createStatement.append("OR");
-				}
-
-				createStatement.append("(");
-
-				for (int j = 0; j < i; j++) {
-					String identityColumnName = identityColumns.get(j).getName();
-					String value = functionParameterMapping.get(identityColumnName);
-					createStatement.append(identityColumnName + " = " + value);
-					createStatement.append("AND");
-				}
-
-				String identityColumnName = identityColumns.get(i).getName();
-				String value = functionParameterMapping.get(identityColumnName);
-				createStatement.append(identityColumnName + " > " + value);
-				createStatement.append(")");
-			}
-		}
+		appendRangeCondition(createStatement, stage, identityColumnNames);
 
 		createStatement.append("		ORDER BY " + Joiner.on(" ASC, ").join(identityColumnNames) + " ASC");
-		createStatement.append("		LIMIT " + batchSize);
+		createStatement.append("		LIMIT " + batchSizeParameter);
 		createStatement.append("	LOOP");
 		createStatement.append("	  BEGIN");
 		createStatement.append("		INSERT INTO " + target.getName());
 		createStatement.append("		  (" + values.keySet().stream().map(input -> "\"" + input + "\"").collect(Collectors.joining(", ")) + ")");
 		createStatement.append("		  VALUES (" + Joiner.on(", ").join(values.values()) + ");");
 		createStatement.append("	  EXCEPTION WHEN unique_violation THEN END;");
+		createStatement.append("	  q_records := q_records + 1;");
 		createStatement.append("	END LOOP;");
-		createStatement.append("  RETURN CONCAT('(', r." + Joiner.on(", ',', r.").join(identityColumnNames) + ", ')');");
+		createStatement.append("  q_identity := ROW(r." + Joiner.on(", r.").join(identityColumnNames) + ")::text;");
 		createStatement.append("END; $$ LANGUAGE 'plpgsql';");
 
+		String dropStatement = createDropStatement(functionName, stage, identityColumns);
+		return new MigratorFunction(functionName, identityColumnNames, createStatement.toString(), dropStatement);
+	}
+
+	/**
+	 * Appends the signature of a migrator function. Every function takes the upper bound of the key range as its
+	 * parameters (u0, u1, ...), which the CONSECUTIVE stage precedes with the identity of the last processed record
+	 * (q0, q1, ...). The batch size is passed as the last (unnamed) parameter, so that it can vary between invocations.
+	 *
+	 * @return The reference to the batch size parameter.
+	 */
+	private static String appendSignature(QueryBuilder createStatement, String functionName, Stage stage,
+			List<Column> identityColumns) {
+
+		List<String> parameters = Lists.newArrayList();
+		if (stage == Stage.CONSECUTIVE) {
+			parameters.addAll(createParameters("q", identityColumns));
+		}
+		else if (stage != Stage.INITIAL) {
+			throw new IllegalArgumentException("Unsupported stage: " + stage);
+		}
+		parameters.addAll(createParameters("u", identityColumns));
+
+		createStatement.append("CREATE FUNCTION " + functionName + "(" + Joiner.on(", ").join(parameters) + ", bigint, "
+				+ OUTPUT_PARAMETERS + ")");
 
-		QueryBuilder dropStatement = new QueryBuilder();
+		return "$" + (parameters.size() + 1);
+	}
 
-		switch (stage) {
-			case INITIAL:
-				dropStatement.append("DROP FUNCTION " + functionName + "();");
-				break;
-			case CONSECUTIVE:
-				List<String> parameterTypes = identityColumns.stream()
-						.map(column -> column.getType().toString())
-						.collect(Collectors.toList());
+	/**
+	 * Appends the condition which selects the records of a batch: the records after the last processed record (in the
+	 * CONSECUTIVE stage), up to and including the upper bound of the key range. The identities are compared as rows,
+	 * so the database orders them (including composite and textual identities) just like it orders the batches.
+	 */
+	private static void appendRangeCondition(QueryBuilder createStatement, Stage stage,
+			List<String> identityColumnNames) {
+
+		String identity = "ROW(" + Joiner.on(", ").join(identityColumnNames) + ")";
+		List<String> lowerBound = Lists.newArrayList();
+		List<String> upperBound = Lists.newArrayList();
+		for (int i = 0; i < identityColumnNames.size(); i++) {
+			lowerBound.add("q" + i);
+			upperBound.add("u" + i);
+		}
 
-				dropStatement.append("DROP FUNCTION " + functionName + "(" + Joiner.on(",").join(parameterTypes) + ");");
-				break;
+		if (stage == Stage.CONSECUTIVE) {
+			createStatement.append("		WHERE " + identity + " > ROW(" + Joiner.on(", ").join(lowerBound) + ")");
+			createStatement.append("		  AND " + identity + " <= ROW(" + Joiner.on(", ").join(upperBound) + ")");
+		}
+		else {
+			createStatement.append("		WHERE " + identity + " <= ROW(" + Joiner.on(", ").join(upperBound) + ")");
 		}
+	}
+
+	private static String createDropStatement(String functionName, Stage stage, List<Column> identityColumns) {
+		List<String> parameterTypes = identityColumns.stream()
+				.map(column -> column.getType().toString())
+				.collect(Collectors.toList());
 
-		return new MigratorFunction(functionName, identityColumnNames, createStatement.toString(), dropStatement.toString());
+		List<String> parameters = Lists.newArrayList();
+		if (stage == Stage.CONSECUTIVE) {
+			parameters.addAll(parameterTypes);
+		}
+		parameters.addAll(parameterTypes);
+		parameters.add("bigint");
+
+		return "DROP FUNCTION " + functionName + "(" + Joiner.on(",").join(parameters) + ");";
+	}
+
+	/**
+	 * Migrator functions are created as temporary functions, so that they're dropped by the database when the session
+	 * which copies the records ends, even if the process performing the fork is killed.
+	 */
+	private static String createFunctionName() {
+		return "pg_temp.migrator_" + RandomHasher.generateHash();
+	}
+
+	private static List<String> createParameters(String prefix, List<Column> identityColumns) {
+		List<String> parameters = Lists.newArrayList();
+		for (int i = 0; i < identityColumns.size(); i++) {
+			parameters.add(prefix + i + " " + identityColumns.get(i).getType().toString());
+		}
+		return parameters;
 	}
 
 }
@@ -0,0 +1,200 @@
+package io.quantumdb.core.planner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+import com.google.common.hash.Hashing;
+import io.quantumdb.core.utils.QueryBuilder;
+import io.quantumdb.core.versioning.Backend;
+import io.quantumdb.core.versioning.State;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps a snapshot of the most recently loaded State on disk, so that it does not have to be reassembled from the
+ * catalog and the quantumdb tables every time. A snapshot is only used when the fingerprint of the database still
+ * matches the fingerprint which was taken when the snapshot was created.
+ *
+ * Since a snapshot is trusted to describe the database, the cache directory is only accessible by its owner, and
+ * snapshots which are not owned by the current user are ignored.
+ */
+@Slf4j
+class StateCache {
+
+	/**
+	 * Every DDL statement creates new row versions in pg_class, pg_attribute, pg_attrdef, or pg_constraint, and every
+	 * change to the quantumdb tables creates new row versions in those tables. Aggregating the (oid, xmin) pairs of
+	 * these rows yields a fingerprint which changes whenever the loaded State would.
+	 */
+	private static final String FINGERPRINT_QUERY = new QueryBuilder()
+			.append("SELECT md5(string_agg(entry, ',' ORDER BY entry)) AS fingerprint FROM (")
+			.append("  SELECT 'c' || c.oid || ':' || c.relfilenode || ':' || c.xmin::text AS entry")
+			.append("    FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace")
+			.append("    WHERE n.nspname IN ('public', 'quantumdb')")
+			.append("  UNION ALL SELECT 'a' || a.attrelid || ':' || a.attnum || ':' || a.xmin::text")
+			.append("    FROM pg_attribute a JOIN pg_class c ON c.oid = a.attrelid JOIN pg_namespace n ON n.oid = c.relnamespace")
+			.append("    WHERE n.nspname = 'public' AND a.attnum > 0")
+			.append("  UNION ALL SELECT 'd' || d.oid || ':' || d.xmin::text")
+			.append("    FROM pg_attrdef d JOIN pg_class c ON c.oid = d.adrelid JOIN pg_namespace n ON n.oid = c.relnamespace")
+			.append("    WHERE n.nspname = 'public'")
+			.append("  UNION ALL SELECT 'k' || k.oid || ':' || k.xmin::text")
+			.append("    FROM pg_constraint k JOIN pg_namespace n ON n.oid = k.connamespace")
+			.append("    WHERE n.nspname = 'public'")
+			.append("  UNION ALL SELECT 'changelog:' || xmin::text FROM quantumdb.changelog")
+			.append("  UNION ALL SELECT 'changesets:' || xmin::text FROM quantumdb.changesets")
+			.append("  UNION ALL SELECT 'refs:' || xmin::text FROM quantumdb.refs")
+			.append("  UNION ALL SELECT 'ref_versions:' || xmin::text FROM quantumdb.ref_versions")
+			.append("  UNION ALL SELECT 'table_columns:' || xmin::text FROM quantumdb.table_columns")
+			.append("  UNION ALL SELECT 'column_mappings:' || xmin::text FROM quantumdb.column_mappings")
+			.append("  UNION ALL SELECT 'synchronizers:' || xmin::text FROM quantumdb.synchronizers")
+			.append("  UNION ALL SELECT 'synchronizer_columns:' || xmin::text FROM quantumdb.synchronizer_columns")
+			.append("  UNION ALL SELECT 'active_versions:' || xmin::text FROM quantumdb.active_versions")
+			.append(") entries;")
+			.toString();
+
+	/**
+	 * Computes the fingerprint of the catalog and the quantumdb tables of the database.
+	 *
+	 * @param connection The connection to use.
+	 * @return The fingerprint of the database.
+	 * @throws SQLException In case the fingerprint could not be computed.
+	 */
+	static String fingerprint(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(FINGERPRINT_QUERY);
+			if (resultSet.next()) {
+				return resultSet.getString("fingerprint");
+			}
+			throw new SQLException("Query produced 0 rows!");
+		}
+	}
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+	private final File file;
+	private final Backend backend;
+
+	StateCache(File directory, String key, Backend backend) {
+		String fileName = "state-" + Hashing.sha1().hashString(key, StandardCharsets.UTF_8) + ".bin";
+		this.file = new File(directory, fileName);
+		this.backend = backend;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @param fingerprint The current fingerprint of the database.
+	 * @return The cached State, or NULL if there is no snapshot which matches the specified fingerprint.
+	 */
+	State load(String fingerprint) {
+		if (!file.exists()) {
+			return null;
+		}
+		if (!isOwnedByCurrentUser(file.toPath())) {
+			log.warn("Ignoring snapshot: {}, it is not owned by the current user.", file);
+			return null;
+		}
+
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (!fingerprint.equals(input.readUTF())) {
+				log.debug("Snapshot: {} is out of date", file);
+				return null;
+			}
+			return backend.readSnapshot(input);
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("Could not read snapshot: " + file + ", reloading state from the database.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Stores a snapshot of the specified State. The snapshot is written to a temporary file first, and then moved
+	 * into place, so that concurrent processes never read a partially written snapshot.
+	 *
+	 * @param fingerprint The fingerprint of the database, taken before the State was loaded.
+	 * @param state The State to store.
+	 */
+	void store(String fingerprint, State state) {
+		Path directory = file.getParentFile().toPath();
+		File temporary = null;
+		try {
+			createDirectory(directory);
+			if (!isOwnedByCurrentUser(directory)) {
+				log.warn("Not writing snapshot: {}, its directory is not owned by the current user.", file);
+				return;
+			}
+
+			// Temporary files are created readable and writable by their owner only.
+			temporary = Files.createTempFile(directory, "state-", ".tmp").toFile();
+			try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+				output.writeUTF(fingerprint);
+				backend.writeSnapshot(output, state);
+			}
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("Could not write snapshot: " + file, e);
+			if (temporary != null) {
+				temporary.delete();
+			}
+		}
+	}
+
+	private static void createDirectory(Path directory) throws IOException {
+		if (Files.isDirectory(directory)) {
+			return;
+		}
+		if (isPosix()) {
+			Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+		}
+		else {
+			Files.createDirectories(directory);
+		}
+	}
+
+	private static boolean isOwnedByCurrentUser(Path path) {
+		try {
+			UserPrincipal owner = Files.getOwner(path);
+			UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+			return owner.equals(user);
+		}
+		catch (IOException | UnsupportedOperationException e) {
+			log.debug("Could not determine the owner of: " + path, e);
+			return false;
+		}
+	}
+
+	private static boolean isPosix() {
+		return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+	}
+
+	void invalidate() {
+		if (file.exists() && !file.delete()) {
+			log.warn("Could not delete snapshot: {}", file);
+		}
+	}
+
+}
@@ -2,14 +2,18 @@ package io.quantumdb.core.planner;
 
 import static io.quantumdb.core.utils.RandomHasher.generateHash;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import io.quantumdb.core.schema.definitions.Catalog;
@@ -28,6 +32,26 @@ import lombok.Setter;
 @Data
 public class SyncFunction {
 
+	/**
+	 * The lowest major version of PostgreSQL which supports transition tables in (statement-level) triggers.
+	 */
+	private static final int TRANSITION_TABLES_VERSION = 10;
+
+	private static final String NEW_RECORDS = "new_records";
+	private static final String OLD_RECORDS = "old_records";
+
+	/**
+	 * Determines if the database can synchronize changes per statement using transition tables. If not, changes
+	 * must be synchronized per row.
+	 *
+	 * @param connection The connection to the database.
+	 * @return True if statement-level sync triggers are supported, false otherwise.
+	 * @throws SQLException In case the version of the database could not be determined.
+	 */
+	public static boolean supportsStatementLevelSync(Connection connection) throws SQLException {
+		return connection.getMetaData().getDatabaseMajorVersion() >= TRANSITION_TABLES_VERSION;
+	}
+
 	private final TableRef source;
 	private final TableRef target;
 	private final String functionName;
@@ -37,6 +61,12 @@ public class SyncFunction {
 	private final NullRecords nullRecords;
 	private final Map<ColumnRef, ColumnRef> columnMapping;
 
+	/**
+	 * When true, changes are synchronized once per statement using transition tables and set-based queries,
+	 * instead of once per modified row.
+	 */
+	private boolean statementLevel;
+
 	@Setter(AccessLevel.NONE)
 	private ImmutableMap<String, String> insertExpressions;
 
@@ -49,6 +79,19 @@ public class SyncFunction {
 	@Setter(AccessLevel.NONE)
 	private ImmutableMap<String, String> updateIdentitiesForInserts;
 
+	@Setter(AccessLevel.NONE)
+	private ImmutableMap<String, String> statementInsertExpressions;
+
+	@Setter(AccessLevel.NONE)
+	private ImmutableMap<String, String> statementIdentities;
+
+	/**
+	 * The (quoted) columns of the source table whose values are copied to the target table. Updates which do not
+	 * modify any of these columns are not synchronized.
+	 */
+	@Setter(AccessLevel.NONE)
+	private ImmutableList<String> syncedColumns;
+
 	public SyncFunction(RefLog refLog, TableRef source, TableRef target, Map<ColumnRef, ColumnRef> columnMapping,
 			Catalog catalog, NullRecords nullRecords) {
 
@@ -79,9 +122,40 @@ public class SyncFunction {
 				})
 				.collect(Collectors.toMap(entry -> entry.getKey().getName(), entry -> entry.getValue().getName()));
 
+		this.syncedColumns = ImmutableList.copyOf(mapping.keySet().stream()
+				.sorted()
+				.map(column -> "\"" + column + "\"")
+				.collect(Collectors.toList()));
+
+		this.insertExpressions = ImmutableMap.copyOf(createInsertExpressions(mapping, targetTable, "NEW"));
+		this.updateExpressions = ImmutableMap.copyOf(insertExpressions);
+		this.statementInsertExpressions = ImmutableMap.copyOf(createInsertExpressions(mapping, targetTable, "n"));
+
+		this.updateIdentitiesForInserts = ImmutableMap.copyOf(targetTable.getIdentityColumns().stream()
+				.collect(Collectors.toMap(column -> "\"" + column.getName() + "\"",
+						column -> "NEW.\"" + reverseLookup(mapping, column.getName()) + "\"",
+						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
+						Maps::newLinkedHashMap)));
+
+		this.updateIdentities = ImmutableMap.copyOf(targetTable.getIdentityColumns().stream()
+				.collect(Collectors.toMap(column -> "\"" + column.getName() + "\"",
+						column -> "OLD.\"" + reverseLookup(mapping, column.getName()) + "\"",
+						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
+						Maps::newLinkedHashMap)));
+
+		this.statementIdentities = ImmutableMap.copyOf(targetTable.getIdentityColumns().stream()
+				.collect(Collectors.toMap(column -> "\"" + column.getName() + "\"",
+						column -> "\"" + reverseLookup(mapping, column.getName()) + "\"",
+						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
+						Maps::newLinkedHashMap)));
+	}
+
+	private Map<String, String> createInsertExpressions(Map<String, String> mapping, Table targetTable,
+			String record) {
+
 		Map<String, String> expressions = mapping.entrySet().stream()
 				.collect(Collectors.toMap(entry -> "\"" + entry.getValue() + "\"",
-						entry -> "NEW.\"" + entry.getKey() + "\"",
+						entry -> record + ".\"" + entry.getKey() + "\"",
 						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
 						Maps::newLinkedHashMap));
 
@@ -109,20 +183,7 @@ public class SyncFunction {
 			}
 		}
 
-		this.insertExpressions = ImmutableMap.copyOf(expressions);
-		this.updateExpressions = ImmutableMap.copyOf(insertExpressions);
-
-		this.updateIdentitiesForInserts = ImmutableMap.copyOf(targetTable.getIdentityColumns().stream()
-				.collect(Collectors.toMap(column -> "\"" + column.getName() + "\"",
-						column -> "NEW.\"" + reverseLookup(mapping, column.getName()) + "\"",
-						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
-						Maps::newLinkedHashMap)));
-
-		this.updateIdentities = ImmutableMap.copyOf(targetTable.getIdentityColumns().stream()
-				.collect(Collectors.toMap(column -> "\"" + column.getName() + "\"",
-						column -> "OLD.\"" + reverseLookup(mapping, column.getName()) + "\"",
-						(u, v) -> { throw new IllegalStateException(String.format("Duplicate key %s", u)); },
-						Maps::newLinkedHashMap)));
+		return expressions;
 	}
 
 	private String reverseLookup(Map<String, String> mapping, String value) {
@@ -134,36 +195,103 @@ public class SyncFunction {
 	}
 
 	public QueryBuilder createFunctionStatement() {
+		if (statementLevel) {
+			return createStatementLevelFunctionStatement();
+		}
+
+		String identitiesChanged = updateIdentities.entrySet().stream()
+				.map(entry -> entry.getValue() + " IS DISTINCT FROM " + updateIdentitiesForInserts.get(entry.getKey()))
+				.collect(Collectors.joining(" OR "));
+
 		return new QueryBuilder()
 				.append("CREATE OR REPLACE FUNCTION " + functionName + "()")
 				.append("RETURNS TRIGGER AS $$")
 				.append("BEGIN")
-				.append("  IF TG_OP = 'INSERT' THEN")
-				.append("    INSERT INTO " + target.getRefId())
-				.append("      (" + represent(insertExpressions, Entry::getKey, ", ") + ") VALUES")
-				.append("      (" + represent(insertExpressions, Entry::getValue, ", ") + ");")
-				.append("  ELSIF TG_OP = 'UPDATE' THEN")
-				.append("    LOOP")
-				.append("      UPDATE " + target.getRefId())
-				.append("        SET " + represent(updateIdentitiesForInserts, " = ", ", "))
-				.append("        WHERE " + represent(updateIdentities, " = ", " AND ") + ";")
-				.append("      IF found THEN EXIT; END IF;")
-				.append("      BEGIN")
-				.append("        INSERT INTO " + target.getRefId())
-				.append("          (" + represent(insertExpressions, Entry::getKey, ", ") + ") VALUES")
-				.append("          (" + represent(insertExpressions, Entry::getValue, ", ") + ");")
-				.append("      EXIT;")
-				.append("      EXCEPTION WHEN unique_violation THEN END;")
-				.append("	END LOOP;")
-				.append("  ELSIF TG_OP = 'DELETE' THEN")
+				.append("  IF TG_OP = 'DELETE' THEN")
 				.append("    DELETE FROM " + target.getRefId())
 				.append("      WHERE " + represent(updateIdentities, " = ", " AND ") + ";")
+				.append("    RETURN OLD;")
 				.append("  END IF;")
+				.append("  IF TG_OP = 'UPDATE' AND (" + identitiesChanged + ") THEN")
+				.append("    UPDATE " + target.getRefId())
+				.append("      SET " + represent(updateIdentitiesForInserts, " = ", ", "))
+				.append("      WHERE " + represent(updateIdentities, " = ", " AND ") + ";")
+				.append("  END IF;")
+				.append("  INSERT INTO " + target.getRefId())
+				.append("    (" + represent(insertExpressions, Entry::getKey, ", ") + ") VALUES")
+				.append("    (" + represent(insertExpressions, Entry::getValue, ", ") + ")")
+				.append("    " + createConflictClause(updateExpressions))
 				.append("  RETURN NEW;")
 				.append("END;")
 				.append("$$ LANGUAGE 'plpgsql';");
 	}
 
+	private QueryBuilder createStatementLevelFunctionStatement() {
+		String targetRefId = target.getRefId();
+		String matchIdentities = represent(statementIdentities, (k, v) -> "t." + k + " = o." + v, " AND ");
+
+		return new QueryBuilder()
+				.append("CREATE OR REPLACE FUNCTION " + functionName + "()")
+				.append("RETURNS TRIGGER AS $$")
+				.append("BEGIN")
+				.append("  IF TG_OP = 'DELETE' THEN")
+				.append("    DELETE FROM " + targetRefId + " t USING " + OLD_RECORDS + " o")
+				.append("      WHERE " + matchIdentities + ";")
+				.append("    RETURN NULL;")
+				.append("  END IF;")
+				.append("  IF TG_OP = 'UPDATE' THEN")
+				.append("    DELETE FROM " + targetRefId + " t USING " + OLD_RECORDS + " o")
+				.append("      WHERE " + matchIdentities)
+				.append("      AND NOT EXISTS (SELECT 1 FROM " + NEW_RECORDS + " n")
+				.append("        WHERE " + represent(statementIdentities, (k, v) -> "n." + v + " = o." + v, " AND ") + ");")
+				.append("    INSERT INTO " + targetRefId)
+				.append("      (" + represent(statementInsertExpressions, Entry::getKey, ", ") + ")")
+				.append("      SELECT " + represent(statementInsertExpressions, Entry::getValue, ", "))
+				.append("      FROM " + NEW_RECORDS + " n LEFT JOIN " + OLD_RECORDS + " o")
+				.append("        ON " + represent(statementIdentities, (k, v) -> "n." + v + " = o." + v, " AND "))
+				.append("      WHERE o." + statementIdentities.values().iterator().next() + " IS NULL")
+				.append("        OR " + createSyncedColumnsChangedCondition("o", "n"))
+				.append("      " + createConflictClause(statementInsertExpressions))
+				.append("    RETURN NULL;")
+				.append("  END IF;")
+				.append("  INSERT INTO " + targetRefId)
+				.append("    (" + represent(statementInsertExpressions, Entry::getKey, ", ") + ")")
+				.append("    SELECT " + represent(statementInsertExpressions, Entry::getValue, ", "))
+				.append("    FROM " + NEW_RECORDS + " n")
+				.append("    " + createConflictClause(statementInsertExpressions))
+				.append("  RETURN NULL;")
+				.append("END;")
+				.append("$$ LANGUAGE 'plpgsql';");
+	}
+
+	private String createSyncedColumnsChangedCondition(String oldRecord, String newRecord) {
+		return "ROW(" + syncedColumns.stream().map(column -> oldRecord + "." + column).collect(Collectors.joining(", "))
+				+ ") IS DISTINCT FROM ROW("
+				+ syncedColumns.stream().map(column -> newRecord + "." + column).collect(Collectors.joining(", ")) + ")";
+	}
+
+	/**
+	 * Creates the ON CONFLICT clause which turns an INSERT into the target table into an upsert. This avoids the
+	 * subtransaction which catching a unique_violation would require.
+	 */
+	private String createConflictClause(Map<String, String> expressions) {
+		String conflictAction = expressions.keySet().stream()
+				.filter(column -> !updateIdentities.containsKey(column))
+				.map(column -> column + " = EXCLUDED." + column)
+				.collect(Collectors.joining(", "));
+
+		return new QueryBuilder()
+				.append("ON CONFLICT (" + String.join(", ", updateIdentities.keySet()) + ")")
+				.append(conflictAction.isEmpty() ? "DO NOTHING;" : "DO UPDATE SET " + conflictAction + ";")
+				.toString();
+	}
+
+	private String represent(Map<String, String> inputs, BiFunction<String, String, String> mapper, String join) {
+		return inputs.entrySet().stream()
+				.map(entry -> mapper.apply(entry.getKey(), entry.getValue()))
+				.collect(Collectors.joining(join));
+	}
+
 	private String represent(Map<String, String> inputs, String innerJoin, String entryJoin) {
 		return inputs.entrySet().stream()
 				.map(entry -> entry.getKey() + innerJoin + entry.getValue())
@@ -177,13 +305,53 @@ public class SyncFunction {
 	}
 
 	public QueryBuilder createTriggerStatement() {
+		if (statementLevel) {
+			// Transition tables can only be used by triggers which fire on a single event.
+			return new QueryBuilder()
+					.append(createStatementLevelTriggerStatement(triggerName, "INSERT", "NEW TABLE AS " + NEW_RECORDS))
+					.append(createStatementLevelTriggerStatement(triggerName + "_u", "UPDATE",
+							"OLD TABLE AS " + OLD_RECORDS + " NEW TABLE AS " + NEW_RECORDS))
+					.append(createStatementLevelTriggerStatement(triggerName + "_d", "DELETE",
+							"OLD TABLE AS " + OLD_RECORDS));
+		}
+
+		// Updates are handled by a separate trigger, which only fires when any of the synced columns has changed.
 		return new QueryBuilder()
 				.append("CREATE TRIGGER " + triggerName)
-				.append("AFTER INSERT OR UPDATE OR DELETE")
+				.append("AFTER INSERT OR DELETE")
 				.append("ON " + source.getRefId())
 				.append("FOR EACH ROW")
 				.append("WHEN (pg_trigger_depth() = 0)")
+				.append("EXECUTE PROCEDURE " + functionName + "();")
+				.append("CREATE TRIGGER " + triggerName + "_u")
+				.append("AFTER UPDATE OF " + String.join(", ", syncedColumns))
+				.append("ON " + source.getRefId())
+				.append("FOR EACH ROW")
+				.append("WHEN (pg_trigger_depth() = 0 AND " + createSyncedColumnsChangedCondition("OLD", "NEW") + ")")
 				.append("EXECUTE PROCEDURE " + functionName + "();");
 	}
 
+	/**
+	 * @return The statements which drop all triggers created by createTriggerStatement(), so that they can be
+	 * recreated when the synced columns change.
+	 */
+	public QueryBuilder dropTriggerStatement() {
+		return new QueryBuilder()
+				.append("DROP TRIGGER IF EXISTS " + triggerName + " ON " + source.getRefId() + ";")
+				.append("DROP TRIGGER IF EXISTS " + triggerName + "_u ON " + source.getRefId() + ";")
+				.append("DROP TRIGGER IF EXISTS " + triggerName + "_d ON " + source.getRefId() + ";");
+	}
+
+	private String createStatementLevelTriggerStatement(String name, String event, String transitionTables) {
+		return new QueryBuilder()
+				.append("CREATE TRIGGER " + name)
+				.append("AFTER " + event)
+				.append("ON " + source.getRefId())
+				.append("REFERENCING " + transitionTables)
+				.append("FOR EACH STATEMENT")
+				.append("WHEN (pg_trigger_depth() = 0)")
+				.append("EXECUTE PROCEDURE " + functionName + "();")
+				.toString();
+	}
+
 }
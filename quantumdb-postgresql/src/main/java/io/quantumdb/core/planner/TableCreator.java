@@ -35,8 +35,18 @@ public class TableCreator {
 	}
 
 	public void createForeignKeys(Connection connection, Collection<Table> tables) throws SQLException {
+		createForeignKeys(connection, tables, false);
+	}
+
+	/**
+	 * @param notValid True if the foreign keys should only be enforced for records which are written from now on. Such
+	 * foreign keys must be validated separately using ALTER TABLE ... VALIDATE CONSTRAINT.
+	 */
+	public void createForeignKeys(Connection connection, Collection<Table> tables, boolean notValid)
+			throws SQLException {
+
 		for (Table table : tables) {
-			createForeignKeys(connection, table);
+			createForeignKeys(connection, table, notValid);
 		}
 	}
 
@@ -108,40 +118,57 @@ public class TableCreator {
 		}
 	}
 
-	private void createForeignKeys(Connection connection, Table table) throws SQLException {
+	private void createForeignKeys(Connection connection, Table table, boolean notValid) throws SQLException {
 		for (ForeignKey foreignKey : table.getForeignKeys()) {
-			QueryBuilder queryBuilder = new QueryBuilder();
-			queryBuilder.append("ALTER TABLE " + table.getName());
-			queryBuilder.append("ADD CONSTRAINT " + foreignKey.getForeignKeyName());
-			queryBuilder.append("FOREIGN KEY (" + Joiner.on(", ").join(foreignKey.getReferencingColumns()) + ")");
-			queryBuilder.append("REFERENCES " + foreignKey.getReferredTableName());
-			queryBuilder.append("(" + Joiner.on(", ").join(foreignKey.getReferredColumns()) + ")");
-			queryBuilder.append("ON UPDATE " + valueOf(foreignKey.getOnUpdate()));
-			queryBuilder.append("ON DELETE " + valueOf(foreignKey.getOnDelete()));
-			queryBuilder.append("DEFERRABLE");
-
 			log.info("Creating foreign key: {}", foreignKey.getForeignKeyName());
-			execute(connection, queryBuilder);
+			execute(connection, createForeignKeyQuery(table, foreignKey, notValid));
+		}
+	}
+
+	/**
+	 * @param notValid True if existing records should not be checked when the foreign key is added. Such a foreign
+	 * key must be validated separately using ALTER TABLE ... VALIDATE CONSTRAINT.
+	 */
+	static QueryBuilder createForeignKeyQuery(Table table, ForeignKey foreignKey, boolean notValid) {
+		QueryBuilder queryBuilder = new QueryBuilder();
+		queryBuilder.append("ALTER TABLE " + table.getName());
+		queryBuilder.append("ADD CONSTRAINT " + foreignKey.getForeignKeyName());
+		queryBuilder.append("FOREIGN KEY (" + Joiner.on(", ").join(foreignKey.getReferencingColumns()) + ")");
+		queryBuilder.append("REFERENCES " + foreignKey.getReferredTableName());
+		queryBuilder.append("(" + Joiner.on(", ").join(foreignKey.getReferredColumns()) + ")");
+		queryBuilder.append("ON UPDATE " + valueOf(foreignKey.getOnUpdate()));
+		queryBuilder.append("ON DELETE " + valueOf(foreignKey.getOnDelete()));
+		queryBuilder.append("DEFERRABLE");
+		if (notValid) {
+			queryBuilder.append("NOT VALID");
 		}
+		return queryBuilder;
 	}
 
 	private void createIndexes(Connection connection, Table table) throws SQLException {
 		for (Index index : table.getIndexes()) {
-			QueryBuilder queryBuilder = new QueryBuilder();
-			queryBuilder.append("CREATE");
-			if (index.isUnique()) {
-				queryBuilder.append("UNIQUE");
-			}
-			queryBuilder.append("INDEX " + index.getIndexName());
-			queryBuilder.append("ON " + index.getParent().getName());
-			queryBuilder.append("(" + Joiner.on(", ").join(index.getColumns()) + ");");
-
 			log.info("Creating index key: {}", index.getIndexName());
-			execute(connection, queryBuilder);
+			execute(connection, createIndexQuery(index, false));
+		}
+	}
+
+	static QueryBuilder createIndexQuery(Index index, boolean concurrently) {
+		QueryBuilder queryBuilder = new QueryBuilder();
+		queryBuilder.append("CREATE");
+		if (index.isUnique()) {
+			queryBuilder.append("UNIQUE");
+		}
+		queryBuilder.append("INDEX");
+		if (concurrently) {
+			queryBuilder.append("CONCURRENTLY");
 		}
+		queryBuilder.append(index.getIndexName());
+		queryBuilder.append("ON " + index.getParent().getName());
+		queryBuilder.append("(" + Joiner.on(", ").join(index.getColumns()) + ");");
+		return queryBuilder;
 	}
 
-	private String valueOf(Action action) {
+	private static String valueOf(Action action) {
 		switch (action) {
 			case CASCADE: return "CASCADE";
 			case NO_ACTION: return "NO ACTION";
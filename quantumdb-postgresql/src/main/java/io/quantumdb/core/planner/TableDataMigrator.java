@@ -7,16 +7,26 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import io.quantumdb.core.backends.Backend;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.planner.CopyCheckpoints.Checkpoint;
 import io.quantumdb.core.planner.MigratorFunction.Stage;
 import io.quantumdb.core.schema.definitions.Column;
 import io.quantumdb.core.schema.definitions.ColumnType.Type;
@@ -29,96 +39,358 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 class TableDataMigrator {
 
-	private static final long BATCH_SIZE = 2_000;
-	private static final long WAIT_TIME = 50;
+	private static final long MINIMUM_RECORDS_PER_RANGE = 100_000;
+	private static final long SAMPLE_SIZE = 10_000;
+
+	// The characters which PostgreSQL quotes when formatting a value of a record.
+	private static final CharMatcher QUOTED_CHARACTERS = CharMatcher.anyOf(",()\\\"").or(CharMatcher.WHITESPACE);
 
 	private final RefLog refLog;
 	private final Backend backend;
+	private final Config config;
+
+	private volatile boolean lockWaitsSupported = true;
 
-	TableDataMigrator(Backend backend, RefLog refLog) {
+	TableDataMigrator(Backend backend, RefLog refLog, Config config) {
 		this.backend = backend;
 		this.refLog = refLog;
+		this.config = config;
 	}
 
-	void migrateData(NullRecords nullRecords, Table source, Table target, Version from, Version to,
+	/**
+	 * Copies the specified columns of all records of the source table into the target table.
+	 *
+	 * @return The number of copied records, including those copied by an earlier attempt which was resumed.
+	 */
+	long migrateData(NullRecords nullRecords, Table source, Table target, Version from, Version to,
 			Set<String> migratedColumns, Set<String> columnsToMigrate) throws SQLException, InterruptedException {
 
 		Map<String, Object> highestId = queryHighestId(source);
 		if (highestId == null) {
 			log.info("Table: {} is empty -> nothing target migrate...", source.getName());
-			return;
+			return 0;
 		}
 		log.info("Migrating data in table: {} target: {}", source.getName(), target.getName());
 
-		MigratorFunction initialMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog,
-				source, target, from, to, BATCH_SIZE, Stage.INITIAL, migratedColumns, columnsToMigrate);
-		MigratorFunction successiveMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog,
-				source, target, from, to, BATCH_SIZE, Stage.CONSECUTIVE, migratedColumns, columnsToMigrate);
+		String columnNames = Joiner.on(",").join(Sets.newTreeSet(columnsToMigrate));
+		CopyCheckpoints checkpoints = new CopyCheckpoints(source.getName(), target.getName(), columnNames);
+
+		try (Connection connection = backend.connect()) {
+			CopyProtocolMigrator copyMigrator = null;
+			if (config.isCopyProtocolEnabled() && migratedColumns.isEmpty()) {
+				if (CopyProtocolMigrator.isSupported(connection)) {
+					synchronized (refLog) {
+						copyMigrator = CopyProtocolMigrator.create(nullRecords, refLog, source, target,
+								columnsToMigrate);
+					}
+				}
+				else {
+					log.warn("The COPY protocol requires PostgreSQL 9.5 or later, falling back to migrator functions.");
+				}
+			}
+
+			if (copyMigrator != null) {
+				log.info("Streaming records source: {} target: {} using the COPY protocol", source.getName(),
+						target.getName());
+
+				CopyProtocolMigrator migrator = copyMigrator;
+				return migrateData(connection, source, target, highestId, checkpoints,
+						rangeConnection -> migrator.open(backend, rangeConnection));
+			}
+
+			MigratorFunction initialMigrator;
+			MigratorFunction successiveMigrator;
+			synchronized (refLog) {
+				initialMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog,
+						source, target, from, to, Stage.INITIAL, migratedColumns, columnsToMigrate);
+				successiveMigrator = SelectiveMigratorFunction.createMigrator(nullRecords, refLog,
+						source, target, from, to, Stage.CONSECUTIVE, migratedColumns, columnsToMigrate);
+			}
 
-		if (initialMigrator == null) {
-			return;
+			if (initialMigrator == null) {
+				return 0;
+			}
+
+			return migrateData(connection, source, target, highestId, checkpoints,
+					rangeConnection -> FunctionCopier.open(rangeConnection, initialMigrator, successiveMigrator));
 		}
+	}
 
-		try (Connection connection = backend.connect()) {
-			execute(connection, initialMigrator.getCreateStatement());
-			execute(connection, successiveMigrator.getCreateStatement());
+	/**
+	 * Copies all records of the source table into the target table, in one or more key ranges, using the BatchCopiers
+	 * created by the specified factory. Progress is checkpointed, so that an interrupted copy can be resumed.
+	 */
+	private long migrateData(Connection connection, Table source, Table target, Map<String, Object> highestId,
+			CopyCheckpoints checkpoints, BatchCopier.Factory copiers) throws SQLException, InterruptedException {
+
+		long start = System.currentTimeMillis();
+
+		List<Checkpoint> ranges = checkpoints.load(connection);
+		if (ranges.isEmpty()) {
+			ranges = planRanges(connection, source, highestId);
+			checkpoints.create(connection, ranges);
+		}
+		else {
+			long recordsCopied = ranges.stream().mapToLong(Checkpoint::getRecordsCopied).sum();
+			log.info("Resuming migration of records source: {} target: {}, {} records were already copied",
+					source.getName(), target.getName(), recordsCopied);
+
+			// Records may have been inserted since the previous attempt, so extend the last range.
+			ranges.get(ranges.size() - 1).setEndIdentity(formatIdentity(source, highestId));
+		}
+
+		if (ranges.size() == 1) {
+			migrateRange(connection, copiers, source, target, checkpoints, ranges.get(0));
+		}
+		else {
+			migrateRanges(copiers, source, target, checkpoints, ranges);
+		}
 
-			long start = System.currentTimeMillis();
-			Map<String, Object> lastProcessedId = Maps.newHashMap();
+		checkpoints.clear(connection);
 
+		long end = System.currentTimeMillis();
+		log.info("Migrating records source: {} target: {} took: {} ms", source.getName(), target.getName(),
+				end - start);
+
+		return ranges.stream().mapToLong(Checkpoint::getRecordsCopied).sum();
+	}
+
+	/**
+	 * Splits the identities of the specified table into key ranges. When multiple copy workers are configured, the
+	 * boundaries between ranges are sampled from the table. Every range ends at (and includes) its end identity, and
+	 * starts after the end identity of the previous range.
+	 */
+	private List<Checkpoint> planRanges(Connection connection, Table source, Map<String, Object> highestId)
+			throws SQLException {
+
+		List<Map<String, Object>> boundaries = Lists.newArrayList();
+		int workers = config.getCopyWorkers();
+		if (workers > 1) {
+			boundaries.addAll(sampleBoundaries(connection, source, highestId, workers));
+		}
+		boundaries.add(highestId);
+
+		List<Checkpoint> ranges = Lists.newArrayList();
+		String startIdentity = null;
+		for (Map<String, Object> boundary : boundaries) {
+			String endIdentity = formatIdentity(source, boundary);
+			ranges.add(new Checkpoint(ranges.size(), startIdentity, endIdentity, null, 0));
+			startIdentity = endIdentity;
+		}
+		return ranges;
+	}
+
+	/**
+	 * Copies the records of each of the key ranges in parallel, each on its own connection.
+	 */
+	private void migrateRanges(BatchCopier.Factory copiers, Table source, Table target, CopyCheckpoints checkpoints,
+			List<Checkpoint> ranges) throws SQLException, InterruptedException {
+
+		log.info("Migrating data in table: {} target: {} in {} parallel ranges", source.getName(), target.getName(),
+				ranges.size());
+
+		ExecutorService executor = Executors.newFixedThreadPool(ranges.size());
+		try {
+			List<Future<Void>> futures = Lists.newArrayList();
+			for (Checkpoint range : ranges) {
+				futures.add(executor.submit(() -> {
+					try (Connection connection = backend.connect()) {
+						migrateRange(connection, copiers, source, target, checkpoints, range);
+					}
+					return null;
+				}));
+			}
+
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof SQLException) {
+						throw (SQLException) cause;
+					}
+					else if (cause instanceof InterruptedException) {
+						throw (InterruptedException) cause;
+					}
+					throw new SQLException("Could not migrate data of table: " + source.getName(), cause);
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Copies all records of the specified key range, starting after the last copied record if the range was already
+	 * partially copied. Every batch is cut off at the end of the range by the database itself, so that records are
+	 * never copied by more than one range. After every batch the checkpoint of the range is updated.
+	 */
+	private void migrateRange(Connection connection, BatchCopier.Factory copiers, Table source, Table target,
+			CopyCheckpoints checkpoints, Checkpoint range) throws SQLException, InterruptedException {
+
+		Map<String, Object> lastProcessedId = Maps.newHashMap();
+		String resumeAfter = Optional.ofNullable(range.getLastIdentity()).orElse(range.getStartIdentity());
+		if (resumeAfter != null) {
+			lastProcessedId.putAll(parseIdentity(source, resumeAfter));
+		}
+
+		Map<String, Object> upperBound = parseIdentity(source, range.getEndIdentity());
+		BatchSizeController controller = new BatchSizeController(config);
+
+		try (BatchCopier copier = copiers.open(connection)) {
 			while (true) {
+				if (Thread.interrupted()) {
+					// The data migration was cancelled, the checkpoint allows it to resume from the last batch.
+					throw new InterruptedException("Migrating records source: " + source.getName() + " target: "
+							+ target.getName() + " was interrupted");
+				}
+
 				long innerStart = System.currentTimeMillis();
+				long batchSize = controller.getBatchSize();
 
-				QueryBuilder migrator = new QueryBuilder();
-				if (lastProcessedId.isEmpty()) {
-					migrator.append("SELECT * FROM " + initialMigrator.getName() + "();");
+				BatchCopier.Batch batch;
+				try (MigrationEvents.Event event = MigrationEvents.copyBatch(source.getName(), target.getName(),
+						batchSize)) {
+					batch = copier.copy(lastProcessedId, upperBound, batchSize);
+					event.setRows(batch.getRecords());
 				}
-				else {
-					List<String> values = successiveMigrator.getParameters().stream()
-							.map(parameterName -> asExpression(lastProcessedId.get(stripEscaping(parameterName))))
-							.collect(Collectors.toList());
 
-					migrator.append("SELECT * FROM " + successiveMigrator.getName() + "(")
-							.append(Joiner.on(", ").join(values) + ");");
+				String identity = batch.getIdentity();
+				if (batch.getRecords() == 0 || identity == null) {
+					// No records returned. We're done migrating data...
+					break;
 				}
 
-				try (Statement statement = connection.createStatement()) {
-					ResultSet resultSet = statement.executeQuery(migrator.toString());
+				lastProcessedId.putAll(parseIdentity(source, identity));
+				range.setLastIdentity(identity);
+				range.setRecordsCopied(range.getRecordsCopied() + batch.getRecords());
+				checkpoints.update(connection, range);
 
-					if (resultSet.next()) {
-						lastProcessedId.putAll(readIdentity(source, resultSet));
-						if (greaterThanOrEqualsTo(lastProcessedId, highestId)) {
-							break;
-						}
-					}
-					else {
-						// No records returned. We're done migrating data...
-						break;
-					}
+				if (batch.getRecords() < batchSize) {
+					// The batch was cut off at the end of the range.
+					break;
 				}
 
 				long innerEnd = System.currentTimeMillis();
-				log.info("Migration data source: {} target: {}, now at identity: {}, took: {} ms", source.getName(),
-						target.getName(), lastProcessedId, innerEnd - innerStart);
+				log.info("Migration data source: {} target: {}, now at identity: {}, batch size: {}, took: {} ms",
+						source.getName(), target.getName(), lastProcessedId, batchSize, innerEnd - innerStart);
 
-				Thread.sleep(WAIT_TIME);
+				controller.record(innerEnd - innerStart, batch.getRecords(), countLockWaits(connection));
+				if (controller.getPause() > 0) {
+					Thread.sleep(controller.getPause());
+				}
 			}
+		}
+	}
 
-			long end = System.currentTimeMillis();
-			log.info("Migrating records source: {} target: {} took: {} ms", source.getName(), target.getName(), end - start);
+	/**
+	 * Determines the boundaries which split the identities of the specified table into (roughly) equally sized key
+	 * ranges, based on a random sample of the table's records. The last range, which ends at the highest identity in
+	 * the table, is not included in the returned boundaries. Tables which are too small to benefit from being copied in
+	 * parallel, produce no boundaries at all. The sample is ordered by the database, so the boundaries follow the same
+	 * ordering of identities as the batches which are copied.
+	 */
+	private List<Map<String, Object>> sampleBoundaries(Connection connection, Table source,
+			Map<String, Object> highestId, int ranges) throws SQLException {
+
+		List<String> identityColumns = source.getIdentityColumns().stream()
+				.map(Column::getName)
+				.collect(Collectors.toList());
 
-			execute(connection, initialMigrator.getDropStatement());
-			execute(connection, successiveMigrator.getDropStatement());
+		long estimatedRecords = estimateRecords(connection, source);
+		if (estimatedRecords < ranges * MINIMUM_RECORDS_PER_RANGE) {
+			return Lists.newArrayList();
 		}
+
+		String highest = identityColumns.stream()
+				.map(column -> asExpression(highestId.get(column)))
+				.collect(Collectors.joining(", ", "ROW(", ")"));
+
+		double percentage = Math.min(100.0, 100.0 * SAMPLE_SIZE / estimatedRecords);
+		String query = new QueryBuilder()
+				.append("SELECT " + Joiner.on(", ").join(identityColumns))
+				.append("FROM " + source.getName())
+				.append("TABLESAMPLE SYSTEM (" + String.format(Locale.ROOT, "%.6f", percentage) + ")")
+				.append("WHERE ROW(" + Joiner.on(", ").join(identityColumns) + ") < " + highest)
+				.append("ORDER BY " + Joiner.on(" ASC, ").join(identityColumns) + " ASC;")
+				.toString();
+
+		List<Map<String, Object>> sample = Lists.newArrayList();
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(query);
+			while (resultSet.next()) {
+				Map<String, Object> id = Maps.newHashMap();
+				for (String identityColumn : identityColumns) {
+					id.put(identityColumn, resultSet.getObject(identityColumn));
+				}
+				sample.add(id);
+			}
+		}
+
+		List<Map<String, Object>> boundaries = Lists.newArrayList();
+		if (sample.size() < ranges) {
+			return boundaries;
+		}
+
+		for (int i = 1; i < ranges; i++) {
+			Map<String, Object> boundary = sample.get(sample.size() * i / ranges);
+			if (boundaries.isEmpty() || !boundaries.get(boundaries.size() - 1).equals(boundary)) {
+				boundaries.add(boundary);
+			}
+		}
+		return boundaries;
 	}
 
-	private String stripEscaping(String parameterName) {
+	private long estimateRecords(Connection connection, Table table) throws SQLException {
+		String query = "SELECT reltuples::bigint FROM pg_class WHERE oid = '" + table.getName() + "'::regclass;";
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(query);
+			if (resultSet.next()) {
+				return resultSet.getLong(1);
+			}
+			return 0;
+		}
+	}
+
+	private static String stripEscaping(String parameterName) {
 		if (parameterName.startsWith("\"") && parameterName.endsWith("\"")) {
 			return parameterName.substring(1, parameterName.length() - 1);
 		}
 		return parameterName;
 	}
 
+	/**
+	 * Counts the number of other sessions on this database which are waiting to acquire a lock. This is used as a
+	 * signal that copying data is interfering with other database clients.
+	 */
+	private long countLockWaits(Connection connection) {
+		if (!lockWaitsSupported) {
+			return 0;
+		}
+
+		String query = new QueryBuilder()
+				.append("SELECT COUNT(*) FROM pg_stat_activity")
+				.append("WHERE datname = current_database()")
+				.append("AND wait_event_type = 'Lock'")
+				.append("AND pid <> pg_backend_pid();")
+				.toString();
+
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(query);
+			if (resultSet.next()) {
+				return resultSet.getLong(1);
+			}
+			return 0;
+		}
+		catch (SQLException e) {
+			log.warn("Could not determine lock waits, only batch latency will be used to pace data migration.", e);
+			lockWaitsSupported = false;
+			return 0;
+		}
+	}
+
 	private Map<String, Object> queryHighestId(Table from) throws SQLException {
 		List<String> identityColumns = from.getIdentityColumns().stream()
 				.map(Column::getName)
@@ -147,69 +419,53 @@ class TableDataMigrator {
 		}
 	}
 
-	private boolean greaterThanOrEqualsTo(Map<String, Object> cursor, Map<String, Object> limit) {
-		for (String key : cursor.keySet()) {
-			Object left = cursor.get(key);
-			Object right = limit.get(key);
-
-			if (left == null || right == null) {
-				throw new IllegalStateException("NULL values in identity columns are currently not supported.");
-			}
-
-			if (!(left instanceof Comparable)) {
-				left = left.toString();
-			}
-
-			if (!(right instanceof Comparable)) {
-				right = right.toString();
-			}
-
-			if (left instanceof UUID) {
-				left = left.toString().toLowerCase();
-			}
-
-			if (right instanceof UUID) {
-				right = right.toString().toLowerCase();
-			}
-
-			Comparable leftComparable = (Comparable) left;
-			Comparable rightComparable = (Comparable) right;
-
-			int compareTo = leftComparable.compareTo(rightComparable);
-			if (compareTo < 0) {
-				return false;
-			}
-		}
-		return true;
+	/**
+	 * Formats an identity the same way PostgreSQL formats a record, which is how the copy engines report the identity
+	 * of the last processed record.
+	 */
+	private String formatIdentity(Table table, Map<String, Object> identity) {
+		return table.getIdentityColumns().stream()
+				.map(column -> {
+					String value = String.valueOf(identity.get(column.getName()));
+					if (value.isEmpty() || QUOTED_CHARACTERS.matchesAnyOf(value)) {
+						return "\"" + value.replace("\\", "\\\\").replace("\"", "\"\"") + "\"";
+					}
+					return value;
+				})
+				.collect(Collectors.joining(",", "(", ")"));
 	}
 
-	private Map<String, Object> readIdentity(Table from, ResultSet resultSet) throws SQLException {
-		String result = resultSet.getString(1);
-		result = result.substring(1, result.length() - 1);
+	/**
+	 * Parses an identity which is formatted as a PostgreSQL record. Quoted values may contain escaped quotes (either
+	 * doubled, or preceded by a backslash) and escaped backslashes.
+	 */
+	private Map<String, Object> parseIdentity(Table from, String record) {
+		String result = record.substring(1, record.length() - 1);
 
 		List<String> parts = Lists.newArrayList();
 		StringBuilder currentPart = new StringBuilder();
 
 		boolean quoted = false;
-		char prev = ' ';
 		for (int i = 0; i < result.length(); i++) {
 			char c = result.charAt(i);
-			if (c == ',' && !quoted) {
-				parts.add(currentPart.toString());
-				currentPart = new StringBuilder();
+			if (quoted && c == '\\' && i + 1 < result.length()) {
+				currentPart.append(result.charAt(++i));
+			}
+			else if (quoted && c == '"' && i + 1 < result.length() && result.charAt(i + 1) == '"') {
+				currentPart.append(result.charAt(++i));
 			}
-			else if (c == '"' && prev != '\\') {
+			else if (c == '"') {
 				quoted = !quoted;
 			}
+			else if (c == ',' && !quoted) {
+				parts.add(currentPart.toString());
+				currentPart = new StringBuilder();
+			}
 			else {
 				currentPart.append(c);
 			}
-			prev = c;
-		}
-
-		if (currentPart.length() > 0) {
-			parts.add(currentPart.toString());
 		}
+		parts.add(currentPart.toString());
 
 		Map<String, Object> identity = Maps.newHashMap();
 		List<Column> identityColumns = from.getIdentityColumns();
@@ -253,18 +509,95 @@ class TableDataMigrator {
 		}
 	}
 
-	private void execute(Connection connection, String query) throws SQLException {
+	private static void dropQuietly(Connection connection, MigratorFunction migrator) {
+		try {
+			execute(connection, migrator.getDropStatement());
+		}
+		catch (SQLException e) {
+			log.warn("Could not drop migrator function: " + migrator.getName(), e);
+		}
+	}
+
+	private static void execute(Connection connection, String query) throws SQLException {
 		try (Statement statement = connection.createStatement()) {
 			log.debug("Executing: " + query);
 			statement.execute(query);
 		}
 	}
 
-	private String asExpression(Object value) {
+	static String asExpression(Object value) {
 		if (value instanceof Number) {
 			return value.toString();
 		}
-		return "'" + value + "'";
+		return "'" + String.valueOf(value).replace("'", "''") + "'";
+	}
+
+	/**
+	 * Copies batches of records by invoking the migrator functions, which copy the records inside the database. The
+	 * migrator functions are temporary functions, which are created on the connection of every key range.
+	 */
+	private static class FunctionCopier implements BatchCopier {
+
+		static FunctionCopier open(Connection connection, MigratorFunction initialMigrator,
+				MigratorFunction successiveMigrator) throws SQLException {
+
+			execute(connection, initialMigrator.getCreateStatement());
+			try {
+				execute(connection, successiveMigrator.getCreateStatement());
+			}
+			catch (SQLException e) {
+				dropQuietly(connection, initialMigrator);
+				throw e;
+			}
+			return new FunctionCopier(connection, initialMigrator, successiveMigrator);
+		}
+
+		private final Connection connection;
+		private final MigratorFunction initialMigrator;
+		private final MigratorFunction successiveMigrator;
+
+		private FunctionCopier(Connection connection, MigratorFunction initialMigrator,
+				MigratorFunction successiveMigrator) {
+
+			this.connection = connection;
+			this.initialMigrator = initialMigrator;
+			this.successiveMigrator = successiveMigrator;
+		}
+
+		@Override
+		public Batch copy(Map<String, Object> lastProcessedId, Map<String, Object> upperBound, long batchSize)
+				throws SQLException {
+
+			List<String> arguments = Lists.newArrayList();
+			MigratorFunction migrator = initialMigrator;
+			if (!lastProcessedId.isEmpty()) {
+				migrator = successiveMigrator;
+				arguments.addAll(asArguments(lastProcessedId));
+			}
+			arguments.addAll(asArguments(upperBound));
+			arguments.add(Long.toString(batchSize));
+
+			String query = "SELECT * FROM " + migrator.getName() + "(" + Joiner.on(", ").join(arguments) + ");";
+			try (Statement statement = connection.createStatement()) {
+				ResultSet resultSet = statement.executeQuery(query);
+				if (!resultSet.next()) {
+					return new Batch(null, 0);
+				}
+				return new Batch(resultSet.getString(1), resultSet.getLong(2));
+			}
+		}
+
+		private List<String> asArguments(Map<String, Object> identity) {
+			return successiveMigrator.getParameters().stream()
+					.map(parameterName -> asExpression(identity.get(stripEscaping(parameterName))))
+					.collect(Collectors.toList());
+		}
+
+		@Override
+		public void close() {
+			dropQuietly(connection, initialMigrator);
+			dropQuietly(connection, successiveMigrator);
+		}
 	}
 
 }
@@ -0,0 +1,42 @@
+package io.quantumdb.core.planner;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+import io.quantumdb.core.backends.planner.TableStatistics;
+import io.quantumdb.core.utils.QueryBuilder;
+
+/**
+ * Loads the estimated number of records and pages of every table in the current schema from pg_class, together with
+ * their size on disk. Tables which have never been analyzed report no records, in which case their size on disk is
+ * used for the number of pages.
+ */
+class TableStatisticsLoader {
+
+	private static final String STATISTICS_QUERY = new QueryBuilder()
+			.append("SELECT c.relname AS table_name, GREATEST(c.reltuples, 0)::bigint AS tuples,")
+			.append("  GREATEST(c.relpages, pg_relation_size(c.oid) / current_setting('block_size')::int) AS pages,")
+			.append("  pg_total_relation_size(c.oid) AS bytes")
+			.append("FROM pg_class c")
+			.append("JOIN pg_namespace n ON n.oid = c.relnamespace")
+			.append("WHERE n.nspname = current_schema() AND c.relkind = 'r';")
+			.toString();
+
+	static Map<String, TableStatistics> load(Connection connection) throws SQLException {
+		Map<String, TableStatistics> statistics = Maps.newHashMap();
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(STATISTICS_QUERY);
+			while (resultSet.next()) {
+				statistics.put(resultSet.getString("table_name"),
+						new TableStatistics(resultSet.getLong("tuples"), resultSet.getLong("pages"),
+								resultSet.getLong("bytes")));
+			}
+		}
+		return statistics;
+	}
+
+}
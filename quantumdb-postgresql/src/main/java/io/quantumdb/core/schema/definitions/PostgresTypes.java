@@ -43,6 +43,7 @@ public class PostgresTypes {
 			case "varchar":
 			case "character varying":
 				return PostgresTypes.varchar(length);
+			case "char":
 			case "character":
 				return PostgresTypes.chars(length);
 			case "text":
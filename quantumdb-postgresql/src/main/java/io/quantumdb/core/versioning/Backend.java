@@ -1,22 +1,25 @@
 package io.quantumdb.core.versioning;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
-import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Date;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.HashBasedTable;
@@ -28,6 +31,7 @@ import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Table;
 import com.google.common.collect.Table.Cell;
+import com.google.common.collect.Tables;
 import com.google.common.primitives.Ints;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -38,7 +42,6 @@ import io.quantumdb.core.schema.definitions.Catalog;
 import io.quantumdb.core.schema.definitions.ColumnType;
 import io.quantumdb.core.schema.definitions.PostgresTypes;
 import io.quantumdb.core.schema.operations.Operation;
-import io.quantumdb.core.utils.RandomHasher;
 import io.quantumdb.core.versioning.RefLog.ColumnRef;
 import io.quantumdb.core.versioning.RefLog.SyncRef;
 import io.quantumdb.core.versioning.RefLog.TableRef;
@@ -48,18 +51,6 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class Backend {
 
-	@Data
-	private static class RefId {
-		private final String refId;
-	}
-
-	@Data
-	private static class TableColumn {
-		private final long id;
-		private final RefId refId;
-		private final String column;
-	}
-
 	@Data
 	private static class RawTableColumn {
 		private final long id;
@@ -80,13 +71,6 @@ public class Backend {
 		private final RawColumn target;
 	}
 
-	@Data
-	private static class TableColumnMapping {
-		private final long id;
-		private final TableColumn source;
-		private final TableColumn target;
-	}
-
 	@Data
 	private static class RawChangelogEntry {
 		private final String versionId;
@@ -95,13 +79,9 @@ public class Backend {
 		private final String parentVersionId;
 	}
 
-	@Data
-	private static class RawChangeSet {
-		private final String id;
-		private final String versionId;
-		private final String description;
-		private final String author;
-		private final Date created;
+	@FunctionalInterface
+	private interface ParameterSetter<T> {
+		void setParameters(PreparedStatement statement, T value) throws SQLException;
 	}
 
 	private final Gson gson;
@@ -135,59 +115,7 @@ public class Backend {
 	}
 
 	public State load(Connection connection, Catalog catalog) throws SQLException {
-		Changelog changelog = loadChangelog(connection);
-		Map<String, RefId> refIds = listRefIds(connection);
-		Table<RefId, Version, String> tableVersions = listTableVersions(connection, refIds, changelog);
-		List<TableColumn> tableColumns = listTableColumns(connection, refIds);
-		List<TableColumnMapping> columnMappings = listTableColumnMappings(connection, tableColumns);
-
-		Multimap<RefId, TableColumn> columnsPerTable = LinkedHashMultimap.create();
-		tableColumns.forEach(column -> columnsPerTable.put(column.getRefId(), column));
-
-		Map<TableColumn, ColumnRef> columnCache = Maps.newLinkedHashMap();
-
-		RefLog refLog = new RefLog();
-		List<Version> toDo = Lists.newLinkedList();
-		toDo.add(changelog.getRoot());
-
-		while (!toDo.isEmpty()) {
-			Version version = toDo.remove(0);
-			for (Entry<RefId, String> entry : tableVersions.column(version).entrySet()) {
-				TableRef tableRef = refLog.getTableRefs(version).stream()
-						.filter(ref -> ref.getName().equals(entry.getValue()) && ref.getRefId().equals(entry.getKey().getRefId()))
-						.findFirst()
-						.orElse(null);
-
-				if (tableRef != null) {
-					tableRef.markAsPresent(version);
-				}
-				else {
-					Map<TableColumn, ColumnRef> columnRefs = columnsPerTable.get(entry.getKey()).stream()
-							.collect(Collectors.toMap(Function.identity(), column -> {
-								List<ColumnRef> basedOn = columnMappings.stream()
-										.filter(mapping -> mapping.getTarget().equals(column))
-										.map(TableColumnMapping::getSource)
-										.map(columnCache::get)
-										.filter(ref -> ref != null)
-										.collect(Collectors.toList());
-
-								return new ColumnRef(column.getColumn(), basedOn);
-							}, (l, r) -> l, LinkedHashMap::new));
-
-					columnCache.putAll(columnRefs);
-					refLog.addTable(entry.getValue(), entry.getKey().getRefId(), version, columnRefs.values());
-				}
-			}
-
-			if (version.getChild() != null) {
-				toDo.add(version.getChild());
-			}
-		}
-
-		addSynchronizers(connection, refLog, columnMappings);
-		setActiveVersions(connection, changelog, refLog);
-
-		return new State(catalog, refLog, changelog);
+		return new StateLoader(gson).load(connection, catalog);
 	}
 
 	public void persist(Connection connection, State state) throws SQLException {
@@ -203,104 +131,93 @@ public class Backend {
 		persistActiveVersions(connection, refLog);
 	}
 
+	/**
+	 * Writes the specified State as a compact binary snapshot, which can be restored using readSnapshot().
+	 */
+	public void writeSnapshot(OutputStream output, State state) throws IOException {
+		DataOutputStream dataOutput = new DataOutputStream(output);
+		new StateSnapshot(gson).write(dataOutput, state);
+		dataOutput.flush();
+	}
+
+	/**
+	 * Restores a State from a snapshot which was written using writeSnapshot().
+	 */
+	public State readSnapshot(InputStream input) throws IOException {
+		return new StateSnapshot(gson).read(new DataInputStream(input));
+	}
+
 	private void persistChangelog(Connection connection, Changelog changelog) throws SQLException {
 		persistChangelogEntries(connection, changelog);
 		persistChangesets(connection, changelog);
 	}
 
 	private void persistChangelogEntries(Connection connection, Changelog changelog) throws SQLException {
-		Map<String, Version> mapping = Maps.newLinkedHashMap();
+		Operations operations = new Operations();
+		Map<String, RawChangelogEntry> mapping = Maps.newLinkedHashMap();
 		List<Version> versions = Lists.newLinkedList();
 		versions.add(changelog.getRoot());
 
 		while (!versions.isEmpty()) {
 			Version version = versions.remove(0);
-			mapping.put(version.getId(), version);
+			Operation operation = version.getOperation();
+
+			String operationType = null;
+			String operationJson = null;
+			if (operation != null) {
+				operationType = operations.getOperationType(operation.getClass()).orElseThrow(
+						() -> new IllegalArgumentException("There's no such operation as: " + operation.getClass()));
+				operationJson = gson.toJson(operation);
+			}
+
+			String parentVersionId = version.getParent() != null ? version.getParent().getId() : null;
+			mapping.put(version.getId(), new RawChangelogEntry(version.getId(), operationType, operationJson, parentVersionId));
+
 			if (version.getChild() != null) {
 				versions.add(version.getChild());
 			}
 		}
 
-		Operations operations = new Operations();
-
+		List<RawChangelogEntry> updates = Lists.newArrayList();
+		List<String> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.changelog;";
-			String deleteQuery = "DELETE FROM quantumdb.changelog WHERE version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.changelog (version_id, operation_type, operation, parent_version_id) VALUES (?, ?, ?, ?);";
-			String updateQuery = "UPDATE quantumdb.changelog SET operation_type = ?, operation = ?, parent_version_id = ? WHERE version_id = ?;";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.changelog;");
 			while (resultSet.next()) {
 				String versionId = resultSet.getString("version_id");
-				Version version = mapping.remove(versionId);
-				if (version != null) {
-					try (PreparedStatement update = connection.prepareStatement(updateQuery)) {
-						Operation operation = version.getOperation();
-
-						if (operation != null) {
-							update.setString(1, operations.getOperationType(operation.getClass()).orElseThrow(
-									() -> new IllegalArgumentException("There's no such operation as: " + operation.getClass())));
-
-							update.setString(2, gson.toJson(operation));
-						}
-						else {
-							update.setString(1, null);
-							update.setString(2, null);
-						}
-
-						if (version.getParent() == null) {
-							update.setString(3, null);
-						}
-						else {
-							update.setString(3, version.getParent().getId());
-						}
-						update.setString(4, versionId);
-
-						update.execute();
-						log.debug("Updated entry for changelog id: {}", versionId);
-					}
+				RawChangelogEntry entry = mapping.remove(versionId);
+				if (entry == null) {
+					deletes.add(versionId);
 				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, versionId);
-						delete.execute();
-						log.debug("Deleted entry for changelog id: {}", versionId);
-					}
+				else if (!entry.equals(new RawChangelogEntry(versionId, resultSet.getString("operation_type"),
+						resultSet.getString("operation"), resultSet.getString("parent_version_id")))) {
+					updates.add(entry);
 				}
 			}
+		}
 
-			if (!mapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Entry<String, Version> entry : mapping.entrySet()) {
-					Version version = entry.getValue();
-					Operation operation = version.getOperation();
-
-					insert.setString(1, entry.getKey());
-
-					if (operation != null) {
-						insert.setString(2, operations.getOperationType(operation.getClass()).orElseThrow(
-								() -> new IllegalArgumentException("There's no such operation as: " + operation.getClass())));
-
-						insert.setString(3, gson.toJson(operation));
-					}
-					else {
-						insert.setString(2, null);
-						insert.setString(3, null);
-					}
+		// New versions are inserted parents first, and existing versions are moved to their new parents before
+		// removed versions are deleted, since deleting a version cascades to its children.
+		String insertQuery = "INSERT INTO quantumdb.changelog (version_id, operation_type, operation, parent_version_id) VALUES (?, ?, ?, ?);";
+		executeBatch(connection, insertQuery, mapping.values(), (insert, entry) -> {
+			insert.setString(1, entry.getVersionId());
+			insert.setString(2, entry.getOperationType());
+			insert.setString(3, entry.getOperation());
+			insert.setString(4, entry.getParentVersionId());
+		});
 
-					String versionId = null;
-					if (version.getParent() != null) {
-						versionId = version.getParent().getId();
-					}
+		String updateQuery = "UPDATE quantumdb.changelog SET operation_type = ?, operation = ?, parent_version_id = ? WHERE version_id = ?;";
+		executeBatch(connection, updateQuery, updates, (update, entry) -> {
+			update.setString(1, entry.getOperationType());
+			update.setString(2, entry.getOperation());
+			update.setString(3, entry.getParentVersionId());
+			update.setString(4, entry.getVersionId());
+		});
 
-					insert.setString(4, versionId);
-					insert.execute();
-					log.debug("Inserted new entry for changelog id: {}", versionId);
-				}
-			}
+		String deleteQuery = "DELETE FROM quantumdb.changelog WHERE version_id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, versionId) -> delete.setString(1, versionId));
 
-			resultSet.close();
-		}
+		log.debug("Persisted changelog: {} inserted, {} updated, {} deleted", mapping.size(), updates.size(),
+				deletes.size());
 	}
 
 	private void persistChangesets(Connection connection, Changelog changelog) throws SQLException {
@@ -325,62 +242,52 @@ public class Backend {
 			}
 		}
 
+		Map<String, ChangeSet> updates = Maps.newLinkedHashMap();
+		List<String> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.changesets;";
-			String deleteQuery = "DELETE FROM quantumdb.changesets WHERE version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.changesets (id, version_id, author, description, created) VALUES (?, ?, ?, ?, ?);";
-			String updateQuery = "UPDATE quantumdb.changesets SET author = ?, description = ?, created = ? WHERE version_id = ?;";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.changesets;");
 			while (resultSet.next()) {
 				String versionId = resultSet.getString("version_id");
 				ChangeSet changeSet = mapping.remove(versionId);
-				if (changeSet != null) {
-					try (PreparedStatement update = connection.prepareStatement(updateQuery)) {
-						update.setString(1, changeSet.getAuthor());
-						update.setString(2, changeSet.getDescription());
-						update.setTimestamp(3, new Timestamp(changeSet.getCreated().getTime()));
-						update.setString(4, versionId);
-						update.execute();
-						log.debug("Updated entry for changeset id: {}", versionId);
-					}
+				if (changeSet == null) {
+					deletes.add(versionId);
 				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, versionId);
-						delete.execute();
-						log.debug("Deleted entry for changeset id: {}", versionId);
-					}
+				else if (!Objects.equals(changeSet.getAuthor(), resultSet.getString("author"))
+						|| !Objects.equals(changeSet.getDescription(), resultSet.getString("description"))
+						|| changeSet.getCreated().getTime() != resultSet.getTimestamp("created").getTime()) {
+					updates.put(versionId, changeSet);
 				}
 			}
+		}
 
-			if (!mapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Entry<String, ChangeSet> entry : mapping.entrySet()) {
-					String versionId = entry.getKey();
-					ChangeSet changeSet = entry.getValue();
-
-					if (changeSet != null) {
-						insert.setString(1, changeSet.getId());
-						insert.setString(2, versionId);
-						insert.setString(3, changeSet.getAuthor());
-						insert.setString(4, changeSet.getDescription());
-						insert.setTimestamp(5, new Timestamp(changeSet.getCreated().getTime()));
-					}
-					else {
-						insert.setString(1, versionId);
-						insert.setString(2, "");
-						insert.setString(3, "");
-						insert.setTimestamp(4, Timestamp.from(Instant.now()));
-						throw new IllegalArgumentException("This would be weird!");
-					}
-					insert.execute();
-					log.debug("Inserted new entry for changeset id: {}", versionId);
-				}
-			}
+		mapping.forEach((versionId, changeSet) -> checkArgument(changeSet != null,
+				"Version: " + versionId + " has no changeset."));
 
-			resultSet.close();
-		}
+		// Changesets which moved to a different version are deleted before being inserted again.
+		String deleteQuery = "DELETE FROM quantumdb.changesets WHERE version_id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, versionId) -> delete.setString(1, versionId));
+
+		String updateQuery = "UPDATE quantumdb.changesets SET author = ?, description = ?, created = ? WHERE version_id = ?;";
+		executeBatch(connection, updateQuery, updates.entrySet(), (update, entry) -> {
+			ChangeSet changeSet = entry.getValue();
+			update.setString(1, changeSet.getAuthor());
+			update.setString(2, changeSet.getDescription());
+			update.setTimestamp(3, new Timestamp(changeSet.getCreated().getTime()));
+			update.setString(4, entry.getKey());
+		});
+
+		String insertQuery = "INSERT INTO quantumdb.changesets (id, version_id, author, description, created) VALUES (?, ?, ?, ?, ?);";
+		executeBatch(connection, insertQuery, mapping.entrySet(), (insert, entry) -> {
+			ChangeSet changeSet = entry.getValue();
+			insert.setString(1, changeSet.getId());
+			insert.setString(2, entry.getKey());
+			insert.setString(3, changeSet.getAuthor());
+			insert.setString(4, changeSet.getDescription());
+			insert.setTimestamp(5, new Timestamp(changeSet.getCreated().getTime()));
+		});
+
+		log.debug("Persisted changesets: {} inserted, {} updated, {} deleted", mapping.size(), updates.size(),
+				deletes.size());
 	}
 
 	private void persistRefs(Connection connection, RefLog refLog) throws SQLException {
@@ -388,67 +295,24 @@ public class Backend {
 		refLog.getTableRefs().forEach(ref -> refIds.add(ref.getRefId()));
 		refLog.getViewRefs().forEach(ref -> refIds.add(ref.getRefId()));
 
+		List<String> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.refs ORDER BY ref_id ASC;";
-			String deleteQuery = "DELETE FROM quantumdb.refs WHERE ref_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.refs (ref_id) VALUES (?);";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.refs ORDER BY ref_id ASC;");
 			while (resultSet.next()) {
 				String refId = resultSet.getString("ref_id");
 				if (!refIds.remove(refId)) {
-					try (Statement stmt = connection.createStatement()) {
-						ResultSet r = stmt.executeQuery("SELECT * FROM quantumdb.column_mappings");
-						printResults(r);
-					}
-
-					try (Statement stmt = connection.createStatement()) {
-						ResultSet r = stmt.executeQuery("SELECT * FROM quantumdb.table_columns");
-						printResults(r);
-					}
-
-					try (Statement stmt = connection.createStatement()) {
-						ResultSet r = stmt.executeQuery("SELECT * FROM quantumdb.refs");
-						printResults(r);
-					}
-
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, refId);
-						delete.execute();
-						log.debug("Deleted entry for ref id: {}", refId);
-					}
+					deletes.add(refId);
 				}
 			}
+		}
 
-			if (!refIds.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (String refId : refIds) {
-					insert.setString(1, refId);
-					insert.execute();
-					log.debug("Inserted new entry for ref id: {}", refId);
-				}
-			}
+		String deleteQuery = "DELETE FROM quantumdb.refs WHERE ref_id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, refId) -> delete.setString(1, refId));
 
-			resultSet.close();
-		}
-	}
+		String insertQuery = "INSERT INTO quantumdb.refs (ref_id) VALUES (?);";
+		executeBatch(connection, insertQuery, refIds, (insert, refId) -> insert.setString(1, refId));
 
-	private void printResults(ResultSet r) throws SQLException {
-		ResultSetMetaData metaData = r.getMetaData();
-		while (r.next()) {
-			StringBuilder builder = new StringBuilder();
-			builder.append("[" + metaData.getTableName(1) + "] ");
-			for (int i = 0; i < metaData.getColumnCount(); i++) {
-				builder.append(metaData.getColumnName(i + 1));
-				builder.append("=");
-				builder.append(r.getObject(i + 1));
-
-				if (i < metaData.getColumnCount() - 1) {
-					builder.append(", ");
-				}
-			}
-			System.out.println(builder.toString());
-		}
+		log.debug("Persisted refs: {} inserted, {} deleted", refIds.size(), deletes.size());
 	}
 
 	private void persistRefVersions(Connection connection, RefLog refLog) throws SQLException {
@@ -473,57 +337,47 @@ public class Backend {
 			versionIds.forEach(versionId -> mapping.put(refId, versionId, viewName));
 		});
 
+		List<Cell<String, String, String>> updates = Lists.newArrayList();
+		List<Cell<String, String, String>> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.ref_versions ORDER BY ref_id ASC;";
-			String deleteQuery = "DELETE FROM quantumdb.ref_versions WHERE ref_id = ? AND version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.ref_versions (ref_id, version_id, table_name) VALUES (?, ?, ?);";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.ref_versions ORDER BY ref_id ASC;");
 			while (resultSet.next()) {
 				String refId = resultSet.getString("ref_id");
 				String versionId = resultSet.getString("version_id");
+				String tableName = resultSet.getString("table_name");
 
-				if (mapping.containsRow(refId)) {
-					Map<String, String> internalMapping = mapping.row(refId);
-					if (!internalMapping.containsKey(versionId)) {
-						try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-							delete.setString(1, refId);
-							delete.setString(2, versionId);
-							delete.execute();
-							log.debug("Deleted entry for ref_versions id: {} / {}", refId, versionId);
-						}
-					}
-					else {
-						mapping.remove(refId, versionId);
-					}
+				String expectedTableName = mapping.remove(refId, versionId);
+				if (expectedTableName == null) {
+					deletes.add(Tables.immutableCell(refId, versionId, tableName));
 				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, refId);
-						delete.setString(2, versionId);
-						delete.execute();
-						log.debug("Deleted entry for ref_versions id: {} / {}", refId, versionId);
-					}
+				else if (!expectedTableName.equals(tableName)) {
+					updates.add(Tables.immutableCell(refId, versionId, expectedTableName));
 				}
 			}
+		}
 
-			if (!mapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Cell<String, String, String> entry : mapping.cellSet()) {
-					String refId = entry.getRowKey();
-					String versionId = entry.getColumnKey();
+		String deleteQuery = "DELETE FROM quantumdb.ref_versions WHERE ref_id = ? AND version_id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, cell) -> {
+			delete.setString(1, cell.getRowKey());
+			delete.setString(2, cell.getColumnKey());
+		});
 
-					insert.setString(1, refId);
-					insert.setString(2, versionId);
-					insert.setString(3, entry.getValue());
-					insert.execute();
+		String updateQuery = "UPDATE quantumdb.ref_versions SET table_name = ? WHERE ref_id = ? AND version_id = ?;";
+		executeBatch(connection, updateQuery, updates, (update, cell) -> {
+			update.setString(1, cell.getValue());
+			update.setString(2, cell.getRowKey());
+			update.setString(3, cell.getColumnKey());
+		});
 
-					log.debug("Inserted new entry for ref_versions id: {} / {}", refId, versionId);
-				}
-			}
+		String insertQuery = "INSERT INTO quantumdb.ref_versions (ref_id, version_id, table_name) VALUES (?, ?, ?);";
+		executeBatch(connection, insertQuery, mapping.cellSet(), (insert, cell) -> {
+			insert.setString(1, cell.getRowKey());
+			insert.setString(2, cell.getColumnKey());
+			insert.setString(3, cell.getValue());
+		});
 
-			resultSet.close();
-		}
+		log.debug("Persisted ref_versions: {} inserted, {} updated, {} deleted", mapping.size(), updates.size(),
+				deletes.size());
 	}
 
 	private Collection<RawTableColumn> persistTableColumns(Connection connection, RefLog refLog) throws SQLException {
@@ -532,59 +386,41 @@ public class Backend {
 				.forEach(tableRef -> columnMapping.putAll(tableRef.getRefId(), tableRef.getColumns().keySet()));
 
 		List<RawTableColumn> columns = Lists.newArrayList();
+		List<Long> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.table_columns ORDER BY id ASC;";
-			String deleteQuery = "DELETE FROM quantumdb.table_columns WHERE id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.table_columns (ref_id, column_name) VALUES (?, ?) RETURNING id;";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.table_columns ORDER BY id ASC;");
 			while (resultSet.next()) {
-				Long id = resultSet.getLong("id");
+				long id = resultSet.getLong("id");
 				String refId = resultSet.getString("ref_id");
-				if (columnMapping.containsKey(refId)) {
-					Collection<String> columnNames = columnMapping.get(refId);
-					String columnName = resultSet.getString("column_name");
-					if (!columnNames.contains(columnName)) {
-						try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-							delete.setLong(1, id);
-							delete.execute();
-							log.debug("Deleted entry for table_columns id: {} - {} / {}", id, refId, columnName);
-						}
-					}
-					else {
-						columnMapping.remove(refId, columnName);
-						columns.add(new RawTableColumn(id, refId, columnName));
-					}
+				String columnName = resultSet.getString("column_name");
+
+				if (columnMapping.remove(refId, columnName)) {
+					columns.add(new RawTableColumn(id, refId, columnName));
 				}
 				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, id);
-						delete.execute();
-						log.debug("Deleted entry for table_columns id: {}", id);
-					}
+					deletes.add(id);
 				}
 			}
+		}
 
-			if (!columnMapping.isEmpty()) {
-				try (PreparedStatement insert = connection.prepareStatement(insertQuery)) {
-					for (Entry<String, String> entry : columnMapping.entries()) {
-						String refId = entry.getKey();
-						String columnName = entry.getValue();
+		String deleteQuery = "DELETE FROM quantumdb.table_columns WHERE id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, id) -> delete.setLong(1, id));
 
-						insert.setString(1, refId);
-						insert.setString(2, columnName);
-						ResultSet generatedKeys = insert.executeQuery();
-						generatedKeys.next();
+		List<Long> ids = nextIds(connection, "quantumdb.table_columns_id", columnMapping.size());
+		List<RawTableColumn> inserts = Lists.newArrayList();
+		for (Entry<String, String> entry : columnMapping.entries()) {
+			inserts.add(new RawTableColumn(ids.get(inserts.size()), entry.getKey(), entry.getValue()));
+		}
 
-						long id = generatedKeys.getLong("id");
-						columns.add(new RawTableColumn(id, refId, columnName));
-						log.debug("Inserted new entry for table_columns id: {} - {} / {}", id, refId, columnName);
-					}
-				}
-			}
+		String insertQuery = "INSERT INTO quantumdb.table_columns (id, ref_id, column_name) VALUES (?, ?, ?);";
+		executeBatch(connection, insertQuery, inserts, (insert, column) -> {
+			insert.setLong(1, column.getId());
+			insert.setString(2, column.getTable());
+			insert.setString(3, column.getColumn());
+		});
 
-			resultSet.close();
-		}
+		columns.addAll(inserts);
+		log.debug("Persisted table_columns: {} inserted, {} deleted", inserts.size(), deletes.size());
 		return columns;
 	}
 
@@ -595,7 +431,7 @@ public class Backend {
 		Map<RawColumn, Long> reverseIndex = columns.stream()
 				.collect(Collectors.toMap(column -> new RawColumn(column.getTable(), column.getColumn()), RawTableColumn::getId));
 
-		Multimap<RawColumn, RawColumn> columnMapping = HashMultimap.create();
+		Multimap<RawColumn, RawColumn> columnMapping = LinkedHashMultimap.create();
 		for (TableRef tableRef : refLog.getTableRefs()) {
 			String refId = tableRef.getRefId();
 			for (ColumnRef columnRef : tableRef.getColumns().values()) {
@@ -614,53 +450,41 @@ public class Backend {
 		}
 
 		Map<Long, RawColumnMapping> results = Maps.newHashMap();
+		List<Long> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.column_mappings;";
-			String deleteQuery = "DELETE FROM quantumdb.column_mappings WHERE id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.column_mappings (source_column_id, target_column_id) VALUES (?, ?) RETURNING id;";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.column_mappings;");
 			while (resultSet.next()) {
 				long id = resultSet.getLong("id");
-				long sourceId = resultSet.getLong("source_column_id");
-				long targetId = resultSet.getLong("target_column_id");
-
-				RawColumn source = index.get(sourceId);
-				RawColumn target = index.get(targetId);
+				RawColumn source = index.get(resultSet.getLong("source_column_id"));
+				RawColumn target = index.get(resultSet.getLong("target_column_id"));
 
-				if (columnMapping.containsEntry(source, target)) {
-					columnMapping.remove(source, target);
+				if (columnMapping.remove(source, target)) {
 					results.put(id, new RawColumnMapping(id, source, target));
 				}
 				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, id);
-						delete.execute();
-						log.debug("Deleted entry for column_mappings id: {}", id);
-					}
+					deletes.add(id);
 				}
 			}
+		}
 
-			if (!columnMapping.isEmpty()) {
-				try (PreparedStatement insert = connection.prepareStatement(insertQuery)) {
-					for (Entry<RawColumn, RawColumn> entry : columnMapping.entries()) {
-						long sourceId = reverseIndex.get(entry.getKey());
-						long targetId = reverseIndex.get(entry.getValue());
-
-						insert.setLong(1, sourceId);
-						insert.setLong(2, targetId);
-						ResultSet generatedKeys = insert.executeQuery();
-						generatedKeys.next();
+		String deleteQuery = "DELETE FROM quantumdb.column_mappings WHERE id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, id) -> delete.setLong(1, id));
 
-						long id = generatedKeys.getLong("id");
-						results.put(id, new RawColumnMapping(id, entry.getKey(), entry.getValue()));
-						log.debug("Inserted new entry for column_mappings id: {} - {} / {}", id, sourceId, targetId);
-					}
-				}
-			}
-			resultSet.close();
+		List<Long> ids = nextIds(connection, "quantumdb.column_mappings_id", columnMapping.size());
+		List<RawColumnMapping> inserts = Lists.newArrayList();
+		for (Entry<RawColumn, RawColumn> entry : columnMapping.entries()) {
+			inserts.add(new RawColumnMapping(ids.get(inserts.size()), entry.getKey(), entry.getValue()));
 		}
 
+		String insertQuery = "INSERT INTO quantumdb.column_mappings (id, source_column_id, target_column_id) VALUES (?, ?, ?);";
+		executeBatch(connection, insertQuery, inserts, (insert, mapping) -> {
+			insert.setLong(1, mapping.getId());
+			insert.setLong(2, reverseIndex.get(mapping.getSource()));
+			insert.setLong(3, reverseIndex.get(mapping.getTarget()));
+		});
+
+		inserts.forEach(mapping -> results.put(mapping.getId(), mapping));
+		log.debug("Persisted column_mappings: {} inserted, {} deleted", inserts.size(), deletes.size());
 		return results;
 	}
 
@@ -675,61 +499,57 @@ public class Backend {
 		}
 
 		Map<Long, SyncRef> mapping = Maps.newHashMap();
+		Map<Long, SyncRef> updates = Maps.newHashMap();
+		List<Long> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.synchronizers;";
-			String deleteQuery = "DELETE FROM quantumdb.synchronizers WHERE id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.synchronizers (source_ref_id, target_ref_id, trigger_name, function_name) VALUES (?, ?, ?, ?) RETURNING id;";
-			String updateQuery = "UPDATE quantumdb.synchronizers SET trigger_name = ?, function_name = ? WHERE id = ?;";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.synchronizers;");
 			while (resultSet.next()) {
 				long id = resultSet.getLong("id");
-				String sourceRefId = resultSet.getString("source_ref_id");
-				String targetRefId = resultSet.getString("target_ref_id");
-
-				if (syncMapping.contains(sourceRefId, targetRefId)) {
-					SyncRef syncRef = syncMapping.remove(sourceRefId, targetRefId);
-
-					try (PreparedStatement update = connection.prepareStatement(updateQuery)) {
-						update.setString(1, syncRef.getName());
-						update.setString(2, syncRef.getFunctionName());
-						update.setLong(3, id);
-						update.execute();
-						log.debug("Updated entry for synchronizers id: {} - {} -> {}", id, sourceRefId, targetRefId);
-					}
+				SyncRef syncRef = syncMapping.remove(resultSet.getString("source_ref_id"),
+						resultSet.getString("target_ref_id"));
 
-					mapping.put(id, syncRef);
+				if (syncRef == null) {
+					deletes.add(id);
+					continue;
 				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, id);
-						delete.execute();
-						log.debug("Deleted entry for synchronizers id: {}", id);
-					}
-				}
-			}
 
-			if (!syncMapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (SyncRef syncRef : syncMapping.values()) {
-					String sourceRefId = syncRef.getSource().getRefId();
-					String targetRefId = syncRef.getTarget().getRefId();
-
-					insert.setString(1, sourceRefId);
-					insert.setString(2, targetRefId);
-					insert.setString(3, syncRef.getName());
-					insert.setString(4, syncRef.getFunctionName());
-					ResultSet generatedKeys = insert.executeQuery();
-
-					generatedKeys.next();
-					long id = generatedKeys.getLong("id");
-					mapping.put(id, syncRef);
-					log.debug("Inserted new entry for synchronizers id: {} - {} -> {}", id, sourceRefId, targetRefId);
+				mapping.put(id, syncRef);
+				if (!syncRef.getName().equals(resultSet.getString("trigger_name"))
+						|| !syncRef.getFunctionName().equals(resultSet.getString("function_name"))) {
+					updates.put(id, syncRef);
 				}
 			}
+		}
+
+		String deleteQuery = "DELETE FROM quantumdb.synchronizers WHERE id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, id) -> delete.setLong(1, id));
 
-			resultSet.close();
+		String updateQuery = "UPDATE quantumdb.synchronizers SET trigger_name = ?, function_name = ? WHERE id = ?;";
+		executeBatch(connection, updateQuery, updates.entrySet(), (update, entry) -> {
+			update.setString(1, entry.getValue().getName());
+			update.setString(2, entry.getValue().getFunctionName());
+			update.setLong(3, entry.getKey());
+		});
+
+		List<Long> ids = nextIds(connection, "quantumdb.synchronizers_id", syncMapping.size());
+		Map<Long, SyncRef> inserts = Maps.newLinkedHashMap();
+		for (SyncRef syncRef : syncMapping.values()) {
+			inserts.put(ids.get(inserts.size()), syncRef);
 		}
+
+		String insertQuery = "INSERT INTO quantumdb.synchronizers (id, source_ref_id, target_ref_id, trigger_name, function_name) VALUES (?, ?, ?, ?, ?);";
+		executeBatch(connection, insertQuery, inserts.entrySet(), (insert, entry) -> {
+			SyncRef syncRef = entry.getValue();
+			insert.setLong(1, entry.getKey());
+			insert.setString(2, syncRef.getSource().getRefId());
+			insert.setString(3, syncRef.getTarget().getRefId());
+			insert.setString(4, syncRef.getName());
+			insert.setString(5, syncRef.getFunctionName());
+		});
+
+		mapping.putAll(inserts);
+		log.debug("Persisted synchronizers: {} inserted, {} updated, {} deleted", inserts.size(), updates.size(),
+				deletes.size());
 		return mapping;
 	}
 
@@ -749,349 +569,96 @@ public class Backend {
 			}
 		});
 
+		Multimap<Long, Long> deletes = HashMultimap.create();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.synchronizer_columns;";
-			String deleteQuery = "DELETE FROM quantumdb.synchronizer_columns WHERE synchronizer_id = ? AND column_mapping = ?;";
-			String insertQuery = "INSERT INTO quantumdb.synchronizer_columns (synchronizer_id, column_mapping_id) VALUES (?, ?);";
-
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.synchronizer_columns;");
 			while (resultSet.next()) {
 				long synchronizerId = resultSet.getLong("synchronizer_id");
 				long columnMappingId = resultSet.getLong("column_mapping_id");
 
-				if (idMapping.containsEntry(synchronizerId, columnMappingId)) {
-					idMapping.remove(synchronizerId, columnMappingId);
-				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setLong(1, synchronizerId);
-						delete.setLong(2, columnMappingId);
-						delete.execute();
-						log.debug("Deleted entry for synchronizer_columns id: {}, mapping: {}", synchronizerId, columnMappingId);
-					}
-				}
-			}
-
-			if (!idMapping.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (Entry<Long, Long> idEntry : idMapping.entries()) {
-					Long synchronizerId = idEntry.getKey();
-					Long columnMappingId = idEntry.getValue();
-					insert.setLong(1, synchronizerId);
-					insert.setLong(2, columnMappingId);
-					insert.execute();
-					log.debug("Inserted new entry for synchronizer_columns id: {}, mapping: {}", synchronizerId, columnMappingId);
+				if (!idMapping.remove(synchronizerId, columnMappingId)) {
+					deletes.put(synchronizerId, columnMappingId);
 				}
 			}
-
-			resultSet.close();
 		}
-	}
 
-	private void persistActiveVersions(Connection connection, RefLog refLog) throws SQLException {
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.active_versions;";
-			String deleteQuery = "DELETE FROM quantumdb.active_versions WHERE version_id = ?;";
-			String insertQuery = "INSERT INTO quantumdb.active_versions (version_id) VALUES (?);";
-
-			ResultSet resultSet = statement.executeQuery(query);
-			Set<String> versions = refLog.getVersions().stream()
-					.map(Version::getId)
-					.collect(Collectors.toSet());
-
-			while (resultSet.next()) {
-				String versionId = resultSet.getString("version_id");
-				if (versions.contains(versionId)) {
-					versions.remove(versionId);
-				}
-				else {
-					try (PreparedStatement delete = connection.prepareStatement(deleteQuery)) {
-						delete.setString(1, versionId);
-						delete.execute();
-						log.debug("Deleted entry for active_versions id: {}", versionId);
-					}
-				}
-			}
+		String deleteQuery = "DELETE FROM quantumdb.synchronizer_columns WHERE synchronizer_id = ? AND column_mapping_id = ?;";
+		executeBatch(connection, deleteQuery, deletes.entries(), (delete, entry) -> {
+			delete.setLong(1, entry.getKey());
+			delete.setLong(2, entry.getValue());
+		});
 
-			if (!versions.isEmpty()) {
-				PreparedStatement insert = connection.prepareStatement(insertQuery);
-				for (String versionId : versions) {
-					insert.setString(1, versionId);
-					insert.execute();
-					log.debug("Inserted new entry for active_versions id: {}", versionId);
-				}
-			}
+		String insertQuery = "INSERT INTO quantumdb.synchronizer_columns (synchronizer_id, column_mapping_id) VALUES (?, ?);";
+		executeBatch(connection, insertQuery, idMapping.entries(), (insert, entry) -> {
+			insert.setLong(1, entry.getKey());
+			insert.setLong(2, entry.getValue());
+		});
 
-			resultSet.close();
-		}
+		log.debug("Persisted synchronizer_columns: {} inserted, {} deleted", idMapping.size(), deletes.size());
 	}
 
-	private Changelog loadChangelog(Connection connection) throws SQLException {
-		List<RawChangelogEntry> entries = loadChangelogEntries(connection);
-		Map<String, RawChangeSet> changeSets = loadChangesets(connection, entries);
-
-		Changelog changelog = null;
-		List<RawChangelogEntry> changeSetContents = Lists.newArrayList();
-		Operations operations = new Operations();
-
-		while (!entries.isEmpty()) {
-			RawChangelogEntry entry = entries.remove(0);
-			changeSetContents.add(entry);
-			boolean finalizeChangeSet = changeSets.containsKey(entry.getVersionId());
-
-			if (entries.isEmpty()) {
-				finalizeChangeSet = true;
-			}
-
-			if (finalizeChangeSet) {
-				RawChangelogEntry lastEntry = changeSetContents.get(changeSetContents.size() - 1);
-				RawChangeSet rawChangeSet = changeSets.get(lastEntry.getVersionId());
-				ChangeSet changeSet = new ChangeSet(rawChangeSet.getId(), rawChangeSet.getAuthor(), rawChangeSet.getCreated(), rawChangeSet.getDescription());
-
-				for (RawChangelogEntry entryInSet : changeSetContents) {
-					String operationType = entryInSet.getOperationType();
-					Operation operation = null;
-					if (operationType != null) {
-						Class<? extends Operation> operationClass = operations.getOperationType(operationType)
-								.orElseThrow(() -> new IllegalArgumentException("No such operation is supported: " + operationType));
-
-						operation = gson.fromJson(entryInSet.getOperation(), operationClass);
-					}
-
-					if (changelog == null) {
-						changelog = new Changelog(entryInSet.getVersionId(), changeSet);
-					}
-					else {
-						String parentVersionId = entryInSet.getParentVersionId();
-						Version parentVersion = changelog.getVersion(parentVersionId);
-						changelog.addChangeSet(parentVersion, entryInSet.getVersionId(), changeSet, operation);
-					}
-				}
-				changeSetContents.clear();
-			}
-		}
-
-		return changelog;
-	}
+	private void persistActiveVersions(Connection connection, RefLog refLog) throws SQLException {
+		Set<String> versions = refLog.getVersions().stream()
+				.map(Version::getId)
+				.collect(Collectors.toSet());
 
-	private List<RawChangelogEntry> loadChangelogEntries(Connection connection) throws SQLException {
-		RawChangelogEntry root = null;
-		Multimap<String, RawChangelogEntry> entries = HashMultimap.create();
+		List<String> deletes = Lists.newArrayList();
 		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.changelog;";
-			ResultSet resultSet = statement.executeQuery(query);
+			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.active_versions;");
 			while (resultSet.next()) {
 				String versionId = resultSet.getString("version_id");
-				String operationType = resultSet.getString("operation_type");
-				String operation = resultSet.getString("operation");
-				String parentVersionId = resultSet.getString("parent_version_id");
-
-				RawChangelogEntry entry = new RawChangelogEntry(versionId, operationType, operation, parentVersionId);
-				if (parentVersionId == null) {
-					root = entry;
-				}
-				else {
-					entries.put(parentVersionId, entry);
+				if (!versions.remove(versionId)) {
+					deletes.add(versionId);
 				}
 			}
-
-			resultSet.close();
-		}
-
-		if (root == null) {
-			root = new RawChangelogEntry(RandomHasher.generateHash(), null, null, null);
 		}
 
-		List<RawChangelogEntry> pointer = Lists.newArrayList(root);
-		List<RawChangelogEntry> sorted = Lists.newArrayList();
-		while (!pointer.isEmpty()) {
-			RawChangelogEntry entry = pointer.remove(0);
-			sorted.add(entry);
+		String deleteQuery = "DELETE FROM quantumdb.active_versions WHERE version_id = ?;";
+		executeBatch(connection, deleteQuery, deletes, (delete, versionId) -> delete.setString(1, versionId));
 
-			String versionId = entry.getVersionId();
-			pointer.addAll(entries.get(versionId));
-		}
+		String insertQuery = "INSERT INTO quantumdb.active_versions (version_id) VALUES (?);";
+		executeBatch(connection, insertQuery, versions, (insert, versionId) -> insert.setString(1, versionId));
 
-		return sorted;
+		log.debug("Persisted active_versions: {} inserted, {} deleted", versions.size(), deletes.size());
 	}
 
-	private Map<String, RawChangeSet> loadChangesets(Connection connection, List<RawChangelogEntry> entries)
-			throws SQLException {
-
-		Map<String, RawChangeSet> changeSets = Maps.newHashMap();
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.changesets;";
-			ResultSet resultSet = statement.executeQuery(query);
-			while (resultSet.next()) {
-				String id = resultSet.getString("id");
-				String versionId = resultSet.getString("version_id");
-				String description = resultSet.getString("description");
-				String author = resultSet.getString("author");
-				Date created = resultSet.getTimestamp("created");
-
-				RawChangeSet changeSet = new RawChangeSet(id, versionId, description, author, created);
-				changeSets.put(versionId, changeSet);
+	/**
+	 * Executes the specified query once for every value, in a single JDBC batch.
+	 */
+	private static <T> void executeBatch(Connection connection, String query, Collection<T> values,
+			ParameterSetter<T> parameterSetter) throws SQLException {
 
-			}
-			resultSet.close();
+		if (values.isEmpty()) {
+			return;
 		}
 
-		if (changeSets.isEmpty()) {
-			RawChangelogEntry rootEntry = entries.get(0);
-			String versionId = rootEntry.getVersionId();
-			RawChangeSet changeSet = new RawChangeSet("initial", versionId, "Initial state of the database.", "QuantumDB", new Date());
-			changeSets.put(versionId, changeSet);
-		}
-
-		return changeSets;
-	}
-
-	private Map<String, RefId> listRefIds(Connection connection) throws SQLException {
-		Map<String, RefId> refIds = Maps.newHashMap();
-		try (Statement statement = connection.createStatement()) {
-			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.refs ORDER BY ref_id ASC;");
-			while (resultSet.next()) {
-				String refId = resultSet.getString("ref_id");
-				refIds.put(refId, new RefId(refId));
-			}
-		}
-		return refIds;
-	}
-
-	private Table<RefId, Version, String> listTableVersions(Connection connection, Map<String, RefId> refIds, Changelog changelog) throws SQLException {
-		Table<RefId, Version, String> mapping = HashBasedTable.create();
-		try (Statement statement = connection.createStatement()) {
-			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.ref_versions ORDER BY ref_id ASC;");
-			while (resultSet.next()) {
-				String refId = resultSet.getString("ref_id");
-				String tableName = resultSet.getString("table_name");
-				String versionId = resultSet.getString("version_id");
-				Version version = changelog.getVersion(versionId);
-				RefId refIdRef = refIds.get(refId);
-				mapping.put(refIdRef, version, tableName);
-			}
-		}
-		return mapping;
-	}
-
-	private List<TableColumn> listTableColumns(Connection connection, Map<String, RefId> refIds) throws SQLException {
-		List<TableColumn> results = Lists.newArrayList();
-		try (Statement statement = connection.createStatement()) {
-			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.table_columns ORDER BY id ASC;");
-			while (resultSet.next()) {
-				long id = resultSet.getLong("id");
-				String refId = resultSet.getString("ref_id");
-				String column = resultSet.getString("column_name");
-				RefId refIdRef = refIds.get(refId);
-				results.add(new TableColumn(id, refIdRef, column));
-			}
-		}
-		return results;
-	}
-
-	private List<TableColumnMapping> listTableColumnMappings(Connection connection, List<TableColumn> tableColumns) throws SQLException {
-		Map<Long, TableColumn> columnById = tableColumns.stream()
-				.collect(Collectors.toMap(TableColumn::getId, Function.identity()));
-
-		List<TableColumnMapping> results = Lists.newArrayList();
-		try (Statement statement = connection.createStatement()) {
-			ResultSet resultSet = statement.executeQuery("SELECT * FROM quantumdb.column_mappings;");
-			while (resultSet.next()) {
-				long id = resultSet.getLong("id");
-				long sourceColumnId = resultSet.getLong("source_column_id");
-				long targetColumnId = resultSet.getLong("target_column_id");
-				TableColumn source = columnById.get(sourceColumnId);
-				TableColumn target = columnById.get(targetColumnId);
-				results.add(new TableColumnMapping(id, source, target));
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			for (T value : values) {
+				parameterSetter.setParameters(statement, value);
+				statement.addBatch();
 			}
+			statement.executeBatch();
 		}
-		return results;
 	}
 
-	private void addSynchronizers(Connection connection, RefLog refLog, List<TableColumnMapping> columnMappings) throws SQLException {
-		Map<Long, TableColumnMapping> columnMapping = columnMappings.stream()
-				.collect(Collectors.toMap(TableColumnMapping::getId, Function.identity()));
-
-		Multimap<Long, Long> syncColumnMappings = HashMultimap.create();
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.synchronizer_columns;";
-
-			ResultSet resultSet = statement.executeQuery(query);
-			while (resultSet.next()) {
-				long synchronizerId = resultSet.getLong("synchronizer_id");
-				long columnMappingId = resultSet.getLong("column_mapping_id");
-				syncColumnMappings.put(synchronizerId, columnMappingId);
-			}
-		}
-
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.synchronizers;";
-
-			ResultSet resultSet = statement.executeQuery(query);
-			while (resultSet.next()) {
-				long id = resultSet.getLong("id");
-				String sourceRefId = resultSet.getString("source_ref_id");
-				String targetRefId = resultSet.getString("target_ref_id");
-				String triggerName = resultSet.getString("trigger_name");
-				String functionName = resultSet.getString("function_name");
-
-				Map<ColumnRef, ColumnRef> mappingsForSynchronizer = syncColumnMappings.get(id).stream()
-						.map(columnMapping::get)
-						.collect(Collectors.toMap(entry -> {
-							TableColumn source = entry.getSource();
-							if (!source.getRefId().getRefId().equals(sourceRefId)) {
-								throw new IllegalStateException("The column mapping of synchronizer: " + id
-										+ " originates to a table: " + source.getRefId().getRefId()
-										+ " other than the source table: " + sourceRefId);
-							}
-							TableRef ref = refLog.getTableRefById(source.getRefId().getRefId());
-							return ref.getColumns().get(source.getColumn());
-						}, entry -> {
-							TableColumn target = entry.getTarget();
-							if (!target.getRefId().getRefId().equals(targetRefId)) {
-								throw new IllegalStateException("The column mapping of synchronizer: " + id
-										+ " targets into a table: " + target.getRefId().getRefId()
-										+ " other than the target table: " + targetRefId);
-							}
-							TableRef ref = refLog.getTableRefById(target.getRefId().getRefId());
-							return ref.getColumns().get(target.getColumn());
-						}));
-
-				if (!mappingsForSynchronizer.isEmpty()) {
-					refLog.addSync(triggerName, functionName, mappingsForSynchronizer);
-				}
-			}
+	/**
+	 * Reserves the specified number of ids from a sequence, so that new rows can be inserted in a batch.
+	 */
+	private static List<Long> nextIds(Connection connection, String sequence, int count) throws SQLException {
+		List<Long> ids = Lists.newArrayListWithCapacity(count);
+		if (count == 0) {
+			return ids;
 		}
-	}
-
-	private void setActiveVersions(Connection connection, Changelog changelog, RefLog refLog) throws SQLException {
-		try (Statement statement = connection.createStatement()) {
-			String query = "SELECT * FROM quantumdb.active_versions;";
 
-			Set<String> activeVersions = Sets.newHashSet();
-			ResultSet resultSet = statement.executeQuery(query);
+		String query = "SELECT NEXTVAL('" + sequence + "') FROM generate_series(1, ?);";
+		try (PreparedStatement statement = connection.prepareStatement(query)) {
+			statement.setInt(1, count);
+			ResultSet resultSet = statement.executeQuery();
 			while (resultSet.next()) {
-				String versionId = resultSet.getString("version_id");
-				activeVersions.add(versionId);
-			}
-
-			Version pointer = changelog.getRoot();
-			while (pointer != null) {
-				String versionId = pointer.getId();
-				if (activeVersions.contains(versionId)) {
-					activeVersions.remove(versionId);
-					Version version = changelog.getVersion(versionId);
-					refLog.setVersionState(version, true);
-				}
-				pointer = pointer.getChild();
-			}
-
-			if (!activeVersions.isEmpty()) {
-				throw new IllegalStateException("There's are active versions defined which are not present or " +
-						"reachable in the changelog: " + activeVersions.stream().collect(Collectors.joining(",")));
+				ids.add(resultSet.getLong(1));
 			}
 		}
-
+		return ids;
 	}
 
 }
@@ -0,0 +1,319 @@
+package io.quantumdb.core.versioning;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
+import com.google.gson.Gson;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.operations.Operation;
+import io.quantumdb.core.utils.QueryBuilder;
+import io.quantumdb.core.utils.RandomHasher;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads the Changelog and RefLog from the quantumdb tables. Every query joins and orders the rows on the server (from
+ * the root version to the most recent one), so that the Changelog and the RefLog can each be built in a single pass
+ * over the results.
+ */
+@Slf4j
+class StateLoader {
+
+	@Data
+	private static class RawColumn {
+		private final long id;
+		private final String name;
+	}
+
+	@Data
+	private static class PendingVersion {
+		private final String versionId;
+		private final String parentVersionId;
+		private final Operation operation;
+	}
+
+	/**
+	 * Numbers all versions of the changelog by their distance to the root version.
+	 */
+	private static final String VERSIONS = new QueryBuilder()
+			.append("WITH RECURSIVE versions (version_id, depth) AS (")
+			.append("  SELECT version_id, 0 FROM quantumdb.changelog WHERE parent_version_id IS NULL")
+			.append("  UNION ALL SELECT c.version_id, v.depth + 1")
+			.append("    FROM quantumdb.changelog c JOIN versions v ON c.parent_version_id = v.version_id")
+			.append(")")
+			.toString();
+
+	private static final String CHANGELOG_QUERY = new QueryBuilder()
+			.append(VERSIONS)
+			.append("SELECT c.version_id, c.parent_version_id, c.operation_type, c.operation,")
+			.append("  s.id AS changeset_id, s.author, s.description, s.created")
+			.append("FROM versions v")
+			.append("JOIN quantumdb.changelog c ON c.version_id = v.version_id")
+			.append("LEFT JOIN quantumdb.changesets s ON s.version_id = c.version_id")
+			.append("ORDER BY v.depth ASC;")
+			.toString();
+
+	private static final String COLUMNS_QUERY = new QueryBuilder()
+			.append("SELECT c.id, c.ref_id, c.column_name, m.source_column_id")
+			.append("FROM quantumdb.table_columns c")
+			.append("LEFT JOIN quantumdb.column_mappings m ON m.target_column_id = c.id")
+			.append("ORDER BY c.id ASC;")
+			.toString();
+
+	private static final String REF_VERSIONS_QUERY = new QueryBuilder()
+			.append(VERSIONS)
+			.append("SELECT r.ref_id, r.version_id, r.table_name")
+			.append("FROM versions v")
+			.append("JOIN quantumdb.ref_versions r ON r.version_id = v.version_id")
+			.append("ORDER BY v.depth ASC, r.ref_id ASC;")
+			.toString();
+
+	private static final String SYNCHRONIZERS_QUERY = new QueryBuilder()
+			.append("SELECT s.id, s.source_ref_id, s.target_ref_id, s.trigger_name, s.function_name,")
+			.append("  m.source_column_id, m.target_column_id")
+			.append("FROM quantumdb.synchronizers s")
+			.append("JOIN quantumdb.synchronizer_columns sc ON sc.synchronizer_id = s.id")
+			.append("JOIN quantumdb.column_mappings m ON m.id = sc.column_mapping_id")
+			.append("ORDER BY s.id ASC;")
+			.toString();
+
+	private final Gson gson;
+	private final Operations operations;
+
+	StateLoader(Gson gson) {
+		this.gson = gson;
+		this.operations = new Operations();
+	}
+
+	State load(Connection connection, Catalog catalog) throws SQLException {
+		Map<String, Version> versions = Maps.newHashMap();
+		Changelog changelog = loadChangelog(connection, versions);
+
+		RefLog refLog = new RefLog();
+		Map<Long, ColumnRef> columns = loadTables(connection, refLog, versions);
+		loadSynchronizers(connection, refLog, columns);
+		loadActiveVersions(connection, refLog, versions);
+
+		return new State(catalog, refLog, changelog);
+	}
+
+	private Changelog loadChangelog(Connection connection, Map<String, Version> versions) throws SQLException {
+		Changelog changelog = null;
+		List<PendingVersion> pending = Lists.newArrayList();
+		boolean changeSetsFound = false;
+
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(CHANGELOG_QUERY);
+			while (resultSet.next()) {
+				String operationType = resultSet.getString("operation_type");
+				Operation operation = null;
+				if (operationType != null) {
+					Class<? extends Operation> operationClass = operations.getOperationType(operationType)
+							.orElseThrow(() -> new IllegalArgumentException("No such operation is supported: " + operationType));
+
+					operation = gson.fromJson(resultSet.getString("operation"), operationClass);
+				}
+
+				pending.add(new PendingVersion(resultSet.getString("version_id"),
+						resultSet.getString("parent_version_id"), operation));
+
+				// A changeset refers to its last version, and contains all versions since the previous changeset.
+				String changeSetId = resultSet.getString("changeset_id");
+				if (changeSetId != null) {
+					changeSetsFound = true;
+					ChangeSet changeSet = new ChangeSet(changeSetId, resultSet.getString("author"),
+							resultSet.getTimestamp("created"), resultSet.getString("description"));
+
+					changelog = addVersions(changelog, pending, changeSet, versions);
+				}
+			}
+		}
+
+		if (changelog == null && pending.isEmpty()) {
+			pending.add(new PendingVersion(RandomHasher.generateHash(), null, null));
+		}
+
+		if (!pending.isEmpty()) {
+			if (changeSetsFound) {
+				throw new IllegalStateException("There's no changeset for the versions: " + pending.stream()
+						.map(PendingVersion::getVersionId)
+						.collect(Collectors.joining(",")));
+			}
+
+			ChangeSet changeSet = new ChangeSet("initial", "QuantumDB", new Date(), "Initial state of the database.");
+			changelog = addVersions(changelog, pending, changeSet, versions);
+		}
+
+		return changelog;
+	}
+
+	private Changelog addVersions(Changelog changelog, List<PendingVersion> pending, ChangeSet changeSet,
+			Map<String, Version> versions) {
+
+		for (PendingVersion entry : pending) {
+			if (changelog == null) {
+				changelog = new Changelog(entry.getVersionId(), changeSet);
+			}
+			else {
+				Version parent = versions.get(entry.getParentVersionId());
+				changelog.addChangeSet(parent, entry.getVersionId(), changeSet, entry.getOperation());
+			}
+			versions.put(entry.getVersionId(), changelog.getLastAdded());
+		}
+
+		pending.clear();
+		return changelog;
+	}
+
+	/**
+	 * Creates a TableRef for every ref (and table name) in the first version it is present in, and marks it as
+	 * present in the versions after that. Since refs are visited in version order, the columns a new column is based on have
+	 * already been created, except for the (backwards) column mappings of synchronizers.
+	 *
+	 * @return The created ColumnRefs by their id in the table_columns table.
+	 */
+	private Map<Long, ColumnRef> loadTables(Connection connection, RefLog refLog, Map<String, Version> versions)
+			throws SQLException {
+
+		ArrayListMultimap<String, RawColumn> columnsPerRef = ArrayListMultimap.create();
+		ArrayListMultimap<Long, Long> basedOn = ArrayListMultimap.create();
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(COLUMNS_QUERY);
+			long previousId = -1;
+			while (resultSet.next()) {
+				long id = resultSet.getLong("id");
+				if (id != previousId) {
+					columnsPerRef.put(resultSet.getString("ref_id"), new RawColumn(id, resultSet.getString("column_name")));
+					previousId = id;
+				}
+
+				long sourceId = resultSet.getLong("source_column_id");
+				if (!resultSet.wasNull()) {
+					basedOn.put(id, sourceId);
+				}
+			}
+		}
+
+		Map<Long, ColumnRef> columns = Maps.newHashMapWithExpectedSize(columnsPerRef.size());
+		Table<String, String, TableRef> tables = HashBasedTable.create(columnsPerRef.keySet().size(), 1);
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(REF_VERSIONS_QUERY);
+			while (resultSet.next()) {
+				String refId = resultSet.getString("ref_id");
+				String tableName = resultSet.getString("table_name");
+				Version version = versions.get(resultSet.getString("version_id"));
+
+				TableRef tableRef = tables.get(refId, tableName);
+				if (tableRef != null) {
+					tableRef.markAsPresent(version);
+					continue;
+				}
+
+				List<RawColumn> rawColumns = columnsPerRef.get(refId);
+				List<ColumnRef> columnRefs = Lists.newArrayListWithCapacity(rawColumns.size());
+				for (RawColumn rawColumn : rawColumns) {
+					List<ColumnRef> sources = basedOn.get(rawColumn.getId()).stream()
+							.map(columns::get)
+							.filter(source -> source != null)
+							.collect(Collectors.toList());
+
+					ColumnRef columnRef = new ColumnRef(rawColumn.getName(), sources);
+					columnRefs.add(columnRef);
+					columns.put(rawColumn.getId(), columnRef);
+				}
+
+				tables.put(refId, tableName, refLog.addTable(tableName, refId, version, columnRefs));
+			}
+		}
+
+		log.debug("Loaded {} tables with {} columns", tables.size(), columns.size());
+		return columns;
+	}
+
+	private void loadSynchronizers(Connection connection, RefLog refLog, Map<Long, ColumnRef> columns)
+			throws SQLException {
+
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(SYNCHRONIZERS_QUERY);
+
+			long synchronizerId = -1;
+			String triggerName = null;
+			String functionName = null;
+			Map<ColumnRef, ColumnRef> columnMapping = Maps.newLinkedHashMap();
+
+			while (resultSet.next()) {
+				long id = resultSet.getLong("id");
+				if (id != synchronizerId) {
+					if (!columnMapping.isEmpty()) {
+						refLog.addSync(triggerName, functionName, columnMapping);
+					}
+
+					synchronizerId = id;
+					triggerName = resultSet.getString("trigger_name");
+					functionName = resultSet.getString("function_name");
+					columnMapping = Maps.newLinkedHashMap();
+				}
+
+				ColumnRef source = columns.get(resultSet.getLong("source_column_id"));
+				String sourceRefId = resultSet.getString("source_ref_id");
+				if (source == null || !source.getTable().getRefId().equals(sourceRefId)) {
+					throw new IllegalStateException("The column mapping of synchronizer: " + id
+							+ " originates from a table other than the source table: " + sourceRefId);
+				}
+
+				ColumnRef target = columns.get(resultSet.getLong("target_column_id"));
+				String targetRefId = resultSet.getString("target_ref_id");
+				if (target == null || !target.getTable().getRefId().equals(targetRefId)) {
+					throw new IllegalStateException("The column mapping of synchronizer: " + id
+							+ " targets a table other than the target table: " + targetRefId);
+				}
+
+				columnMapping.put(source, target);
+			}
+
+			if (!columnMapping.isEmpty()) {
+				refLog.addSync(triggerName, functionName, columnMapping);
+			}
+		}
+	}
+
+	private void loadActiveVersions(Connection connection, RefLog refLog, Map<String, Version> versions)
+			throws SQLException {
+
+		Set<String> unknownVersions = Sets.newHashSet();
+		try (Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery("SELECT version_id FROM quantumdb.active_versions;");
+			while (resultSet.next()) {
+				String versionId = resultSet.getString("version_id");
+				Version version = versions.get(versionId);
+				if (version != null) {
+					refLog.setVersionState(version, true);
+				}
+				else {
+					unknownVersions.add(versionId);
+				}
+			}
+		}
+
+		if (!unknownVersions.isEmpty()) {
+			throw new IllegalStateException("There's are active versions defined which are not present or " +
+					"reachable in the changelog: " + unknownVersions.stream().collect(Collectors.joining(",")));
+		}
+	}
+
+}
@@ -0,0 +1,469 @@
+package io.quantumdb.core.versioning;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Column.Hint;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.ForeignKey.Action;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.PostgresTypes;
+import io.quantumdb.core.schema.definitions.Sequence;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.schema.definitions.View;
+import io.quantumdb.core.schema.operations.Operation;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.RefLog.SyncRef;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+
+/**
+ * Encodes a State object into a compact binary snapshot, and decodes it again. Versions, columns and tables are
+ * referred to by their position in the snapshot, so every name is written only once.
+ */
+class StateSnapshot {
+
+	private static final int MAGIC = 0x51444253;
+	private static final int FORMAT = 1;
+
+	private final Gson gson;
+	private final Operations operations;
+
+	StateSnapshot(Gson gson) {
+		this.gson = gson;
+		this.operations = new Operations();
+	}
+
+	void write(DataOutput output, State state) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeInt(FORMAT);
+
+		writeCatalog(output, state.getCatalog());
+		List<Version> versions = writeChangelog(output, state.getChangelog());
+		writeRefLog(output, state.getRefLog(), versions);
+	}
+
+	State read(DataInput input) throws IOException {
+		if (input.readInt() != MAGIC || input.readInt() != FORMAT) {
+			throw new IOException("Not a state snapshot, or a snapshot of an unsupported format.");
+		}
+
+		Catalog catalog = readCatalog(input);
+		Changelog changelog = readChangelog(input);
+		RefLog refLog = readRefLog(input, changelog);
+		return new State(catalog, refLog, changelog);
+	}
+
+	private void writeCatalog(DataOutput output, Catalog catalog) throws IOException {
+		writeString(output, catalog.getName());
+
+		output.writeInt(catalog.getSequences().size());
+		for (Sequence sequence : catalog.getSequences()) {
+			writeString(output, sequence.getName());
+		}
+
+		Collection<Table> tables = catalog.getTables();
+		output.writeInt(tables.size());
+		for (Table table : tables) {
+			writeString(output, table.getName());
+
+			output.writeInt(table.getColumns().size());
+			for (Column column : table.getColumns()) {
+				writeString(output, column.getName());
+				writeString(output, column.getType().getNotation());
+				writeString(output, column.getDefaultValue());
+				writeString(output, column.getSequence() != null ? column.getSequence().getName() : null);
+
+				output.writeInt(column.getHints().size());
+				for (Hint hint : column.getHints()) {
+					output.writeByte(hint.ordinal());
+				}
+			}
+
+			output.writeInt(table.getIndexes().size());
+			for (Index index : table.getIndexes()) {
+				writeString(output, index.getIndexName());
+				writeStrings(output, index.getColumns());
+				output.writeBoolean(index.isUnique());
+			}
+		}
+
+		for (Table table : tables) {
+			output.writeInt(table.getForeignKeys().size());
+			for (ForeignKey foreignKey : table.getForeignKeys()) {
+				writeString(output, foreignKey.getForeignKeyName());
+				writeString(output, foreignKey.getReferredTableName());
+				writeStrings(output, foreignKey.getReferencingColumns());
+				writeStrings(output, foreignKey.getReferredColumns());
+				output.writeByte(foreignKey.getOnUpdate().ordinal());
+				output.writeByte(foreignKey.getOnDelete().ordinal());
+			}
+		}
+
+		output.writeInt(catalog.getViews().size());
+		for (View view : catalog.getViews()) {
+			writeString(output, view.getName());
+			writeString(output, view.getQuery());
+		}
+	}
+
+	private Catalog readCatalog(DataInput input) throws IOException {
+		Catalog catalog = new Catalog(readString(input));
+
+		Map<String, Sequence> sequences = Maps.newHashMap();
+		int sequenceCount = input.readInt();
+		for (int i = 0; i < sequenceCount; i++) {
+			Sequence sequence = new Sequence(readString(input));
+			sequences.put(sequence.getName(), sequence);
+			catalog.addSequence(sequence);
+		}
+
+		List<Table> tables = Lists.newArrayList();
+		int tableCount = input.readInt();
+		for (int i = 0; i < tableCount; i++) {
+			Table table = new Table(readString(input));
+
+			int columnCount = input.readInt();
+			for (int j = 0; j < columnCount; j++) {
+				String name = readString(input);
+				String type = readString(input);
+				String defaultValue = readString(input);
+				String sequenceName = readString(input);
+
+				Hint[] hints = new Hint[input.readInt()];
+				for (int k = 0; k < hints.length; k++) {
+					hints[k] = Hint.values()[input.readByte()];
+				}
+
+				if (sequenceName != null) {
+					table.addColumn(new Column(name, PostgresTypes.from(type), sequences.get(sequenceName), hints));
+				}
+				else {
+					table.addColumn(new Column(name, PostgresTypes.from(type), defaultValue, hints));
+				}
+			}
+
+			int indexCount = input.readInt();
+			for (int j = 0; j < indexCount; j++) {
+				String indexName = readString(input);
+				List<String> columns = readStrings(input);
+				table.addIndex(new Index(indexName, columns, input.readBoolean()));
+			}
+
+			catalog.addTable(table);
+			tables.add(table);
+		}
+
+		for (Table table : tables) {
+			int foreignKeyCount = input.readInt();
+			for (int i = 0; i < foreignKeyCount; i++) {
+				String name = readString(input);
+				Table referredTable = catalog.getTable(readString(input));
+				List<String> referencingColumns = readStrings(input);
+				List<String> referredColumns = readStrings(input);
+
+				table.addForeignKey(referencingColumns)
+						.named(name)
+						.onUpdate(Action.values()[input.readByte()])
+						.onDelete(Action.values()[input.readByte()])
+						.referencing(referredTable, referredColumns);
+			}
+		}
+
+		int viewCount = input.readInt();
+		for (int i = 0; i < viewCount; i++) {
+			catalog.addView(new View(readString(input), readString(input)));
+		}
+
+		return catalog;
+	}
+
+	private List<Version> writeChangelog(DataOutput output, Changelog changelog) throws IOException {
+		List<Version> versions = Lists.newArrayList();
+		Version pointer = changelog.getRoot();
+		while (pointer != null) {
+			versions.add(pointer);
+			pointer = pointer.getChild();
+		}
+
+		List<ChangeSet> changeSets = versions.stream()
+				.map(Version::getChangeSet)
+				.filter(Objects::nonNull)
+				.distinct()
+				.collect(Collectors.toList());
+
+		output.writeInt(changeSets.size());
+		for (ChangeSet changeSet : changeSets) {
+			writeString(output, changeSet.getId());
+			writeString(output, changeSet.getAuthor());
+			writeString(output, changeSet.getDescription());
+			writeDate(output, changeSet.getCreated());
+		}
+
+		output.writeInt(versions.size());
+		for (Version version : versions) {
+			writeString(output, version.getId());
+			output.writeInt(changeSets.indexOf(version.getChangeSet()));
+
+			Operation operation = version.getOperation();
+			if (operation == null) {
+				writeString(output, null);
+			}
+			else {
+				writeString(output, operations.getOperationType(operation.getClass())
+						.orElseThrow(() -> new IllegalArgumentException("No such operation is supported: " + operation)));
+				writeString(output, gson.toJson(operation));
+			}
+		}
+
+		return versions;
+	}
+
+	private Changelog readChangelog(DataInput input) throws IOException {
+		List<ChangeSet> changeSets = Lists.newArrayList();
+		int changeSetCount = input.readInt();
+		for (int i = 0; i < changeSetCount; i++) {
+			String id = readString(input);
+			String author = readString(input);
+			String description = readString(input);
+			changeSets.add(new ChangeSet(id, author, readDate(input), description));
+		}
+
+		Changelog changelog = null;
+		int versionCount = input.readInt();
+		for (int i = 0; i < versionCount; i++) {
+			String versionId = readString(input);
+			int changeSetIndex = input.readInt();
+			ChangeSet changeSet = changeSetIndex >= 0 ? changeSets.get(changeSetIndex) : null;
+
+			Operation operation = null;
+			String operationType = readString(input);
+			if (operationType != null) {
+				Class<? extends Operation> operationClass = operations.getOperationType(operationType)
+						.orElseThrow(() -> new IllegalArgumentException("No such operation is supported: " + operationType));
+
+				operation = gson.fromJson(readString(input), operationClass);
+			}
+
+			if (changelog == null) {
+				changelog = new Changelog(versionId, changeSet);
+			}
+			else {
+				changelog.addChangeSet(changelog.getLastAdded(), versionId, changeSet, operation);
+			}
+		}
+
+		return changelog;
+	}
+
+	private void writeRefLog(DataOutput output, RefLog refLog, List<Version> versions) throws IOException {
+		Map<Version, Integer> positions = Maps.newHashMap();
+		versions.forEach(version -> positions.put(version, positions.size()));
+
+		Comparator<TableRef> byFirstVersion = Comparator.comparing(tableRef -> tableRef.getVersions().stream()
+				.mapToInt(positions::get)
+				.min()
+				.orElse(Integer.MAX_VALUE));
+
+		List<TableRef> tableRefs = refLog.getTableRefs().stream()
+				.sorted(byFirstVersion.thenComparing(TableRef::getRefId))
+				.collect(Collectors.toList());
+
+		Map<ColumnRef, Integer> columnIds = Maps.newIdentityHashMap();
+		output.writeInt(tableRefs.size());
+		for (TableRef tableRef : tableRefs) {
+			writeString(output, tableRef.getName());
+			writeString(output, tableRef.getRefId());
+
+			List<Integer> present = tableRef.getVersions().stream()
+					.map(positions::get)
+					.sorted()
+					.collect(Collectors.toList());
+
+			writeInts(output, present);
+
+			Collection<ColumnRef> columns = tableRef.getColumns().values();
+			output.writeInt(columns.size());
+			for (ColumnRef column : columns) {
+				writeString(output, column.getName());
+
+				// Like Backend.load(), only link to columns which are already known. The remaining links are the
+				// (backwards) column mappings of synchronizers, which are restored when adding those synchronizers.
+				writeInts(output, column.getBasedOn().stream()
+						.filter(columnIds::containsKey)
+						.map(columnIds::get)
+						.sorted()
+						.collect(Collectors.toList()));
+			}
+
+			for (ColumnRef column : columns) {
+				columnIds.put(column, columnIds.size());
+			}
+		}
+
+		Set<SyncRef> syncRefs = Sets.newLinkedHashSet();
+		tableRefs.forEach(tableRef -> syncRefs.addAll(tableRef.getOutboundSyncs()));
+
+		output.writeInt(syncRefs.size());
+		for (SyncRef syncRef : syncRefs) {
+			writeString(output, syncRef.getName());
+			writeString(output, syncRef.getFunctionName());
+
+			output.writeInt(syncRef.getColumnMapping().size());
+			for (Map.Entry<ColumnRef, ColumnRef> entry : syncRef.getColumnMapping().entrySet()) {
+				output.writeInt(columnIds.get(entry.getKey()));
+				output.writeInt(columnIds.get(entry.getValue()));
+			}
+		}
+
+		writeInts(output, refLog.getVersions().stream()
+				.map(positions::get)
+				.collect(Collectors.toList()));
+	}
+
+	private RefLog readRefLog(DataInput input, Changelog changelog) throws IOException {
+		List<Version> versions = Lists.newArrayList();
+		Version pointer = changelog.getRoot();
+		while (pointer != null) {
+			versions.add(pointer);
+			pointer = pointer.getChild();
+		}
+
+		RefLog refLog = new RefLog();
+		List<ColumnRef> columnRefs = Lists.newArrayList();
+
+		int tableCount = input.readInt();
+		for (int i = 0; i < tableCount; i++) {
+			String name = readString(input);
+			String refId = readString(input);
+			List<Integer> present = readInts(input);
+
+			List<ColumnRef> columns = Lists.newArrayList();
+			int columnCount = input.readInt();
+			for (int j = 0; j < columnCount; j++) {
+				String columnName = readString(input);
+				List<ColumnRef> basedOn = readInts(input).stream()
+						.map(columnRefs::get)
+						.collect(Collectors.toList());
+
+				columns.add(new ColumnRef(columnName, basedOn));
+			}
+
+			TableRef tableRef = refLog.addTable(name, refId, versions.get(present.get(0)), columns);
+			present.stream()
+					.skip(1)
+					.map(versions::get)
+					.forEach(tableRef::markAsPresent);
+
+			columnRefs.addAll(columns);
+		}
+
+		int syncCount = input.readInt();
+		for (int i = 0; i < syncCount; i++) {
+			String name = readString(input);
+			String functionName = readString(input);
+
+			Map<ColumnRef, ColumnRef> columnMapping = Maps.newLinkedHashMap();
+			int mappingCount = input.readInt();
+			for (int j = 0; j < mappingCount; j++) {
+				columnMapping.put(columnRefs.get(input.readInt()), columnRefs.get(input.readInt()));
+			}
+
+			refLog.addSync(name, functionName, columnMapping);
+		}
+
+		for (int index : readInts(input)) {
+			refLog.setVersionState(versions.get(index), true);
+		}
+
+		return refLog;
+	}
+
+	private static void writeDate(DataOutput output, Date date) throws IOException {
+		output.writeLong(date.getTime());
+		output.writeInt(date instanceof Timestamp ? ((Timestamp) date).getNanos() : -1);
+	}
+
+	private static Date readDate(DataInput input) throws IOException {
+		long time = input.readLong();
+		int nanos = input.readInt();
+		if (nanos < 0) {
+			return new Date(time);
+		}
+
+		Timestamp timestamp = new Timestamp(time);
+		timestamp.setNanos(nanos);
+		return timestamp;
+	}
+
+	private static void writeInts(DataOutput output, List<Integer> values) throws IOException {
+		output.writeInt(values.size());
+		for (int value : values) {
+			output.writeInt(value);
+		}
+	}
+
+	private static List<Integer> readInts(DataInput input) throws IOException {
+		int size = input.readInt();
+		List<Integer> values = Lists.newArrayListWithCapacity(size);
+		for (int i = 0; i < size; i++) {
+			values.add(input.readInt());
+		}
+		return values;
+	}
+
+	private static void writeStrings(DataOutput output, List<String> values) throws IOException {
+		output.writeInt(values.size());
+		for (String value : values) {
+			writeString(output, value);
+		}
+	}
+
+	private static List<String> readStrings(DataInput input) throws IOException {
+		int size = input.readInt();
+		List<String> values = Lists.newArrayListWithCapacity(size);
+		for (int i = 0; i < size; i++) {
+			values.add(readString(input));
+		}
+		return values;
+	}
+
+	private static void writeString(DataOutput output, String value) throws IOException {
+		if (value == null) {
+			output.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(DataInput input) throws IOException {
+		int length = input.readInt();
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
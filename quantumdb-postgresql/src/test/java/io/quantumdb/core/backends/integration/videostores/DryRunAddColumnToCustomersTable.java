@@ -0,0 +1,104 @@
+package io.quantumdb.core.backends.integration.videostores;
+
+import static io.quantumdb.core.backends.integration.videostores.PostgresqlBaseScenario.CUSTOMERS_ID;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.date;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.DatabaseMigrator.MigrationException;
+import io.quantumdb.core.backends.planner.PlanReport;
+import io.quantumdb.core.backends.planner.PlanReport.GhostTable;
+import io.quantumdb.core.backends.planner.PlanReport.SyncTrigger;
+import io.quantumdb.core.schema.operations.SchemaOperations;
+import io.quantumdb.core.versioning.Version;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+public class DryRunAddColumnToCustomersTable {
+
+	@ClassRule
+	public static PostgresqlBaseScenario setup = new PostgresqlBaseScenario();
+
+	private static Version origin;
+	private static long tablesBefore;
+	private static long triggersBefore;
+	private static Set<String> versionsBefore;
+	private static List<PlanReport> reports;
+
+	@BeforeClass
+	public static void performEvolution() throws SQLException, MigrationException {
+		setup.insertTestData();
+		setup.getConnection().createStatement().execute("ANALYZE;");
+
+		origin = setup.getChangelog().getLastAdded();
+
+		setup.getChangelog().addChangeSet("test", "Michael de Jong",
+				SchemaOperations.addColumn("customers", "date_of_birth", date()));
+
+		Version target = setup.getChangelog().getLastAdded();
+		setup.getBackend().persistState(setup.getState());
+
+		tablesBefore = count("SELECT COUNT(*) FROM pg_tables WHERE schemaname = 'public';");
+		triggersBefore = count("SELECT COUNT(*) FROM pg_trigger WHERE NOT tgisinternal;");
+		versionsBefore = getActiveVersions();
+
+		reports = setup.getMigrator().plan(origin.getId(), target.getId());
+	}
+
+	@Test
+	public void verifyThatDatabaseIsUnchanged() throws SQLException {
+		assertEquals(tablesBefore, count("SELECT COUNT(*) FROM pg_tables WHERE schemaname = 'public';"));
+		assertEquals(triggersBefore, count("SELECT COUNT(*) FROM pg_trigger WHERE NOT tgisinternal;"));
+
+		assertEquals(versionsBefore, getActiveVersions());
+	}
+
+	@Test
+	public void verifyReport() throws SQLException {
+		assertEquals(1, reports.size());
+		PlanReport report = reports.get(0);
+
+		GhostTable customers = report.getGhostTables().stream()
+				.filter(table -> table.getTableName().equals("customers"))
+				.findFirst()
+				.get();
+
+		assertEquals(Sets.newHashSet(CUSTOMERS_ID), customers.getSourceRefIds());
+		assertEquals(count("SELECT COUNT(*) FROM " + CUSTOMERS_ID + ";"), customers.getRecords());
+		assertTrue(customers.getBytes() > 0);
+		assertTrue(report.getExtraBytes() >= customers.getBytes());
+
+		SyncTrigger trigger = report.getSyncTriggers().stream()
+				.filter(sync -> sync.getRefId().equals(CUSTOMERS_ID))
+				.findFirst()
+				.get();
+
+		assertEquals(Sets.newHashSet(customers.getRefId()), trigger.getTargetRefIds());
+		assertEquals(2, trigger.getWriteAmplification());
+		assertEquals(report.getGhostTables().size(), report.getPlan().getGhostTables().size());
+	}
+
+	private static Set<String> getActiveVersions() throws SQLException {
+		return setup.getBackend().loadState().getRefLog().getVersions().stream()
+				.map(Version::getId)
+				.collect(Collectors.toSet());
+	}
+
+	private static long count(String query) throws SQLException {
+		try (Statement statement = setup.getConnection().createStatement()) {
+			ResultSet resultSet = statement.executeQuery(query);
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+}
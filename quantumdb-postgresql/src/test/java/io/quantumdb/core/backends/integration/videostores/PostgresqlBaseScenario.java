@@ -139,6 +139,7 @@ public class PostgresqlBaseScenario extends PostgresqlDatabase {
 		config.setPassword(getJdbcPass());
 		config.setCatalog(getCatalogName());
 		config.setDriver(getJdbcDriver());
+		config.setStepWorkers(4);
 
 		backend = config.getBackend();
 
@@ -1326,6 +1326,8 @@ public class GreedyMigrationPlannerTest {
 		};
 	}
 
+	private final Supplier<Catalog> scenario;
+	private final SchemaOperation operation;
 	private final Catalog catalog;
 	private final RefLog refLog;
 	private final Changelog changelog;
@@ -1336,6 +1338,8 @@ public class GreedyMigrationPlannerTest {
 	public GreedyMigrationPlannerTest(Supplier<Catalog> scenario, SchemaOperation operation,
 			int expectedPlanSize, int expectedGhostTables) {
 
+		this.scenario = scenario;
+		this.operation = operation;
 		this.expectedPlanSize = expectedPlanSize;
 		this.expectedGhostTables = expectedGhostTables;
 
@@ -1416,6 +1420,39 @@ public class GreedyMigrationPlannerTest {
 		collector.checkThat("The last step is not a DROP NULL step", lastOperation.getType(), is(Type.DROP_NULL));
 	}
 
+	@Test
+	public void testThatDeferredForeignKeysAreValidatedLast() {
+		Changelog changelog = new Changelog();
+		Catalog catalog = scenario.get();
+		State state = new State(catalog, RefLog.init(catalog, changelog.getRoot()), changelog);
+		changelog.addChangeSet("test", "Michael de Jong", operation);
+
+		PostgresqlMigrationPlanner planner = new PostgresqlMigrationPlanner(true);
+		Plan deferredPlan = planner.createPlan(state, changelog.getRoot(), changelog.getLastAdded());
+		PlanValidator.validate(deferredPlan);
+
+		Set<Table> tablesWithForeignKeys = deferredPlan.getGhostTables().stream()
+				.filter(table -> !table.getForeignKeys().isEmpty())
+				.collect(Collectors.toSet());
+
+		List<Step> validateSteps = deferredPlan.getSteps().stream()
+				.filter(step -> step.getOperation().getType() == Type.VALIDATE_FOREIGN_KEYS)
+				.collect(Collectors.toList());
+
+		if (tablesWithForeignKeys.isEmpty()) {
+			collector.checkThat(validateSteps, empty());
+			collector.checkThat(deferredPlan.getSteps(), hasSize(expectedPlanSize));
+			return;
+		}
+
+		collector.checkThat(validateSteps, hasSize(1));
+		collector.checkThat(deferredPlan.getSteps(), hasSize(expectedPlanSize + 1));
+
+		Step validateStep = validateSteps.get(0);
+		collector.checkThat(validateStep.getOperation().getTables(), equalTo(tablesWithForeignKeys));
+		collector.checkThat(validateStep.getTransitiveDependencies(), hasSize(expectedPlanSize));
+	}
+
 	@Test
 	public void testThatAllColumnsAreMigrated() {
 		Multimap<Table, String> columns = HashMultimap.create();
@@ -0,0 +1,78 @@
+package io.quantumdb.core.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BatchSizeControllerTest {
+
+	@Test
+	public void testThatBatchSizeGrowsWhenBatchesAreFasterThanTarget() {
+		BatchSizeController controller = new BatchSizeController(250, 100, 50_000, 5_000);
+		assertEquals(2_000, controller.getBatchSize());
+
+		controller.record(50, 2_000, 0);
+		assertEquals(4_000, controller.getBatchSize());
+		assertEquals(0, controller.getPause());
+	}
+
+	@Test
+	public void testThatLatencyIsMeasuredPerCopiedRecord() {
+		BatchSizeController controller = new BatchSizeController(250, 100, 50_000, 5_000);
+
+		// Only 500 of the requested 2,000 records were copied, so each record took 0.1 ms.
+		controller.record(50, 500, 0);
+		assertEquals(2_500, controller.getBatchSize());
+	}
+
+	@Test
+	public void testThatBatchSizeConvergesOnTargetLatency() {
+		BatchSizeController controller = new BatchSizeController(250, 100, 50_000, 5_000);
+
+		// Simulate a database which copies 20 records per millisecond.
+		for (int i = 0; i < 50; i++) {
+			controller.record(controller.getBatchSize() / 20, controller.getBatchSize(), 0);
+		}
+
+		long batchSize = controller.getBatchSize();
+		assertTrue("Unexpected batch size: " + batchSize, batchSize > 4_500 && batchSize < 5_500);
+	}
+
+	@Test
+	public void testThatBatchSizeNeverExceedsBounds() {
+		BatchSizeController controller = new BatchSizeController(250, 500, 3_000, 5_000);
+		for (int i = 0; i < 10; i++) {
+			controller.record(1, controller.getBatchSize(), 0);
+		}
+		assertEquals(3_000, controller.getBatchSize());
+
+		for (int i = 0; i < 10; i++) {
+			controller.record(10_000, controller.getBatchSize(), 0);
+		}
+		assertEquals(500, controller.getBatchSize());
+	}
+
+	@Test
+	public void testThatControllerBacksOffWhenOtherSessionsWaitOnLocks() {
+		BatchSizeController controller = new BatchSizeController(250, 100, 50_000, 200);
+
+		controller.record(100, controller.getBatchSize(), 3);
+		assertEquals(1_000, controller.getBatchSize());
+		assertEquals(50, controller.getPause());
+
+		controller.record(100, controller.getBatchSize(), 3);
+		controller.record(100, controller.getBatchSize(), 3);
+		controller.record(100, controller.getBatchSize(), 3);
+		assertEquals(200, controller.getPause());
+
+		controller.record(10, controller.getBatchSize(), 0);
+		assertEquals(100, controller.getPause());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testThatInvalidBoundsAreRejected() {
+		new BatchSizeController(250, 1_000, 100, 5_000);
+	}
+
+}
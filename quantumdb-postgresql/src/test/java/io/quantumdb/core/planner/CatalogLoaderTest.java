@@ -0,0 +1,143 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.ForeignKey.Action.CASCADE;
+import static io.quantumdb.core.schema.definitions.ForeignKey.Action.NO_ACTION;
+import static io.quantumdb.core.schema.definitions.ForeignKey.Action.SET_NULL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Column.Hint;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.PostgresTypes;
+import io.quantumdb.core.schema.definitions.Sequence;
+import io.quantumdb.core.schema.definitions.Table;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class CatalogLoaderTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	private Catalog catalog;
+
+	@Before
+	public void setUp() throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE DOMAIN email AS VARCHAR(120) NOT NULL;");
+			statement.execute("CREATE TABLE users (id SERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL DEFAULT 'unknown', "
+					+ "email email, dropped INT, created TIMESTAMP WITH TIME ZONE);");
+			statement.execute("ALTER TABLE users DROP COLUMN dropped;");
+			statement.execute("CREATE TABLE groups (owner_id INT NOT NULL, group_id INT NOT NULL, label TEXT, "
+					+ "PRIMARY KEY (group_id, owner_id));");
+			statement.execute("CREATE TABLE events (name TEXT, happened DATE);");
+			statement.execute("CREATE TABLE members (id BIGSERIAL PRIMARY KEY, "
+					+ "user_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE, owner_id INT, group_id INT, "
+					+ "FOREIGN KEY (group_id, owner_id) REFERENCES groups (group_id, owner_id) ON UPDATE SET NULL);");
+			statement.execute("CREATE UNIQUE INDEX members_user_group ON members (user_id, group_id);");
+			statement.execute("CREATE VIEW user_names AS SELECT id, name FROM users;");
+		}
+
+		catalog = CatalogLoader.load(database.getConnection(), database.getCatalogName());
+	}
+
+	@Test
+	public void testThatOnlyTablesAreLoaded() {
+		List<String> tableNames = catalog.getTables().stream()
+				.map(Table::getName)
+				.collect(Collectors.toList());
+
+		assertEquals(Lists.newArrayList("events", "groups", "members", "users"), tableNames);
+	}
+
+	@Test
+	public void testThatColumnsAreLoadedInOrder() {
+		Table users = catalog.getTable("users");
+
+		List<String> columnNames = users.getColumns().stream()
+				.map(Column::getName)
+				.collect(Collectors.toList());
+
+		assertEquals(Lists.newArrayList("id", "name", "email", "created"), columnNames);
+		assertEquals(PostgresTypes.varchar(255), users.getColumn("name").getType());
+		assertEquals(PostgresTypes.varchar(120), users.getColumn("email").getType());
+		assertEquals(PostgresTypes.timestamp(true), users.getColumn("created").getType());
+		assertEquals("'unknown'::character varying", users.getColumn("name").getDefaultValue());
+	}
+
+	@Test
+	public void testThatColumnHintsAreDetermined() {
+		Table users = catalog.getTable("users");
+		assertEquals(Sets.newHashSet(Hint.IDENTITY, Hint.AUTO_INCREMENT, Hint.NOT_NULL),
+				Sets.newHashSet(users.getColumn("id").getHints()));
+		assertTrue(users.getColumn("email").isNotNull());
+		assertFalse(users.getColumn("created").isNotNull());
+
+		Table groups = catalog.getTable("groups");
+		assertEquals(Lists.newArrayList("owner_id", "group_id"), groups.getIdentityColumns().stream()
+				.map(Column::getName)
+				.collect(Collectors.toList()));
+
+		// Tables without a primary key use their first column as identity.
+		Table events = catalog.getTable("events");
+		assertEquals(Lists.newArrayList("name"), events.getIdentityColumns().stream()
+				.map(Column::getName)
+				.collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testThatSequencesAreLoaded() {
+		List<String> sequenceNames = catalog.getSequences().stream()
+				.map(Sequence::getName)
+				.collect(Collectors.toList());
+
+		assertEquals(Lists.newArrayList("members_id_seq", "users_id_seq"), sequenceNames);
+	}
+
+	@Test
+	public void testThatForeignKeysAreLoaded() {
+		Table members = catalog.getTable("members");
+		List<ForeignKey> foreignKeys = members.getForeignKeys().stream()
+				.sorted((left, right) -> left.getReferredTableName().compareTo(right.getReferredTableName()))
+				.collect(Collectors.toList());
+
+		assertEquals(2, foreignKeys.size());
+
+		ForeignKey groups = foreignKeys.get(0);
+		assertEquals("groups", groups.getReferredTableName());
+		assertEquals(Lists.newArrayList("owner_id", "group_id"), groups.getReferencingColumns());
+		assertEquals(Lists.newArrayList("owner_id", "group_id"), groups.getReferredColumns());
+		assertEquals(SET_NULL, groups.getOnUpdate());
+		assertEquals(NO_ACTION, groups.getOnDelete());
+
+		ForeignKey users = foreignKeys.get(1);
+		assertEquals("users", users.getReferredTableName());
+		assertEquals(Lists.newArrayList("user_id"), users.getReferencingColumns());
+		assertEquals(CASCADE, users.getOnDelete());
+	}
+
+	@Test
+	public void testThatIndexesAreLoaded() {
+		Index index = catalog.getTable("members").getIndexes().stream()
+				.filter(candidate -> candidate.getIndexName().equals("members_user_group"))
+				.findFirst()
+				.get();
+
+		assertEquals(Lists.newArrayList("user_id", "group_id"), index.getColumns());
+		assertTrue(index.isUnique());
+	}
+
+}
@@ -0,0 +1,201 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.IDENTITY;
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.bigint;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.text;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.ForeignKey.Action;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.schema.operations.SchemaOperations;
+import io.quantumdb.core.versioning.Changelog;
+import io.quantumdb.core.versioning.RefLog;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ForeignKeyValidatorTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	private Config config;
+	private PostgresqlBackend backend;
+	private List<Table> tables;
+
+	@Before
+	public void setUp() throws SQLException {
+		config = new Config();
+		config.setUrl(database.getJdbcUrl());
+		config.setUser(database.getJdbcUser());
+		config.setPassword(database.getJdbcPass());
+		config.setCatalog(database.getCatalogName());
+		config.setDriver(database.getJdbcDriver());
+		config.setForeignKeyWorkers(2);
+
+		backend = (PostgresqlBackend) config.getBackend();
+
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE users (id BIGINT NOT NULL PRIMARY KEY);");
+			statement.execute("CREATE TABLE posts (id BIGINT NOT NULL PRIMARY KEY, author_id BIGINT NOT NULL, "
+					+ "editor_id BIGINT NOT NULL);");
+			statement.execute("INSERT INTO users SELECT id FROM generate_series(1, 1000) AS id;");
+			statement.execute("INSERT INTO posts SELECT id, id, 1001 - id FROM generate_series(1, 1000) AS id;");
+		}
+
+		Table users = new Table("users")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL));
+
+		Table posts = new Table("posts")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("author_id", bigint(), NOT_NULL))
+				.addColumn(new Column("editor_id", bigint(), NOT_NULL));
+
+		new Catalog(database.getCatalogName())
+				.addTable(users)
+				.addTable(posts);
+
+		posts.addForeignKey("author_id").named("posts_author_id_fk").referencing(users, "id");
+		posts.addForeignKey("editor_id").named("posts_editor_id_fk").referencing(users, "id");
+
+		tables = Lists.newArrayList(posts);
+	}
+
+	@Test
+	public void testAddingAndValidatingForeignKeys() throws SQLException, InterruptedException {
+		new ForeignKeyValidator(backend, config).validate(tables);
+
+		for (ForeignKey foreignKey : tables.get(0).getForeignKeys()) {
+			assertEquals(Boolean.TRUE, isValidated(foreignKey.getForeignKeyName()));
+		}
+	}
+
+	@Test
+	public void testValidatingForeignKeyWhichWasAlreadyAdded() throws SQLException, InterruptedException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("ALTER TABLE posts ADD CONSTRAINT posts_author_id_fk FOREIGN KEY (author_id) "
+					+ "REFERENCES users (id) NOT VALID;");
+		}
+
+		new ForeignKeyValidator(backend, config).validate(tables);
+
+		assertEquals(Boolean.TRUE, isValidated("posts_author_id_fk"));
+		assertEquals(Boolean.TRUE, isValidated("posts_editor_id_fk"));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testThatViolatedForeignKeyIsReported() throws SQLException, InterruptedException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("UPDATE posts SET editor_id = 5000 WHERE id = 1;");
+		}
+
+		new ForeignKeyValidator(backend, config).validate(tables);
+	}
+
+	@Test
+	public void testThatCascadedDeletesReachGhostTablesBeforeValidation() throws SQLException, InterruptedException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE authors (id BIGINT NOT NULL PRIMARY KEY);");
+			statement.execute("CREATE TABLE books (id BIGINT NOT NULL PRIMARY KEY, author_id BIGINT NOT NULL "
+					+ "REFERENCES authors (id) ON DELETE CASCADE);");
+		}
+
+		Catalog catalog = new Catalog(database.getCatalogName());
+		Table authors = new Table("authors").addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL));
+		Table books = new Table("books")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("author_id", bigint(), NOT_NULL));
+		Table authorsGhost = new Table("authors_ghost").addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL));
+		Table booksGhost = new Table("books_ghost")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("author_id", bigint(), NOT_NULL));
+		catalog.addTable(authors).addTable(books).addTable(authorsGhost).addTable(booksGhost);
+		booksGhost.addForeignKey("author_id").named("books_ghost_author_id_fk").onDelete(Action.CASCADE)
+				.referencing(authorsGhost, "id");
+
+		// The ghost tables are created like they are when the validation of foreign keys is deferred.
+		List<Table> ghostTables = Lists.newArrayList(authorsGhost, booksGhost);
+		TableCreator creator = new TableCreator();
+		creator.createTables(database.getConnection(), ghostTables);
+		creator.createForeignKeys(database.getConnection(), ghostTables, true);
+
+		Changelog changelog = new Changelog();
+		changelog.addChangeSet("test", "Michael de Jong", SchemaOperations.addColumn("books", "title", text()));
+
+		RefLog refLog = new RefLog();
+		installSyncFunction(refLog, changelog, catalog, "authors", "id");
+		installSyncFunction(refLog, changelog, catalog, "books", "id", "author_id");
+
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("INSERT INTO authors SELECT id FROM generate_series(1, 10) AS id;");
+			statement.execute("INSERT INTO books SELECT id, id % 10 + 1 FROM generate_series(1, 100) AS id;");
+
+			// The deletion of the books cascades from the author, so it's skipped by the sync function of books.
+			statement.execute("DELETE FROM authors WHERE id = 1;");
+		}
+
+		assertEquals(90, count("books"));
+		assertEquals(90, count("books_ghost"));
+
+		new ForeignKeyValidator(backend, config).validate(Lists.newArrayList(booksGhost));
+		assertEquals(Boolean.TRUE, isValidated("books_ghost_author_id_fk"));
+	}
+
+	private void installSyncFunction(RefLog refLog, Changelog changelog, Catalog catalog, String tableName,
+			String... columnNames) throws SQLException {
+
+		List<ColumnRef> sourceColumns = Lists.newArrayList();
+		List<ColumnRef> targetColumns = Lists.newArrayList();
+		for (String columnName : columnNames) {
+			ColumnRef sourceColumn = new ColumnRef(columnName);
+			sourceColumns.add(sourceColumn);
+			targetColumns.add(new ColumnRef(columnName, Sets.newHashSet(sourceColumn)));
+		}
+
+		TableRef source = refLog.addTable(tableName, tableName, changelog.getRoot(), sourceColumns);
+		TableRef target = refLog.addTable(tableName, tableName + "_ghost", changelog.getLastAdded(), targetColumns);
+
+		SyncFunction syncFunction = new SyncFunction(refLog, source, target, refLog.getColumnMapping(source, target),
+				catalog, new NullRecords());
+		syncFunction.setColumnsToMigrate(Sets.newHashSet(columnNames));
+
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute(syncFunction.createFunctionStatement().toString());
+			statement.execute(syncFunction.createTriggerStatement().toString());
+		}
+	}
+
+	private long count(String tableName) throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + tableName + ";");
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+	private Boolean isValidated(String foreignKeyName) throws SQLException {
+		String query = "SELECT convalidated FROM pg_constraint WHERE conname = ?;";
+		try (PreparedStatement statement = database.getConnection().prepareStatement(query)) {
+			statement.setString(1, foreignKeyName);
+			ResultSet resultSet = statement.executeQuery();
+			return resultSet.next() ? resultSet.getBoolean("convalidated") : null;
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.IDENTITY;
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.bigint;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.varchar;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.Table;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class IndexBuilderTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	private Config config;
+	private PostgresqlBackend backend;
+	private List<Table> tables;
+
+	@Before
+	public void setUp() throws SQLException {
+		config = new Config();
+		config.setUrl(database.getJdbcUrl());
+		config.setUser(database.getJdbcUser());
+		config.setPassword(database.getJdbcPass());
+		config.setCatalog(database.getCatalogName());
+		config.setDriver(database.getJdbcDriver());
+		config.setIndexWorkers(2);
+
+		backend = (PostgresqlBackend) config.getBackend();
+
+		tables = Lists.newArrayList();
+		try (Statement statement = database.getConnection().createStatement()) {
+			for (String tableName : Lists.newArrayList("users", "customers", "employees")) {
+				statement.execute("CREATE TABLE " + tableName + " (id BIGINT NOT NULL PRIMARY KEY, "
+						+ "name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL);");
+				statement.execute("INSERT INTO " + tableName + " SELECT id, 'name-' || id, id || '@example.com' "
+						+ "FROM generate_series(1, 10000) AS id;");
+
+				tables.add(new Table(tableName)
+						.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+						.addColumn(new Column("name", varchar(255), NOT_NULL))
+						.addColumn(new Column("email", varchar(255), NOT_NULL))
+						.addIndex(new Index(tableName + "_name_idx", Lists.newArrayList("name"), false))
+						.addIndex(new Index(tableName + "_email_idx", Lists.newArrayList("email"), true)));
+			}
+		}
+	}
+
+	@Test
+	public void testBuildingIndexesOfMultipleTables() throws SQLException, InterruptedException {
+		new IndexBuilder(backend, config).createIndexes(tables);
+
+		for (Table table : tables) {
+			for (Index index : table.getIndexes()) {
+				assertEquals(Boolean.TRUE, isValid(index.getIndexName()));
+			}
+		}
+	}
+
+	@Test
+	public void testThatInvalidIndexIsRebuilt() throws SQLException, InterruptedException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE INDEX users_name_idx ON users (name);");
+			statement.execute("UPDATE pg_index SET indisvalid = false "
+					+ "WHERE indexrelid = 'users_name_idx'::regclass;");
+		}
+
+		new IndexBuilder(backend, config).createIndexes(tables.subList(0, 1));
+
+		assertEquals(Boolean.TRUE, isValid("users_name_idx"));
+		assertEquals(Boolean.TRUE, isValid("users_email_idx"));
+	}
+
+	@Test(expected = SQLException.class)
+	public void testThatFailingIndexBuildIsReported() throws SQLException, InterruptedException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("UPDATE customers SET email = 'duplicate@example.com' WHERE id < 10;");
+		}
+
+		new IndexBuilder(backend, config).createIndexes(tables);
+	}
+
+	private Boolean isValid(String indexName) throws SQLException {
+		String query = "SELECT indisvalid FROM pg_index WHERE indexrelid = ?::regclass;";
+		try (PreparedStatement statement = database.getConnection().prepareStatement(query)) {
+			statement.setString(1, indexName);
+			ResultSet resultSet = statement.executeQuery();
+			return resultSet.next() ? resultSet.getBoolean("indisvalid") : null;
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package io.quantumdb.core.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MigrationEventsTest {
+
+	/**
+	 * The jdk.jfr API is only accessed reflectively, so this test compiles on JDKs which do not ship it.
+	 */
+	@Before
+	public void setUp() {
+		boolean available;
+		try {
+			available = (Boolean) Class.forName("jdk.jfr.FlightRecorder").getMethod("isAvailable").invoke(null);
+		}
+		catch (ReflectiveOperationException | LinkageError e) {
+			available = false;
+		}
+		assumeTrue(available);
+	}
+
+	@Test
+	public void testThatPhasesAreRecorded() throws Exception {
+		List<Object> events = record("io.quantumdb.MigrationPhase", () -> {
+			try (MigrationEvents.Event event = MigrationEvents.phase("ADD_NULL", "users_v2")) {
+				event.setRows(1);
+			}
+		});
+
+		assertEquals(1, events.size());
+		Object event = events.get(0);
+		assertEquals("ADD_NULL", getString(event, "phase"));
+		assertEquals("users_v2", getString(event, "tables"));
+		assertEquals(1, getLong(event, "rows"));
+	}
+
+	@Test
+	public void testThatCopyBatchesAreRecorded() throws Exception {
+		List<Object> events = record("io.quantumdb.CopyBatch", () -> {
+			try (MigrationEvents.Event event = MigrationEvents.copyBatch("users", "users_v2", 2_000)) {
+				event.setRows(1_500);
+			}
+		});
+
+		assertEquals(1, events.size());
+		Object event = events.get(0);
+		assertEquals("users", getString(event, "sourceTable"));
+		assertEquals("users_v2", getString(event, "targetTable"));
+		assertEquals(1_500, getLong(event, "rows"));
+		assertEquals(2_000, getLong(event, "batchSize"));
+	}
+
+	private List<Object> record(String eventName, Runnable runnable) throws Exception {
+		File file = File.createTempFile("migration-events", ".jfr");
+		Object recording = Class.forName("jdk.jfr.Recording").newInstance();
+		try {
+			invoke(recording, "enable", eventName);
+			invoke(recording, "start");
+			runnable.run();
+			invoke(recording, "stop");
+			invoke(recording, "dump", file.toPath());
+
+			Method readAllEvents = Class.forName("jdk.jfr.consumer.RecordingFile")
+					.getMethod("readAllEvents", Path.class);
+
+			List<?> events = (List<?>) readAllEvents.invoke(null, file.toPath());
+			List<Object> matching = Lists.newArrayList();
+			for (Object event : events) {
+				if (eventName.equals(invoke(invoke(event, "getEventType"), "getName"))) {
+					matching.add(event);
+				}
+			}
+			return matching;
+		}
+		finally {
+			invoke(recording, "close");
+			file.delete();
+		}
+	}
+
+	private static String getString(Object event, String field) throws ReflectiveOperationException {
+		return (String) invoke(event, "getString", field);
+	}
+
+	private static long getLong(Object event, String field) throws ReflectiveOperationException {
+		return (Long) invoke(event, "getLong", field);
+	}
+
+	private static Object invoke(Object target, String methodName, Object... arguments)
+			throws ReflectiveOperationException {
+
+		for (Method method : target.getClass().getMethods()) {
+			Class<?>[] types = method.getParameterTypes();
+			if (method.getName().equals(methodName) && types.length == arguments.length) {
+				boolean matches = true;
+				for (int i = 0; i < types.length; i++) {
+					matches &= types[i].isInstance(arguments[i]);
+				}
+				if (matches) {
+					return method.invoke(target, arguments);
+				}
+			}
+		}
+		throw new NoSuchMethodException(target.getClass().getName() + "." + methodName);
+	}
+
+}
@@ -0,0 +1,103 @@
+package io.quantumdb.core.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class PostgresqlBackendTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	private PostgresqlBackend backend;
+
+	@Before
+	public void setUp() {
+		Config config = new Config();
+		config.setUrl(database.getJdbcUrl());
+		config.setUser(database.getJdbcUser());
+		config.setPassword(database.getJdbcPass());
+		config.setCatalog(database.getCatalogName());
+		config.setDriver(database.getJdbcDriver());
+
+		backend = (PostgresqlBackend) config.getBackend();
+	}
+
+	@Test(timeout = 20_000)
+	public void testThatRunningQueriesAreCancelled() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (Connection connection = backend.connect()) {
+			Future<?> query = executor.submit(() -> {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("SELECT pg_sleep(60);");
+				}
+				return null;
+			});
+
+			int cancelled = 0;
+			while (cancelled == 0) {
+				Thread.sleep(50);
+				cancelled = backend.cancelQueries();
+			}
+			assertEquals(1, cancelled);
+
+			try {
+				query.get();
+				fail("Expected the query to be cancelled");
+			}
+			catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof SQLException);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 20_000)
+	public void testThatQueriesOfOtherClientsAreNotCancelled() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (Connection connection = database.createConnection()) {
+			Future<?> query = executor.submit(() -> {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("SELECT pg_sleep(1);");
+				}
+				return null;
+			});
+
+			while (countSleepingQueries() == 0) {
+				Thread.sleep(50);
+			}
+			assertEquals(0, backend.cancelQueries());
+			query.get();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private int countSleepingQueries() throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM pg_stat_activity "
+					+ "WHERE state = 'active' AND query LIKE 'SELECT pg_sleep%';");
+			resultSet.next();
+			return resultSet.getInt(1);
+		}
+	}
+
+}
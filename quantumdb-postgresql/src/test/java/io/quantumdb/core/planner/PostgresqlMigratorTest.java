@@ -0,0 +1,118 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.backends.DatabaseMigrator.MigrationException;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.migration.Migrator;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.schema.operations.SchemaOperations;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.State;
+import io.quantumdb.core.versioning.Version;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class PostgresqlMigratorTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	private PostgresqlBackend backend;
+	private Version origin;
+	private Version target;
+
+	@Before
+	public void setUp() throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE users (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255));");
+			statement.execute("INSERT INTO users SELECT id, 'user-' || id FROM generate_series(1, 20000) AS id;");
+			statement.execute("UPDATE users SET name = NULL WHERE id = 15000;");
+		}
+
+		Config config = new Config();
+		config.setUrl(database.getJdbcUrl());
+		config.setUser(database.getJdbcUser());
+		config.setPassword(database.getJdbcPass());
+		config.setCatalog(database.getCatalogName());
+		config.setDriver(database.getJdbcDriver());
+		config.setBatchMaxSize(1_000);
+
+		backend = (PostgresqlBackend) config.getBackend();
+		State state = backend.loadState();
+		origin = state.getChangelog().getRoot();
+
+		Table users = state.getCatalog().getTable("users");
+		List<ColumnRef> columns = users.getColumns().stream()
+				.map(column -> new ColumnRef(column.getName()))
+				.collect(Collectors.toList());
+		state.getRefLog().addTable("users", "users", origin, columns);
+
+		state.getChangelog().addChangeSet("test", "Michael de Jong",
+				SchemaOperations.alterColumn("users", "name").addHint(NOT_NULL));
+
+		target = state.getChangelog().getLastAdded();
+		backend.persistState(state);
+	}
+
+	@Test
+	public void testThatInterruptedForkIsResumed() throws SQLException, MigrationException {
+		Migrator migrator = new Migrator(backend);
+		try {
+			migrator.migrate(origin.getId(), target.getId());
+			fail("Expected the fork to fail on the record which violates the NOT NULL constraint");
+		}
+		catch (MigrationException e) {
+			// Expected, since the ghost table's column is NOT NULL.
+		}
+
+		String ghostTableId = backend.loadState().getRefLog().getTableRef(target, "users").getRefId();
+		assertNotEquals("users", ghostTableId);
+		String copiedBefore = query("SELECT xmin::text FROM " + ghostTableId + " WHERE id = 1;");
+
+		// Changes made while the fork is interrupted are synchronized into the ghost table.
+		execute("UPDATE users SET name = 'user-15000' WHERE id = 15000;");
+		execute("UPDATE users SET name = 'changed' WHERE id = 2;");
+
+		migrator.migrate(origin.getId(), target.getId());
+
+		State state = backend.loadState();
+		assertEquals(ghostTableId, state.getRefLog().getTableRef(target, "users").getRefId());
+		assertEquals("20000", query("SELECT COUNT(*) FROM " + ghostTableId + ";"));
+		assertEquals("changed", query("SELECT name FROM " + ghostTableId + " WHERE id = 2;"));
+
+		// Records which were copied before the fork was interrupted were not copied again.
+		assertEquals(copiedBefore, query("SELECT xmin::text FROM " + ghostTableId + " WHERE id = 1;"));
+
+		// The sync function of the interrupted fork was taken over instead of installing another one.
+		assertEquals("1", query("SELECT COUNT(DISTINCT tgfoid) FROM pg_trigger "
+				+ "WHERE tgrelid = 'users'::regclass AND NOT tgisinternal;"));
+	}
+
+	private void execute(String query) throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute(query);
+		}
+	}
+
+	private String query(String query) throws SQLException {
+		try (Connection connection = backend.connect(); Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery(query);
+			resultSet.next();
+			return resultSet.getString(1);
+		}
+	}
+
+}
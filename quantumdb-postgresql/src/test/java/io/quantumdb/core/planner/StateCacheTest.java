@@ -0,0 +1,178 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.PostgresTypes.varchar;
+import static io.quantumdb.core.schema.operations.SchemaOperations.addColumn;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.schema.definitions.ForeignKey;
+import io.quantumdb.core.schema.definitions.Index;
+import io.quantumdb.core.schema.definitions.PostgresTypes;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.versioning.State;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StateCacheTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private Config config;
+	private PostgresqlBackend backend;
+
+	@Before
+	public void setUp() throws SQLException {
+		config = new Config();
+		config.setUrl(database.getJdbcUrl());
+		config.setUser(database.getJdbcUser());
+		config.setPassword(database.getJdbcPass());
+		config.setCatalog(database.getCatalogName());
+		config.setDriver(database.getJdbcDriver());
+		config.setStateCacheDirectory(folder.getRoot());
+
+		backend = (PostgresqlBackend) config.getBackend();
+
+		execute("CREATE TABLE users (id SERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL DEFAULT 'unknown', "
+				+ "country CHAR(2));");
+		execute("CREATE TABLE messages (id BIGSERIAL PRIMARY KEY, "
+				+ "sender_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE, body TEXT);");
+		execute("CREATE INDEX messages_sender ON messages (sender_id);");
+	}
+
+	@Test
+	public void testThatSnapshotIsReusedWhileDatabaseIsUnchanged() throws SQLException {
+		State loaded = backend.loadState();
+		assertTrue(backend.getStateCache().getFile().exists());
+
+		State cached;
+		try (Connection connection = backend.connect()) {
+			cached = backend.getStateCache().load(StateCache.fingerprint(connection));
+		}
+
+		assertNotNull(cached);
+		assertEquals(loaded, cached);
+
+		Table users = cached.getCatalog().getTable("users");
+		assertEquals(PostgresTypes.chars(2), users.getColumn("country").getType());
+		assertEquals("'unknown'::character varying", users.getColumn("name").getDefaultValue());
+		assertEquals("users_id_seq", users.getColumn("id").getSequence().getName());
+
+		Table messages = cached.getCatalog().getTable("messages");
+		ForeignKey foreignKey = messages.getForeignKeys().get(0);
+		assertEquals("users", foreignKey.getReferredTableName());
+		assertEquals(ForeignKey.Action.CASCADE, foreignKey.getOnDelete());
+		assertTrue(messages.getIndexes().stream()
+				.map(Index::getIndexName)
+				.anyMatch("messages_sender"::equals));
+	}
+
+	@Test
+	public void testThatSchemaChangesAlterTheFingerprint() throws SQLException {
+		backend.loadState();
+		String fingerprint = fingerprint();
+
+		execute("ALTER TABLE messages ALTER COLUMN body SET NOT NULL;");
+		assertNotEquals(fingerprint, fingerprint = fingerprint());
+
+		execute("ALTER TABLE messages ALTER COLUMN body SET DEFAULT '';");
+		assertNotEquals(fingerprint, fingerprint = fingerprint());
+
+		execute("ALTER TABLE users ADD CONSTRAINT users_name UNIQUE (name);");
+		assertNotEquals(fingerprint, fingerprint = fingerprint());
+
+		execute("INSERT INTO quantumdb.refs (ref_id) VALUES ('unused');");
+		assertNotEquals(fingerprint, fingerprint());
+	}
+
+	@Test
+	public void testThatStateIsReloadedAfterSchemaChange() throws SQLException {
+		backend.loadState();
+		execute("ALTER TABLE users ADD COLUMN email VARCHAR(255);");
+
+		State state = backend.loadState();
+		assertTrue(state.getCatalog().getTable("users").containsColumn("email"));
+	}
+
+	@Test
+	public void testThatStateIsReloadedAfterPersistingState() throws SQLException {
+		State state = backend.loadState();
+		state.getChangelog().addChangeSet("add_email", "Michael de Jong", addColumn("users", "email", varchar(255)));
+		backend.persistState(state);
+
+		State reloaded = backend.loadState();
+		assertEquals(state.getChangelog().getLastAdded(), reloaded.getChangelog().getLastAdded());
+		assertEquals("add_email", reloaded.getChangelog().getLastAdded().getChangeSet().getId());
+	}
+
+	@Test
+	public void testThatNoSnapshotIsUsedWhenFingerprintDiffers() throws SQLException {
+		backend.loadState();
+		assertNull(backend.getStateCache().load("outdated"));
+	}
+
+	@Test
+	public void testThatCacheDirectoryIsOnlyAccessibleByItsOwner() throws SQLException, IOException {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+
+		File directory = new File(folder.getRoot(), "cache");
+		config.setStateCacheDirectory(directory);
+		backend = (PostgresqlBackend) config.getBackend();
+		backend.loadState();
+
+		Path file = backend.getStateCache().getFile().toPath();
+		assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(directory.toPath()));
+		assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file));
+	}
+
+	@Test
+	public void testThatSnapshotsOfOtherUsersAreIgnored() throws SQLException {
+		backend.loadState();
+
+		Path file = backend.getStateCache().getFile().toPath();
+		try {
+			// Changing the owner of a file requires elevated privileges.
+			Files.setOwner(file, file.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName("nobody"));
+		}
+		catch (IOException | UnsupportedOperationException e) {
+			assumeNoException(e);
+		}
+
+		assertNull(backend.getStateCache().load(fingerprint()));
+	}
+
+	private String fingerprint() throws SQLException {
+		try (Connection connection = backend.connect()) {
+			return StateCache.fingerprint(connection);
+		}
+	}
+
+	private void execute(String query) throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute(query);
+		}
+	}
+
+}
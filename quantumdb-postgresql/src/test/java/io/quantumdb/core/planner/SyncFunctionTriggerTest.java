@@ -0,0 +1,216 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.IDENTITY;
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.bigint;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.varchar;
+import static org.junit.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.schema.definitions.Catalog;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.schema.operations.SchemaOperations;
+import io.quantumdb.core.versioning.Changelog;
+import io.quantumdb.core.versioning.RefLog;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.RefLog.TableRef;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class SyncFunctionTriggerTest {
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	private SyncFunction syncFunction;
+
+	@Before
+	public void setUp() throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE users (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL, visits BIGINT NOT NULL DEFAULT 0);");
+			statement.execute("CREATE TABLE users_ghost (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255));");
+		}
+
+		Catalog catalog = new Catalog(database.getCatalogName());
+		catalog.addTable(new Table("users")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("name", varchar(255), NOT_NULL))
+				.addColumn(new Column("visits", bigint(), "0", NOT_NULL)));
+		catalog.addTable(new Table("users_ghost")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("name", varchar(255), NOT_NULL))
+				.addColumn(new Column("email", varchar(255))));
+
+		Changelog changelog = new Changelog();
+		changelog.addChangeSet("test", "Michael de Jong", SchemaOperations.addColumn("users", "email", varchar(255)));
+
+		RefLog refLog = new RefLog();
+		ColumnRef usersId = new ColumnRef("id");
+		ColumnRef usersName = new ColumnRef("name");
+		TableRef source = refLog.addTable("users", "users", changelog.getRoot(), Lists.newArrayList(usersId, usersName,
+				new ColumnRef("visits")));
+		TableRef target = refLog.addTable("users", "users_ghost", changelog.getLastAdded(), Lists.newArrayList(
+				new ColumnRef("id", Sets.newHashSet(usersId)),
+				new ColumnRef("name", Sets.newHashSet(usersName)),
+				new ColumnRef("email")));
+
+		syncFunction = new SyncFunction(refLog, source, target, refLog.getColumnMapping(source, target), catalog,
+				new NullRecords());
+		syncFunction.setColumnsToMigrate(Sets.newHashSet("id", "name", "email"));
+	}
+
+	@Test
+	public void testThatRowLevelSyncAppliesAllChanges() throws SQLException {
+		installSyncFunction(false);
+		modifySourceTable();
+		assertEquals(getRecords("users"), getRecords("users_ghost"));
+	}
+
+	@Test
+	public void testThatRowLevelSyncPreservesUnmappedColumns() throws SQLException {
+		installSyncFunction(false);
+		assertThatUnmappedColumnsArePreserved();
+	}
+
+	@Test
+	public void testThatStatementLevelSyncAppliesAllChanges() throws SQLException {
+		installSyncFunction(true);
+		modifySourceTable();
+		assertEquals(getRecords("users"), getRecords("users_ghost"));
+	}
+
+	@Test
+	public void testThatStatementLevelSyncPreservesUnmappedColumns() throws SQLException {
+		installSyncFunction(true);
+		assertThatUnmappedColumnsArePreserved();
+	}
+
+	@Test
+	public void testThatRowLevelSyncSkipsUpdatesOfOtherColumns() throws SQLException {
+		installSyncFunction(false);
+		assertThatUpdatesOfOtherColumnsAreSkipped();
+	}
+
+	@Test
+	public void testThatStatementLevelSyncSkipsUpdatesOfOtherColumns() throws SQLException {
+		installSyncFunction(true);
+		assertThatUpdatesOfOtherColumnsAreSkipped();
+	}
+
+	@Test(timeout = 60_000)
+	public void testThatRecordsWrittenWhileReplacingSyncFunctionAreSynchronized() throws Exception {
+		syncFunction.setColumnsToMigrate(Sets.newHashSet("id", "name"));
+		installSyncFunction(false);
+
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> writer = executor.submit(() -> {
+				try (Connection connection = database.createConnection();
+						Statement statement = connection.createStatement()) {
+					for (long id = 1; writing.get(); id++) {
+						statement.execute("INSERT INTO users VALUES (" + id + ", 'user-" + id + "');");
+					}
+				}
+				return null;
+			});
+
+			// Every following COPY step for the same table replaces the sync function.
+			for (int i = 0; i < 50; i++) {
+				syncFunction.setColumnsToMigrate(Sets.newHashSet("id", "name", "email"));
+				PostgresqlMigrator.replaceSyncFunction(database.getConnection(), syncFunction);
+			}
+
+			writing.set(false);
+			writer.get();
+		}
+		finally {
+			writing.set(false);
+			executor.shutdownNow();
+		}
+
+		assertEquals(getRecords("users"), getRecords("users_ghost"));
+	}
+
+	private void assertThatUpdatesOfOtherColumnsAreSkipped() throws SQLException {
+		execute("INSERT INTO users SELECT id, 'user-' || id FROM generate_series(1, 10) AS id;");
+		Map<Long, String> versions = getRecordVersions("users_ghost");
+
+		execute("UPDATE users SET visits = visits + 1;");
+		execute("UPDATE users SET name = name WHERE id <= 5;");
+		assertEquals(versions, getRecordVersions("users_ghost"));
+
+		execute("UPDATE users SET name = 'updated', visits = visits + 1 WHERE id = 1;");
+		assertEquals("updated", getRecords("users_ghost").get(1L));
+	}
+
+	private void assertThatUnmappedColumnsArePreserved() throws SQLException {
+		execute("INSERT INTO users VALUES (1, 'Michael');");
+		execute("UPDATE users_ghost SET email = 'michael@example.com' WHERE id = 1;");
+		execute("UPDATE users SET name = 'Michael de Jong' WHERE id = 1;");
+
+		try (Statement statement = database.getConnection().createStatement()) {
+			ResultSet resultSet = statement.executeQuery("SELECT name, email FROM users_ghost WHERE id = 1;");
+			resultSet.next();
+			assertEquals("Michael de Jong", resultSet.getString("name"));
+			assertEquals("michael@example.com", resultSet.getString("email"));
+		}
+	}
+
+	private void installSyncFunction(boolean statementLevel) throws SQLException {
+		syncFunction.setStatementLevel(statementLevel);
+		execute(syncFunction.createFunctionStatement().toString());
+		execute(syncFunction.createTriggerStatement().toString());
+	}
+
+	private void modifySourceTable() throws SQLException {
+		execute("INSERT INTO users SELECT id, 'user-' || id FROM generate_series(1, 100) AS id;");
+		execute("UPDATE users SET name = 'updated-' || id WHERE id % 2 = 0;");
+		execute("UPDATE users SET id = id + 1000 WHERE id % 10 = 0;");
+		execute("DELETE FROM users WHERE id % 3 = 0;");
+	}
+
+	private Map<Long, String> getRecords(String tableName) throws SQLException {
+		Map<Long, String> records = Maps.newTreeMap();
+		try (Statement statement = database.getConnection().createStatement()) {
+			ResultSet resultSet = statement.executeQuery("SELECT id, name FROM " + tableName + ";");
+			while (resultSet.next()) {
+				records.put(resultSet.getLong("id"), resultSet.getString("name"));
+			}
+		}
+		return records;
+	}
+
+	private Map<Long, String> getRecordVersions(String tableName) throws SQLException {
+		Map<Long, String> versions = Maps.newTreeMap();
+		try (Statement statement = database.getConnection().createStatement()) {
+			ResultSet resultSet = statement.executeQuery("SELECT id, ctid FROM " + tableName + ";");
+			while (resultSet.next()) {
+				versions.put(resultSet.getLong("id"), resultSet.getString("ctid"));
+			}
+		}
+		return versions;
+	}
+
+	private void execute(String query) throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute(query);
+		}
+	}
+
+}
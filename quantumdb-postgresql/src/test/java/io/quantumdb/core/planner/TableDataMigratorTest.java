@@ -0,0 +1,307 @@
+package io.quantumdb.core.planner;
+
+import static io.quantumdb.core.schema.definitions.Column.Hint.IDENTITY;
+import static io.quantumdb.core.schema.definitions.Column.Hint.NOT_NULL;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.bigint;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.integer;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.text;
+import static io.quantumdb.core.schema.definitions.PostgresTypes.varchar;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.quantumdb.core.backends.Config;
+import io.quantumdb.core.backends.PostgresqlDatabase;
+import io.quantumdb.core.planner.CopyCheckpoints.Checkpoint;
+import io.quantumdb.core.schema.definitions.Column;
+import io.quantumdb.core.schema.definitions.Table;
+import io.quantumdb.core.schema.operations.SchemaOperations;
+import io.quantumdb.core.versioning.Changelog;
+import io.quantumdb.core.versioning.RefLog;
+import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TableDataMigratorTest {
+
+	private static final Set<String> COLUMNS = Sets.newHashSet("id", "name");
+	private static final Set<String> PAIR_COLUMNS = Sets.newHashSet("a", "b");
+	private static final long PAIRS = 200_000;
+
+	@Rule
+	public final PostgresqlDatabase database = new PostgresqlDatabase();
+
+	private Config config;
+	private PostgresqlBackend backend;
+	private Changelog changelog;
+	private RefLog refLog;
+	private Table source;
+	private Table target;
+
+	@Before
+	public void setUp() throws SQLException {
+		config = new Config();
+		config.setUrl(database.getJdbcUrl());
+		config.setUser(database.getJdbcUser());
+		config.setPassword(database.getJdbcPass());
+		config.setCatalog(database.getCatalogName());
+		config.setDriver(database.getJdbcDriver());
+
+		backend = (PostgresqlBackend) config.getBackend();
+		backend.loadState();
+
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE users (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL);");
+			statement.execute("CREATE TABLE users_ghost (id BIGINT NOT NULL PRIMARY KEY, name VARCHAR(255) NOT NULL);");
+			statement.execute("INSERT INTO users SELECT id, 'user-' || id FROM generate_series(1, 10000) AS id;");
+		}
+
+		source = new Table("users")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("name", varchar(255), NOT_NULL));
+
+		target = new Table("users_ghost")
+				.addColumn(new Column("id", bigint(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("name", varchar(255), NOT_NULL));
+
+		changelog = new Changelog();
+		changelog.addChangeSet("test", "Michael de Jong", SchemaOperations.addColumn("users", "email", varchar(255)));
+
+		refLog = new RefLog();
+		ColumnRef usersId = new ColumnRef("id");
+		ColumnRef usersName = new ColumnRef("name");
+		refLog.addTable("users", "users", changelog.getRoot(), Lists.newArrayList(usersId, usersName));
+		refLog.addTable("users", "users_ghost", changelog.getLastAdded(), Lists.newArrayList(
+				new ColumnRef("id", Sets.newHashSet(usersId)),
+				new ColumnRef("name", Sets.newHashSet(usersName))));
+	}
+
+	@Test
+	public void testThatAllRecordsAreCopied() throws SQLException, InterruptedException {
+		assertEquals(10_000, migrateData());
+
+		assertEquals(10_000, count("users_ghost"));
+		assertTrue(checkpoints("id,name").load(database.getConnection()).isEmpty());
+	}
+
+	@Test
+	public void testThatRecordsAreCopiedInParallelRanges() throws SQLException, InterruptedException {
+		config.setCopyWorkers(4);
+		migrateData();
+
+		assertEquals(10_000, count("users_ghost"));
+	}
+
+	@Test
+	public void testThatInterruptedCopyIsResumedFromCheckpoint() throws SQLException, InterruptedException {
+		CopyCheckpoints checkpoints = checkpoints("id,name");
+		Checkpoint checkpoint = new Checkpoint(0, null, "(10000)", null, 0);
+		checkpoints.create(database.getConnection(), Lists.newArrayList(checkpoint));
+
+		checkpoint.setLastIdentity("(6000)");
+		checkpoint.setRecordsCopied(6_000);
+		checkpoints.update(database.getConnection(), checkpoint);
+
+		// Records copied by the earlier attempt are included in the total.
+		assertEquals(10_000, migrateData());
+
+		// Records up to the checkpoint were not copied again.
+		assertEquals(4_000, count("users_ghost"));
+		assertTrue(checkpoints.load(database.getConnection()).isEmpty());
+	}
+
+	@Test
+	public void testThatInterruptedCopyStopsAndKeepsCheckpoint() throws SQLException {
+		Thread.currentThread().interrupt();
+		try {
+			migrateData();
+			fail("Expected the data migration to be interrupted");
+		}
+		catch (InterruptedException e) {
+			assertFalse(Thread.currentThread().isInterrupted());
+		}
+
+		assertEquals(0, count("users_ghost"));
+		assertEquals(1, checkpoints("id,name").load(database.getConnection()).size());
+	}
+
+	@Test
+	public void testThatCheckpointsForOtherColumnsAreDiscarded() throws SQLException, InterruptedException {
+		CopyCheckpoints checkpoints = checkpoints("id");
+		checkpoints.create(database.getConnection(), Lists.newArrayList(new Checkpoint(0, null, "(10000)", "(6000)", 6_000)));
+
+		migrateData();
+
+		assertEquals(10_000, count("users_ghost"));
+		assertTrue(checkpoints.load(database.getConnection()).isEmpty());
+	}
+
+	@Test
+	public void testThatMigratorFunctionsAreDropped() throws SQLException, InterruptedException {
+		config.setCopyWorkers(2);
+		migrateData();
+
+		assertEquals(10_000, count("users_ghost"));
+		assertEquals(0, count("pg_proc WHERE proname LIKE 'migrator_%'"));
+	}
+
+	@Test
+	public void testThatCheckpointsOfAbandonedGhostTablesArePurged() throws SQLException {
+		CopyCheckpoints checkpoints = new CopyCheckpoints("users", "users_abandoned", "id,name");
+		checkpoints.create(database.getConnection(), Lists.newArrayList(new Checkpoint(0, null, "(10000)", null, 0)));
+
+		assertEquals(1, CopyCheckpoints.purge(database.getConnection()));
+		assertTrue(checkpoints.load(database.getConnection()).isEmpty());
+	}
+
+	@Test
+	public void testThatRecordsAreStreamedUsingTheCopyProtocol() throws SQLException, InterruptedException {
+		config.setCopyProtocolEnabled(true);
+		assertEquals(10_000, migrateData());
+
+		assertEquals(10_000, count("users_ghost"));
+		assertEquals(10_000, count("users INNER JOIN users_ghost USING (id, name)"));
+		assertEquals(0, count("pg_class WHERE relname LIKE 'q_staging_%'"));
+		assertTrue(checkpoints("id,name").load(database.getConnection()).isEmpty());
+	}
+
+	@Test
+	public void testThatStreamedRecordsDoNotOverwriteSynchronizedRecords() throws SQLException, InterruptedException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("INSERT INTO users_ghost VALUES (5000, 'synchronized');");
+		}
+
+		config.setCopyProtocolEnabled(true);
+		migrateData();
+
+		assertEquals(10_000, count("users_ghost"));
+		assertEquals(1, count("users_ghost WHERE name = 'synchronized'"));
+	}
+
+	@Test
+	public void testThatStreamingIsResumedFromCheckpoint() throws SQLException, InterruptedException {
+		CopyCheckpoints checkpoints = checkpoints("id,name");
+		Checkpoint checkpoint = new Checkpoint(0, null, "(10000)", null, 0);
+		checkpoints.create(database.getConnection(), Lists.newArrayList(checkpoint));
+
+		checkpoint.setLastIdentity("(6000)");
+		checkpoint.setRecordsCopied(6_000);
+		checkpoints.update(database.getConnection(), checkpoint);
+
+		config.setCopyProtocolEnabled(true);
+		migrateData();
+
+		assertEquals(4_000, count("users_ghost"));
+		assertEquals(0, count("users_ghost WHERE id <= 6000"));
+		assertTrue(checkpoints.load(database.getConnection()).isEmpty());
+	}
+
+	@Test
+	public void testThatStreamingFollowsTheOrderOfTheSourceIdentity() throws SQLException, InterruptedException {
+		// The identity becomes textual in the ghost table, where '999' sorts after '1000'.
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE codes (code INTEGER NOT NULL PRIMARY KEY);");
+			statement.execute("CREATE TABLE codes_ghost (code TEXT NOT NULL);");
+			statement.execute("INSERT INTO codes SELECT id FROM generate_series(1, 10000) AS id;");
+		}
+
+		source = new Table("codes").addColumn(new Column("code", integer(), IDENTITY, NOT_NULL));
+		target = new Table("codes_ghost").addColumn(new Column("code", text(), IDENTITY, NOT_NULL));
+
+		ColumnRef code = new ColumnRef("code");
+		refLog.addTable("codes", "codes", changelog.getRoot(), Lists.newArrayList(code));
+		refLog.addTable("codes", "codes_ghost", changelog.getLastAdded(), Lists.newArrayList(
+				new ColumnRef("code", Sets.newHashSet(code))));
+
+		config.setCopyProtocolEnabled(true);
+		migrateData(source, target, Sets.newHashSet("code"));
+
+		assertEquals(10_000, count("codes_ghost"));
+		assertEquals(10_000, count("(SELECT DISTINCT code FROM codes_ghost) AS copied"));
+	}
+
+	@Test
+	public void testThatCompositeTextualKeyRangesAreCopiedExactlyOnce() throws SQLException, InterruptedException {
+		createPairs();
+		config.setCopyWorkers(2);
+		migrateData(source, target, PAIR_COLUMNS);
+
+		assertEquals(PAIRS, count("pairs_ghost"));
+		assertEquals(PAIRS, count("(SELECT DISTINCT a, b FROM pairs_ghost) AS copied"));
+	}
+
+	@Test
+	public void testThatCompositeTextualKeyRangesAreStreamedExactlyOnce() throws SQLException, InterruptedException {
+		createPairs();
+		config.setCopyWorkers(2);
+		config.setCopyProtocolEnabled(true);
+		migrateData(source, target, PAIR_COLUMNS);
+
+		assertEquals(PAIRS, count("pairs_ghost"));
+		assertEquals(PAIRS, count("(SELECT DISTINCT a, b FROM pairs_ghost) AS copied"));
+	}
+
+	/**
+	 * Creates a table with a composite identity, whose textual column contains characters which must be quoted in a
+	 * record. Its ghost table has no primary key, so records which are copied more than once show up as duplicates.
+	 */
+	private void createPairs() throws SQLException {
+		try (Statement statement = database.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE pairs (a INTEGER NOT NULL, b TEXT NOT NULL, PRIMARY KEY (a, b));");
+			statement.execute("CREATE TABLE pairs_ghost (a INTEGER NOT NULL, b TEXT NOT NULL);");
+			statement.execute("INSERT INTO pairs SELECT id % 3, 'key, \"' || lpad(id::text, 7, '0') || '\" (\\)' "
+					+ "FROM generate_series(1, " + PAIRS + ") AS id;");
+			statement.execute("ANALYZE pairs;");
+		}
+
+		source = new Table("pairs")
+				.addColumn(new Column("a", integer(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("b", text(), IDENTITY, NOT_NULL));
+
+		target = new Table("pairs_ghost")
+				.addColumn(new Column("a", integer(), IDENTITY, NOT_NULL))
+				.addColumn(new Column("b", text(), IDENTITY, NOT_NULL));
+
+		ColumnRef pairsA = new ColumnRef("a");
+		ColumnRef pairsB = new ColumnRef("b");
+		refLog.addTable("pairs", "pairs", changelog.getRoot(), Lists.newArrayList(pairsA, pairsB));
+		refLog.addTable("pairs", "pairs_ghost", changelog.getLastAdded(), Lists.newArrayList(
+				new ColumnRef("a", Sets.newHashSet(pairsA)),
+				new ColumnRef("b", Sets.newHashSet(pairsB))));
+	}
+
+	private long migrateData() throws SQLException, InterruptedException {
+		return migrateData(source, target, COLUMNS);
+	}
+
+	private long migrateData(Table source, Table target, Set<String> columns)
+			throws SQLException, InterruptedException {
+
+		TableDataMigrator migrator = new TableDataMigrator(backend, refLog, config);
+		return migrator.migrateData(new NullRecords(), source, target, changelog.getRoot(), changelog.getLastAdded(),
+				Sets.newHashSet(), columns);
+	}
+
+	private CopyCheckpoints checkpoints(String columnNames) {
+		return new CopyCheckpoints(source.getName(), target.getName(), columnNames);
+	}
+
+	private long count(String tableName) throws SQLException {
+		try (Connection connection = backend.connect(); Statement statement = connection.createStatement()) {
+			ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + tableName + ";");
+			resultSet.next();
+			return resultSet.getLong(1);
+		}
+	}
+
+}
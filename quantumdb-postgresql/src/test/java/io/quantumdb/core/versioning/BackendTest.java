@@ -9,9 +9,17 @@ import static io.quantumdb.core.schema.definitions.PostgresTypes.text;
 import static io.quantumdb.core.schema.operations.SchemaOperations.addColumn;
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import io.quantumdb.core.backends.PostgresqlDatabase;
 import io.quantumdb.core.schema.definitions.Catalog;
 import io.quantumdb.core.schema.definitions.Column;
@@ -19,6 +27,7 @@ import io.quantumdb.core.schema.definitions.Sequence;
 import io.quantumdb.core.schema.definitions.Table;
 import io.quantumdb.core.utils.RandomHasher;
 import io.quantumdb.core.versioning.RefLog.ColumnRef;
+import io.quantumdb.core.versioning.RefLog.SyncRef;
 import io.quantumdb.core.versioning.RefLog.TableRef;
 import org.junit.After;
 import org.junit.Before;
@@ -42,6 +51,78 @@ public class BackendTest {
 
 	@Test
 	public void testPersistingAndLoadingSimpleTestCase() throws SQLException {
+		State expectedState = createState();
+		Backend backend = new Backend();
+		backend.persist(database.createConnection(), expectedState);
+
+		State actualState = backend.load(database.getConnection(), expectedState.getCatalog());
+		assertEquals(expectedState, actualState);
+	}
+
+	@Test
+	public void testThatPersistingUnchangedStateDoesNotWriteAnything() throws SQLException {
+		Backend backend = new Backend();
+		backend.persist(database.createConnection(), createState());
+		State loadedState = backend.load(database.getConnection(), createState().getCatalog());
+
+		List<String> rowVersions = getRowVersions();
+		backend.persist(database.getConnection(), loadedState);
+		assertEquals(rowVersions, getRowVersions());
+	}
+
+	@Test
+	public void testThatChangesArePersisted() throws SQLException {
+		Backend backend = new Backend();
+		backend.persist(database.createConnection(), createState());
+		State state = backend.load(database.getConnection(), createState().getCatalog());
+
+		Changelog changelog = state.getChangelog();
+		changelog.addChangeSet("add_email", "Michael de Jong", addColumn("table", "email", text()));
+		Version version = changelog.getLastAdded();
+
+		RefLog refLog = state.getRefLog();
+		TableRef table2 = refLog.getTableRefById("table_2");
+		table2.getOutboundSyncs().forEach(SyncRef::drop);
+		refLog.setVersionState(version, true);
+
+		backend.persist(database.getConnection(), state);
+		assertEquals(state, backend.load(database.getConnection(), state.getCatalog()));
+	}
+
+	@Test
+	public void testLoadingTableRefsWhichArePresentInMultipleVersions() throws SQLException {
+		Backend backend = new Backend();
+		State state = createState();
+
+		Changelog changelog = state.getChangelog();
+		changelog.addChangeSet("add_email", "Michael de Jong", addColumn("table", "email", text()));
+		Version version = changelog.getLastAdded();
+		state.getRefLog().fork(version);
+
+		backend.persist(database.createConnection(), state);
+		State loadedState = backend.load(database.getConnection(), state.getCatalog());
+
+		assertEquals(state, loadedState);
+		assertEquals(2, loadedState.getRefLog().getTableRefs().size());
+		assertEquals(Sets.newHashSet(version.getParent(), version),
+				loadedState.getRefLog().getTableRefById("table_2").getVersions());
+	}
+
+	@Test
+	public void testWritingAndReadingSnapshot() throws SQLException, IOException {
+		Backend backend = new Backend();
+		backend.persist(database.createConnection(), createState());
+		State loadedState = backend.load(database.getConnection(), createState().getCatalog());
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		backend.writeSnapshot(output, loadedState);
+
+		State snapshotState = backend.readSnapshot(new ByteArrayInputStream(output.toByteArray()));
+		assertEquals(loadedState, snapshotState);
+		assertEquals(loadedState.getCatalog(), snapshotState.getCatalog());
+	}
+
+	private State createState() {
 		Sequence sequence = new Sequence("source_id_pk");
 		Catalog catalog = new Catalog("public")
 				.addSequence(sequence)
@@ -76,12 +157,23 @@ public class BackendTest {
 				.put(table2.getColumn("name"), table1.getColumn("name"))
 				.build());
 
-		Backend backend = new Backend();
-		State expectedState = new State(catalog, refLog, changelog);
-		backend.persist(database.createConnection(), expectedState);
+		return new State(catalog, refLog, changelog);
+	}
 
-		State actualState = backend.load(database.getConnection(), catalog);
-		assertEquals(expectedState, actualState);
+	private List<String> getRowVersions() throws SQLException {
+		List<String> rowVersions = Lists.newArrayList();
+		List<String> tableNames = Lists.newArrayList("changelog", "changesets", "refs", "ref_versions",
+				"table_columns", "column_mappings", "synchronizers", "synchronizer_columns", "active_versions");
+
+		try (Statement statement = database.getConnection().createStatement()) {
+			for (String tableName : tableNames) {
+				ResultSet resultSet = statement.executeQuery("SELECT ctid FROM quantumdb." + tableName + " ORDER BY ctid;");
+				while (resultSet.next()) {
+					rowVersions.add(tableName + ":" + resultSet.getString("ctid"));
+				}
+			}
+		}
+		return rowVersions;
 	}
 
 }
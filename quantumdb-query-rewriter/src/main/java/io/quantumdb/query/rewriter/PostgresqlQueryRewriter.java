@@ -1,9 +1,7 @@
 package io.quantumdb.query.rewriter;
 
 import java.sql.SQLException;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.Map;
 
 @Experimental
@@ -11,35 +9,38 @@ public class PostgresqlQueryRewriter implements QueryRewriter {
 
 	private static class State {
 
+		private final String query;
+		private final TableIndex index;
+
 		private StringBuilder output;
-		private String query;
-		private int lastProcessedCursor;
-		private int cursor;
-		private String previousWord;
-		private Deque<Character> stack;
+		private int copiedUntil;
+		private boolean expectingTableName;
 
-		private State(String query) {
+		private State(String query, TableIndex index) {
 			this.query = query;
-			this.output = new StringBuilder();
-			this.cursor = 0;
-			this.lastProcessedCursor = 0;
-			this.previousWord = "";
-			this.stack = new LinkedList<>();
+			this.index = index;
+		}
+
+		private String result() {
+			if (output == null) {
+				return query;
+			}
+			return output.append(query, copiedUntil, query.length()).toString();
 		}
 
 	}
 
-	private static final String DEFAULT_SCHEMA = "public";
+	private static final String DEFAULT_SCHEMA_PREFIX = "public.";
+	private static final char NO_QUOTE = 0;
 
-	private final Map<String, String> tableMapping;
+	private volatile TableIndex index;
 
 	public PostgresqlQueryRewriter() {
-		this.tableMapping = new HashMap<>();
+		setTableMapping(Collections.emptyMap());
 	}
 
 	public void setTableMapping(Map<String, String> newTableMapping) {
-		tableMapping.clear();
-		tableMapping.putAll(newTableMapping);
+		this.index = new TableIndex(newTableMapping);
 	}
 
 	public String rewrite(String query) throws SQLException {
@@ -47,119 +48,108 @@ public class PostgresqlQueryRewriter implements QueryRewriter {
 			throw new IllegalArgumentException("You must specify specify a 'query'.");
 		}
 
-		State state = new State(query);
-		for (state.cursor = 0; state.cursor < query.length(); state.cursor++) {
-			char currentCharacter = query.charAt(state.cursor);
-
-				switch (currentCharacter) {
-					case '\'':
-					case '\"':
-					case '`':
-						Character onStack = state.stack.peekFirst();
-						if (onStack != null && onStack.equals(currentCharacter)) {
-							state.stack.removeFirst();
-						}
-						else {
-							state.stack.addFirst(currentCharacter);
-						}
-						processWordStartOrMiddle(state);
-						break;
-					case ' ':
-					case ',':
-					case ';':
-						if (state.stack.isEmpty()) {
-							processWordEnding(state);
-						}
-						processWordStartOrMiddle(state);
-						break;
-					default:
-						processWordStartOrMiddle(state);
-						break;
-				}
-		}
-
-		processWordEnding(state);
+		State state = new State(query, index);
+		int wordStart = -1;
+		char quote = NO_QUOTE;
 
-		return state.output.toString();
-	}
+		for (int cursor = 0; cursor < query.length(); cursor++) {
+			char currentCharacter = query.charAt(cursor);
 
-	private void processWordEnding(State state) throws SQLException {
-		String word = state.query.substring(state.lastProcessedCursor, state.cursor);
+			if (quote != NO_QUOTE) {
+				if (currentCharacter == quote) {
+					quote = NO_QUOTE;
+				}
+				continue;
+			}
 
-		if (word.trim().isEmpty()) {
-			state.output.append(word);
+			switch (currentCharacter) {
+				case ' ':
+				case '\t':
+				case '\r':
+				case '\n':
+					if (wordStart != -1) {
+						processWord(state, wordStart, cursor);
+						wordStart = -1;
+					}
+					break;
+				case ',':
+				case ';':
+					if (wordStart != -1) {
+						processWord(state, wordStart, cursor);
+						wordStart = -1;
+					}
+					state.expectingTableName = false;
+					break;
+				case '\'':
+				case '\"':
+				case '`':
+					quote = currentCharacter;
+					// Fall through...
+				default:
+					if (wordStart == -1) {
+						wordStart = cursor;
+					}
+					break;
+			}
 		}
-		else {
-			state.output.append(processWord(state, word));
+
+		if (wordStart != -1) {
+			processWord(state, wordStart, query.length());
 		}
 
-		state.lastProcessedCursor = state.cursor;
+		return state.result();
 	}
 
-	private void processWordStartOrMiddle(State state) {
-		String word = state.query.substring(state.lastProcessedCursor, state.cursor);
-
-		if (word.trim().isEmpty()) {
-			state.output.append(word);
-			state.lastProcessedCursor = state.cursor;
+	private void processWord(State state, int start, int end) {
+		if (state.expectingTableName) {
+			rewriteTableName(state, start, end);
 		}
-	}
 
-	private String processWord(State state, String word) throws SQLException {
-		if (state.previousWord.equalsIgnoreCase("from") || state.previousWord.equalsIgnoreCase("join") ||
-				state.previousWord.equalsIgnoreCase("update") || state.previousWord.equalsIgnoreCase("into")) {
-
-			boolean isQuoted = isQuoted(word);
-			if (isQuoted) {
-				word = word.substring(1, word.length() - 1);
-			}
-
-			String schema = null;
-			if (word != null && word.startsWith(DEFAULT_SCHEMA + ".")) {
-				schema = DEFAULT_SCHEMA;
-				word = word.substring(DEFAULT_SCHEMA.length() + 1, word.length());
-			}
+		state.expectingTableName = isKeyword(state.query, start, end, "from")
+				|| isKeyword(state.query, start, end, "join")
+				|| isKeyword(state.query, start, end, "update")
+				|| isKeyword(state.query, start, end, "into");
+	}
 
-			String tableName = tableMapping.get(word);
+	private void rewriteTableName(State state, int start, int end) {
+		String query = state.query;
 
-			if (!isQuoted && tableName == null) {
-				for (Map.Entry<String, String> entry : tableMapping.entrySet()) {
-					if (entry.getKey().equalsIgnoreCase(word)) {
-						tableName = entry.getValue();
-						break;
-					}
-				}
-			}
+		boolean isQuoted = isQuoted(query, start, end);
+		if (isQuoted) {
+			start++;
+			end--;
+		}
 
-			if (tableName == null) {
-				//throw new SQLException("No table with name: '" + word + "' exists.");
-			}
-			else {
-				word = tableName;
-			}
+		if (query.startsWith(DEFAULT_SCHEMA_PREFIX, start)) {
+			start += DEFAULT_SCHEMA_PREFIX.length();
+		}
 
-			if (schema != null) {
-				word = schema + "." + word;
-			}
+		// Quoted table names are case-sensitive, unquoted table names are not.
+		String refId = state.index.get(query, start, end, !isQuoted);
+		if (refId == null || (refId.length() == end - start && query.startsWith(refId, start))) {
+			return;
+		}
 
-			if (isQuoted) {
-				word = "'" + word + "'";
-			}
+		if (state.output == null) {
+			state.output = new StringBuilder(query.length() + 16);
 		}
 
-		state.previousWord = word;
-		return word;
+		state.output.append(query, state.copiedUntil, start).append(refId);
+		state.copiedUntil = end;
 	}
 
-	private boolean isQuoted(String word) {
-		char first = word.charAt(0);
-		char last = word.charAt(word.length() - 1);
+	private boolean isKeyword(String query, int start, int end, String keyword) {
+		return end - start == keyword.length() && query.regionMatches(true, start, keyword, 0, keyword.length());
+	}
 
-		if (first != last) {
+	private boolean isQuoted(String query, int start, int end) {
+		if (end - start < 2) {
 			return false;
 		}
 
-		return first == '\'';
+		char first = query.charAt(start);
+		char last = query.charAt(end - 1);
+		return first == last && first == '\'';
 	}
 
 }
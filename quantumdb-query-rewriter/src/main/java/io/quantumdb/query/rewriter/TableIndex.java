@@ -0,0 +1,80 @@
+package io.quantumdb.query.rewriter;
+
+import java.util.Map;
+
+/**
+ * An open-addressing hash index over table names, which can be queried with a region of a query without having to
+ * extract that region into a separate String first. Hashes are computed over the case-folded characters of a name, so
+ * that both case-sensitive and case-insensitive lookups resolve in a single probe sequence.
+ */
+final class TableIndex {
+
+	private final String[] names;
+	private final String[] refIds;
+	private final int[] hashes;
+	private final int mask;
+
+	TableIndex(Map<String, String> tableMapping) {
+		int capacity = Integer.highestOneBit(Math.max(1, tableMapping.size()) * 2) << 1;
+
+		this.names = new String[capacity];
+		this.refIds = new String[capacity];
+		this.hashes = new int[capacity];
+		this.mask = capacity - 1;
+
+		for (Map.Entry<String, String> entry : tableMapping.entrySet()) {
+			String name = entry.getKey();
+			int hash = hash(name, 0, name.length());
+
+			int slot = hash & mask;
+			while (names[slot] != null) {
+				slot = (slot + 1) & mask;
+			}
+
+			names[slot] = name;
+			refIds[slot] = entry.getValue();
+			hashes[slot] = hash;
+		}
+	}
+
+	/**
+	 * Looks up the refId of the table whose name is contained in the specified region of the query. When the lookup is
+	 * case-insensitive, an exact match is still preferred over a match which only differs in case.
+	 *
+	 * @param query The query containing the table name.
+	 * @param start The index of the first character of the table name (inclusive).
+	 * @param end The index of the last character of the table name (exclusive).
+	 * @param ignoreCase Whether or not to ignore case when comparing table names.
+	 * @return The refId of the matching table, or NULL if there's no such table.
+	 */
+	String get(String query, int start, int end, boolean ignoreCase) {
+		int length = end - start;
+		int hash = hash(query, start, end);
+
+		String match = null;
+		for (int slot = hash & mask; names[slot] != null; slot = (slot + 1) & mask) {
+			String name = names[slot];
+			if (hashes[slot] != hash || name.length() != length) {
+				continue;
+			}
+
+			if (name.regionMatches(false, 0, query, start, length)) {
+				return refIds[slot];
+			}
+			if (ignoreCase && match == null && name.regionMatches(true, 0, query, start, length)) {
+				match = refIds[slot];
+			}
+		}
+		return match;
+	}
+
+	private static int hash(String input, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			// Fold case the same way String.regionMatches(true, ...) does.
+			hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(input.charAt(i)));
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+}
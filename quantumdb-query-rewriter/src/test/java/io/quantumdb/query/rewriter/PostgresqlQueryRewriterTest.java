@@ -1,6 +1,7 @@
 package io.quantumdb.query.rewriter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.sql.SQLException;
 import java.util.HashMap;
@@ -74,6 +75,59 @@ public class PostgresqlQueryRewriterTest {
 		assertEquals(expected, rewrite(input));
 	}
 
+	@Test
+	public void testSelectWithJoin() throws SQLException {
+		String input = "SELECT * FROM users JOIN accounts ON users.id = accounts.owner_id";
+		String expected = "SELECT * FROM users_v2 JOIN accounts_v2 ON users.id = accounts.owner_id";
+		assertEquals(expected, rewrite(input));
+	}
+
+	@Test
+	public void testThatNewLinesAndTabsSeparateWords() throws SQLException {
+		String input = "SELECT *\nFROM\tusers\r\nWHERE id = 1";
+		String expected = "SELECT *\nFROM\tusers_v2\r\nWHERE id = 1";
+		assertEquals(expected, rewrite(input));
+	}
+
+	@Test
+	public void testInsertAndUpdateQueries() throws SQLException {
+		assertEquals("INSERT INTO users_v2 (name) VALUES ('Michael');",
+				rewrite("INSERT INTO users (name) VALUES ('Michael');"));
+
+		assertEquals("UPDATE accounts_v2 SET balance = 0 WHERE id = 1;",
+				rewrite("UPDATE accounts SET balance = 0 WHERE id = 1;"));
+	}
+
+	@Test
+	public void testThatKeywordsInsideStringLiteralsAreIgnored() throws SQLException {
+		String input = "SELECT * FROM users WHERE name = 'from users, join accounts'";
+		String expected = "SELECT * FROM users_v2 WHERE name = 'from users, join accounts'";
+		assertEquals(expected, rewrite(input));
+	}
+
+	@Test
+	public void testThatUnchangedQueryIsReturnedAsIs() throws SQLException {
+		String input = "SELECT * FROM transactions WHERE amount > 100";
+		assertSame(input, rewrite(input));
+	}
+
+	@Test
+	public void testThatExactMatchIsPreferredOverCaseInsensitiveMatch() throws SQLException {
+		tableMappings.put("Users", "users_v3");
+		assertEquals("SELECT * FROM users_v3", rewrite("SELECT * FROM Users"));
+		assertEquals("SELECT * FROM users_v2", rewrite("SELECT * FROM users"));
+	}
+
+	@Test
+	public void testLookupsWithManyTables() throws SQLException {
+		for (int i = 0; i < 500; i++) {
+			tableMappings.put("table_" + i, "table_" + i + "_v2");
+		}
+
+		assertEquals("SELECT * FROM table_0_v2 JOIN table_499_v2 ON table_0.id = table_499.id",
+				rewrite("SELECT * FROM table_0 JOIN TABLE_499 ON table_0.id = table_499.id"));
+	}
+
 	@Test
 	@Ignore
 	public void testImplicitJoin() throws SQLException {